@@ -14,12 +14,118 @@ dependencies {
     implementation("commons-net:commons-net:3.10.0")
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
+// Test fixtures (src/fixtures/java): FTP/FTPS server trong JVM có shaping
+// latency/bandwidth và load generator - không cần pyftpdlib để test.
+// Chạy: gradle ftpServer [-PserverArgs="--rtt 80 --bandwidth 2m"]
+//       gradle loadTest [-PloadArgs="--clients 32 --duration 60 --tls --rtt 80"]
+val fixtures: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[fixtures.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+
+dependencies {
+    "fixturesImplementation"("org.apache.ftpserver:ftpserver-core:1.2.0")
+    "fixturesRuntimeOnly"("org.slf4j:slf4j-nop:1.7.36")
+}
+
+// Tests (src/test/java) chạy trên EmbeddedFtpServer của fixtures. user.home trỏ
+// vào build/ để journal, index và settings của FtpSession không đụng home thật.
+sourceSets.test {
+    compileClasspath += fixtures.output
+    runtimeClasspath += fixtures.output
+}
+
+configurations.testImplementation.get().extendsFrom(configurations[fixtures.implementationConfigurationName])
+configurations.testRuntimeOnly.get().extendsFrom(configurations[fixtures.runtimeOnlyConfigurationName])
+
 tasks.test {
     useJUnitPlatform()
+    systemProperty("user.home", layout.buildDirectory.dir("test-home").get().asFile.absolutePath)
+}
+
+fun splitArgs(property: String) =
+    providers.gradleProperty(property).map { it.trim().split(Regex("\\s+")) }.orElse(emptyList())
+
+tasks.register<JavaExec>("ftpServer") {
+    group = "verification"
+    description = "Runs the embedded FTP/FTPS test server until stopped"
+    classpath = fixtures.runtimeClasspath
+    mainClass.set("org.example.EmbeddedFtpServer")
+    // Lệnh "rtt <ms>" / "bandwidth <rate>" / "quit" từ terminal
+    standardInput = System.`in`
+    argumentProviders.add(CommandLineArgumentProvider { splitArgs("serverArgs").get() })
+}
+
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the multi-client load generator and prints latency percentiles"
+    classpath = fixtures.runtimeClasspath
+    mainClass.set("org.example.LoadGenerator")
+    argumentProviders.add(CommandLineArgumentProvider { splitArgs("loadArgs").get() })
+}
+
+// JMH benchmarks (src/jmh/java, package org.example để dùng API package-private).
+// Chạy: gradle jmh [-PjmhArgs="ListingParse -f 1"] [-PjmhResults=file.json]
+// Kết quả JSON (mặc định build/reports/jmh/results.json) để so sánh giữa các lần chạy.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + fixtures.output
+    runtimeClasspath += sourceSets.main.get().output + fixtures.output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations[fixtures.implementationConfigurationName])
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations[fixtures.runtimeOnlyConfigurationName])
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks and writes JSON results"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = providers.gradleProperty("jmhResults")
+        .map { file(it) }
+        .orElse(layout.buildDirectory.file("reports/jmh/results.json").map { it.asFile })
+    val extraArgs = splitArgs("jmhArgs")
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf("-rf", "json", "-rff", results.get().absolutePath) + extraArgs.get()
+    })
+    doFirst {
+        results.get().parentFile.mkdirs()
+    }
+}
+
+// Fixtures và benchmark luôn compile cùng build để không bị bỏ quên khi API đổi
+tasks.check {
+    dependsOn(tasks.named(fixtures.classesTaskName), tasks.named(jmh.classesTaskName))
 }
 
 application {
     mainClass.set("org.example.Main")
-}
\ No newline at end of file
+}
+// Headless launcher (bin/ftps-cli): không load AWT, C1 JIT + Serial GC cho
+// startup nhanh và footprint cố định khi chạy từ cron
+val cliStartScripts by tasks.registering(CreateStartScripts::class) {
+    applicationName = "ftps-cli"
+    mainClass.set("org.example.FtpCli")
+    classpath = files(tasks.jar) + configurations.runtimeClasspath.get()
+    outputDir = layout.buildDirectory.dir("cli-scripts").get().asFile
+    defaultJvmOpts = listOf("-Djava.awt.headless=true", "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-Xshare:auto")
+}
+
+distributions {
+    main {
+        contents {
+            from(cliStartScripts) {
+                into("bin")
+            }
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package org.example;
+
+import org.apache.ftpserver.DataConnectionConfiguration;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.command.AbstractCommand;
+import org.apache.ftpserver.command.CommandFactoryFactory;
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.impl.DefaultDataConnectionConfiguration;
+import org.apache.ftpserver.impl.DefaultFtpServer;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.impl.LocalizedFtpReply;
+import org.apache.ftpserver.impl.PassivePorts;
+import org.apache.ftpserver.listener.Listener;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.ssl.SslConfiguration;
+import org.apache.ftpserver.ssl.SslConfigurationFactory;
+import org.apache.ftpserver.usermanager.ClearTextPasswordEncryptor;
+import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 🧪 Embedded FTP Server - Apache FtpServer trong JVM cho benchmark và load test
+ *
+ * • Thư mục home tạm (hoặc thư mục có sẵn), user USER/PASSWORD có quyền ghi
+ * • Listener plain FTP và explicit FTPS, port ngẫu nhiên hoặc cố định
+ * • Certificate self-signed tạo bằng keytool lúc start, export PEM để
+ *   client trust (ConnectionSettings.certificatePath)
+ * • Shaping tùy chọn: RTT thêm vào và bandwidth giới hạn qua ShapingProxy
+ * • XCRC tùy chọn (CRC32 của file, quảng bá trong FEAT) - mặc định server
+ *   chỉ có MD5 như Apache FtpServer gốc
+ *
+ * Khi có shaping, FtpServer bind BACKEND_HOST (127.0.0.2) và một proxy
+ * trên HOST cho mỗi port - control lẫn từng passive data port, cùng số
+ * port. PASV quảng bá HOST nên client đi qua proxy mà không cần sửa reply
+ * (không sửa được khi control channel đã mã hóa). Cần loopback 127.0.0.0/8
+ * đầy đủ như Linux/Windows; macOS phải alias 127.0.0.2 trước.
+ *
+ * Chạy độc lập: gradle ftpServer -PserverArgs="--rtt 80 --bandwidth 2m".
+ * Thư mục tạm bị xóa khi close(); thư mục home do caller chỉ định thì giữ lại.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ShapingProxy
+ * @see LoadGenerator
+ */
+public final class EmbeddedFtpServer implements AutoCloseable {
+    public static final String USER = "test";
+    public static final String PASSWORD = "test";
+    static final String HOST = "127.0.0.1";
+    static final String BACKEND_HOST = "127.0.0.2";
+    private static final String STORE_PASSWORD = "changeit";
+    private static final int IDLE_SECONDS = 300;
+
+    private final Path directory;
+    private final Path home;
+    private final Path certificate;
+    private final FtpServer server;
+    private final ShapingProxy.Link link;
+    private final List<ShapingProxy> proxies = new ArrayList<>();
+    private final int plainPort;
+    private final int tlsPort;
+
+    /**
+     * ⚙️ Options - cấu hình trước khi start
+     */
+    public static final class Options {
+        private Path home;
+        private int plainPort;
+        private int tlsPort;
+        private int rttMillis;
+        private long bytesPerSecond;
+        private int passivePorts = 32;
+        private boolean xcrc;
+
+        /** @return Thư mục home của user, null = thư mục tạm */
+        public Path getHome() {
+            return home;
+        }
+
+        public void setHome(Path home) {
+            this.home = home;
+        }
+
+        public int getPlainPort() {
+            return plainPort;
+        }
+
+        /** @param plainPort Port plain FTP, 0 = ngẫu nhiên */
+        public void setPlainPort(int plainPort) {
+            this.plainPort = plainPort;
+        }
+
+        public int getTlsPort() {
+            return tlsPort;
+        }
+
+        /** @param tlsPort Port explicit FTPS, 0 = ngẫu nhiên */
+        public void setTlsPort(int tlsPort) {
+            this.tlsPort = tlsPort;
+        }
+
+        public int getRttMillis() {
+            return rttMillis;
+        }
+
+        /** @param rttMillis RTT thêm vào mỗi connection, 0 = không delay */
+        public void setRttMillis(int rttMillis) {
+            this.rttMillis = Math.max(0, rttMillis);
+        }
+
+        public long getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        /** @param bytesPerSecond Bandwidth mỗi hướng dùng chung cho mọi connection, 0 = không giới hạn */
+        public void setBytesPerSecond(long bytesPerSecond) {
+            this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        }
+
+        public int getPassivePorts() {
+            return passivePorts;
+        }
+
+        /**
+         * @param passivePorts Số passive port khi có shaping - mỗi data
+         *                     connection đồng thời chiếm một port (hết port → 425)
+         */
+        public void setPassivePorts(int passivePorts) {
+            this.passivePorts = Math.max(1, passivePorts);
+        }
+
+        public boolean isXcrc() {
+            return xcrc;
+        }
+
+        /** @param xcrc true = thêm command XCRC và quảng bá nó trong FEAT */
+        public void setXcrc(boolean xcrc) {
+            this.xcrc = xcrc;
+        }
+
+        /** @return true nếu cần đặt ShapingProxy trước server */
+        public boolean isShaped() {
+            return rttMillis > 0 || bytesPerSecond > 0;
+        }
+    }
+
+    private EmbeddedFtpServer(Path directory, Options options) throws IOException, FtpException, InterruptedException {
+        this.directory = directory;
+        this.home = options.getHome() != null
+            ? Files.createDirectories(options.getHome())
+            : Files.createDirectories(directory.resolve("home"));
+        Path keyStore = directory.resolve("server.p12");
+        this.certificate = directory.resolve("server.crt");
+        keytool("-genkeypair", "-alias", "ftps", "-keyalg", "RSA", "-keysize", "2048", "-validity", "2",
+            "-dname", "CN=" + HOST, "-ext", "SAN=ip:" + HOST + ",dns:localhost", "-storetype", "PKCS12",
+            "-keystore", keyStore.toString(), "-storepass", STORE_PASSWORD, "-keypass", STORE_PASSWORD);
+        keytool("-exportcert", "-rfc", "-alias", "ftps", "-keystore", keyStore.toString(),
+            "-storepass", STORE_PASSWORD, "-file", certificate.toString());
+
+        SslConfigurationFactory ssl = new SslConfigurationFactory();
+        ssl.setKeystoreFile(keyStore.toFile());
+        ssl.setKeystoreType("PKCS12");
+        ssl.setKeystorePassword(STORE_PASSWORD);
+        ssl.setKeyPassword(STORE_PASSWORD);
+        SslConfiguration sslConfiguration = ssl.createSslConfiguration();
+
+        FtpServerFactory factory = new FtpServerFactory();
+        if (options.isShaped()) {
+            this.link = new ShapingProxy.Link(options.getRttMillis(), options.getBytesPerSecond());
+            // Một PassivePorts cho cả hai listener - không cấp trùng port đang dùng
+            PassivePorts passivePorts = new PassivePorts(reservePassivePorts(options.getPassivePorts()), false);
+            factory.addListener("default", listener(BACKEND_HOST, 0, passivePorts, null));
+            factory.addListener("tls", listener(BACKEND_HOST, 0, passivePorts, sslConfiguration));
+        } else {
+            this.link = null;
+            factory.addListener("default", listener(HOST, options.getPlainPort(), null, null));
+            factory.addListener("tls", listener(HOST, options.getTlsPort(), null, sslConfiguration));
+        }
+        if (options.isXcrc()) {
+            CommandFactoryFactory commands = new CommandFactoryFactory();
+            commands.addCommand("FEAT", new FeatWithXcrc());
+            // FtpServer bỏ tiền tố X khi tra command (XCWD → CWD) - XCRC tra thành CRC
+            commands.addCommand("CRC", new Xcrc());
+            factory.setCommandFactory(commands.createCommandFactory());
+        }
+        factory.setUserManager(userManager(directory.resolve("users.properties")));
+        this.server = factory.createServer();
+        server.start();
+        int plain = ((DefaultFtpServer) server).getListener("default").getPort();
+        int tls = ((DefaultFtpServer) server).getListener("tls").getPort();
+        if (link != null) {
+            plain = proxy(options.getPlainPort(), plain);
+            tls = proxy(options.getTlsPort(), tls);
+        }
+        this.plainPort = plain;
+        this.tlsPort = tls;
+    }
+
+    /**
+     * Start server trong thư mục tạm, không shaping
+     */
+    public static EmbeddedFtpServer start() throws IOException, FtpException, InterruptedException {
+        return start(new Options());
+    }
+
+    /**
+     * Start server trong một thư mục tạm mới (keystore, users; home nếu
+     * options không chỉ định)
+     */
+    public static EmbeddedFtpServer start(Options options) throws IOException, FtpException, InterruptedException {
+        Path directory = Files.createTempDirectory("ftps-embedded");
+        try {
+            return new EmbeddedFtpServer(directory, options);
+        } catch (IOException | FtpException | RuntimeException e) {
+            delete(directory);
+            throw e;
+        }
+    }
+
+    /**
+     * Bind proxy cho từng passive port trước (port 0 → kernel chọn), rồi
+     * dùng đúng các số đó làm passive ports của server trên BACKEND_HOST
+     *
+     * @return Danh sách port cho PassivePorts ("40001,40007,...")
+     */
+    private String reservePassivePorts(int count) throws IOException {
+        StringJoiner ports = new StringJoiner(",");
+        InetAddress frontend = InetAddress.getByName(HOST);
+        for (int i = 0; i < count; i++) {
+            ShapingProxy proxy = new ShapingProxy(link, frontend, 0, new InetSocketAddress(BACKEND_HOST, 0));
+            proxies.add(proxy);
+            proxy.start();
+            ports.add(Integer.toString(proxy.getPort()));
+        }
+        return ports.toString();
+    }
+
+    private int proxy(int port, int backendPort) throws IOException {
+        ShapingProxy proxy = new ShapingProxy(link, InetAddress.getByName(HOST), port,
+            new InetSocketAddress(BACKEND_HOST, backendPort));
+        proxies.add(proxy);
+        proxy.start();
+        return proxy.getPort();
+    }
+
+    /**
+     * @param passivePorts null = port bất kỳ trên address; khác null =
+     *                     đúng các port này, quảng bá HOST trong PASV
+     */
+    private static Listener listener(String address, int port, PassivePorts passivePorts, SslConfiguration ssl) {
+        ListenerFactory listener = new ListenerFactory();
+        listener.setServerAddress(address);
+        listener.setPort(port);
+        if (ssl != null) {
+            listener.setSslConfiguration(ssl);
+            listener.setImplicitSsl(false);
+        }
+        // PassivePorts(…, false): bỏ kiểm tra bind thử trên wildcard address -
+        // port đang bị proxy chiếm ở HOST nên kiểm tra đó luôn báo bận
+        PassivePorts ports = passivePorts != null ? passivePorts : new PassivePorts("0", false);
+        DataConnectionConfiguration data = new DefaultDataConnectionConfiguration(IDLE_SECONDS, ssl,
+            true, false, null, 0, address, ports, passivePorts != null ? HOST : null, false, false);
+        listener.setDataConnectionConfiguration(data);
+        return listener.createListener();
+    }
+
+    private UserManager userManager(Path file) throws IOException, FtpException {
+        // PropertiesUserManager đọc file khi khởi tạo - phải tồn tại (rỗng) trước
+        Files.createFile(file);
+        PropertiesUserManagerFactory factory = new PropertiesUserManagerFactory();
+        factory.setFile(file.toFile());
+        factory.setPasswordEncryptor(new ClearTextPasswordEncryptor());
+        UserManager users = factory.createUserManager();
+        BaseUser user = new BaseUser();
+        user.setName(USER);
+        user.setPassword(PASSWORD);
+        user.setHomeDirectory(home.toString());
+        user.setAuthorities(List.of(new WritePermission(), new ConcurrentLoginPermission(0, 0)));
+        users.save(user);
+        return users;
+    }
+
+    /**
+     * FEAT gốc của Apache FtpServer thêm dòng XCRC
+     */
+    private static final class FeatWithXcrc extends AbstractCommand {
+        @Override
+        public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request) {
+            session.resetState();
+            String features = LocalizedFtpReply.translate(session, request, context,
+                FtpReply.REPLY_211_SYSTEM_STATUS_REPLY, "FEAT", null).getMessage();
+            session.write(new DefaultFtpReply(FtpReply.REPLY_211_SYSTEM_STATUS_REPLY,
+                features.replace("\n MD5\n", "\n MD5\n XCRC\n")));
+        }
+    }
+
+    /**
+     * XCRC path → "250 &lt;CRC32 hex&gt;"
+     */
+    private static final class Xcrc extends AbstractCommand {
+        @Override
+        public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request)
+                throws IOException, FtpException {
+            session.resetState();
+            FtpFile file = request.hasArgument() ? session.getFileSystemView().getFile(request.getArgument()) : null;
+            if (file == null || !file.isFile() || !file.isReadable()) {
+                session.write(new DefaultFtpReply(FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN,
+                    "Not a readable file: " + request.getArgument()));
+                return;
+            }
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = file.createInputStream(0)) {
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    crc.update(buffer, 0, n);
+                }
+            }
+            session.write(new DefaultFtpReply(FtpReply.REPLY_250_REQUESTED_FILE_ACTION_OKAY,
+                String.format("%08X", crc.getValue())));
+        }
+    }
+
+    private static void keytool(String... args) throws IOException, InterruptedException {
+        String[] command = new String[args.length + 1];
+        command[0] = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        System.arraycopy(args, 0, command, 1, args.length);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        byte[] output = process.getInputStream().readAllBytes();
+        if (process.waitFor() != 0) {
+            throw new IOException("keytool failed: " + Arrays.toString(args) + "\n" + new String(output));
+        }
+    }
+
+    /** @return Thư mục home của user trên đĩa - đặt file nguồn vào đây */
+    public Path getHome() {
+        return home;
+    }
+
+    /** @return Certificate PEM của server */
+    public Path getCertificate() {
+        return certificate;
+    }
+
+    /** @return Port client dùng (port của proxy nếu có shaping) */
+    public int getPort(boolean secure) {
+        return secure ? tlsPort : plainPort;
+    }
+
+    /** @return Link đang shaping (đổi RTT/bandwidth lúc chạy), null nếu không shaping */
+    public ShapingProxy.Link getLink() {
+        return link;
+    }
+
+    /**
+     * @param secure true cho explicit FTPS - TLS 1.2, vì SslFilter của MINA
+     *               trong FtpServer 1.2 không ổn định với TLS 1.3
+     * @return Settings trỏ tới server này
+     */
+    public ConnectionSettings settings(boolean secure) {
+        ConnectionSettings settings = new ConnectionSettings();
+        settings.setHost(HOST);
+        settings.setPort(getPort(secure));
+        settings.setUsername(USER);
+        settings.setPassword(PASSWORD);
+        settings.setSecure(secure);
+        if (secure) {
+            settings.setCertificatePath(certificate.toString());
+            settings.setTlsProtocol(TlsPolicy.Protocol.TLS12);
+        }
+        return settings;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop();
+        for (ShapingProxy proxy : proxies) {
+            proxy.close();
+        }
+        delete(directory);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Kích thước/bandwidth dạng "512k", "10m", "1g" hoặc số bytes
+     *
+     * @throws IllegalArgumentException nếu không parse được
+     */
+    static long parseBytes(String text) {
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("k")) {
+            unit = 1024;
+        } else if (value.endsWith("m")) {
+            unit = 1024 * 1024;
+        } else if (value.endsWith("g")) {
+            unit = 1024L * 1024 * 1024;
+        }
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Math.round(Double.parseDouble(value) * unit);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + text);
+        }
+    }
+
+    /**
+     * Chạy server độc lập cho GUI/CLI/load test từ process khác. Đọc lệnh
+     * từ stdin để đổi shaping lúc chạy: "rtt &lt;ms&gt;", "bandwidth &lt;rate&gt;", "quit".
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--home":
+                    options.setHome(Paths.get(required(value, args[i++])));
+                    break;
+                case "--port":
+                    options.setPlainPort(Integer.parseInt(required(value, args[i++])));
+                    break;
+                case "--tls-port":
+                    options.setTlsPort(Integer.parseInt(required(value, args[i++])));
+                    break;
+                case "--rtt":
+                    options.setRttMillis(Integer.parseInt(required(value, args[i++])));
+                    break;
+                case "--bandwidth":
+                    options.setBytesPerSecond(parseBytes(required(value, args[i++])));
+                    break;
+                case "--passive-ports":
+                    options.setPassivePorts(Integer.parseInt(required(value, args[i++])));
+                    break;
+                case "--xcrc":
+                    options.setXcrc(true);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.err.println("Usage: EmbeddedFtpServer [--home dir] [--port n] [--tls-port n]"
+                        + " [--rtt ms] [--bandwidth rate] [--passive-ports n] [--xcrc]");
+                    System.exit(2);
+            }
+        }
+
+        try (EmbeddedFtpServer server = start(options)) {
+            // Ctrl+C: dừng server và xóa thư mục tạm
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException ignored) {
+                    // Process đang thoát
+                }
+            }));
+            System.out.println("FTP   " + HOST + ":" + server.getPort(false));
+            System.out.println("FTPS  " + HOST + ":" + server.getPort(true) + " (explicit, TLS 1.2)");
+            System.out.println("User  " + USER + " / " + PASSWORD);
+            System.out.println("Home  " + server.getHome());
+            System.out.println("Cert  " + server.getCertificate());
+            System.out.println("Link  " + (server.getLink() != null ? server.getLink() : "no shaping"));
+            if (server.getLink() == null) {
+                System.out.println("(start with --rtt/--bandwidth to enable runtime shaping commands)");
+            }
+            BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = input.readLine()) != null && !line.trim().equals("quit")) {
+                String[] command = line.trim().split("\\s+");
+                if (server.getLink() == null || command.length != 2) {
+                    continue;
+                }
+                try {
+                    if (command[0].equals("rtt")) {
+                        server.getLink().setRttMillis(Integer.parseInt(command[1]));
+                    } else if (command[0].equals("bandwidth")) {
+                        server.getLink().setBytesPerSecond(parseBytes(command[1]));
+                    }
+                    System.out.println("Link  " + server.getLink());
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Invalid value: " + command[1]);
+                }
+            }
+            if (line == null) {
+                // Không có stdin (chạy nền) - chờ tới khi process bị dừng
+                Thread.currentThread().join();
+            }
+        }
+    }
+
+    private static String required(String value, String option) {
+        if (value == null) {
+            throw new IllegalArgumentException(option + " requires a value");
+        }
+        return value;
+    }
+}
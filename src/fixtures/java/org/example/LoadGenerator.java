@@ -0,0 +1,413 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🏋️ Load Generator - N client đồng thời như N cửa sổ FTPSFileManager
+ *
+ * Mỗi client một thread, một connection riêng (FtpConnectionFactory +
+ * ChannelTransfer - đúng code path của app) và lặp lại tới hết thời gian:
+ * • login: connect → AUTH TLS → USER/PASS → PBSZ/PROT → FEAT (lần đầu,
+ *   sau lỗi, hoặc mỗi vòng với --reconnect)
+ * • list: MLSD/LIST thư mục làm việc
+ * • upload: STOR file FILE_SIZE bytes vào client-&lt;n&gt;.bin
+ * • download: RETR file nguồn dùng chung
+ *
+ * Kết quả: count/errors và p50/p90/p99/max từng operation (LatencyHistogram),
+ * throughput upload/download tổng; --report ghi thêm JSON để so sánh giữa
+ * các lần chạy. Không có --host thì chạy EmbeddedFtpServer trong cùng JVM
+ * (--rtt/--bandwidth bật shaping) - tái hiện vấn đề scaling không cần server thật.
+ *
+ * Chạy: gradle loadTest -PloadArgs="--clients 32 --duration 60 --tls --rtt 80"
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see EmbeddedFtpServer
+ * @see LatencyHistogram
+ */
+public final class LoadGenerator {
+    private static final String[] OPERATIONS = {"login", "list", "upload", "download"};
+    private static final String SOURCE = "source.bin";
+    private static final int MAX_ERROR_SAMPLES = 5;
+
+    private final ConnectionSettings settings;
+    private final int clients;
+    private final long durationMillis;
+    private final long fileSize;
+    private final boolean reconnect;
+    private final String directory;
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> errors = new LinkedHashMap<>();
+    private final Set<String> errorSamples = ConcurrentHashMap.newKeySet();
+    private final AtomicLong uploaded = new AtomicLong();
+    private final AtomicLong downloaded = new AtomicLong();
+
+    /**
+     * @param settings Server đích (đã apply config)
+     * @param clients Số client đồng thời
+     * @param durationMillis Thời gian chạy sau khi mọi client bắt đầu
+     * @param fileSize Kích thước file upload/download
+     * @param reconnect true = login lại mỗi vòng (tải handshake), false = giữ connection
+     * @param directory Thư mục làm việc trên server ("" = home)
+     */
+    LoadGenerator(ConnectionSettings settings, int clients, long durationMillis, long fileSize,
+                  boolean reconnect, String directory) {
+        this.settings = settings;
+        this.clients = clients;
+        this.durationMillis = durationMillis;
+        this.fileSize = fileSize;
+        this.reconnect = reconnect;
+        this.directory = directory;
+        for (String operation : OPERATIONS) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    /**
+     * Chuẩn bị file nguồn, chạy mọi client và chờ kết thúc
+     *
+     * @return Thời gian chạy thật (ms) - mẫu số cho throughput
+     */
+    long run() throws IOException, InterruptedException {
+        FtpConnectionFactory factory = new FtpConnectionFactory(settings, message -> { });
+        Path source = Files.createTempFile("ftps-load", ".bin");
+        try {
+            writeRandom(source, fileSize);
+            prepare(factory, source);
+
+            CountDownLatch ready = new CountDownLatch(clients);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            long[] deadline = new long[1];
+            for (int i = 0; i < clients; i++) {
+                int id = i;
+                Thread thread = new Thread(() -> {
+                    ready.countDown();
+                    try {
+                        start.await();
+                        client(factory, id, source, deadline[0]);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "load-client-" + i);
+                threads.add(thread);
+                thread.start();
+            }
+            ready.await();
+            long started = System.nanoTime();
+            deadline[0] = started + durationMillis * 1_000_000L;
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            return (System.nanoTime() - started) / 1_000_000;
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    /**
+     * Tạo thư mục làm việc và upload file nguồn cho bước download
+     */
+    private void prepare(FtpConnectionFactory factory, Path source) throws IOException {
+        FTPClient client = factory.create(false);
+        try {
+            if (!directory.isEmpty()) {
+                client.makeDirectory(directory);
+            }
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                ChannelTransfer.upload(client, FTPCmd.STOR, RemoteWalker.join(directory, SOURCE), channel, 0,
+                    settings.getTransferBufferSize(), bytes -> { });
+            }
+        } finally {
+            factory.destroy(client);
+        }
+    }
+
+    private void client(FtpConnectionFactory factory, int id, Path source, long deadline) {
+        String target = RemoteWalker.join(directory, "client-" + id + ".bin");
+        Path local;
+        try {
+            local = Files.createTempFile("ftps-load-" + id, ".out");
+        } catch (IOException e) {
+            failed("login", e);
+            return;
+        }
+        int bufferSize = settings.getTransferBufferSize();
+        FTPClient client = null;
+        try {
+            while (System.nanoTime() < deadline) {
+                String operation = "login";
+                long begin = System.nanoTime();
+                try {
+                    if (client == null) {
+                        client = factory.create(false);
+                        begin = record(operation, begin);
+                    }
+                    operation = "list";
+                    DirectoryLister.list(client, factory.getServerFeatures(), directory, chunk -> { }, message -> { });
+                    begin = record(operation, begin);
+
+                    operation = "upload";
+                    try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                        uploaded.addAndGet(ChannelTransfer.upload(client, FTPCmd.STOR, target, channel, 0,
+                            bufferSize, bytes -> { }));
+                    }
+                    begin = record(operation, begin);
+
+                    operation = "download";
+                    try (FileChannel channel = FileChannel.open(local, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                        downloaded.addAndGet(ChannelTransfer.download(client, RemoteWalker.join(directory, SOURCE),
+                            channel, 0, bufferSize, bytes -> { }));
+                    }
+                    record(operation, begin);
+
+                    if (reconnect) {
+                        factory.destroy(client);
+                        client = null;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failed(operation, e);
+                    if (client != null) {
+                        factory.destroy(client);
+                        client = null;
+                    }
+                }
+            }
+        } finally {
+            if (client != null) {
+                factory.destroy(client);
+            }
+            try {
+                Files.deleteIfExists(local);
+            } catch (IOException ignored) {
+                // File tạm - OS dọn sau
+            }
+        }
+    }
+
+    /**
+     * @return nanoTime hiện tại - bắt đầu của operation tiếp theo
+     */
+    private long record(String operation, long begin) {
+        long now = System.nanoTime();
+        latencies.get(operation).record(now - begin);
+        return now;
+    }
+
+    private void failed(String operation, Exception e) {
+        errors.get(operation).incrementAndGet();
+        if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+            errorSamples.add(operation + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeRandom(Path file, long size) throws IOException {
+        Random random = new Random(42);
+        byte[] block = new byte[64 * 1024];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            for (long written = 0; written < size; ) {
+                random.nextBytes(block);
+                int length = (int) Math.min(block.length, size - written);
+                written += channel.write(ByteBuffer.wrap(block, 0, length));
+            }
+        }
+    }
+
+    /** @return Tổng số lỗi mọi operation */
+    long getErrorCount() {
+        long total = 0;
+        for (AtomicLong count : errors.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * @param elapsedMillis Thời gian chạy thật
+     * @return Bảng kết quả cho console
+     */
+    String report(long elapsedMillis) {
+        double seconds = Math.max(1, elapsedMillis) / 1000.0;
+        long operations = 0;
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-9s %7s %7s %9s %9s %9s %9s %9s%n",
+            "op", "count", "errors", "mean", "p50", "p90", "p99", "max ms"));
+        for (String operation : OPERATIONS) {
+            LatencyHistogram histogram = latencies.get(operation);
+            operations += histogram.getCount();
+            out.append(String.format("%-9s %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", operation,
+                histogram.getCount(), errors.get(operation).get(), histogram.getMeanMillis(),
+                histogram.getPercentileMillis(50), histogram.getPercentileMillis(90),
+                histogram.getPercentileMillis(99), histogram.getMaxMillis()));
+        }
+        out.append(String.format("Throughput: upload %s, download %s, %.1f ops/s%n",
+            RateMeter.format(uploaded.get() / seconds), RateMeter.format(downloaded.get() / seconds),
+            operations / seconds));
+        for (String sample : errorSamples) {
+            out.append("Error: ").append(sample).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return Kết quả dạng JSON (cùng số liệu với report)
+     */
+    String toJson(long elapsedMillis) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"clients\":").append(clients)
+            .append(",\"elapsedMillis\":").append(elapsedMillis)
+            .append(",\"fileSize\":").append(fileSize)
+            .append(",\"secure\":").append(settings.isSecure())
+            .append(",\"reconnect\":").append(reconnect)
+            .append(",\"uploadedBytes\":").append(uploaded.get())
+            .append(",\"downloadedBytes\":").append(downloaded.get())
+            .append(",\"operations\":{");
+        String separator = "";
+        for (String operation : OPERATIONS) {
+            LatencyHistogram histogram = latencies.get(operation);
+            json.append(separator).append('"').append(operation).append("\":{")
+                .append("\"count\":").append(histogram.getCount())
+                .append(",\"errors\":").append(errors.get(operation).get())
+                .append(String.format(",\"meanMillis\":%.3f,\"p50Millis\":%.3f,\"p90Millis\":%.3f"
+                        + ",\"p99Millis\":%.3f,\"maxMillis\":%.3f}", histogram.getMeanMillis(),
+                    histogram.getPercentileMillis(50), histogram.getPercentileMillis(90),
+                    histogram.getPercentileMillis(99), histogram.getMaxMillis()));
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConnectionSettings settings = new ConnectionSettings();
+        EmbeddedFtpServer.Options options = new EmbeddedFtpServer.Options();
+        int clients = 8;
+        long durationSeconds = 30;
+        long fileSize = 1024 * 1024;
+        boolean secure = false;
+        boolean reconnect = false;
+        String directory = "load";
+        Path reportFile = null;
+        boolean external = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--clients":
+                        clients = Math.max(1, Integer.parseInt(value(args, ++i, arg)));
+                        break;
+                    case "--duration":
+                        durationSeconds = Math.max(1, Long.parseLong(value(args, ++i, arg)));
+                        break;
+                    case "--file-size":
+                        fileSize = EmbeddedFtpServer.parseBytes(value(args, ++i, arg));
+                        break;
+                    case "--tls":
+                        secure = true;
+                        break;
+                    case "--reconnect":
+                        reconnect = true;
+                        break;
+                    case "--dir":
+                        directory = value(args, ++i, arg);
+                        break;
+                    case "--report":
+                        reportFile = Paths.get(value(args, ++i, arg));
+                        break;
+                    case "--rtt":
+                        options.setRttMillis(Integer.parseInt(value(args, ++i, arg)));
+                        break;
+                    case "--bandwidth":
+                        options.setBytesPerSecond(EmbeddedFtpServer.parseBytes(value(args, ++i, arg)));
+                        break;
+                    case "--host":
+                        settings.setHost(value(args, ++i, arg));
+                        external = true;
+                        break;
+                    case "--port":
+                        settings.setPort(Integer.parseInt(value(args, ++i, arg)));
+                        break;
+                    case "--user":
+                        settings.setUsername(value(args, ++i, arg));
+                        break;
+                    case "--password":
+                        settings.setPassword(value(args, ++i, arg));
+                        break;
+                    case "--cert":
+                        settings.setCertificatePath(value(args, ++i, arg));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("Usage: LoadGenerator [--clients n] [--duration s] [--file-size 1m] [--tls]"
+                + " [--reconnect] [--dir remote] [--report file.json]");
+            System.err.println("       embedded server: [--rtt ms] [--bandwidth rate]");
+            System.err.println("       external server: --host h [--port p] [--user u] [--password p] [--cert pem]");
+            System.exit(2);
+        }
+
+        EmbeddedFtpServer server = null;
+        if (!external) {
+            // Mỗi client có thể giữ một data connection cùng lúc (+ dư cho TIME_WAIT)
+            options.setPassivePorts(Math.max(options.getPassivePorts(), clients * 2));
+            server = EmbeddedFtpServer.start(options);
+            settings = server.settings(secure);
+        } else {
+            settings.setSecure(secure);
+        }
+        settings.setMaxConnections(clients);
+
+        long errorCount;
+        try {
+            LoadGenerator generator = new LoadGenerator(settings, clients, durationSeconds * 1000, fileSize,
+                reconnect, directory);
+            System.out.printf("Load test: %d clients × %d s, %s %s:%d, file %s%s%s%n", clients, durationSeconds,
+                secure ? "FTPS" : "FTP", settings.getHost(), settings.getPort(),
+                RateMeter.format(fileSize).replace("/s", ""), reconnect ? ", reconnect each round" : "",
+                server != null && server.getLink() != null ? ", link " + server.getLink() : "");
+            long elapsed = generator.run();
+            System.out.print(generator.report(elapsed));
+            if (reportFile != null) {
+                Files.write(reportFile, generator.toJson(elapsed).getBytes(StandardCharsets.UTF_8));
+                System.out.println("Report: " + reportFile.toAbsolutePath());
+            }
+            errorCount = generator.getErrorCount();
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        System.exit(errorCount > 0 ? 1 : 0);
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " requires a value");
+        }
+        return args[index];
+    }
+}
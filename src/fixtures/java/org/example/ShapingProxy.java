@@ -0,0 +1,283 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 🐢 Shaping Proxy - TCP proxy thêm latency và giới hạn bandwidth
+ *
+ * • Trong suốt ở tầng TCP: không đọc FTP command nên dùng được cho cả
+ *   control channel đã AUTH TLS lẫn data channel PROT P
+ * • Mỗi hướng của connection: một thread đọc (gắn thời điểm "đến nơi"
+ *   cho từng chunk) và một thread ghi (chờ tới thời điểm đó rồi mới gửi)
+ * • Mọi proxy của cùng server dùng chung một Link - như một đường truyền
+ *   thật, các connection tranh nhau bandwidth thay vì mỗi cái một phần riêng
+ *
+ * Queue giữa hai thread có giới hạn (QUEUE_CHUNKS × CHUNK_SIZE bytes đang
+ * "trên dây") → peer chậm đẩy backpressure ngược về TCP window của bên gửi.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see EmbeddedFtpServer
+ */
+public final class ShapingProxy implements AutoCloseable {
+    private static final int CHUNK_SIZE = 16 * 1024;
+    /** 256 × 16 KB = 4 MB mỗi hướng - đủ cho bandwidth-delay product 100 MB/s × 40 ms */
+    private static final int QUEUE_CHUNKS = 256;
+    private static final Chunk EOF = new Chunk(new byte[0], 0);
+
+    private final Link link;
+    private final ServerSocket listener;
+    private final InetSocketAddress target;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * 🌐 Link - đường truyền giả lập dùng chung
+     *
+     * RTT và bandwidth đổi được lúc đang chạy (volatile) để tái hiện mạng
+     * xấu đi giữa chừng. Bandwidth tính riêng cho mỗi hướng (upload và
+     * download không chiếm chỗ của nhau), 0 = không giới hạn.
+     */
+    public static final class Link {
+        private final Pacer upstream = new Pacer();
+        private final Pacer downstream = new Pacer();
+        private volatile long delayNanos;
+        private volatile long bytesPerSecond;
+
+        /**
+         * @param rttMillis Round-trip time thêm vào (mỗi hướng delay một nửa)
+         * @param bytesPerSecond Bandwidth mỗi hướng, 0 = không giới hạn
+         */
+        public Link(int rttMillis, long bytesPerSecond) {
+            setRttMillis(rttMillis);
+            setBytesPerSecond(bytesPerSecond);
+        }
+
+        public int getRttMillis() {
+            return (int) (delayNanos * 2 / 1_000_000);
+        }
+
+        public void setRttMillis(int rttMillis) {
+            this.delayNanos = Math.max(0, rttMillis) * 1_000_000L / 2;
+        }
+
+        public long getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        public void setBytesPerSecond(long bytesPerSecond) {
+            this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        }
+
+        /**
+         * @return Thời điểm (nanoTime) chunk vừa đọc được tới bên kia
+         */
+        long arrival(boolean up, int bytes) {
+            long now = System.nanoTime();
+            long rate = bytesPerSecond;
+            long sent = rate > 0 ? (up ? upstream : downstream).reserve(now, bytes, rate) : now;
+            return sent + delayNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "RTT +" + getRttMillis() + " ms, "
+                + (bytesPerSecond > 0 ? RateMeter.format(bytesPerSecond) : "unlimited") + " per direction";
+        }
+    }
+
+    /**
+     * Serialization delay của một hướng: chunk sau chỉ bắt đầu "truyền" khi
+     * chunk trước (của bất kỳ connection nào) đã truyền xong. Lock một lần
+     * mỗi chunk, không phải mỗi byte.
+     */
+    private static final class Pacer {
+        private long nextFree;
+
+        synchronized long reserve(long now, int bytes, long bytesPerSecond) {
+            long start = Math.max(now, nextFree);
+            nextFree = start + bytes * 1_000_000_000L / bytesPerSecond;
+            return nextFree;
+        }
+    }
+
+    private static final class Chunk {
+        final byte[] data;
+        final long arrival;
+
+        Chunk(byte[] data, long arrival) {
+            this.data = data;
+            this.arrival = arrival;
+        }
+    }
+
+    /**
+     * @param link Đường truyền dùng chung
+     * @param address Địa chỉ listen
+     * @param port Port listen, 0 = ngẫu nhiên
+     * @param target Server thật phía sau - port 0 = cùng port với proxy
+     *               (passive port trên một address khác)
+     * @throws IOException nếu không bind được port
+     */
+    public ShapingProxy(Link link, InetAddress address, int port, InetSocketAddress target) throws IOException {
+        this.link = link;
+        this.listener = new ServerSocket(port, 50, address);
+        this.target = target.getPort() != 0 ? target
+            : new InetSocketAddress(target.getAddress(), listener.getLocalPort());
+        this.acceptor = new Thread(this::acceptLoop, "shaping-proxy-" + listener.getLocalPort());
+        acceptor.setDaemon(true);
+    }
+
+    /**
+     * Bắt đầu nhận connection. Tách khỏi constructor để caller có thể bind
+     * port trước (giữ chỗ) rồi mới start server phía sau.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /** @return Port đang listen */
+    public int getPort() {
+        return listener.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket client;
+            try {
+                client = listener.accept();
+            } catch (IOException e) {
+                return;
+            }
+            try {
+                Socket server = new Socket();
+                server.connect(target);
+                client.setTcpNoDelay(true);
+                server.setTcpNoDelay(true);
+                new Connection(client, server).start();
+            } catch (IOException e) {
+                close(client);
+            }
+        }
+    }
+
+    /**
+     * Một cặp socket client ↔ server với 4 thread (đọc/ghi × 2 hướng)
+     */
+    private final class Connection {
+        private final Socket client;
+        private final Socket server;
+        private final Thread[] threads = new Thread[4];
+        private final AtomicInteger openDirections = new AtomicInteger(2);
+
+        Connection(Socket client, Socket server) {
+            this.client = client;
+            this.server = server;
+        }
+
+        void start() {
+            connections.add(this);
+            BlockingQueue<Chunk> up = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+            BlockingQueue<Chunk> down = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+            String name = "shaping-" + client.getPort();
+            threads[0] = thread(name + "-up-read", () -> read(client, up, true));
+            threads[1] = thread(name + "-up-write", () -> write(server, up));
+            threads[2] = thread(name + "-down-read", () -> read(server, down, false));
+            threads[3] = thread(name + "-down-write", () -> write(client, down));
+            for (Thread thread : threads) {
+                thread.start();
+            }
+        }
+
+        private Thread thread(String name, Runnable task) {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+
+        private void read(Socket from, BlockingQueue<Chunk> queue, boolean up) {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            try {
+                InputStream in = from.getInputStream();
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    queue.put(new Chunk(Arrays.copyOf(buffer, read), link.arrival(up, read)));
+                }
+                queue.put(EOF);
+            } catch (IOException e) {
+                abort();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void write(Socket to, BlockingQueue<Chunk> queue) {
+            try {
+                OutputStream out = to.getOutputStream();
+                Chunk chunk;
+                while ((chunk = queue.take()) != EOF) {
+                    long wait;
+                    while ((wait = chunk.arrival - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                        if (Thread.interrupted()) {
+                            return;
+                        }
+                    }
+                    out.write(chunk.data);
+                }
+                // Half-close: bên kia thấy EOF, hướng ngược lại vẫn chạy tiếp
+                to.shutdownOutput();
+                if (openDirections.decrementAndGet() == 0) {
+                    abort();
+                }
+            } catch (IOException e) {
+                abort();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void abort() {
+            if (connections.remove(this)) {
+                close(client);
+                close(server);
+                for (Thread thread : threads) {
+                    if (thread != Thread.currentThread()) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Đang đóng - không còn gì để làm
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        listener.close();
+        for (Connection connection : connections) {
+            connection.abort();
+        }
+    }
+}
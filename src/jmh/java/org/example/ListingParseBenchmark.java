@@ -0,0 +1,107 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPListParseEngine;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
+import org.apache.commons.net.ftp.parser.UnixFTPEntryParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 📜 Listing Parse Benchmark - Throughput parse listing 100k entries
+ *
+ * • mlsdStreaming: đúng vòng đọc của DirectoryLister.mlsd (BufferedReader
+ *   64 KB, parseMlsdLine, chia chunk CHUNK_SIZE)
+ * • mlsdCommonsNet: MLSxEntryParser của commons-net - baseline
+ * • listUnix: FTPListParseEngine + UnixFTPEntryParser - đường
+ *   client.listFiles() khi server không có MLST
+ *
+ * Dữ liệu nằm sẵn trong memory: chỉ đo CPU parse, không đo mạng.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see DirectoryLister
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingParseBenchmark {
+
+    @Param({"100000"})
+    public int entries;
+
+    private byte[] mlsd;
+    private byte[] unix;
+
+    @Setup
+    public void setUp() {
+        mlsd = Listings.toBytes(Listings.mlsdLines(entries));
+        unix = Listings.toBytes(Listings.unixLines(entries));
+    }
+
+    @Benchmark
+    public List<FTPFile> mlsdStreaming() throws IOException {
+        List<FTPFile> files = new ArrayList<>();
+        List<FTPFile> chunk = new ArrayList<>(DirectoryLister.CHUNK_SIZE);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(mlsd), StandardCharsets.UTF_8), 64 * 1024)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                FTPFile file = DirectoryLister.parseMlsdLine(line);
+                if (file == null) {
+                    continue;
+                }
+                files.add(file);
+                chunk.add(file);
+                if (chunk.size() == DirectoryLister.CHUNK_SIZE) {
+                    chunk = new ArrayList<>(DirectoryLister.CHUNK_SIZE);
+                }
+            }
+        }
+        return files;
+    }
+
+    @Benchmark
+    public List<FTPFile> mlsdCommonsNet() throws IOException {
+        List<FTPFile> files = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(mlsd), StandardCharsets.UTF_8), 64 * 1024)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                FTPFile file = MLSxEntryParser.parseEntry(line);
+                if (file != null) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    @Benchmark
+    public FTPFile[] listUnix() throws IOException {
+        FTPListParseEngine engine = new FTPListParseEngine(new UnixFTPEntryParser());
+        engine.readServerList(new ByteArrayInputStream(unix), StandardCharsets.UTF_8.name());
+        return engine.getFiles();
+    }
+}
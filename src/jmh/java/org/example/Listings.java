@@ -0,0 +1,75 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 🧾 Listings - Listing tổng hợp cho benchmark parse và dựng tree
+ *
+ * • Một thư mục trên 10 entry, size và mtime thay đổi theo index
+ * • Cùng một tập entry ở hai định dạng: MLSD (RFC 3659) và LIST kiểu
+ *   Unix "ls -l" - so sánh được chi phí parse của hai đường
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ListingParseBenchmark
+ */
+final class Listings {
+
+    private static final String[] MONTHS = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    private Listings() {
+    }
+
+    static boolean isDirectory(int index) {
+        return index % 10 == 0;
+    }
+
+    static String name(int index) {
+        return isDirectory(index) ? String.format("dir-%06d", index) : String.format("export-%06d.csv", index);
+    }
+
+    /**
+     * @return "type=file;size=..;modify=..;UNIX.mode=0644; name" - một dòng mỗi entry
+     */
+    static List<String> mlsdLines(int entries) {
+        List<String> lines = new ArrayList<>(entries + 2);
+        lines.add("type=cdir;modify=20240101000000; .");
+        lines.add("type=pdir;modify=20240101000000; ..");
+        for (int i = 0; i < entries; i++) {
+            lines.add(String.format("type=%s;size=%d;modify=2024%02d%02d%02d%02d%02d;UNIX.mode=%s; %s",
+                isDirectory(i) ? "dir" : "file", isDirectory(i) ? 4096 : 1000L + i * 37L,
+                1 + i % 12, 1 + i % 28, i % 24, i % 60, (i * 7) % 60,
+                isDirectory(i) ? "0755" : "0644", name(i)));
+        }
+        return lines;
+    }
+
+    /**
+     * @return "-rw-r--r--   1 ftp ftp  12345 Mar 14 09:26 name" - một dòng mỗi entry
+     */
+    static List<String> unixLines(int entries) {
+        List<String> lines = new ArrayList<>(entries + 1);
+        lines.add("total " + entries);
+        for (int i = 0; i < entries; i++) {
+            lines.add(String.format("%s   1 ftp      ftp      %10d %s %2d  2024 %s",
+                isDirectory(i) ? "drwxr-xr-x" : "-rw-r--r--", isDirectory(i) ? 4096 : 1000L + i * 37L,
+                MONTHS[i % 12], 1 + i % 28, name(i)));
+        }
+        return lines;
+    }
+
+    /**
+     * @return Các dòng nối bằng CRLF như trên data connection
+     */
+    static byte[] toBytes(List<String> lines) {
+        StringBuilder builder = new StringBuilder(lines.size() * 80);
+        for (String line : lines) {
+            builder.append(line).append("\r\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
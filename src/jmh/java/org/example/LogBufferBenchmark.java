@@ -0,0 +1,75 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 🧾 Log Buffer Benchmark - appendLog dưới tải
+ *
+ * • appendLog: 4 worker thread ghi log (như transfer workers) trong khi
+ *   một consumer drain liên tục (như LogPanel, nhưng không nghỉ 33 ms -
+ *   trường hợp tranh chấp xấu nhất)
+ * • appendSingle: một thread ghi, không có consumer - chi phí cơ bản
+ *   của Level.infer + Entry + ring slot
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see LogBuffer
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogBufferBenchmark {
+
+    private static final String[] MESSAGES = {
+        "STOR - 226 Transfer complete",
+        "Transfer failed: /exports/2024/q1.csv - Connection reset",
+        "⚠️ Plain FTP connection - NO ENCRYPTION (INSECURE)",
+        "Listing /exports - Retrieved 1200 entries",
+    };
+
+    @State(Scope.Group)
+    public static class Shared {
+        final LogBuffer buffer = new LogBuffer();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        long position;
+        int message;
+    }
+
+    @Benchmark
+    @Group("appendLog")
+    @GroupThreads(4)
+    public void append(Shared shared, Cursor cursor) {
+        shared.buffer.accept(MESSAGES[cursor.message++ & (MESSAGES.length - 1)]);
+    }
+
+    @Benchmark
+    @Group("appendLog")
+    @GroupThreads(1)
+    public void drain(Shared shared, Cursor cursor, Blackhole blackhole) {
+        cursor.position = shared.buffer.drain(cursor.position, 512, blackhole::consume);
+    }
+
+    @Benchmark
+    @Group("appendSingle")
+    public void appendSingle(Shared shared, Cursor cursor) {
+        shared.buffer.accept(MESSAGES[cursor.message++ & (MESSAGES.length - 1)]);
+    }
+}
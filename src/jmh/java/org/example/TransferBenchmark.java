@@ -0,0 +1,128 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 🚀 Transfer Benchmark - Upload/download qua loopback theo buffer size
+ *
+ * • Server: EmbeddedFtpServer (Apache FtpServer trong cùng JVM, không shaping)
+ * • Client: FtpConnectionPool + ChannelTransfer - đúng transfer path của
+ *   TransferQueue (sendfile cho plain upload, direct buffer cho plain
+ *   download, byte[] tái sử dụng cho FTPS)
+ * • Mỗi operation là một file FILE_SIZE bytes ngẫu nhiên (không nén được)
+ * • Ngoài ops/s, counter "bytes" cho throughput bytes/s trực tiếp
+ *
+ * Server và client chia CPU trong cùng JVM: số tuyệt đối thấp hơn link
+ * thật, nhưng dùng được để so sánh buffer size, plain/TLS và giữa các lần chạy.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ChannelTransfer
+ * @see EmbeddedFtpServer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class TransferBenchmark {
+    private static final int FILE_SIZE = 32 * 1024 * 1024;
+    private static final String REMOTE_SOURCE = "source.bin";
+    private static final String REMOTE_TARGET = "upload.bin";
+
+    @Param({"plain", "tls"})
+    public String security;
+
+    @Param({"65536", "262144", "1048576"})
+    public int bufferSize;
+
+    private EmbeddedFtpServer server;
+    private FtpConnectionPool pool;
+    private FTPClient client;
+    private Path source;
+    private Path target;
+
+    /**
+     * Bytes đã chuyển - JMH báo dưới dạng rate (bytes/s) cạnh ops/s
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = EmbeddedFtpServer.start();
+        source = Files.createTempFile("ftps-bench", ".bin");
+        target = Files.createTempFile("ftps-bench", ".out");
+        byte[] data = new byte[FILE_SIZE];
+        new Random(42).nextBytes(data);
+        Files.write(source, data);
+        Files.write(server.getHome().resolve(REMOTE_SOURCE), data);
+
+        ConnectionSettings settings = server.settings("tls".equals(security));
+        settings.setTransferBufferSize(bufferSize);
+        pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }), message -> { });
+        pool.start();
+        client = pool.borrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (pool != null) {
+            pool.release(client);
+            pool.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(target);
+    }
+
+    @Benchmark
+    public long upload(Bytes counter) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long sent = ChannelTransfer.upload(client, FTPCmd.STOR, REMOTE_TARGET, channel, 0, bufferSize,
+                bytes -> { });
+            counter.bytes += sent;
+            return sent;
+        }
+    }
+
+    @Benchmark
+    public long download(Bytes counter) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long received = ChannelTransfer.download(client, REMOTE_SOURCE, channel, 0, bufferSize, bytes -> { });
+            counter.bytes += received;
+            return received;
+        }
+    }
+}
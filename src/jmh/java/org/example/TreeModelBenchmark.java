@@ -0,0 +1,88 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 🌲 Tree Model Benchmark - Dựng và refresh một thư mục lớn trong RemoteTreeModel
+ *
+ * • buildTree: thư mục trống nhận listing đầy đủ - chunk insert +
+ *   nodesWereInserted như lần expand đầu tiên
+ * • refreshTree: áp dụng lại cùng listing lên thư mục đã load - đường
+ *   revalidate (HashSet existing/seen, không insert/remove)
+ *
+ * Chạy trên benchmark thread thay cho EDT (RemoteTreeModel.applyListing),
+ * không có JTree nên chỉ đo phần model.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see RemoteTreeModel
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeModelBenchmark {
+
+    @Param({"100000"})
+    public int entries;
+
+    private List<FTPFile> files;
+    private NetworkExecutor executor;
+    private RemoteTreeModel model;
+    private RemoteNode loaded;
+
+    @Setup
+    public void setUp() {
+        files = new ArrayList<>(entries);
+        for (String line : Listings.mlsdLines(entries)) {
+            FTPFile file = DirectoryLister.parseMlsdLine(line);
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        // applyListing không dùng executor - chỉ cần cho constructor
+        executor = new NetworkExecutor("bench", 1);
+        model = new RemoteTreeModel(executor, message -> { });
+        loaded = RemoteNode.root();
+        model.setRoot(loaded);
+        model.applyListing(loaded, files);
+    }
+
+    @Benchmark
+    public RemoteNode buildTree() {
+        RemoteNode root = RemoteNode.root();
+        model.setRoot(root);
+        model.applyListing(root, files);
+        return root;
+    }
+
+    @Benchmark
+    public RemoteNode refreshTree() {
+        model.setRoot(loaded);
+        model.applyListing(loaded, files);
+        return loaded;
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+}
@@ -0,0 +1,93 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * 🗂️ App Config - Cấu hình lưu trong ~/.ftps-file-manager/settings.properties
+ *
+ * Thứ tự ưu tiên khi đọc một key:
+ * 1. System property (-Dftps.bufferSize=...)
+ * 2. settings.properties
+ * 3. Default value truyền vào getter
+ *
+ * Tuning dialog ghi lại giá trị mới vào file bằng save().
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ConnectionSettings#applyConfig(AppConfig)
+ */
+public class AppConfig {
+    private final Path file;
+    private final Properties properties = new Properties();
+
+    /**
+     * @param file Đường dẫn properties file (có thể chưa tồn tại)
+     */
+    public AppConfig(Path file) {
+        this.file = file;
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Cannot read " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return Config tại ~/.ftps-file-manager/settings.properties
+     */
+    public static AppConfig loadDefault() {
+        return new AppConfig(Paths.get(System.getProperty("user.home"), ".ftps-file-manager", "settings.properties"));
+    }
+
+    public synchronized String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value == null ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getString(key, Integer.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(getString(key, Long.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, Boolean.toString(defaultValue)));
+    }
+
+    public synchronized void set(String key, String value) {
+        properties.setProperty(key, value);
+    }
+
+    /**
+     * Ghi config xuống disk
+     *
+     * @throws IOException nếu không ghi được file
+     */
+    public synchronized void save() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "FTPS File Manager settings");
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 🚦 Bandwidth Limiter - Token bucket cho data transfer
+ *
+ * Ba tầng giới hạn, mỗi chunk phải qua cả ba:
+ * • Global: tổng mọi transfer của app (ftps.rateLimit, hoặc theo
+ *   lịch ftps.rateSchedule, ví dụ "08:00-18:00=1m,18:00-08:00=0")
+ * • Per-host: tổng các transfer tới cùng một server (ftps.hostRateLimit)
+ * • Per-transfer: mặc định ftps.transferRateLimit, từng job đặt riêng
+ *   được qua TransferJob.setRateLimit()
+ * Mọi giới hạn đổi được lúc đang chạy - chunk tiếp theo dùng rate mới.
+ *
+ * TOKEN BUCKET:
+ * Mỗi bucket chỉ là một AtomicLong "thời điểm bucket trả hết nợ" (GCRA).
+ * Transfer gửi chunk trước rồi mới trả tokens - một CAS mỗi chunk mỗi
+ * bucket, không lock, không thread refill. Bucket nhàn rỗi tích được tối
+ * đa BURST_MILLIS tokens.
+ *
+ * FAIR SHARING:
+ * Các transfer dùng chung bucket lần lượt đặt chỗ từng chunk cùng kích
+ * thước (~100 ms của giới hạn chung) - không transfer nào đặt trước cả
+ * file. N transfer cùng chạy chia đều bandwidth, file nhỏ không phải chờ
+ * file lớn xong mới có phần.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferQueue
+ * @see FileTransfer
+ */
+public final class BandwidthLimiter {
+    /** Config keys trong settings.properties (rate dạng "512k", "10m", 0 = không giới hạn) */
+    public static final String KEY_RATE_LIMIT = "ftps.rateLimit";
+    public static final String KEY_TRANSFER_RATE_LIMIT = "ftps.transferRateLimit";
+    public static final String KEY_RATE_SCHEDULE = "ftps.rateSchedule";
+
+    /** Tokens tối đa tích lũy khi bucket nhàn rỗi */
+    private static final long BURST_MILLIS = 250;
+    /** Chunk ≈ 100 ms của giới hạn - giữ progress mượt và chia phần đều */
+    private static final int CHUNKS_PER_SECOND = 10;
+    private static final int MIN_CHUNK_SIZE = 16 * 1024;
+    /** Chờ tối đa từng đoạn này rồi kiểm tra pause/cancel */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /** Lịch được đánh giá lại mỗi giây, không phải mỗi chunk */
+    private static final long SCHEDULE_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Bucket global = new Bucket();
+    private final Map<String, Bucket> hosts = new ConcurrentHashMap<>();
+    private volatile long globalRate;
+    private volatile long transferRate;
+    private volatile Schedule schedule = Schedule.NONE;
+    private volatile long nextScheduleCheck;
+
+    /**
+     * Đọc ftps.rateLimit, ftps.transferRateLimit, ftps.rateSchedule.
+     * Giá trị sai cú pháp bị bỏ qua (giữ giá trị hiện tại).
+     */
+    public void applyConfig(AppConfig config) {
+        setGlobalRate(rateValue(config.getString(KEY_RATE_LIMIT, null), globalRate));
+        setTransferRate(rateValue(config.getString(KEY_TRANSFER_RATE_LIMIT, null), transferRate));
+        String text = config.getString(KEY_RATE_SCHEDULE, null);
+        if (text != null) {
+            try {
+                setSchedule(Schedule.parse(text));
+            } catch (IllegalArgumentException e) {
+                // Lịch sai - giữ lịch cũ
+            }
+        }
+    }
+
+    /** @return Giới hạn global đã cấu hình (bytes/giây), 0 = không giới hạn */
+    public long getGlobalRate() {
+        return globalRate;
+    }
+
+    /**
+     * @param bytesPerSecond Giới hạn global khi không có khung giờ nào của lịch khớp, 0 = không giới hạn
+     */
+    public void setGlobalRate(long bytesPerSecond) {
+        this.globalRate = Math.max(0, bytesPerSecond);
+        refreshScheduleNow();
+    }
+
+    /** @return Giới hạn global đang áp dụng (sau khi tính lịch) */
+    public long getEffectiveGlobalRate() {
+        refreshSchedule(System.nanoTime());
+        return global.rate;
+    }
+
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(Schedule schedule) {
+        this.schedule = schedule == null ? Schedule.NONE : schedule;
+        refreshScheduleNow();
+    }
+
+    /** @return Giới hạn mặc định của mỗi transfer, 0 = không giới hạn */
+    public long getTransferRate() {
+        return transferRate;
+    }
+
+    public void setTransferRate(long bytesPerSecond) {
+        this.transferRate = Math.max(0, bytesPerSecond);
+    }
+
+    /** @return Giới hạn của server ("host:port"), 0 = không giới hạn */
+    public long getHostRate(String hostKey) {
+        Bucket bucket = hosts.get(hostKey);
+        return bucket == null ? 0 : bucket.rate;
+    }
+
+    public void setHostRate(String hostKey, long bytesPerSecond) {
+        hosts.computeIfAbsent(hostKey, k -> new Bucket()).setRate(bytesPerSecond);
+    }
+
+    /**
+     * @return Throttle cho một lần chạy của job - dùng chung được giữa các
+     *         segment (thread-safe)
+     */
+    public Throttle open(TransferJob job) {
+        return new Throttle(job, hosts.computeIfAbsent(job.getHostKey(), k -> new Bucket()));
+    }
+
+    private void refreshScheduleNow() {
+        long now = System.nanoTime();
+        nextScheduleCheck = now;
+        refreshSchedule(now);
+    }
+
+    /**
+     * Đổi rate global theo khung giờ hiện tại (tối đa mỗi giây một lần)
+     */
+    private void refreshSchedule(long now) {
+        if (now - nextScheduleCheck < 0) {
+            return;
+        }
+        nextScheduleCheck = now + SCHEDULE_CHECK_NANOS;
+        long scheduled = schedule.rateAt(LocalTime.now());
+        global.setRate(scheduled >= 0 ? scheduled : globalRate);
+    }
+
+    /**
+     * 🎫 Throttle - Điểm gọi từ transfer loop sau mỗi chunk
+     */
+    public final class Throttle {
+        private final TransferJob job;
+        private final Bucket host;
+        private final Bucket own = new Bucket();
+
+        private Throttle(TransferJob job, Bucket host) {
+            this.job = job;
+            this.host = host;
+        }
+
+        /**
+         * Mọi transfer dưới cùng bucket chung dùng cùng một chunk (~100 ms
+         * của giới hạn global/host) - bucket chia theo lượt đặt chỗ, nên
+         * chunk bằng nhau thì bytes cũng chia đều. Giới hạn riêng của job
+         * chỉ làm chunk nhỏ lại tới mức ~1 giây của chính nó.
+         *
+         * @param bufferSize Buffer cấu hình (ftps.bufferSize)
+         * @return Buffer cho transfer này, không vượt bufferSize
+         */
+        public int chunkSize(int bufferSize) {
+            long shared = minLimit(getEffectiveGlobalRate(), host.rate);
+            long own = transferLimit();
+            long chunk = shared > 0 ? shared / CHUNKS_PER_SECOND : bufferSize;
+            if (own > 0) {
+                chunk = shared > 0 ? Math.min(chunk, own) : own / CHUNKS_PER_SECOND;
+            }
+            return (int) Math.min(bufferSize, Math.max(MIN_CHUNK_SIZE, chunk));
+        }
+
+        /**
+         * Trả tokens cho chunk vừa gửi/nhận, chờ nếu bucket nào đang nợ
+         *
+         * @throws TransferJob.TransferAbortedException nếu user pause/cancel trong lúc chờ
+         * @throws InterruptedIOException nếu worker bị interrupt (queue đóng)
+         */
+        public void acquire(long bytes) throws IOException {
+            long now = System.nanoTime();
+            refreshSchedule(now);
+            own.setRate(transferLimit());
+            long until = Math.max(global.charge(bytes, now), Math.max(host.charge(bytes, now), own.charge(bytes, now)));
+            long wait;
+            while ((wait = until - System.nanoTime()) > 0) {
+                job.checkAbort();
+                LockSupport.parkNanos(Math.min(wait, MAX_PARK_NANOS));
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while throttled");
+                }
+            }
+        }
+
+        private long transferLimit() {
+            long limit = job.getRateLimit();
+            return limit >= 0 ? limit : transferRate;
+        }
+    }
+
+    /**
+     * Token bucket dạng GCRA: tat = thời điểm (nanoTime) mọi tokens đã
+     * dùng được trả xong. Chờ tới khi nợ còn ≤ BURST_MILLIS.
+     */
+    private static final class Bucket {
+        private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(BURST_MILLIS);
+
+        private final AtomicLong tat = new AtomicLong(System.nanoTime());
+        private volatile long rate;
+
+        void setRate(long bytesPerSecond) {
+            this.rate = Math.max(0, bytesPerSecond);
+        }
+
+        /**
+         * @return Thời điểm caller được gửi chunk tiếp theo
+         */
+        long charge(long bytes, long now) {
+            long current = rate;
+            if (current <= 0) {
+                return now;
+            }
+            long cost = (long) (bytes * 1e9 / current);
+            while (true) {
+                long previous = tat.get();
+                long next = Math.max(previous, now) + cost;
+                if (tat.compareAndSet(previous, next)) {
+                    return next - BURST_NANOS;
+                }
+            }
+        }
+    }
+
+    /**
+     * 🕒 Schedule - Giới hạn global theo giờ trong ngày
+     *
+     * Cú pháp: "HH:mm-HH:mm=rate" cách nhau bởi dấu phẩy; khung giờ có
+     * thể vắt qua nửa đêm ("22:00-06:00=0"). Ngoài mọi khung giờ dùng
+     * ftps.rateLimit. Khung đầu tiên khớp được chọn.
+     */
+    public static final class Schedule {
+        public static final Schedule NONE = new Schedule(Collections.emptyList(), "");
+        private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("H:mm");
+
+        private final List<Window> windows;
+        private final String text;
+
+        /** [start, end) tính theo phút trong ngày */
+        private static final class Window {
+            final int start;
+            final int end;
+            final long rate;
+
+            Window(int start, int end, long rate) {
+                this.start = start;
+                this.end = end;
+                this.rate = rate;
+            }
+
+            boolean contains(int minute) {
+                return start <= end ? minute >= start && minute < end : minute >= start || minute < end;
+            }
+        }
+
+        private Schedule(List<Window> windows, String text) {
+            this.windows = windows;
+            this.text = text;
+        }
+
+        /**
+         * @throws IllegalArgumentException nếu sai cú pháp
+         */
+        public static Schedule parse(String text) {
+            List<Window> windows = new ArrayList<>();
+            for (String part : text.split(",")) {
+                String entry = part.trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                int dash = entry.indexOf('-');
+                int equals = entry.indexOf('=');
+                if (dash < 0 || equals < dash) {
+                    throw new IllegalArgumentException("Invalid schedule entry: " + entry);
+                }
+                windows.add(new Window(minuteOfDay(entry.substring(0, dash)),
+                    minuteOfDay(entry.substring(dash + 1, equals)), parseRate(entry.substring(equals + 1))));
+            }
+            return windows.isEmpty() ? NONE : new Schedule(windows, text.trim());
+        }
+
+        private static int minuteOfDay(String time) {
+            try {
+                LocalTime parsed = LocalTime.parse(time.trim(), TIME);
+                return parsed.getHour() * 60 + parsed.getMinute();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid time: " + time.trim());
+            }
+        }
+
+        /**
+         * @return Rate của khung giờ chứa time, -1 nếu không khung nào khớp
+         */
+        public long rateAt(LocalTime time) {
+            int minute = time.getHour() * 60 + time.getMinute();
+            for (Window window : windows) {
+                if (window.contains(minute)) {
+                    return window.rate;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /**
+     * @param text "512k", "1.5m", "2g", "0" / "off" / "unlimited" / "" = không giới hạn
+     * @return Bytes/giây
+     * @throws IllegalArgumentException nếu sai cú pháp
+     */
+    public static long parseRate(String text) {
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        if (value.isEmpty() || value.equals("off") || value.equals("unlimited") || value.equals("none")) {
+            return 0;
+        }
+        if (value.endsWith("/s")) {
+            value = value.substring(0, value.length() - 2);
+        }
+        if (value.endsWith("b")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        long unit = 1;
+        if (value.endsWith("k")) {
+            unit = 1024;
+        } else if (value.endsWith("m")) {
+            unit = 1024 * 1024;
+        } else if (value.endsWith("g")) {
+            unit = 1024L * 1024 * 1024;
+        }
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            double rate = Double.parseDouble(value.trim()) * unit;
+            if (rate < 0 || Double.isNaN(rate)) {
+                throw new IllegalArgumentException("Invalid rate: " + text);
+            }
+            return Math.round(rate);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rate: " + text);
+        }
+    }
+
+    /**
+     * @return "unlimited" hoặc dạng RateMeter.format
+     */
+    public static String formatRate(long bytesPerSecond) {
+        return bytesPerSecond > 0 ? RateMeter.format(bytesPerSecond) : "unlimited";
+    }
+
+    /** @return Giới hạn nhỏ nhất khác 0, 0 nếu cả hai không giới hạn */
+    private static long minLimit(long a, long b) {
+        return a <= 0 ? b : b <= 0 ? a : Math.min(a, b);
+    }
+
+    private static long rateValue(String text, long defaultValue) {
+        if (text == null) {
+            return defaultValue;
+        }
+        try {
+            return parseRate(text);
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -1,131 +1,258 @@
 package org.example;
 
 import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
-import javax.swing.*;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
 import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 🔒 Certificate Manager - SSL Certificate Handling
- * 
+ *
  * Quản lý SSL certificates cho FTPS connections với 2 modes:
- * 
+ *
  * 1. CUSTOM CERTIFICATE MODE:
- *    • Load certificate từ file (.pem, .crt, .cer)
- *    • Validate server identity against provided cert
- *    • Enhanced security - chỉ trust specific server
+ *    • Load certificate từ file: PEM/DER (.pem, .crt, .cer - có thể là
+ *      bundle nhiều certificates) hoặc keystore (.jks, .p12, .pfx)
+ *    • Validate server identity against provided certs
+ *    • Enhanced security - chỉ trust specific server hoặc CA
  *    • Protect against man-in-the-middle attacks
- * 
+ *
  * 2. ACCEPT-ALL MODE (Demo only):
  *    • Accept bất kỳ certificate nào
  *    • Dùng khi không có custom certificate
  *    • Vẫn có TLS encryption nhưng không validate server identity
  *    • CHI DÙNG CHO DEMO - KHÔNG AN TOÀN CHO PRODUCTION
- * 
+ *
+ * TRUST STORE CACHE:
+ * • File chỉ được đọc và parse một lần - cache theo path, được load lại
+ *   khi mtime hoặc size của file thay đổi
+ * • Mọi pool dùng cùng file nhận cùng một TrustManager
+ *
  * CERTIFICATE VALIDATION PROCESS:
- * 1. Load certificate file vào X509Certificate object
- * 2. Tạo KeyStore và add certificate vào trusted store
- * 3. Implement custom X509TrustManager
- * 4. Trong checkServerTrusted(): so sánh server cert với loaded cert
- * 5. Nếu match -> trust, nếu không -> reject connection
- * 
+ * 1. Tính trước SHA-256 fingerprint của mọi loaded cert vào một HashSet
+ * 2. Leaf đã verify gần đây (verified cache) → trust ngay
+ * 3. Fingerprint của leaf có trong pin set → trust (O(1), không duyệt chain)
+ * 4. Không thì validate cả chain (PKIX) với loaded certs làm trust anchors
+ *    - dùng khi file chứa CA thay vì server cert
+ * 5. Nếu pass → leaf vào verified cache, nếu không → reject connection
+ *
+ * Lỗi load được báo bằng TrustStoreException - caller tự hiển thị.
+ *
  * DEMO SCENARIOS:
  * • No certificate: Shows "(Default Trust)" - accepts any cert
  * • With certificate: Shows "(Custom Certificate)" - validates server
- * 
+ *
  * @author Demo Application
  * @version 1.0
  * @see FTPSFileManager Main application using this certificate manager
+ * @see TrustStoreException
  */
 public class CertificateManager {
-    
+    /** Số leaf certificates đã verify được nhớ cho mỗi trust store */
+    static final int VERIFIED_CACHE_SIZE = 32;
+    /** Leaf đã verify được tin lại không cần PKIX trong 10 phút */
+    static final long VERIFIED_TTL_MILLIS = 10 * 60_000;
+
+    private static final Map<Path, CachedTrustStore> CACHE = new ConcurrentHashMap<>();
+
     /**
      * Tạo TrustManager cho FTPS connection với certificate validation
-     * 
+     *
      * LOGIC:
-     * - Nếu có certificatePath: Load và validate against specific cert
+     * - Nếu có certificatePath: Load (hoặc lấy từ cache) và validate
      * - Nếu không có certificatePath: Accept-all mode (demo only)
-     * 
-     * CERTIFICATE FORMATS HỖ TRỢ:
-     * • .pem: Privacy-Enhanced Mail format
-     * • .crt: Certificate file
-     * • .cer: Certificate file (alternative extension)
-     * 
+     *
      * @param certificatePath Đường dẫn đến certificate file (có thể null/empty)
      * @return TrustManager array cho FTPSClient
+     * @throws TrustStoreException nếu file không load được
      */
-    public static TrustManager[] createTrustManager(String certificatePath) {
+    public static TrustManager[] createTrustManager(String certificatePath) throws TrustStoreException {
+        return createTrustManager(certificatePath, null);
+    }
+
+    /**
+     * @param certificatePath Certificate file hoặc keystore (có thể null/empty)
+     * @param password Password của JKS/PKCS12 (null nếu không có hoặc là PEM)
+     * @return TrustManager array cho FTPSClient
+     * @throws TrustStoreException nếu file không load được
+     */
+    public static TrustManager[] createTrustManager(String certificatePath, char[] password)
+            throws TrustStoreException {
         if (certificatePath == null || certificatePath.isEmpty()) {
             return createAcceptAllTrustManager();
         }
-        
+        return new TrustManager[] {load(certificatePath, password)};
+    }
+
+    /**
+     * Trust store của file, từ cache nếu file chưa đổi
+     *
+     * @throws TrustStoreException nếu file không load được
+     */
+    public static PinnedTrustManager load(String certificatePath, char[] password) throws TrustStoreException {
+        Path path = Paths.get(certificatePath).toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
         try {
-            File certFile = new File(certificatePath);
-            if (!certFile.exists()) {
-                JOptionPane.showMessageDialog(null, 
-                    "Certificate file not found: " + certificatePath);
-                return createAcceptAllTrustManager();
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new TrustStoreException(certificatePath, TrustStoreException.Reason.NOT_FOUND,
+                "Certificate file not found", e);
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        CachedTrustStore cached = CACHE.get(path);
+        if (cached != null && cached.matches(modified, size, password)) {
+            return cached.manager;
+        }
+        PinnedTrustManager manager = new PinnedTrustManager(readCertificates(path.toFile(), password));
+        CACHE.put(path, new CachedTrustStore(modified, size, password, manager));
+        return manager;
+    }
+
+    /**
+     * Đọc certificates: PEM/DER (một hoặc nhiều certs), fallback JKS/PKCS12
+     */
+    private static List<X509Certificate> readCertificates(File file, char[] password) throws TrustStoreException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        boolean keyStoreFile = name.endsWith(".jks") || name.endsWith(".p12") || name.endsWith(".pfx")
+            || name.endsWith(".keystore") || name.endsWith(".truststore");
+        List<X509Certificate> certificates = null;
+        CertificateException parseError = null;
+        if (!keyStoreFile) {
+            try {
+                certificates = readCertificateFile(file);
+            } catch (CertificateException e) {
+                // Có thể là keystore với extension khác - thử tiếp
+                parseError = e;
             }
-            
-            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            X509Certificate cert;
-            
-            try (FileInputStream fis = new FileInputStream(certFile)) {
-                cert = (X509Certificate) cf.generateCertificate(fis);
+        }
+        if (certificates == null) {
+            certificates = readKeyStore(file, password, parseError);
+        }
+        if (certificates.isEmpty()) {
+            throw new TrustStoreException(file.getPath(), TrustStoreException.Reason.EMPTY,
+                "No certificates found" + (keyStoreFile && password == null ? " (keystore password not set?)" : ""),
+                null);
+        }
+        return certificates;
+    }
+
+    private static List<X509Certificate> readCertificateFile(File file) throws CertificateException, TrustStoreException {
+        try (InputStream in = new FileInputStream(file)) {
+            // generateCertificates đọc mọi block của PEM bundle (và DER / PKCS#7)
+            Collection<? extends Certificate> parsed = CertificateFactory.getInstance("X.509").generateCertificates(in);
+            List<X509Certificate> result = new ArrayList<>();
+            for (Certificate certificate : parsed) {
+                if (certificate instanceof X509Certificate) {
+                    result.add((X509Certificate) certificate);
+                }
             }
-            
-            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
-            keyStore.load(null, null);
-            keyStore.setCertificateEntry("server", cert);
-            
-            return new TrustManager[] {
-                new X509TrustManager() {
-                    @Override
-                    public void checkClientTrusted(X509Certificate[] chain, String authType) {}
-                    
-                    @Override
-                    public void checkServerTrusted(X509Certificate[] chain, String authType) {
-                        // Verify against loaded certificate
-                        for (X509Certificate c : chain) {
-                            if (c.equals(cert)) {
-                                return;
-                            }
-                        }
-                        throw new RuntimeException("Server certificate not trusted");
-                    }
-                    
-                    @Override
-                    public X509Certificate[] getAcceptedIssuers() {
-                        return new X509Certificate[] { cert };
-                    }
+            return result;
+        } catch (IOException e) {
+            throw new TrustStoreException(file.getPath(), TrustStoreException.Reason.NOT_FOUND,
+                "Cannot read certificate file", e);
+        }
+    }
+
+    private static List<X509Certificate> readKeyStore(File file, char[] password, CertificateException parseError)
+            throws TrustStoreException {
+        KeyStore keyStore;
+        try {
+            // Tự nhận dạng JKS / PKCS12 theo nội dung file
+            keyStore = KeyStore.getInstance(file, password);
+        } catch (IOException e) {
+            boolean badPassword = e.getCause() instanceof UnrecoverableKeyException;
+            throw new TrustStoreException(file.getPath(),
+                badPassword ? TrustStoreException.Reason.BAD_PASSWORD : TrustStoreException.Reason.UNREADABLE,
+                badPassword ? "Wrong keystore password" : "Cannot read keystore", e);
+        } catch (KeyStoreException e) {
+            throw new TrustStoreException(file.getPath(), TrustStoreException.Reason.UNREADABLE,
+                "Not a PEM/DER certificate, JKS or PKCS12 keystore", parseError != null ? parseError : e);
+        } catch (GeneralSecurityException e) {
+            throw new TrustStoreException(file.getPath(), TrustStoreException.Reason.UNREADABLE,
+                "Cannot read keystore", e);
+        }
+
+        List<X509Certificate> result = new ArrayList<>();
+        try {
+            Enumeration<String> aliases = keyStore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                // Trusted entries và certificate của key entries
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (certificate instanceof X509Certificate) {
+                    result.add((X509Certificate) certificate);
                 }
-            };
-            
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null, 
-                "Error loading certificate: " + e.getMessage());
-            return createAcceptAllTrustManager();
+            }
+        } catch (KeyStoreException e) {
+            throw new TrustStoreException(file.getPath(), TrustStoreException.Reason.UNREADABLE,
+                "Cannot read keystore", e);
+        }
+        return result;
+    }
+
+    /**
+     * @return SHA-256 fingerprint dạng hex chữ thường
+     */
+    static String fingerprint(X509Certificate certificate) throws CertificateException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(certificate.getEncoded()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new CertificateException("SHA-256 not available", e);
         }
     }
-    
+
+    /** Xóa trust store cache (ví dụ sau khi user chọn file khác) */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
     /**
      * Tạo Accept-All TrustManager (CHI DÙNG CHO DEMO)
-     * 
+     *
      * ⚠️ BẢO MẬT WARNING:
      * TrustManager này accept bất kỳ certificate nào mà không validation.
      * Vẫn có TLS encryption nhưng không protect khỏi man-in-the-middle attacks.
-     * 
+     *
      * Sử dụng khi:
      * • Demo với self-signed certificates
      * • Test environment không có proper CA
      * • Không có certificate file để validate
-     * 
+     *
      * KHÔNG BAO GIỞ sử dụng trong production!
-     * 
+     *
      * @return TrustManager array chấp nhận mọi certificate
      */
     private static TrustManager[] createAcceptAllTrustManager() {
@@ -133,10 +260,10 @@ public class CertificateManager {
             new X509TrustManager() {
                 @Override
                 public void checkClientTrusted(X509Certificate[] chain, String authType) {}
-                
+
                 @Override
                 public void checkServerTrusted(X509Certificate[] chain, String authType) {}
-                
+
                 @Override
                 public X509Certificate[] getAcceptedIssuers() {
                     return new X509Certificate[0];
@@ -144,4 +271,124 @@ public class CertificateManager {
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Entry của trust store cache - hợp lệ khi file và password không đổi
+     */
+    private static final class CachedTrustStore {
+        private final long modified;
+        private final long size;
+        private final char[] password;
+        private final PinnedTrustManager manager;
+
+        CachedTrustStore(long modified, long size, char[] password, PinnedTrustManager manager) {
+            this.modified = modified;
+            this.size = size;
+            this.password = password == null ? null : password.clone();
+            this.manager = manager;
+        }
+
+        boolean matches(long modified, long size, char[] password) {
+            return this.modified == modified && this.size == size && Arrays.equals(this.password, password);
+        }
+    }
+
+    /**
+     * 📌 TrustManager với pin set, PKIX fallback và verified-leaf cache
+     *
+     * Immutable sau khi tạo (trừ verified cache có lock riêng) - dùng chung
+     * cho mọi connection và mọi pool.
+     */
+    public static final class PinnedTrustManager implements X509TrustManager {
+        private final X509Certificate[] certificates;
+        private final Set<String> pins;
+        private final X509TrustManager pkix;
+        /** Leaf fingerprint → hết hạn (ms), LRU */
+        private final Map<String, Long> verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > VERIFIED_CACHE_SIZE;
+            }
+        };
+
+        PinnedTrustManager(List<X509Certificate> certificates) throws TrustStoreException {
+            this.certificates = certificates.toArray(new X509Certificate[0]);
+            Set<String> fingerprints = new HashSet<>();
+            try {
+                KeyStore anchors = KeyStore.getInstance(KeyStore.getDefaultType());
+                anchors.load(null, null);
+                for (int i = 0; i < this.certificates.length; i++) {
+                    fingerprints.add(fingerprint(this.certificates[i]));
+                    anchors.setCertificateEntry("trusted-" + i, this.certificates[i]);
+                }
+                TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+                factory.init(anchors);
+                this.pkix = (X509TrustManager) factory.getTrustManagers()[0];
+            } catch (GeneralSecurityException | IOException e) {
+                throw new TrustStoreException(String.valueOf(certificates.get(0).getSubjectX500Principal()),
+                    TrustStoreException.Reason.UNREADABLE, "Cannot build trust anchors", e);
+            }
+            this.pins = Collections.unmodifiableSet(fingerprints);
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            throw new CertificateException("Client certificates are not accepted");
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            if (chain == null || chain.length == 0) {
+                throw new CertificateException("Server sent no certificate");
+            }
+            X509Certificate leaf = chain[0];
+            String leafPin = fingerprint(leaf);
+            long now = System.currentTimeMillis();
+            if (isVerified(leafPin, now)) {
+                return;
+            }
+            if (!pins.contains(leafPin)) {
+                // File chứa CA (hoặc intermediate) - validate cả chain
+                try {
+                    pkix.checkServerTrusted(chain, authType);
+                } catch (CertificateException e) {
+                    throw new CertificateException("Server certificate not trusted ("
+                        + leaf.getSubjectX500Principal() + ")", e);
+                }
+            }
+            long expires = Math.min(now + VERIFIED_TTL_MILLIS, leaf.getNotAfter().getTime());
+            synchronized (verified) {
+                verified.put(leafPin, expires);
+            }
+        }
+
+        private boolean isVerified(String leafPin, long now) {
+            synchronized (verified) {
+                Long expires = verified.get(leafPin);
+                if (expires == null) {
+                    return false;
+                }
+                if (expires <= now) {
+                    verified.remove(leafPin);
+                    return false;
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return certificates.clone();
+        }
+
+        /** @return Số certificates trong trust store */
+        public int getCertificateCount() {
+            return certificates.length;
+        }
+
+        /** @return SHA-256 fingerprints (hex) của mọi loaded cert */
+        public Set<String> getPins() {
+            return pins;
+        }
+    }
+}
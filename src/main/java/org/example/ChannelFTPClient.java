@@ -0,0 +1,90 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * 📡 Channel FTP Client - Plain FTPClient với data socket truy cập trực tiếp
+ *
+ * Data connections dùng ChannelSocketFactory nên có SocketChannel -
+ * ChannelTransfer dùng FileChannel.transferTo cho upload zero-copy.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see DataChannelClient
+ * @see ControlChannelClient
+ * @see ChannelTransfer
+ */
+public class ChannelFTPClient extends FTPClient implements DataChannelClient, ControlChannelClient {
+    private boolean dataTcpNoDelay;
+    private volatile boolean replyPending;
+
+    /**
+     * @param dataTcpNoDelay TCP_NODELAY cho data sockets
+     */
+    public void setDataTcpNoDelay(boolean dataTcpNoDelay) {
+        this.dataTcpNoDelay = dataTcpNoDelay;
+    }
+
+    @Override
+    public Socket openDataSocket(FTPCmd command, String argument) throws IOException {
+        Socket socket = _openDataConnection_(command, argument);
+        if (socket != null && dataTcpNoDelay) {
+            socket.setTcpNoDelay(true);
+        }
+        return socket;
+    }
+
+    /**
+     * Mọi data connection (RETR, STOR, LIST, MLSD...) đi qua đây - command
+     * được chấp nhận thì reply kết thúc còn nợ cho đến completePendingCommand()
+     */
+    @Override
+    protected Socket _openDataConnection_(String command, String arg) throws IOException {
+        Socket socket = super._openDataConnection_(command, arg);
+        if (socket != null) {
+            replyPending = true;
+        }
+        return socket;
+    }
+
+    @Override
+    public boolean isReplyPending() {
+        return replyPending;
+    }
+
+    @Override
+    public boolean completePendingCommand() throws IOException {
+        boolean completed = super.completePendingCommand();
+        replyPending = false;
+        return completed;
+    }
+
+    @Override
+    public void disconnect() throws IOException {
+        replyPending = false;
+        super.disconnect();
+    }
+
+    @Override
+    public void writeCommand(String line) throws IOException {
+        if (_controlOutput_ == null) {
+            throw new IOException("Not connected");
+        }
+        _controlOutput_.write(line);
+        _controlOutput_.write("\r\n");
+        int space = line.indexOf(' ');
+        fireCommandSent(space < 0 ? line : line.substring(0, space), line + "\r\n");
+    }
+
+    @Override
+    public void flushCommands() throws IOException {
+        if (_controlOutput_ == null) {
+            throw new IOException("Not connected");
+        }
+        _controlOutput_.flush();
+    }
+}
@@ -0,0 +1,245 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.ftp.FTPSClient;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * 🔐 Channel FTPS Client - FTPSClient với data socket truy cập trực tiếp
+ * và TLS session reuse
+ *
+ * Data socket là SSLSocket (PROT P) nên không có SocketChannel;
+ * ChannelTransfer copy qua buffer lớn được tái sử dụng thay vì
+ * chuỗi BufferedInputStream/BufferedOutputStream của commons-net.
+ *
+ * TLS SESSION REUSE:
+ * • Mọi connection của một pool dùng chung một SSLContext (client session
+ *   cache) - control connection thứ 2 trở đi resume session của cái đầu
+ * • JSSE tìm session theo peer host:port. Data connection đi tới port
+ *   PASV, nên data socket được tạo dạng plain (SessionAliasSocket báo port
+ *   của control connection), rồi layer TLS lên với host của control
+ *   connection → handshake resume session của control channel. Đây cũng
+ *   là điều vsftpd require_ssl_reuse yêu cầu.
+ * • Mỗi handshake (control và data) được ghi vào TlsMetrics
+ * • Data connections dùng cùng protocols/cipher suites với control connection
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see DataChannelClient
+ * @see ControlChannelClient
+ * @see ChannelTransfer
+ * @see TlsMetrics
+ */
+public class ChannelFTPSClient extends FTPSClient implements DataChannelClient, ControlChannelClient {
+    private final SSLContext sslContext;
+    private final TlsMetrics metrics;
+    private boolean dataTcpNoDelay;
+    private volatile boolean replyPending;
+
+    /**
+     * @param implicit true cho implicit FTPS (TLS ngay khi connect)
+     * @param sslContext SSLContext dùng chung cho cả pool (session cache chung)
+     * @param metrics Nơi ghi handshake count/latency
+     */
+    public ChannelFTPSClient(boolean implicit, SSLContext sslContext, TlsMetrics metrics) {
+        super(implicit, sslContext);
+        this.sslContext = sslContext;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param dataTcpNoDelay TCP_NODELAY cho data sockets
+     */
+    public void setDataTcpNoDelay(boolean dataTcpNoDelay) {
+        this.dataTcpNoDelay = dataTcpNoDelay;
+    }
+
+    /**
+     * @return TLS session của control connection, null nếu chưa handshake
+     */
+    public SSLSession getControlSession() {
+        return _socket_ instanceof SSLSocket ? ((SSLSocket) _socket_).getSession() : null;
+    }
+
+    @Override
+    public Socket openDataSocket(FTPCmd command, String argument) throws IOException {
+        Socket socket = _openDataConnection_(command, argument);
+        if (socket != null && dataTcpNoDelay) {
+            socket.setTcpNoDelay(true);
+        }
+        return socket;
+    }
+
+    @Override
+    public boolean isReplyPending() {
+        return replyPending;
+    }
+
+    @Override
+    public boolean completePendingCommand() throws IOException {
+        boolean completed = super.completePendingCommand();
+        replyPending = false;
+        return completed;
+    }
+
+    @Override
+    public void disconnect() throws IOException {
+        replyPending = false;
+        super.disconnect();
+    }
+
+    @Override
+    public void writeCommand(String line) throws IOException {
+        if (_controlOutput_ == null) {
+            throw new IOException("Not connected");
+        }
+        _controlOutput_.write(line);
+        _controlOutput_.write("\r\n");
+        int space = line.indexOf(' ');
+        fireCommandSent(space < 0 ? line : line.substring(0, space), line + "\r\n");
+    }
+
+    @Override
+    public void flushCommands() throws IOException {
+        if (_controlOutput_ == null) {
+            throw new IOException("Not connected");
+        }
+        _controlOutput_.flush();
+    }
+
+    /**
+     * AUTH TLS trên control connection - đo thời gian handshake
+     */
+    @Override
+    protected void sslNegotiation() throws IOException {
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        super.sslNegotiation();
+        record(true, (SSLSocket) _socket_, startMillis, start);
+    }
+
+    /**
+     * PROT P: FTPSClient cài FTPSSocketFactory (SSLSocket chưa connect →
+     * không resume được). Thay bằng plain sockets, TLS được layer sau khi
+     * connect trong _openDataConnection_.
+     */
+    @Override
+    public void execPROT(String prot) throws IOException {
+        super.execPROT(prot);
+        if ("P".equals(prot)) {
+            setSocketFactory(new SessionAliasSocketFactory());
+        }
+    }
+
+    /**
+     * Mọi data connection (RETR, STOR, LIST, MLSD...) đi qua đây: socket
+     * plain đã connect và command đã được server chấp nhận → TLS handshake
+     * resume control session
+     */
+    @Override
+    protected Socket _openDataConnection_(String command, String arg) throws IOException {
+        Socket socket = super._openDataConnection_(command, arg);
+        if (socket != null) {
+            // Kể cả khi TLS handshake bên dưới lỗi: server vẫn sẽ gửi 425/426
+            replyPending = true;
+        }
+        if (!(socket instanceof SessionAliasSocket)) {
+            return socket;
+        }
+        ((SessionAliasSocket) socket).setSessionPort(getRemotePort());
+
+        SSLSocket sslSocket = null;
+        try {
+            sslSocket = (SSLSocket) sslContext.getSocketFactory()
+                .createSocket(socket, _hostname_, getRemotePort(), true);
+            sslSocket.setUseClientMode(true);
+            if (getEnabledProtocols() != null) {
+                sslSocket.setEnabledProtocols(getEnabledProtocols());
+            }
+            if (getEnabledCipherSuites() != null) {
+                sslSocket.setEnabledCipherSuites(getEnabledCipherSuites());
+            }
+            long startMillis = System.currentTimeMillis();
+            long start = System.nanoTime();
+            sslSocket.startHandshake();
+            record(false, sslSocket, startMillis, start);
+            return sslSocket;
+        } catch (IOException | RuntimeException e) {
+            (sslSocket != null ? sslSocket : socket).close();
+            throw e;
+        }
+    }
+
+    private void record(boolean control, SSLSocket socket, long startMillis, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        // Session resume giữ creation time của session gốc
+        boolean resumed = socket.getSession().getCreationTime() < startMillis;
+        metrics.record(control, resumed, nanos);
+    }
+
+    /**
+     * Data socket báo port của control connection cho JSSE - session cache
+     * key là host:port nên handshake tìm thấy session của control channel
+     */
+    private static final class SessionAliasSocket extends Socket {
+        private int sessionPort;
+
+        void setSessionPort(int sessionPort) {
+            this.sessionPort = sessionPort;
+        }
+
+        @Override
+        public int getPort() {
+            return sessionPort > 0 ? sessionPort : super.getPort();
+        }
+    }
+
+    /**
+     * Chỉ createSocket() được FTPClient dùng cho data connections (connect sau)
+     */
+    private static final class SessionAliasSocketFactory extends SocketFactory {
+        @Override
+        public Socket createSocket() {
+            return new SessionAliasSocket();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            Socket socket = createSocket();
+            socket.connect(new InetSocketAddress(host, port));
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            Socket socket = createSocket();
+            socket.bind(new InetSocketAddress(localHost, localPort));
+            socket.connect(new InetSocketAddress(host, port));
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            Socket socket = createSocket();
+            socket.connect(new InetSocketAddress(host, port));
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            Socket socket = createSocket();
+            socket.bind(new InetSocketAddress(localAddress, localPort));
+            socket.connect(new InetSocketAddress(address, port));
+            return socket;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.example;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 🧵 Channel Socket Factory - Tạo socket có SocketChannel bên dưới
+ *
+ * Socket tạo bởi new Socket() có getChannel() == null. Factory này tạo
+ * socket từ SocketChannel.open() để data connection của plain FTP hỗ
+ * trợ FileChannel.transferTo (sendfile - zero-copy từ page cache ra NIC).
+ *
+ * Chỉ dùng cho data connections (set sau khi login), control connection
+ * vẫn là socket thường.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ChannelFTPClient
+ */
+public class ChannelSocketFactory extends SocketFactory {
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return SocketChannel.open().socket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        Socket socket = createSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        Socket socket = createSocket();
+        socket.bind(new InetSocketAddress(localHost, localPort));
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        Socket socket = createSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        Socket socket = createSocket();
+        socket.bind(new InetSocketAddress(localAddress, localPort));
+        socket.connect(new InetSocketAddress(address, port));
+        return socket;
+    }
+}
@@ -0,0 +1,482 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * ⚡ Channel Transfer - NIO transfer path cho RETR/STOR/APPE
+ *
+ * Thay cho FileInputStream/FileOutputStream + Util.copyStream của commons-net
+ * (buffer nhỏ, nhiều lần copy byte array):
+ *
+ * PLAIN FTP (data socket có SocketChannel):
+ * • Upload: FileChannel.transferTo → sendfile, zero-copy từ page cache
+ * • Download: SocketChannel.read vào direct buffer lớn → FileChannel.write.
+ *   (FileChannel.transferFrom từ socket trong JDK chỉ copy qua buffer 8 KB,
+ *   nên direct buffer lớn cho ít syscall hơn)
+ *
+ * FTPS (SSLSocket):
+ * • Copy qua byte[] lớn được tái sử dụng theo thread - không allocate
+ *   buffer mới cho mỗi file
+ *
+ * SEGMENT (downloadRange):
+ * • Cùng đường đọc như download(), dừng sau đúng length bytes - các
+ *   segment của SegmentedDownloader ghi positional vào cùng FileChannel
+ *
+ * MODE Z (downloadDeflated/uploadDeflated):
+ * • Inflate/deflate qua byte[] tái sử dụng - không zero-copy nhưng bytes
+ *   trên dây giảm theo tỉ lệ nén (text thường 5-10 lần)
+ *
+ * CHECKSUM INLINE (overload có StreamingChecksum):
+ * • Buffer vừa đọc được cộng vào hash trước khi ghi - không đọc lại file
+ * • Plain upload khi cần hash: read vào direct buffer + write thay cho
+ *   sendfile (bytes phải đi qua user space một lần để hash)
+ * • MODE Z: hash bytes của file (trước nén/sau giải nén), khớp với HASH của server
+ *
+ * Kích thước buffer lấy từ ConnectionSettings.transferBufferSize. Sau mỗi
+ * chunk, ProgressListener được gọi (progress, checkpoint, pause/cancel).
+ * Progress luôn tính theo bytes của file, không phải bytes đã nén.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see DataChannelClient
+ * @see FileTransfer
+ */
+public final class ChannelTransfer {
+
+    /**
+     * Callback sau mỗi chunk - có thể ném exception để dừng transfer
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void bytesTransferred(long bytes) throws IOException;
+
+        /**
+         * Server báo size trong reply mở data connection
+         * ("150 Opening BINARY mode data connection for x (1234 bytes)")
+         */
+        default void sizeAnnounced(long size) {
+        }
+
+        /**
+         * Transfer MODE Z xong: bytes của file và bytes thực sự đi qua data connection
+         */
+        default void compressed(long rawBytes, long wireBytes) {
+        }
+    }
+
+    private static final ThreadLocal<ByteBuffer> DIRECT_BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<byte[]> HEAP_BUFFER = new ThreadLocal<>();
+
+    private ChannelTransfer() {
+    }
+
+    /**
+     * RETR remotePath và ghi vào target bắt đầu từ position
+     * (REST offset phải được set trên client trước khi gọi)
+     *
+     * @return Số bytes đã nhận
+     * @throws IOException nếu server từ chối hoặc transfer lỗi
+     */
+    public static long download(FTPClient client, String remotePath, FileChannel target, long position,
+                                int bufferSize, ProgressListener listener) throws IOException {
+        return download(client, remotePath, target, position, bufferSize, listener, null);
+    }
+
+    /**
+     * download() và cộng mọi byte nhận được vào checksum
+     *
+     * @param checksum Hash inline, null = không tính
+     */
+    public static long download(FTPClient client, String remotePath, FileChannel target, long position,
+                                int bufferSize, ProgressListener listener,
+                                StreamingChecksum checksum) throws IOException {
+        Socket socket = ((DataChannelClient) client).openDataSocket(FTPCmd.RETR, remotePath);
+        if (socket == null) {
+            throw new IOException("RETR failed: " + client.getReplyString().trim());
+        }
+        long announced = announcedSize(client.getReplyString());
+        if (announced >= 0 && position == 0) {
+            // Sau REST, server khác nhau báo size cả file hoặc phần còn lại - bỏ qua
+            listener.sizeAnnounced(announced);
+        }
+
+        long total = 0;
+        try {
+            SocketChannel channel = socket.getChannel();
+            if (channel != null) {
+                ByteBuffer buffer = directBuffer(bufferSize);
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    int n = buffer.remaining();
+                    if (checksum != null) {
+                        checksum.update(buffer);
+                    }
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer, position + total + buffer.position());
+                    }
+                    buffer.clear();
+                    total += n;
+                    listener.bytesTransferred(n);
+                }
+            } else {
+                byte[] array = heapBuffer(bufferSize);
+                ByteBuffer wrapper = ByteBuffer.wrap(array);
+                InputStream in = socket.getInputStream();
+                int n;
+                while ((n = in.read(array)) != -1) {
+                    if (checksum != null) {
+                        checksum.update(array, 0, n);
+                    }
+                    wrapper.clear().limit(n);
+                    while (wrapper.hasRemaining()) {
+                        target.write(wrapper, position + total + wrapper.position());
+                    }
+                    total += n;
+                    listener.bytesTransferred(n);
+                }
+            }
+        } finally {
+            socket.close();
+        }
+
+        if (!client.completePendingCommand()) {
+            throw new IOException("RETR failed: " + client.getReplyString().trim());
+        }
+        return total;
+    }
+
+    /**
+     * REST start + RETR, đọc đúng length bytes và ghi positional vào target
+     * tại start (một segment của SegmentedDownloader). Data connection được
+     * đóng ngay khi đủ bytes - server trả 426 thay vì 226 cho segment giữa
+     * file, reply đó vẫn được đọc để control channel đồng bộ.
+     *
+     * @return Số bytes đã ghi (= length)
+     * @throws IOException nếu server từ chối, stream kết thúc sớm, hoặc reply
+     *                     kết thúc là lỗi khác 426
+     */
+    public static long downloadRange(FTPClient client, String remotePath, FileChannel target, long start,
+                                     long length, int bufferSize, ProgressListener listener) throws IOException {
+        return downloadRange(client, remotePath, target, start, length, bufferSize, listener, null);
+    }
+
+    /**
+     * @param checksum Cộng bytes của range trước khi ghi (null = không hash)
+     */
+    public static long downloadRange(FTPClient client, String remotePath, FileChannel target, long start,
+                                     long length, int bufferSize, ProgressListener listener,
+                                     StreamingChecksum checksum) throws IOException {
+        client.setRestartOffset(start);
+        Socket socket = ((DataChannelClient) client).openDataSocket(FTPCmd.RETR, remotePath);
+        if (socket == null) {
+            throw new IOException("RETR failed at offset " + start + ": " + client.getReplyString().trim());
+        }
+
+        long total = 0;
+        try {
+            SocketChannel channel = socket.getChannel();
+            if (channel != null) {
+                ByteBuffer buffer = directBuffer(bufferSize);
+                while (total < length) {
+                    buffer.limit((int) Math.min(buffer.capacity(), length - total));
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    int n = buffer.remaining();
+                    if (checksum != null) {
+                        checksum.update(buffer);
+                    }
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer, start + total + buffer.position());
+                    }
+                    buffer.clear();
+                    total += n;
+                    listener.bytesTransferred(n);
+                }
+            } else {
+                byte[] array = heapBuffer(bufferSize);
+                ByteBuffer wrapper = ByteBuffer.wrap(array);
+                InputStream in = socket.getInputStream();
+                while (total < length) {
+                    int n = in.read(array, 0, (int) Math.min(array.length, length - total));
+                    if (n < 0) {
+                        break;
+                    }
+                    wrapper.clear().limit(n);
+                    if (checksum != null) {
+                        checksum.update(array, 0, n);
+                    }
+                    while (wrapper.hasRemaining()) {
+                        target.write(wrapper, start + total + wrapper.position());
+                    }
+                    total += n;
+                    listener.bytesTransferred(n);
+                }
+            }
+        } finally {
+            socket.close();
+        }
+
+        if (!client.completePendingCommand() && client.getReplyCode() != FTPReply.TRANSFER_ABORTED) {
+            throw new IOException("RETR failed at offset " + start + ": " + client.getReplyString().trim());
+        }
+        if (total < length) {
+            throw new IOException("Segment at offset " + start + " ended early (" + total + " of "
+                + length + " bytes)");
+        }
+        return total;
+    }
+
+    /**
+     * STOR (hoặc APPE) phần [position, size) của source lên remotePath
+     *
+     * @param command FTPCmd.STOR hoặc FTPCmd.APPE
+     * @return Số bytes đã gửi
+     * @throws IOException nếu server từ chối hoặc transfer lỗi
+     */
+    public static long upload(FTPClient client, FTPCmd command, String remotePath, FileChannel source,
+                              long position, int bufferSize, ProgressListener listener) throws IOException {
+        return upload(client, command, remotePath, source, position, bufferSize, listener, null);
+    }
+
+    /**
+     * upload() và cộng mọi byte đã gửi vào checksum
+     *
+     * @param checksum Hash inline, null = không tính (plain FTP dùng sendfile)
+     */
+    public static long upload(FTPClient client, FTPCmd command, String remotePath, FileChannel source,
+                              long position, int bufferSize, ProgressListener listener,
+                              StreamingChecksum checksum) throws IOException {
+        Socket socket = ((DataChannelClient) client).openDataSocket(command, remotePath);
+        if (socket == null) {
+            throw new IOException(command + " failed: " + client.getReplyString().trim());
+        }
+
+        long size = source.size();
+        long offset = position;
+        try {
+            SocketChannel channel = socket.getChannel();
+            if (channel != null && checksum == null) {
+                while (offset < size) {
+                    long n = source.transferTo(offset, Math.min(bufferSize, size - offset), channel);
+                    offset += n;
+                    listener.bytesTransferred(n);
+                }
+            } else if (channel != null) {
+                ByteBuffer buffer = directBuffer(bufferSize);
+                while (offset < size) {
+                    buffer.clear();
+                    int n = source.read(buffer, offset);
+                    if (n < 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    checksum.update(buffer);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    offset += n;
+                    listener.bytesTransferred(n);
+                }
+            } else {
+                byte[] array = heapBuffer(bufferSize);
+                ByteBuffer wrapper = ByteBuffer.wrap(array);
+                OutputStream out = socket.getOutputStream();
+                while (offset < size) {
+                    wrapper.clear();
+                    int n = source.read(wrapper, offset);
+                    if (n < 0) {
+                        break;
+                    }
+                    if (checksum != null) {
+                        checksum.update(array, 0, n);
+                    }
+                    out.write(array, 0, n);
+                    offset += n;
+                    listener.bytesTransferred(n);
+                }
+                out.flush();
+            }
+        } finally {
+            socket.close();
+        }
+
+        if (!client.completePendingCommand()) {
+            throw new IOException(command + " failed: " + client.getReplyString().trim());
+        }
+        return offset - position;
+    }
+
+    /**
+     * RETR remotePath trong MODE Z và ghi bản đã inflate vào target từ đầu
+     * (caller đã gửi MODE Z - xem DataCompression)
+     *
+     * @return Số bytes sau khi giải nén
+     * @throws java.io.EOFException nếu zlib stream bị cắt trước khi kết thúc
+     * @throws IOException nếu server từ chối hoặc transfer lỗi
+     */
+    public static long downloadDeflated(FTPClient client, String remotePath, FileChannel target,
+                                        int bufferSize, ProgressListener listener) throws IOException {
+        return downloadDeflated(client, remotePath, target, bufferSize, listener, null);
+    }
+
+    /**
+     * downloadDeflated() và cộng bytes đã giải nén vào checksum
+     *
+     * @param checksum Hash inline, null = không tính
+     */
+    public static long downloadDeflated(FTPClient client, String remotePath, FileChannel target,
+                                        int bufferSize, ProgressListener listener,
+                                        StreamingChecksum checksum) throws IOException {
+        Socket socket = ((DataChannelClient) client).openDataSocket(FTPCmd.RETR, remotePath);
+        if (socket == null) {
+            throw new IOException("RETR failed: " + client.getReplyString().trim());
+        }
+        long announced = announcedSize(client.getReplyString());
+        if (announced >= 0) {
+            listener.sizeAnnounced(announced);
+        }
+
+        long total = 0;
+        Inflater inflater = new Inflater();
+        try {
+            InputStream in = new InflaterInputStream(socket.getInputStream(), inflater, bufferSize);
+            byte[] array = heapBuffer(bufferSize);
+            ByteBuffer wrapper = ByteBuffer.wrap(array);
+            int n;
+            while ((n = in.read(array)) != -1) {
+                if (checksum != null) {
+                    checksum.update(array, 0, n);
+                }
+                wrapper.clear().limit(n);
+                while (wrapper.hasRemaining()) {
+                    target.write(wrapper, total + wrapper.position());
+                }
+                total += n;
+                listener.bytesTransferred(n);
+            }
+            listener.compressed(total, inflater.getBytesRead());
+        } finally {
+            inflater.end();
+            socket.close();
+        }
+
+        if (!client.completePendingCommand()) {
+            throw new IOException("RETR failed: " + client.getReplyString().trim());
+        }
+        return total;
+    }
+
+    /**
+     * STOR toàn bộ source lên remotePath trong MODE Z
+     * (caller đã gửi MODE Z - xem DataCompression)
+     *
+     * @param level Deflate level 1-9
+     * @return Số bytes của file đã gửi (trước khi nén)
+     * @throws IOException nếu server từ chối hoặc transfer lỗi
+     */
+    public static long uploadDeflated(FTPClient client, FTPCmd command, String remotePath, FileChannel source,
+                                      int level, int bufferSize, ProgressListener listener) throws IOException {
+        return uploadDeflated(client, command, remotePath, source, level, bufferSize, listener, null);
+    }
+
+    /**
+     * uploadDeflated() và cộng bytes của file (trước khi nén) vào checksum
+     *
+     * @param checksum Hash inline, null = không tính
+     */
+    public static long uploadDeflated(FTPClient client, FTPCmd command, String remotePath, FileChannel source,
+                                      int level, int bufferSize, ProgressListener listener,
+                                      StreamingChecksum checksum) throws IOException {
+        Socket socket = ((DataChannelClient) client).openDataSocket(command, remotePath);
+        if (socket == null) {
+            throw new IOException(command + " failed: " + client.getReplyString().trim());
+        }
+
+        long size = source.size();
+        long offset = 0;
+        Deflater deflater = new Deflater(level);
+        try {
+            DeflaterOutputStream out = new DeflaterOutputStream(socket.getOutputStream(), deflater, bufferSize);
+            byte[] array = heapBuffer(bufferSize);
+            ByteBuffer wrapper = ByteBuffer.wrap(array);
+            while (offset < size) {
+                wrapper.clear();
+                int n = source.read(wrapper, offset);
+                if (n < 0) {
+                    break;
+                }
+                if (checksum != null) {
+                    checksum.update(array, 0, n);
+                }
+                out.write(array, 0, n);
+                offset += n;
+                listener.bytesTransferred(n);
+            }
+            out.finish();
+            out.flush();
+            listener.compressed(offset, deflater.getBytesWritten());
+        } finally {
+            deflater.end();
+            socket.close();
+        }
+
+        if (!client.completePendingCommand()) {
+            throw new IOException(command + " failed: " + client.getReplyString().trim());
+        }
+        return offset;
+    }
+
+    /**
+     * @return Số trong "(1234 bytes)" của reply 150, -1 nếu không có
+     */
+    static long announcedSize(String reply) {
+        int end = reply.lastIndexOf(" bytes)");
+        if (end < 0) {
+            return -1;
+        }
+        int start = reply.lastIndexOf('(', end);
+        try {
+            return start < 0 ? -1 : Long.parseLong(reply.substring(start + 1, end).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Direct buffer tái sử dụng theo thread (worker threads sống lâu)
+     */
+    private static ByteBuffer directBuffer(int size) {
+        ByteBuffer buffer = DIRECT_BUFFER.get();
+        if (buffer == null || buffer.capacity() != size) {
+            buffer = ByteBuffer.allocateDirect(size);
+            DIRECT_BUFFER.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private static byte[] heapBuffer(int size) {
+        byte[] buffer = HEAP_BUFFER.get();
+        if (buffer == null || buffer.length != size) {
+            buffer = new byte[size];
+            HEAP_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,347 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 🚇 Command Pipeline - Gửi nhiều control command độc lập trong một round trip
+ *
+ * Stat 10k file từng cái một (SIZE → chờ → MDTM → chờ ...) tốn một RTT mỗi
+ * command: 150 ms × 10k = 25 phút. Pipeline gửi liên tiếp nhiều command
+ * trên một connection rồi đọc reply theo đúng thứ tự (RFC 959 trả lời
+ * tuần tự) - thời gian còn xấp xỉ RTT × (số command / số command đang chờ).
+ *
+ * • Sliding window: mỗi reply nhận được lại gửi bù command kế tiếp. Gửi
+ *   bù theo lô (nửa window) làm server hết việc giữa hai lô và reply cuối
+ *   bị Nagle + delayed ACK giữ lại ~40 ms mỗi lô - chậm hơn cả tuần tự
+ * • Giới hạn cả số command (WINDOW) lẫn số bytes đang chờ
+ *   (MAX_IN_FLIGHT_BYTES, tính cả overhead TLS record): server đọc control
+ *   connection bằng buffer nhỏ (Apache FtpServer/MINA ~1 KB) - vượt quá thì
+ *   reply bị giữ đến khi TCP retransmit (~200 ms mỗi lần)
+ * • Mode.AUTO: lần đầu probe server bằng hai NOOP liên tiếp (timeout
+ *   ngắn); kết quả được nhớ trong pool
+ * • Server không chịu pipelining (hoặc connection lỗi giữa chừng):
+ *   các command còn lại được rải đều cho các connection của pool, mỗi
+ *   connection chạy tuần tự - vẫn nhanh hơn N lần; connection đứt thì
+ *   command đang chạy được gửi lại trên connection mới
+ * • Chỉ nhận command read-only có đúng một reply, không mở data connection
+ *   (SIZE, MDTM, MLST, NOOP, HASH, XCRC/XMD5/XSHA*) - command thay đổi
+ *   server vẫn đi qua sendCommand để DirectoryCache patch đúng
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ControlChannelClient
+ * @see FtpConnectionPool
+ */
+public final class CommandPipeline {
+
+    /** Bật/tắt pipelining (ftps.pipelining) */
+    public enum Mode { AUTO, ON, OFF }
+
+    /** Số command tối đa đang chờ reply trên một connection */
+    public static final int WINDOW = 32;
+
+    /** Tổng bytes (trên dây) của command đang chờ reply */
+    private static final int MAX_IN_FLIGHT_BYTES = 768;
+
+    /** Header + nonce + MAC của một TLS record - mỗi command gửi bù thường là một record */
+    private static final int TLS_RECORD_OVERHEAD = 64;
+
+    private static final int PROBE_TIMEOUT_MILLIS = 3_000;
+
+    /** Command read-only, một reply, không đổi state của session */
+    private static final Set<String> PIPELINABLE = new HashSet<>(Arrays.asList(
+        "SIZE", "MDTM", "MLST", "NOOP", "STAT", "HASH", "XCRC", "XMD5", "XSHA1", "XSHA256", "XSHA512"));
+
+    /**
+     * Reply của một command (immutable)
+     */
+    public static final class Reply {
+        private final int code;
+        private final String[] lines;
+
+        Reply(int code, String[] lines) {
+            this.code = code;
+            this.lines = lines;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        /** @return Các dòng reply, dòng đầu chứa code */
+        public String[] getLines() {
+            return lines.clone();
+        }
+
+        /** @return Phần text sau code của dòng cuối, ví dụ "1048576" cho "213 1048576" */
+        public String getText() {
+            String last = lines.length == 0 ? "" : lines[lines.length - 1];
+            return last.length() > 4 ? last.substring(4).trim() : "";
+        }
+
+        public boolean isPositive() {
+            return FTPReply.isPositiveCompletion(code);
+        }
+
+        @Override
+        public String toString() {
+            return String.join("\n", lines);
+        }
+    }
+
+    private final FtpConnectionPool pool;
+    private final NetworkExecutor executor;
+    private final Consumer<String> log;
+
+    /**
+     * @param pool Connection pool của server
+     * @param executor Chạy các connection song song khi phải rải command
+     * @param log Callback ghi log
+     */
+    public CommandPipeline(FtpConnectionPool pool, NetworkExecutor executor, Consumer<String> log) {
+        this.pool = pool;
+        this.executor = executor;
+        this.log = log;
+    }
+
+    /**
+     * Chạy các command, reply trả về đúng thứ tự
+     *
+     * @param commands Command đầy đủ, ví dụ "SIZE /pub/a.bin"
+     * @return Reply tương ứng từng command
+     * @throws IllegalArgumentException nếu có command không pipeline được
+     * @throws IOException nếu không lấy được connection hoặc mọi cách đều lỗi
+     */
+    public List<Reply> execute(List<String> commands) throws IOException {
+        for (String command : commands) {
+            String verb = verbOf(command);
+            if (!PIPELINABLE.contains(verb)) {
+                throw new IllegalArgumentException(verb + " cannot be batched");
+            }
+        }
+        Reply[] replies = new Reply[commands.size()];
+        if (commands.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (usePipelining()) {
+            runPipelined(commands, replies);
+        }
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < replies.length; i++) {
+            if (replies[i] == null) {
+                pending.add(i);
+            }
+        }
+        if (!pending.isEmpty()) {
+            runSpread(commands, pending, replies);
+        }
+        return Arrays.asList(replies);
+    }
+
+    /**
+     * Metadata của nhiều path: MLST nếu server hỗ trợ, ngược lại SIZE + MDTM
+     *
+     * @param paths Remote paths
+     * @return path → FTPFile (type, size, timestamp), null nếu không tồn tại.
+     *         Không có MLST: chỉ nhận ra file thường (SIZE trên thư mục thường trả 550).
+     */
+    public Map<String, FTPFile> stat(List<String> paths) throws IOException {
+        Map<String, FTPFile> result = new LinkedHashMap<>();
+        if (pool.getServerFeatures().supportsMlsd()) {
+            List<String> commands = new ArrayList<>(paths.size());
+            for (String path : paths) {
+                commands.add("MLST " + path);
+            }
+            List<Reply> replies = execute(commands);
+            for (int i = 0; i < paths.size(); i++) {
+                result.put(paths.get(i), parseMlst(replies.get(i)));
+            }
+            return result;
+        }
+
+        List<String> commands = new ArrayList<>(paths.size() * 2);
+        for (String path : paths) {
+            commands.add("SIZE " + path);
+            commands.add("MDTM " + path);
+        }
+        List<Reply> replies = execute(commands);
+        for (int i = 0; i < paths.size(); i++) {
+            Reply size = replies.get(2 * i);
+            Reply modified = replies.get(2 * i + 1);
+            FTPFile file = null;
+            if (size.getCode() == FTPReply.FILE_STATUS) {
+                file = new FTPFile();
+                file.setType(FTPFile.FILE_TYPE);
+                file.setName(paths.get(i));
+                file.setSize(parseLong(size.getText()));
+                if (modified.getCode() == FTPReply.FILE_STATUS) {
+                    Calendar timestamp = MLSxEntryParser.parseGMTdateTime(modified.getText());
+                    if (timestamp != null) {
+                        file.setTimestamp(timestamp);
+                    }
+                }
+            }
+            result.put(paths.get(i), file);
+        }
+        return result;
+    }
+
+    /**
+     * "250-Listing x\r\n type=file;size=1;modify=...; x\r\n250 End" - một số
+     * server chèn dòng trống hoặc bỏ dấu cách đầu dòng, nên lấy dòng giữa
+     * đầu tiên không rỗng
+     */
+    private static FTPFile parseMlst(Reply reply) {
+        if (!reply.isPositive()) {
+            return null;
+        }
+        String[] lines = reply.getLines();
+        for (int i = 1; i < lines.length - 1; i++) {
+            String entry = lines[i].stripLeading();
+            if (!entry.isEmpty()) {
+                return MLSxEntryParser.parseEntry(entry);
+            }
+        }
+        return null;
+    }
+
+    private static long parseLong(String text) {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Độ dài command trên dây (ASCII + CRLF + overhead) - đủ chính xác cho giới hạn window */
+    private static int lineBytes(String command, int overhead) {
+        return command.length() + 2 + overhead;
+    }
+
+    private static String verbOf(String command) {
+        int space = command.indexOf(' ');
+        return (space < 0 ? command : command.substring(0, space)).toUpperCase(Locale.ROOT);
+    }
+
+    private boolean usePipelining() {
+        Mode mode = pool.getSettings().getPipelining();
+        return mode == Mode.ON || (mode == Mode.AUTO && !Boolean.FALSE.equals(pool.getPipeliningSupported()));
+    }
+
+    /**
+     * Pipeline trên một connection. Lỗi giữa chừng → connection bị bỏ, các
+     * command chưa có reply để runSpread xử lý.
+     */
+    private void runPipelined(List<String> commands, Reply[] replies) throws IOException {
+        FTPClient client = pool.borrow();
+        if (!(client instanceof ControlChannelClient)) {
+            pool.release(client);
+            return;
+        }
+        ControlChannelClient control = (ControlChannelClient) client;
+        int sent = 0;
+        int received = 0;
+        int inFlightBytes = 0;
+        int overhead = client instanceof FTPSClient ? TLS_RECORD_OVERHEAD : 0;
+        try {
+            if (pool.getPipeliningSupported() == null && pool.getSettings().getPipelining() == Mode.AUTO
+                    && !probe(client, control)) {
+                pool.setPipeliningSupported(false);
+                log.accept("Pipelining: not supported by server - spreading commands over "
+                    + pool.getSettings().getMaxConnections() + " connections");
+                pool.invalidate(client);
+                return;
+            }
+            pool.setPipeliningSupported(true);
+            client.setSoTimeout((int) Math.min(Integer.MAX_VALUE, pool.getSettings().getConnectTimeoutMillis()));
+            while (received < commands.size()) {
+                boolean wrote = false;
+                while (sent < commands.size() && sent - received < WINDOW
+                        && (sent == received || inFlightBytes + lineBytes(commands.get(sent), overhead) <= MAX_IN_FLIGHT_BYTES)) {
+                    inFlightBytes += lineBytes(commands.get(sent), overhead);
+                    control.writeCommand(commands.get(sent++));
+                    wrote = true;
+                }
+                if (wrote) {
+                    control.flushCommands();
+                }
+                int code = client.getReply();
+                inFlightBytes -= lineBytes(commands.get(received), overhead);
+                replies[received++] = new Reply(code, client.getReplyStrings());
+            }
+            client.setSoTimeout(0);
+            pool.release(client);
+            log.accept("Pipelining: " + commands.size() + " commands on one connection");
+        } catch (IOException e) {
+            // Reply lệch thứ tự hoặc timeout - connection không còn đáng tin
+            pool.invalidate(client);
+            log.accept("Pipelining: failed after " + received + "/" + commands.size()
+                + " replies (" + e.getMessage() + "), retrying the rest on pooled connections");
+        }
+    }
+
+    /**
+     * Hai NOOP liên tiếp - server xử lý tuần tự phải trả lời cả hai
+     */
+    private boolean probe(FTPClient client, ControlChannelClient control) {
+        try {
+            client.setSoTimeout(PROBE_TIMEOUT_MILLIS);
+            control.writeCommand("NOOP");
+            control.writeCommand("NOOP");
+            control.flushCommands();
+            return FTPReply.isPositiveCompletion(client.getReply())
+                && FTPReply.isPositiveCompletion(client.getReply());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fallback: mỗi connection của pool lấy command kế tiếp từ hàng đợi
+     * chung và chạy tuần tự (sendCommand đồng bộ)
+     */
+    private void runSpread(List<String> commands, List<Integer> pending, Reply[] replies) throws IOException {
+        int connections = Math.max(1, Math.min(pool.getSettings().getMaxConnections(), pending.size()));
+        AtomicInteger next = new AtomicInteger();
+        try (NetworkExecutor.Scope scope = executor.scope("command-batch", 0)) {
+            for (int i = 0; i < connections; i++) {
+                scope.fork("commands-" + i, () -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < pending.size()) {
+                        int slot = pending.get(index);
+                        // Borrow theo từng command: connection đứt giữa chừng chỉ làm
+                        // chạy lại đúng command đó (read-only) trên connection mới
+                        replies[slot] = pool.executeIdempotent(client -> {
+                            int code = client.sendCommand(commands.get(slot));
+                            return new Reply(code, client.getReplyStrings());
+                        });
+                    }
+                    return null;
+                });
+            }
+            scope.join();
+        }
+        for (int slot : pending) {
+            if (replies[slot] == null) {
+                throw new IOException("No reply for " + verbOf(commands.get(slot)) + " - connection lost");
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+
+import java.util.regex.Pattern;
+
+/**
+ * 📈 Concurrency Controller - Tự chỉnh số transfer song song cho một host
+ *
+ * Số stream tốt nhất phụ thuộc RTT, giới hạn của server và cỡ file, nên
+ * thay vì con số cố định, controller dò theo throughput đo được (AIMD):
+ *
+ * • Additive increase: host đang bão hòa (mọi slot đều chạy, còn job
+ *   chờ) → thử thêm 1 stream
+ * • Sau một chu kỳ ổn định, đo lại: throughput tăng ≥ MIN_GAIN → giữ và
+ *   thử tiếp; không tăng → trả lại 1 stream và đứng yên HOLD_SAMPLES chu kỳ
+ * • Multiplicative decrease: server trả 421 ("too many connections",
+ *   "service not available") → giảm một nửa, đứng yên lâu hơn, và không
+ *   thử lại mức đã bị từ chối trong SERVER_CAP_MILLIS
+ * • Trần: ConnectionSettings.maxTransfersPerHost; sàn: 1
+ *
+ * Throughput lấy từ tổng bytes của TransferMetrics (upload + download)
+ * giữa hai lần sample() - không thêm gì vào transfer loop.
+ *
+ * Không thread-safe tự thân: TransferQueue gọi dưới lock của host slot.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferQueue
+ * @see ConnectionSettings#isAdaptiveConcurrency()
+ */
+public final class ConcurrencyController {
+    /** Khoảng giữa hai lần đo */
+    public static final long SAMPLE_MILLIS = 2_000;
+    /** Throughput phải tăng ít nhất 10% mới đáng thêm một stream */
+    private static final double MIN_GAIN = 0.10;
+    /** Đứng yên sau khi stream thêm không giúp gì (~20 giây) */
+    private static final int HOLD_SAMPLES = 10;
+    /** Đứng yên sau 421 (~10 giây) rồi tăng dần lại */
+    private static final int OVERLOAD_HOLD_SAMPLES = 5;
+    /** Nhớ giới hạn server đã lộ ra qua 421 trong 5 phút (connection của client khác có thể đã đóng) */
+    private static final long SERVER_CAP_MILLIS = 5 * 60_000;
+    /** Số stream lúc bắt đầu (nếu trần cho phép) */
+    private static final int INITIAL_LIMIT = 2;
+    /** Reply 421 ở đầu message hoặc ngay sau "...failed: " */
+    private static final Pattern OVERLOAD_REPLY = Pattern.compile("(^|: )421[ -]");
+
+    /** Quyết định gần nhất - hiện trên UI */
+    public enum Decision {
+        FIXED("fixed"),
+        STARTING("starting"),
+        PROBING("probing ↑"),
+        KEPT("gain ↑"),
+        REVERTED("no gain ↓"),
+        STEADY("steady"),
+        OVERLOADED("server busy ↓");
+
+        private final String label;
+
+        Decision(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private boolean adaptive;
+    private int ceiling;
+    private int limit;
+    private Decision decision;
+    private long lastBytes = -1;
+    private long lastSampleNanos;
+    private double throughput;
+    /** Throughput ở limit trước khi probe, 0 = chưa có */
+    private double baseline;
+    private boolean probing;
+    /** Sample ngay sau khi đổi limit bị bỏ - stream mới còn đang handshake/slow start */
+    private boolean settling;
+    private int hold;
+    /** Số stream server đã chịu được trước lần 421 gần nhất, 0 = chưa biết */
+    private int serverCap;
+    private long serverCapUntilNanos;
+
+    /**
+     * @param ceiling Số stream tối đa
+     * @param adaptive false = luôn dùng ceiling (hành vi cố định)
+     */
+    public ConcurrencyController(int ceiling, boolean adaptive) {
+        this.ceiling = Math.max(1, ceiling);
+        this.adaptive = adaptive;
+        this.limit = adaptive ? Math.min(INITIAL_LIMIT, this.ceiling) : this.ceiling;
+        this.decision = adaptive ? Decision.STARTING : Decision.FIXED;
+    }
+
+    /**
+     * Cập nhật theo settings của pool hiện tại (user connect lại với
+     * "Max connections" khác)
+     */
+    public void configure(int ceiling, boolean adaptive) {
+        int newCeiling = Math.max(1, ceiling);
+        if (newCeiling == this.ceiling && adaptive == this.adaptive) {
+            return;
+        }
+        this.ceiling = newCeiling;
+        this.adaptive = adaptive;
+        if (!adaptive) {
+            limit = newCeiling;
+            decision = Decision.FIXED;
+        } else {
+            limit = Math.min(limit, newCeiling);
+            if (decision == Decision.FIXED) {
+                decision = Decision.STARTING;
+            }
+        }
+        probing = false;
+        baseline = 0;
+        serverCap = 0;
+    }
+
+    /** @return Số transfer được chạy song song lúc này */
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getCeiling() {
+        return ceiling;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public Decision getDecision() {
+        return decision;
+    }
+
+    /** @return Throughput (bytes/giây) của chu kỳ đo gần nhất */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Đo throughput từ lần gọi trước và quyết định limit mới
+     *
+     * @param totalBytes Tổng bytes đã truyền tới host (tăng dần)
+     * @param saturated true nếu mọi slot đang chạy và còn job phải chờ
+     * @param now System.nanoTime()
+     * @return true nếu limit thay đổi
+     */
+    public boolean sample(long totalBytes, boolean saturated, long now) {
+        if (lastBytes < 0 || totalBytes < lastBytes) {
+            // Lần đầu hoặc pool mới (bộ đếm bắt đầu lại)
+            lastBytes = totalBytes;
+            lastSampleNanos = now;
+            return false;
+        }
+        double seconds = (now - lastSampleNanos) / 1e9;
+        if (seconds * 1000 < SAMPLE_MILLIS * 0.9) {
+            return false;
+        }
+        throughput = (totalBytes - lastBytes) / seconds;
+        lastBytes = totalBytes;
+        lastSampleNanos = now;
+        if (!adaptive) {
+            return false;
+        }
+        if (settling) {
+            settling = false;
+            return false;
+        }
+        if (hold > 0) {
+            hold--;
+            return false;
+        }
+
+        if (serverCap > 0 && now - serverCapUntilNanos > 0) {
+            serverCap = 0;
+        }
+        int before = limit;
+        if (probing) {
+            probing = false;
+            if (!saturated) {
+                // Không đủ job để dùng hết stream - phép đo không nói lên gì
+                decision = Decision.STEADY;
+            } else if (throughput >= baseline * (1 + MIN_GAIN)) {
+                decision = Decision.KEPT;
+                probe();
+            } else {
+                limit = Math.max(1, limit - 1);
+                decision = Decision.REVERTED;
+                hold = HOLD_SAMPLES;
+            }
+        } else if (saturated && limit < maxLimit()) {
+            probe();
+        } else {
+            decision = Decision.STEADY;
+        }
+        if (limit != before) {
+            settling = true;
+            return true;
+        }
+        return false;
+    }
+
+    private void probe() {
+        if (limit >= maxLimit()) {
+            return;
+        }
+        baseline = throughput;
+        limit++;
+        probing = true;
+        decision = Decision.PROBING;
+    }
+
+    /** @return Trần hiện tại: ceiling, hoặc mức server chịu được nếu vừa gặp 421 */
+    private int maxLimit() {
+        return serverCap > 0 ? Math.min(ceiling, serverCap) : ceiling;
+    }
+
+    /**
+     * Server từ chối thêm connection (421) - giảm một nửa
+     *
+     * @return true nếu limit đã giảm (caller có thể xếp lại job vào queue)
+     */
+    public boolean overloaded() {
+        if (!adaptive || limit <= 1) {
+            return false;
+        }
+        serverCap = limit - 1;
+        serverCapUntilNanos = System.nanoTime() + SERVER_CAP_MILLIS * 1_000_000;
+        limit = Math.max(1, limit / 2);
+        decision = Decision.OVERLOADED;
+        probing = false;
+        settling = true;
+        hold = OVERLOAD_HOLD_SAMPLES;
+        return true;
+    }
+
+    /**
+     * Chỉ nhìn reply code 421 của server, không đoán theo chữ: message lỗi
+     * local như "Too many open files" không phải server quá tải.
+     *
+     * • FTPConnectionClosedException: commons-net ném khi nhận 421
+     * • IOException của FtpConnectionFactory: "Login failed: " + reply
+     *   string, nên reply text nằm ở đầu message hoặc sau ": "
+     *
+     * @return true nếu lỗi (trong cả cause chain) là reply 421
+     */
+    public static boolean isOverload(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            String message = e.getMessage() == null ? "" : e.getMessage();
+            if ((e instanceof FTPConnectionClosedException && message.contains("421"))
+                    || OVERLOAD_REPLY.matcher(message).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return "3/4 streams (probing ↑, 12.3 MB/s)"
+     */
+    @Override
+    public String toString() {
+        return limit + "/" + ceiling + " streams (" + decision
+            + (adaptive && throughput > 0 ? ", " + RateMeter.format(throughput) : "") + ")";
+    }
+}
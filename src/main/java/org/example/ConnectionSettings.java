@@ -0,0 +1,464 @@
+package org.example;
+
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * ⚙️ Connection Settings - Thông số kết nối FTP/FTPS
+ *
+ * Gom tất cả input từ connection panel vào một object duy nhất để
+ * connection factory và connection pool dùng chung:
+ *
+ * • Host, port, username, password
+ * • TLS toggle, certificate path (và password nếu là JKS/PKCS12), implicit/explicit FTPS
+ * • TLS protocol (1.3/1.2) và cipher preference
+ * • Pool sizing: min/max connections, idle timeout, keepalive interval, connect timeout
+ * • Per-host transfer limit (cố định hoặc tự chỉnh) và bandwidth limit cho TransferQueue
+ * • Transfer tuning: buffer size, SO_SNDBUF/SO_RCVBUF, TCP_NODELAY
+ * • MODE Z compression: bật/tắt, level, extension bỏ qua
+ * • Verify sau transfer: OFF/SIZE/CHECKSUM, thuật toán ưu tiên, số lần transfer lại
+ * • Directory listing cache: TTL và số thư mục tối đa
+ * • Remote index: tuổi tối đa trước khi build lại
+ *
+ * Object được tạo một lần khi user bấm Connect, sau đó chỉ đọc
+ * từ các worker threads.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpConnectionFactory
+ * @see FtpConnectionPool
+ */
+public class ConnectionSettings {
+    /** Default pool sizing - 1 connection luôn sẵn sàng, tối đa 4 song song */
+    public static final int DEFAULT_MIN_CONNECTIONS = 1;
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+    /** Đóng idle connection sau 60 giây (trên mức min) */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+    /** Gửi NOOP keepalive mỗi 30 giây cho idle connections */
+    public static final long DEFAULT_KEEPALIVE_INTERVAL_MILLIS = 30_000;
+    /** Thời gian tối đa chờ borrow connection khi pool đã full */
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30_000;
+    /** Deadline cho cả sequence connect → login → PBSZ → PROT */
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 15_000;
+    /** Buffer cho NIO transfer path - đủ lớn để ít syscall trên link 10GbE */
+    public static final int DEFAULT_TRANSFER_BUFFER_SIZE = 1024 * 1024;
+    /** Listing được dùng lại trong 60 giây, tối đa 1000 thư mục */
+    public static final long DEFAULT_LISTING_CACHE_TTL_MILLIS = 60_000;
+    public static final int DEFAULT_LISTING_CACHE_ENTRIES = 1000;
+    /** RemoteIndex cũ hơn 60 phút được build lại ở background khi connect */
+    public static final long DEFAULT_INDEX_MAX_AGE_MINUTES = 60;
+
+    /** Config keys trong settings.properties */
+    public static final String KEY_BUFFER_SIZE = "ftps.bufferSize";
+    public static final String KEY_SEND_BUFFER = "ftps.socketSendBuffer";
+    public static final String KEY_RECEIVE_BUFFER = "ftps.socketReceiveBuffer";
+    public static final String KEY_TCP_NODELAY = "ftps.tcpNoDelay";
+    public static final String KEY_LISTING_CACHE_TTL = "ftps.listingCacheTtlMillis";
+    public static final String KEY_LISTING_CACHE_ENTRIES = "ftps.listingCacheEntries";
+    public static final String KEY_TLS_PROTOCOL = "ftps.tlsProtocol";
+    public static final String KEY_CIPHER_PREFERENCE = "ftps.cipherPreference";
+    public static final String KEY_IMPLICIT_TLS = "ftps.implicitTls";
+    public static final String KEY_TRUST_STORE_PASSWORD = "ftps.trustStorePassword";
+    public static final String KEY_INDEX_MAX_AGE_MINUTES = "ftps.indexMaxAgeMinutes";
+    public static final String KEY_CONNECT_TIMEOUT = "ftps.connectTimeoutMillis";
+    public static final String KEY_PIPELINING = "ftps.pipelining";
+    public static final String KEY_COMPRESSION = "ftps.compression";
+    public static final String KEY_COMPRESSION_LEVEL = "ftps.compressionLevel";
+    public static final String KEY_COMPRESSION_SKIP = "ftps.compressionSkipExtensions";
+    public static final String KEY_VERIFY = "ftps.verify";
+    public static final String KEY_CHECKSUM_ALGORITHM = "ftps.checksumAlgorithm";
+    public static final String KEY_VERIFY_RETRIES = "ftps.verifyRetries";
+    public static final String KEY_HOST_RATE_LIMIT = "ftps.hostRateLimit";
+    public static final String KEY_ADAPTIVE_CONCURRENCY = "ftps.adaptiveConcurrency";
+
+    private String host = "localhost";
+    private int port = 21;
+    private String username = "";
+    private String password = "";
+    private boolean secure;
+    private String certificatePath = "";
+    private String trustStorePassword = "";
+    private boolean implicitTls;
+    private TlsPolicy.Protocol tlsProtocol = TlsPolicy.Protocol.AUTO;
+    private TlsPolicy.CipherPreference cipherPreference = TlsPolicy.CipherPreference.AUTO;
+
+    private int minConnections = DEFAULT_MIN_CONNECTIONS;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private long keepAliveIntervalMillis = DEFAULT_KEEPALIVE_INTERVAL_MILLIS;
+    private long borrowTimeoutMillis = DEFAULT_BORROW_TIMEOUT_MILLIS;
+    private long connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private CommandPipeline.Mode pipelining = CommandPipeline.Mode.AUTO;
+    private int maxTransfersPerHost;
+    private boolean adaptiveConcurrency = true;
+    private long hostRateLimit;
+
+    private int transferBufferSize = DEFAULT_TRANSFER_BUFFER_SIZE;
+    private int socketSendBufferSize;
+    private int socketReceiveBufferSize;
+    private boolean tcpNoDelay = true;
+    private boolean compression;
+    private int compressionLevel = DataCompression.DEFAULT_LEVEL;
+    private String compressionSkipExtensions = DataCompression.DEFAULT_SKIP_EXTENSIONS;
+    private TransferVerifier.Mode verify = TransferVerifier.Mode.CHECKSUM;
+    private RemoteChecksum.Algorithm checksumAlgorithm = RemoteChecksum.Algorithm.SHA256;
+    private int verifyRetries = TransferVerifier.DEFAULT_RETRIES;
+
+    private long listingCacheTtlMillis = DEFAULT_LISTING_CACHE_TTL_MILLIS;
+    private int listingCacheEntries = DEFAULT_LISTING_CACHE_ENTRIES;
+    private long indexMaxAgeMinutes = DEFAULT_INDEX_MAX_AGE_MINUTES;
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /** @return true nếu dùng FTPS (AUTH TLS + PROT P) */
+    public boolean isSecure() {
+        return secure;
+    }
+
+    public void setSecure(boolean secure) {
+        this.secure = secure;
+    }
+
+    /** @return certificate path, chuỗi rỗng nếu accept-all (demo, self-signed server) */
+    public String getCertificatePath() {
+        return certificatePath;
+    }
+
+    public void setCertificatePath(String certificatePath) {
+        this.certificatePath = certificatePath == null ? "" : certificatePath;
+    }
+
+    /** @return password của JKS/PKCS12 trust store, chuỗi rỗng nếu không có */
+    public String getTrustStorePassword() {
+        return trustStorePassword;
+    }
+
+    public void setTrustStorePassword(String trustStorePassword) {
+        this.trustStorePassword = trustStorePassword == null ? "" : trustStorePassword;
+    }
+
+    /** @return true cho implicit FTPS (TLS ngay khi connect, thường port 990) */
+    public boolean isImplicitTls() {
+        return implicitTls;
+    }
+
+    public void setImplicitTls(boolean implicitTls) {
+        this.implicitTls = implicitTls;
+    }
+
+    public TlsPolicy.Protocol getTlsProtocol() {
+        return tlsProtocol;
+    }
+
+    public void setTlsProtocol(TlsPolicy.Protocol tlsProtocol) {
+        this.tlsProtocol = tlsProtocol == null ? TlsPolicy.Protocol.AUTO : tlsProtocol;
+    }
+
+    public TlsPolicy.CipherPreference getCipherPreference() {
+        return cipherPreference;
+    }
+
+    public void setCipherPreference(TlsPolicy.CipherPreference cipherPreference) {
+        this.cipherPreference = cipherPreference == null ? TlsPolicy.CipherPreference.AUTO : cipherPreference;
+    }
+
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    public void setMinConnections(int minConnections) {
+        this.minConnections = Math.max(0, minConnections);
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = Math.max(1, maxConnections);
+    }
+
+    /**
+     * Số transfer song song tối đa cho server này. Mặc định để dành một
+     * connection trong pool cho directory listing.
+     *
+     * @return Per-host concurrency limit của TransferQueue
+     */
+    public int getMaxTransfersPerHost() {
+        if (maxTransfersPerHost > 0) {
+            return maxTransfersPerHost;
+        }
+        return Math.max(1, maxConnections - 1);
+    }
+
+    /** @param maxTransfersPerHost Limit cố định, 0 để tính theo maxConnections */
+    public void setMaxTransfersPerHost(int maxTransfersPerHost) {
+        this.maxTransfersPerHost = Math.max(0, maxTransfersPerHost);
+    }
+
+    /**
+     * @return true nếu TransferQueue tự chỉnh số transfer song song
+     *         (ConcurrencyController), maxTransfersPerHost là trần
+     */
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    /** @return Tổng bytes/giây của mọi transfer tới server này, 0 = không giới hạn */
+    public long getHostRateLimit() {
+        return hostRateLimit;
+    }
+
+    public void setHostRateLimit(long hostRateLimit) {
+        this.hostRateLimit = Math.max(0, hostRateLimit);
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getKeepAliveIntervalMillis() {
+        return keepAliveIntervalMillis;
+    }
+
+    public void setKeepAliveIntervalMillis(long keepAliveIntervalMillis) {
+        this.keepAliveIntervalMillis = keepAliveIntervalMillis;
+    }
+
+    public long getBorrowTimeoutMillis() {
+        return borrowTimeoutMillis;
+    }
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    /** @return Deadline (ms) cho TCP connect và cả login sequence */
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = Math.max(1_000, connectTimeoutMillis);
+    }
+
+    /** @return AUTO (probe server), ON hoặc OFF cho command pipelining */
+    public CommandPipeline.Mode getPipelining() {
+        return pipelining;
+    }
+
+    public void setPipelining(CommandPipeline.Mode pipelining) {
+        this.pipelining = pipelining;
+    }
+
+    /** @return Kích thước buffer của NIO transfer path (bytes) */
+    public int getTransferBufferSize() {
+        return transferBufferSize;
+    }
+
+    public void setTransferBufferSize(int transferBufferSize) {
+        this.transferBufferSize = Math.max(8 * 1024, transferBufferSize);
+    }
+
+    /** @return SO_SNDBUF cho data sockets, 0 = OS default */
+    public int getSocketSendBufferSize() {
+        return socketSendBufferSize;
+    }
+
+    public void setSocketSendBufferSize(int socketSendBufferSize) {
+        this.socketSendBufferSize = Math.max(0, socketSendBufferSize);
+    }
+
+    /** @return SO_RCVBUF cho data sockets, 0 = OS default */
+    public int getSocketReceiveBufferSize() {
+        return socketReceiveBufferSize;
+    }
+
+    public void setSocketReceiveBufferSize(int socketReceiveBufferSize) {
+        this.socketReceiveBufferSize = Math.max(0, socketReceiveBufferSize);
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    /** @return true nếu dùng MODE Z khi server hỗ trợ */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /** @return Deflate level 1 (nhanh) - 9 (nén nhiều nhất) cho upload */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, compressionLevel));
+    }
+
+    /** @return Extension (phân cách bằng dấu phẩy) không nén vì đã nén sẵn */
+    public String getCompressionSkipExtensions() {
+        return compressionSkipExtensions;
+    }
+
+    public void setCompressionSkipExtensions(String compressionSkipExtensions) {
+        this.compressionSkipExtensions = compressionSkipExtensions == null ? "" : compressionSkipExtensions;
+    }
+
+    /** @return Kiểm tra sau transfer: OFF, SIZE hoặc CHECKSUM (fallback SIZE khi server không có hash) */
+    public TransferVerifier.Mode getVerify() {
+        return verify;
+    }
+
+    public void setVerify(TransferVerifier.Mode verify) {
+        this.verify = verify;
+    }
+
+    /** @return Thuật toán ưu tiên cho checksum inline (dùng khi HASH của server có nó) */
+    public RemoteChecksum.Algorithm getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
+    public void setChecksumAlgorithm(RemoteChecksum.Algorithm checksumAlgorithm) {
+        this.checksumAlgorithm = checksumAlgorithm;
+    }
+
+    /** @return Số lần transfer lại khi verify thất bại */
+    public int getVerifyRetries() {
+        return verifyRetries;
+    }
+
+    public void setVerifyRetries(int verifyRetries) {
+        this.verifyRetries = Math.max(0, verifyRetries);
+    }
+
+    /** @return Thời gian một directory listing được dùng lại, 0 = tắt cache */
+    public long getListingCacheTtlMillis() {
+        return listingCacheTtlMillis;
+    }
+
+    public void setListingCacheTtlMillis(long listingCacheTtlMillis) {
+        this.listingCacheTtlMillis = Math.max(0, listingCacheTtlMillis);
+    }
+
+    public int getListingCacheEntries() {
+        return listingCacheEntries;
+    }
+
+    public void setListingCacheEntries(int listingCacheEntries) {
+        this.listingCacheEntries = Math.max(1, listingCacheEntries);
+    }
+
+    /** @return Tuổi tối đa (phút) của RemoteIndex trước khi build lại khi connect */
+    public long getIndexMaxAgeMinutes() {
+        return indexMaxAgeMinutes;
+    }
+
+    public void setIndexMaxAgeMinutes(long indexMaxAgeMinutes) {
+        this.indexMaxAgeMinutes = Math.max(0, indexMaxAgeMinutes);
+    }
+
+    /**
+     * Đọc transfer tuning, compression, verify, listing cache, TLS và index options từ config (system properties / settings.properties)
+     *
+     * @param config App config
+     */
+    public void applyConfig(AppConfig config) {
+        setTransferBufferSize(config.getInt(KEY_BUFFER_SIZE, DEFAULT_TRANSFER_BUFFER_SIZE));
+        setSocketSendBufferSize(config.getInt(KEY_SEND_BUFFER, 0));
+        setSocketReceiveBufferSize(config.getInt(KEY_RECEIVE_BUFFER, 0));
+        setTcpNoDelay(config.getBoolean(KEY_TCP_NODELAY, true));
+        setCompression(config.getBoolean(KEY_COMPRESSION, compression));
+        setCompressionLevel(config.getInt(KEY_COMPRESSION_LEVEL, compressionLevel));
+        setCompressionSkipExtensions(config.getString(KEY_COMPRESSION_SKIP, compressionSkipExtensions));
+        setVerify(enumValue(TransferVerifier.Mode.class, config.getString(KEY_VERIFY, null), verify));
+        setChecksumAlgorithm(enumValue(RemoteChecksum.Algorithm.class,
+            algorithmName(config.getString(KEY_CHECKSUM_ALGORITHM, null)), checksumAlgorithm));
+        setVerifyRetries(config.getInt(KEY_VERIFY_RETRIES, verifyRetries));
+        setAdaptiveConcurrency(config.getBoolean(KEY_ADAPTIVE_CONCURRENCY, adaptiveConcurrency));
+        try {
+            setHostRateLimit(BandwidthLimiter.parseRate(config.getString(KEY_HOST_RATE_LIMIT, "0")));
+        } catch (IllegalArgumentException e) {
+            // Sai cú pháp - giữ giá trị hiện tại
+        }
+        setListingCacheTtlMillis(config.getLong(KEY_LISTING_CACHE_TTL, DEFAULT_LISTING_CACHE_TTL_MILLIS));
+        setListingCacheEntries(config.getInt(KEY_LISTING_CACHE_ENTRIES, DEFAULT_LISTING_CACHE_ENTRIES));
+        setTlsProtocol(enumValue(TlsPolicy.Protocol.class, config.getString(KEY_TLS_PROTOCOL, null), tlsProtocol));
+        setCipherPreference(enumValue(TlsPolicy.CipherPreference.class,
+            config.getString(KEY_CIPHER_PREFERENCE, null), cipherPreference));
+        setImplicitTls(config.getBoolean(KEY_IMPLICIT_TLS, implicitTls));
+        setTrustStorePassword(config.getString(KEY_TRUST_STORE_PASSWORD, trustStorePassword));
+        setIndexMaxAgeMinutes(config.getLong(KEY_INDEX_MAX_AGE_MINUTES, DEFAULT_INDEX_MAX_AGE_MINUTES));
+        setConnectTimeoutMillis(config.getLong(KEY_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT_MILLIS));
+        setPipelining(enumValue(CommandPipeline.Mode.class, config.getString(KEY_PIPELINING, null), pipelining));
+    }
+
+    /**
+     * "sha-256" / "SHA256" / "crc32c" → tên enum (bỏ dấu gạch như tên FTP)
+     */
+    private static String algorithmName(String name) {
+        return name == null ? null : name.replace("-", "");
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name, E defaultValue) {
+        if (name == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+
+    /** @return "host:port" - dùng làm key cho per-host limits và log */
+    public String getHostKey() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example;
+
+import java.io.IOException;
+
+/**
+ * 📨 Control Channel Client - Gửi command mà không chờ reply (pipelining)
+ *
+ * commons-net chỉ có sendCommand() đồng bộ: gửi một command rồi block đến
+ * khi đọc xong reply. Interface này ghi thẳng lên _controlOutput_
+ * (protected) để CommandPipeline gửi nhiều command liên tiếp, sau đó đọc
+ * reply theo đúng thứ tự bằng FTP.getReply().
+ *
+ * protocolCommandSent vẫn được phát cho từng command (listeners luôn biết
+ * command gần nhất); sau một loạt command, chỉ reply đầu tiên được ghép
+ * với command - CommandPipeline chỉ gửi command read-only nên các tracker
+ * (DirectoryCache, TransferMetrics) không patch gì sai.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see CommandPipeline
+ * @see ChannelFTPClient
+ * @see ChannelFTPSClient
+ */
+public interface ControlChannelClient {
+
+    /**
+     * Ghi một dòng command vào buffer của control channel (chưa flush)
+     *
+     * @param line Command đầy đủ, ví dụ "SIZE /pub/file.bin" (không có CRLF)
+     * @throws IOException nếu chưa connect hoặc lỗi mạng
+     */
+    void writeCommand(String line) throws IOException;
+
+    /**
+     * Gửi các command đã ghi
+     */
+    void flushCommands() throws IOException;
+}
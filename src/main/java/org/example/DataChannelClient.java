@@ -0,0 +1,46 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPCmd;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * 🔌 Data Channel Client - Truy cập trực tiếp data socket của FTPClient
+ *
+ * commons-net chỉ expose data connection qua InputStream/OutputStream
+ * đã bọc buffer. Interface này mở _openDataConnection_ (protected) để
+ * ChannelTransfer đọc/ghi thẳng trên socket:
+ *
+ * • Plain FTP: socket có SocketChannel → FileChannel.transferTo (zero-copy)
+ * • FTPS: SSLSocket → copy qua buffer lớn được tái sử dụng
+ *
+ * Caller phải close socket rồi gọi completePendingCommand(). Nếu caller
+ * dừng giữa chừng (lỗi I/O, abort), reply 226/426 của command vẫn nằm
+ * trên control channel - isReplyPending() cho pool biết connection không
+ * còn đồng bộ và phải bỏ, không probe bằng NOOP.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ChannelFTPClient
+ * @see ChannelFTPSClient
+ */
+public interface DataChannelClient {
+
+    /**
+     * Gửi command (RETR, STOR, APPE, MLSD...) và mở data connection
+     * (REST offset hiện tại được gửi trước nếu có)
+     *
+     * @param command FTP command cần data channel
+     * @param argument Argument của command (path)
+     * @return Data socket đã connect, null nếu server từ chối command
+     * @throws IOException nếu lỗi mạng
+     */
+    Socket openDataSocket(FTPCmd command, String argument) throws IOException;
+
+    /**
+     * @return true nếu data command đã được server chấp nhận nhưng reply
+     *         kết thúc (226/426...) chưa được đọc bằng completePendingCommand()
+     */
+    boolean isReplyPending();
+}
@@ -0,0 +1,162 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * 🗜️ Data Compression - MODE Z (deflate) cho data connection
+ *
+ * Server quảng bá "MODE Z" trong FEAT → file được gửi dưới dạng zlib
+ * stream (draft-preston-ftpext-deflate). Chỉ data connection được nén,
+ * control connection giữ nguyên. Quyết định cho từng file:
+ *
+ * • ftps.compression=false hoặc server không có MODE Z → stream mode
+ * • File nhỏ hơn MIN_SIZE: hai command MODE Z / MODE S tốn hơn phần tiết kiệm
+ * • Resume (REST) và segmented download: offset trong MODE Z không thống
+ *   nhất giữa các server → luôn stream mode
+ * • Extension đã nén (zip, gz, jpg, mp4...) → bỏ qua, không tốn CPU
+ * • Upload: deflate thử SAMPLE_BYTES đầu file ở level 1 (~1 ms) - tỉ lệ
+ *   trên MAX_SAMPLE_RATIO nghĩa là dữ liệu gần như ngẫu nhiên → bỏ qua
+ *
+ * Connection luôn được trả về MODE S sau transfer vì listing (MLSD/LIST)
+ * dùng chung data path và không inflate.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ChannelTransfer
+ * @see FileTransfer
+ */
+public final class DataCompression {
+    /** Extension mặc định được coi là đã nén (ftps.compressionSkipExtensions) */
+    public static final String DEFAULT_SKIP_EXTENSIONS = "zip,gz,tgz,bz2,xz,zst,lz4,7z,rar,jar,war,apk,"
+        + "jpg,jpeg,png,gif,webp,heic,avif,mp3,aac,ogg,opus,flac,mp4,m4v,m4a,mkv,mov,avi,webm,"
+        + "docx,xlsx,pptx,odt,ods,odp";
+    /** Level mặc định của zlib - cân bằng giữa tỉ lệ nén và CPU */
+    public static final int DEFAULT_LEVEL = 6;
+    /** File nhỏ hơn được gửi nguyên */
+    public static final long MIN_SIZE = 64 * 1024;
+
+    private static final int SAMPLE_BYTES = 128 * 1024;
+    private static final double MAX_SAMPLE_RATIO = 0.9;
+
+    private DataCompression() {
+    }
+
+    /**
+     * @return true nếu compression được bật và server hỗ trợ MODE Z
+     */
+    public static boolean isAvailable(FtpConnectionPool pool) {
+        if (!pool.getSettings().isCompression()) {
+            return false;
+        }
+        String modes = pool.getServerFeatures().getParameters("MODE");
+        return modes != null && modes.toUpperCase(Locale.ROOT).contains("Z");
+    }
+
+    /**
+     * Download từ đầu file: kiểm tra extension và size (nếu biết)
+     *
+     * @param expectedSize Size remote, -1 nếu chưa biết
+     */
+    public static boolean shouldCompressDownload(FtpConnectionPool pool, String remotePath, long expectedSize) {
+        return isAvailable(pool)
+            && (expectedSize < 0 || expectedSize >= MIN_SIZE)
+            && !isPrecompressed(remotePath, pool.getSettings().getCompressionSkipExtensions());
+    }
+
+    /**
+     * Upload từ đầu file: extension, size, rồi ước lượng tỉ lệ nén trên mẫu
+     */
+    public static boolean shouldCompressUpload(FtpConnectionPool pool, String name, FileChannel source)
+            throws IOException {
+        return isAvailable(pool)
+            && source.size() >= MIN_SIZE
+            && !isPrecompressed(name, pool.getSettings().getCompressionSkipExtensions())
+            && estimateRatio(source) <= MAX_SAMPLE_RATIO;
+    }
+
+    /**
+     * @param name Tên file hoặc path
+     * @param skipExtensions Danh sách extension, phân cách bằng dấu phẩy
+     * @return true nếu extension nằm trong danh sách (không phân biệt hoa thường)
+     */
+    public static boolean isPrecompressed(String name, String skipExtensions) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || dot < name.lastIndexOf('/')) {
+            return false;
+        }
+        String extension = name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        for (String skip : skipExtensions.split(",")) {
+            if (skip.trim().toLowerCase(Locale.ROOT).equals(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deflate SAMPLE_BYTES đầu file ở level nhanh nhất
+     *
+     * @return compressed / raw của mẫu (1.0 nếu file rỗng)
+     */
+    public static double estimateRatio(FileChannel source) throws IOException {
+        ByteBuffer sample = ByteBuffer.allocate((int) Math.min(SAMPLE_BYTES, source.size()));
+        while (sample.hasRemaining() && source.read(sample, sample.position()) > 0) {
+            // đọc đến khi đầy mẫu hoặc hết file
+        }
+        if (sample.position() == 0) {
+            return 1.0;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(sample.array(), 0, sample.position());
+            deflater.finish();
+            byte[] sink = new byte[8192];
+            while (!deflater.finished()) {
+                deflater.deflate(sink);
+            }
+            return (double) deflater.getBytesWritten() / deflater.getBytesRead();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Gửi MODE Z. commons-net 3.10 chưa có hằng số cho mode này
+     * (COMPRESSED_TRANSFER_MODE là MODE C) nên gửi command trực tiếp và
+     * ChannelTransfer tự inflate/deflate.
+     *
+     * @return false nếu server từ chối (dù có trong FEAT) - caller dùng stream mode
+     */
+    public static boolean enter(FTPClient client) throws IOException {
+        return FTPReply.isPositiveCompletion(client.sendCommand("MODE", "Z"));
+    }
+
+    /**
+     * Trả connection về MODE S. Không chắc mode hiện tại (MODE S lỗi), hoặc
+     * transfer bị cắt giữa chừng (reply 226/426 còn nợ sẽ bị đọc thành reply
+     * của MODE S) → disconnect để pool loại bỏ connection thay vì tái sử dụng.
+     */
+    public static void leave(FTPClient client) {
+        boolean replyPending = client instanceof DataChannelClient && ((DataChannelClient) client).isReplyPending();
+        try {
+            if (!replyPending && client.isConnected() && client.setFileTransferMode(FTP.STREAM_TRANSFER_MODE)) {
+                return;
+            }
+        } catch (IOException e) {
+            // xử lý như reply lỗi bên dưới
+        }
+        try {
+            client.disconnect();
+        } catch (IOException ignored) {
+            // connection đã hỏng
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package org.example;
+
+import org.apache.commons.net.ProtocolCommandEvent;
+import org.apache.commons.net.ProtocolCommandListener;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🗃️ Directory Cache - Cache directory listings của một server (một pool)
+ *
+ * • Key là absolute path (resolve theo working directory lúc login)
+ * • Entry hết hạn sau TTL, tổng số listing bị giới hạn bằng LRU eviction
+ * • Mỗi connection của pool gắn một CommandTracker: khi STOR/APPE, DELE,
+ *   RMD, RNFR/RNTO hoặc MKD thành công, listing của thư mục cha được
+ *   patch tại chỗ - upload xong không cần LIST lại
+ * • Hit/miss counters cho status bar
+ *
+ * Listing được lưu dạng immutable list. Patch tạo list mới (copy-on-write)
+ * nên caller đang giữ list cũ không bị ảnh hưởng.
+ *
+ * THREAD SAFETY: mọi state được bảo vệ bởi monitor của cache.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpConnectionPool#getDirectoryCache()
+ */
+public class DirectoryCache {
+
+    /** Listing cùng thời điểm LIST */
+    private static final class Listing {
+        final List<FTPFile> files;
+        final long loadedAt;
+
+        Listing(List<FTPFile> files, long loadedAt) {
+            this.files = files;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Listing> listings;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile String home = "/";
+
+    /**
+     * @param ttlMillis Thời gian một listing còn hợp lệ
+     * @param maxEntries Số thư mục tối đa giữ trong cache
+     */
+    public DirectoryCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.listings = new LinkedHashMap<String, Listing>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Listing> eldest) {
+                return size() > DirectoryCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param home Working directory sau khi login (PWD), null nếu không biết
+     */
+    public void setHome(String home) {
+        this.home = home == null || !home.startsWith("/") ? "/" : normalize(home);
+    }
+
+    /**
+     * Chuyển path tương đối (với working directory lúc login) thành absolute
+     *
+     * @param path Path như gửi cho server ("" = working directory)
+     * @return Absolute path đã normalize ("/a/b")
+     */
+    public String resolve(String path) {
+        if (path == null || path.isEmpty()) {
+            return home;
+        }
+        return normalize(path.startsWith("/") ? path : home + "/" + path);
+    }
+
+    /**
+     * @param path Path của thư mục (tương đối hoặc absolute)
+     * @return Listing còn hạn hoặc null (miss)
+     */
+    public synchronized List<FTPFile> get(String path) {
+        String key = resolve(path);
+        Listing listing = listings.get(key);
+        if (listing != null && System.currentTimeMillis() - listing.loadedAt < ttlMillis) {
+            hits.incrementAndGet();
+            return listing.files;
+        }
+        if (listing != null) {
+            listings.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Lưu kết quả LIST mới
+     *
+     * @param path Path của thư mục
+     * @param files Entries (không có "." và "..")
+     */
+    public synchronized void put(String path, List<FTPFile> files) {
+        listings.put(resolve(path), new Listing(Collections.unmodifiableList(new ArrayList<>(files)),
+            System.currentTimeMillis()));
+    }
+
+    /**
+     * Bỏ listing của một thư mục (ví dụ user bấm Refresh)
+     */
+    public synchronized void invalidate(String path) {
+        listings.remove(resolve(path));
+    }
+
+    /**
+     * Bỏ listing của thư mục và toàn bộ thư mục con (RMD, rename thư mục)
+     */
+    public synchronized void invalidateTree(String path) {
+        String key = resolve(path);
+        String prefix = key.endsWith("/") ? key : key + "/";
+        listings.keySet().removeIf(k -> k.equals(key) || k.startsWith(prefix));
+    }
+
+    public synchronized void clear() {
+        listings.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return listings.size();
+    }
+
+    /**
+     * Tạo tracker gắn vào một FTPClient (mỗi connection một tracker vì
+     * RNFR/RNTO và STOR → 226 là state của riêng connection đó)
+     */
+    public ProtocolCommandListener newCommandTracker() {
+        return new CommandTracker();
+    }
+
+    /**
+     * Thêm hoặc thay entry name trong listing của parent (nếu đang cache)
+     */
+    private synchronized void patchAdd(String absolutePath, FTPFile template) {
+        String parent = parentOf(absolutePath);
+        Listing listing = listings.get(parent);
+        if (listing == null) {
+            return;
+        }
+        String name = nameOf(absolutePath);
+        List<FTPFile> files = new ArrayList<>(listing.files.size() + 1);
+        for (FTPFile file : listing.files) {
+            if (!name.equals(file.getName())) {
+                files.add(file);
+            }
+        }
+        FTPFile entry = new FTPFile();
+        entry.setName(name);
+        entry.setType(template.getType());
+        entry.setSize(template.getSize());
+        entry.setTimestamp(template.getTimestamp());
+        files.add(entry);
+        listings.put(parent, new Listing(Collections.unmodifiableList(files), listing.loadedAt));
+    }
+
+    /**
+     * Bỏ entry name khỏi listing của parent (nếu đang cache)
+     *
+     * @return Entry đã bỏ, null nếu không có trong cache
+     */
+    private synchronized FTPFile patchRemove(String absolutePath) {
+        String parent = parentOf(absolutePath);
+        Listing listing = listings.get(parent);
+        if (listing == null) {
+            return null;
+        }
+        String name = nameOf(absolutePath);
+        FTPFile removed = null;
+        List<FTPFile> files = new ArrayList<>(listing.files.size());
+        for (FTPFile file : listing.files) {
+            if (removed == null && name.equals(file.getName())) {
+                removed = file;
+            } else {
+                files.add(file);
+            }
+        }
+        if (removed != null) {
+            listings.put(parent, new Listing(Collections.unmodifiableList(files), listing.loadedAt));
+        }
+        return removed;
+    }
+
+    /**
+     * Theo dõi command/reply trên một connection và patch cache khi
+     * command thay đổi thư mục thành công
+     */
+    private final class CommandTracker implements ProtocolCommandListener {
+        private String command;
+        private String argument;
+        private String renameFrom;
+
+        @Override
+        public void protocolCommandSent(ProtocolCommandEvent event) {
+            String message = event.getMessage() == null ? "" : event.getMessage().trim();
+            command = event.getCommand() == null ? "" : event.getCommand().toUpperCase(Locale.ROOT);
+            int space = message.indexOf(' ');
+            argument = space < 0 ? "" : message.substring(space + 1);
+            if (!"RNTO".equals(command)) {
+                renameFrom = null;
+            }
+        }
+
+        @Override
+        public void protocolReplyReceived(ProtocolCommandEvent event) {
+            int code = event.getReplyCode();
+            if (command == null || FTPReply.isPositivePreliminary(code)) {
+                return; // 150 trước data transfer - chờ reply cuối
+            }
+            boolean ok = FTPReply.isPositiveCompletion(code);
+            switch (command) {
+                case "STOR":
+                case "APPE":
+                case "STOU":
+                    if (ok && !"STOU".equals(command)) {
+                        // Size chưa biết từ protocol - để -1 như FTPFile mặc định
+                        FTPFile file = new FTPFile();
+                        file.setType(FTPFile.FILE_TYPE);
+                        file.setTimestamp(Calendar.getInstance());
+                        patchAdd(resolve(argument), file);
+                    } else if (ok) {
+                        invalidate(home);
+                    }
+                    break;
+                case "DELE":
+                    if (ok) {
+                        patchRemove(resolve(argument));
+                    }
+                    break;
+                case "RMD":
+                    if (ok) {
+                        patchRemove(resolve(argument));
+                        invalidateTree(argument);
+                    }
+                    break;
+                case "MKD":
+                    if (ok) {
+                        FTPFile dir = new FTPFile();
+                        dir.setType(FTPFile.DIRECTORY_TYPE);
+                        dir.setTimestamp(Calendar.getInstance());
+                        patchAdd(resolve(argument), dir);
+                    }
+                    break;
+                case "RNFR":
+                    renameFrom = FTPReply.isPositiveIntermediate(code) ? resolve(argument) : null;
+                    break;
+                case "RNTO":
+                    if (ok && renameFrom != null) {
+                        rename(renameFrom, resolve(argument));
+                    }
+                    renameFrom = null;
+                    break;
+                default:
+                    break;
+            }
+            command = null;
+        }
+
+        private void rename(String from, String to) {
+            FTPFile moved = patchRemove(from);
+            if (moved != null) {
+                patchAdd(to, moved);
+                if (moved.isDirectory()) {
+                    invalidateTree(from);
+                }
+            } else {
+                // Thư mục cha của from không có trong cache - không biết loại entry
+                invalidate(parentOf(to));
+                invalidateTree(from);
+            }
+        }
+    }
+
+    static String parentOf(String absolutePath) {
+        int slash = absolutePath.lastIndexOf('/');
+        return slash <= 0 ? "/" : absolutePath.substring(0, slash);
+    }
+
+    static String nameOf(String absolutePath) {
+        return absolutePath.substring(absolutePath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Bỏ "//", "." và ".." trong absolute path
+     */
+    static String normalize(String absolutePath) {
+        Deque<String> parts = new ArrayDeque<>();
+        for (String part : absolutePath.split("/")) {
+            if (part.isEmpty() || ".".equals(part)) {
+                continue;
+            }
+            if ("..".equals(part)) {
+                parts.pollLast();
+            } else {
+                parts.addLast(part);
+            }
+        }
+        return "/" + String.join("/", parts);
+    }
+}
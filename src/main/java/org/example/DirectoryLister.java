@@ -0,0 +1,301 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+/**
+ * 📜 Directory Lister - Lấy listing của một thư mục, giao entries theo chunk
+ *
+ * • Server có MLST (FEAT): MLSD, parse từng dòng ngay khi đọc từ data
+ *   socket - facts dạng machine-readable (type, size, modify UTC, UNIX.mode), không
+ *   regex, không đoán OS như parser LIST của commons-net
+ * • Không có MLST: LIST (parser của commons-net), fallback NLST (chỉ tên)
+ *
+ * Mỗi CHUNK_SIZE entries được giao cho ChunkListener ngay khi có, nên UI
+ * hiển thị phần đầu của thư mục lớn trong khi phần sau còn đang truyền.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see RemoteTreeModel
+ * @see ServerFeatures
+ */
+public final class DirectoryLister {
+    /** Số entries mỗi chunk giao cho listener */
+    public static final int CHUNK_SIZE = 500;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /**
+     * Nhận entries theo thứ tự server gửi (gọi trên thread đang list)
+     */
+    @FunctionalInterface
+    public interface ChunkListener {
+        void entries(List<FTPFile> chunk);
+    }
+
+    private DirectoryLister() {
+    }
+
+    /**
+     * List thư mục, giao entries theo chunk trong lúc đọc
+     *
+     * @param client Connection đã login
+     * @param features FEAT của server
+     * @param path Thư mục ("" = working directory)
+     * @param listener Nhận từng chunk
+     * @param log Nơi ghi log (thread-safe)
+     * @return Toàn bộ entries (không có "." và "..") - dùng cho DirectoryCache
+     * @throws IOException nếu server từ chối hoặc connection lỗi
+     */
+    public static List<FTPFile> list(FTPClient client, ServerFeatures features, String path,
+                                     ChunkListener listener, Consumer<String> log) throws IOException {
+        if (features.supportsMlsd() && client instanceof DataChannelClient) {
+            List<FTPFile> files = mlsd(client, path, listener);
+            if (files != null) {
+                log.accept("MLSD " + display(path) + " - Retrieved " + files.size() + " entries");
+                return files;
+            }
+            log.accept("MLSD not accepted (" + client.getReplyString().trim() + "), using LIST");
+        }
+        List<FTPFile> files = listOrNlst(client, path, log);
+        deliver(files, listener);
+        log.accept("LIST " + display(path) + " - Retrieved " + files.size() + " entries");
+        return files;
+    }
+
+    /**
+     * Chia listing có sẵn (ví dụ từ cache) thành các chunk CHUNK_SIZE
+     */
+    public static void deliver(List<FTPFile> files, ChunkListener listener) {
+        for (int from = 0; from < files.size(); from += CHUNK_SIZE) {
+            listener.entries(new ArrayList<>(files.subList(from, Math.min(files.size(), from + CHUNK_SIZE))));
+        }
+    }
+
+    /**
+     * MLSD streaming
+     *
+     * @return Entries, null nếu server không nhận MLSD (500/502/504)
+     */
+    private static List<FTPFile> mlsd(FTPClient client, String path, ChunkListener listener) throws IOException {
+        Socket socket = ((DataChannelClient) client).openDataSocket(FTPCmd.MLSD, path.isEmpty() ? null : path);
+        if (socket == null) {
+            int code = client.getReplyCode();
+            if (code == FTPReply.UNRECOGNIZED_COMMAND || code == FTPReply.COMMAND_NOT_IMPLEMENTED
+                    || code == FTPReply.COMMAND_NOT_IMPLEMENTED_FOR_PARAMETER) {
+                return null;
+            }
+            throw new IOException("MLSD failed: " + client.getReplyString().trim());
+        }
+
+        List<FTPFile> files = new ArrayList<>();
+        List<FTPFile> chunk = new ArrayList<>(CHUNK_SIZE);
+        // RFC 3659: pathnames trong MLSD là UTF-8
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 64 * 1024)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                FTPFile file = parseMlsdLine(line);
+                if (file == null) {
+                    continue;
+                }
+                files.add(file);
+                chunk.add(file);
+                if (chunk.size() == CHUNK_SIZE) {
+                    listener.entries(chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        } finally {
+            socket.close();
+        }
+        if (!chunk.isEmpty()) {
+            listener.entries(chunk);
+        }
+        if (!client.completePendingCommand()) {
+            throw new IOException("MLSD failed: " + client.getReplyString().trim());
+        }
+        return files;
+    }
+
+    /**
+     * Parse một dòng MLSD: "type=file;size=1024;modify=20240101120000; name"
+     *
+     * @return Entry, null cho cdir/pdir và dòng không hợp lệ
+     */
+    static FTPFile parseMlsdLine(String line) {
+        int space = line.indexOf(' ');
+        if (space < 0 || space == line.length() - 1) {
+            return null;
+        }
+        FTPFile file = new FTPFile();
+        file.setRawListing(line);
+        file.setName(line.substring(space + 1));
+        file.setType(FTPFile.UNKNOWN_TYPE);
+
+        int pos = 0;
+        while (pos < space) {
+            int end = line.indexOf(';', pos);
+            if (end < 0 || end > space) {
+                end = space;
+            }
+            int eq = line.indexOf('=', pos);
+            if (eq > pos && eq < end && !applyFact(file, line.substring(pos, eq), line.substring(eq + 1, end))) {
+                return null;
+            }
+            pos = end + 1;
+        }
+        return file;
+    }
+
+    /**
+     * @return false nếu entry phải bỏ qua (cdir, pdir)
+     */
+    private static boolean applyFact(FTPFile file, String fact, String value) {
+        if ("type".equalsIgnoreCase(fact)) {
+            if ("file".equalsIgnoreCase(value)) {
+                file.setType(FTPFile.FILE_TYPE);
+            } else if ("dir".equalsIgnoreCase(value)) {
+                file.setType(FTPFile.DIRECTORY_TYPE);
+            } else if ("cdir".equalsIgnoreCase(value) || "pdir".equalsIgnoreCase(value)) {
+                return false;
+            } else if (value.regionMatches(true, 0, "OS.unix=sl", 0, 10)) {
+                // OS.unix=slink[:target] / OS.unix=symlink
+                file.setType(FTPFile.SYMBOLIC_LINK_TYPE);
+            }
+        } else if ("size".equalsIgnoreCase(fact) || "sizd".equalsIgnoreCase(fact)) {
+            try {
+                file.setSize(Long.parseLong(value));
+            } catch (NumberFormatException ignored) {
+                // Giữ size -1 (unknown)
+            }
+        } else if ("modify".equalsIgnoreCase(fact)) {
+            Calendar timestamp = parseTimestamp(value);
+            if (timestamp != null) {
+                file.setTimestamp(timestamp);
+            }
+        } else if ("unix.mode".equalsIgnoreCase(fact)) {
+            applyMode(file, value);
+        }
+        return true;
+    }
+
+    /**
+     * UNIX.mode (octal, ví dụ "0644") → permissions của FTPFile
+     */
+    private static void applyMode(FTPFile file, String value) {
+        int mode;
+        try {
+            mode = Integer.parseInt(value, 8);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        int[] access = {FTPFile.USER_ACCESS, FTPFile.GROUP_ACCESS, FTPFile.WORLD_ACCESS};
+        for (int i = 0; i < 3; i++) {
+            int bits = mode >> (6 - 3 * i);
+            file.setPermission(access[i], FTPFile.READ_PERMISSION, (bits & 4) != 0);
+            file.setPermission(access[i], FTPFile.WRITE_PERMISSION, (bits & 2) != 0);
+            file.setPermission(access[i], FTPFile.EXECUTE_PERMISSION, (bits & 1) != 0);
+        }
+    }
+
+    /**
+     * YYYYMMDDHHMMSS[.sss] theo UTC (RFC 3659 section 2.3)
+     */
+    static Calendar parseTimestamp(String value) {
+        if (value.length() < 14) {
+            return null;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 4, 6);
+        int day = digits(value, 6, 8);
+        int hour = digits(value, 8, 10);
+        int minute = digits(value, 10, 12);
+        int second = digits(value, 12, 14);
+        if (year < 0 || month < 1 || day < 1 || hour < 0 || minute < 0 || second < 0) {
+            return null;
+        }
+        Calendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        if (value.length() > 15 && value.charAt(14) == '.') {
+            int millis = digits(value, 15, Math.min(value.length(), 18));
+            if (millis > 0) {
+                for (int i = value.length(); i < 18; i++) {
+                    millis *= 10;
+                }
+                calendar.set(Calendar.MILLISECOND, millis);
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * @return Giá trị thập phân của value[from, to), -1 nếu có ký tự không phải số
+     */
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * LIST, fallback NLST (chỉ có tên) nếu server không hỗ trợ LIST
+     */
+    private static List<FTPFile> listOrNlst(FTPClient client, String path, Consumer<String> log) throws IOException {
+        FTPFile[] files = null;
+        try {
+            files = path.isEmpty() ? client.listFiles() : client.listFiles(path);
+        } catch (IOException e1) {
+            if (!FtpConnectionPool.isReusable(client, e1)) {
+                // Mất connection hoặc LIST dở dang (reply còn nợ) - NLST sẽ đọc lệch reply
+                throw e1;
+            }
+            log.accept("LIST failed, trying NLST: " + e1.getMessage());
+        }
+        if (files == null) {
+            String[] names = path.isEmpty() ? client.listNames() : client.listNames(path);
+            if (names != null) {
+                files = new FTPFile[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    files[i] = new FTPFile();
+                    files[i].setName(names[i].substring(names[i].lastIndexOf('/') + 1));
+                }
+            }
+        }
+
+        List<FTPFile> result = new ArrayList<>();
+        if (files != null) {
+            for (FTPFile file : files) {
+                if (file != null && !".".equals(file.getName()) && !"..".equals(file.getName())) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String display(String path) {
+        return path.isEmpty() ? "/" : path;
+    }
+}
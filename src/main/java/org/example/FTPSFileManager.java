@@ -3,15 +3,18 @@ package org.example;
 import org.apache.commons.net.ftp.*;
 
 import javax.swing.*;
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import javax.swing.tree.TreeSelectionModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
 
 /**
  * 🔒 FTPS File Manager - Main GUI Application
@@ -22,12 +25,13 @@ import javax.net.ssl.TrustManager;
  * • Kết nối FTP/FTPS với visual security indicators
  * • Upload/Download files với real-time progress
  * • Browse remote directory structure
+ * • Sync/mirror local ↔ remote directories (dry-run plan trước khi thay đổi)
  * • FTP command logging và TLS handshake monitoring
  * • Custom certificate support cho server validation
  * 
  * BẢO MẬT DEMO:
  * • Plain FTP: ⚠️ Username, password, files truyền dạng plain text
- * • FTPS: 🔒 Toàn bộ dữ liệu được mã hóa TLS 1.2
+ * • FTPS: 🔒 Toàn bộ dữ liệu được mã hóa TLS 1.3/1.2 (explicit AUTH TLS hoặc implicit)
  * 
  * FTP COMMANDS DEMO:
  * • AUTH TLS: Khởi tạo TLS handshake
@@ -45,11 +49,22 @@ import javax.net.ssl.TrustManager;
  * @author Demo Application
  * @version 1.0
  * @see CertificateManager SSL certificate handling
+ * @see FtpSession Engine dùng chung với headless CLI
  */
 public class FTPSFileManager extends JFrame {
-    // === FTP CLIENT ===
-    /** FTP/FTPS client instance - switches between FTPClient (plain) and FTPSClient (secure) */
-    private FTPClient ftpClient;
+    // === FTP ENGINE ===
+    /** Engine dùng chung với FtpCli: connection pool, transfer queue, journal */
+    private final FtpSession session;
+    /** Transfer queue của session (bounded workers) */
+    private final TransferQueue transferQueue;
+    /** Persistent settings (~/.ftps-file-manager/settings.properties) */
+    private final AppConfig appConfig;
+    /** Log ring buffer - worker threads ghi, LogPanel/LogFileWriter đọc */
+    private final LogBuffer logBuffer = new LogBuffer();
+    /** Connect đang chạy - Disconnect cancel nó (chỉ đọc/ghi trên EDT) */
+    private NetworkExecutor.Task<FtpConnectionPool> connectTask;
+    /** Metadata offline của server profile hiện tại (chỉ đọc/ghi trên EDT) */
+    private RemoteIndex remoteIndex = RemoteIndex.EMPTY;
     
     // === GUI COMPONENTS - CONNECTION PANEL ===
     /** Server hostname/IP input field */
@@ -60,34 +75,58 @@ public class FTPSFileManager extends JFrame {
     private JCheckBox tlsCheckBox;
     /** Connection control buttons */
     private JButton connectButton, disconnectButton, browseCertButton;
+    /** Số connection tối đa trong pool */
+    private JSpinner maxConnectionsSpinner;
+    /** Mở dialog transfer tuning (buffer sizes, TCP_NODELAY, cipher order) */
+    private JButton tuningButton;
+    /** TLS protocol (Auto / 1.3 / 1.2) */
+    private JComboBox<TlsPolicy.Protocol> tlsProtocolBox;
+    /** Implicit FTPS (TLS ngay khi connect) thay vì AUTH TLS */
+    private JCheckBox implicitTlsCheckBox;
     
     // === GUI COMPONENTS - FILE OPERATIONS ===
     /** Remote directory tree display */
     private JTree fileTree;
-    /** Tree model for dynamic file list updates */
-    private DefaultTreeModel treeModel;
+    /** Lazy tree model - LIST khi expand, update incremental */
+    private RemoteTreeModel treeModel;
     /** File operation buttons */
-    private JButton uploadButton, downloadButton;
+    private JButton uploadButton, downloadButton, refreshButton;
+    /** Mirror/sync một local directory với remote directory */
+    private JButton syncButton;
+    /** Search prefix/glob trong RemoteIndex (không cần server) */
+    private JButton searchButton;
+    /** Số segment song song cho download file lớn (1 = tắt) */
+    private JSpinner segmentsSpinner;
     
     // === GUI COMPONENTS - MONITORING ===
-    /** FTP command log display area */
-    private JTextArea logArea;
     /** Security status indicator (Green=Secure, Red=Insecure) */
     private JLabel statusLabel;
+    /** Listing cache hit/miss counters */
+    private JLabel cacheLabel;
+    /** TLS handshake counters (full vs resumed) */
+    private JLabel tlsLabel;
+    /** Throughput upload/download và TTFB p50/p99 */
+    private JLabel throughputLabel;
+    /** Số transfer song song ConcurrencyController đang chọn cho server hiện tại */
+    private JLabel streamsLabel;
     
     /**
      * Constructor - khởi tạo FTPS File Manager GUI
-     * Tạo giao diện và FTP client mặc định (plain FTP)
+     * Connection pool chỉ được tạo khi user bấm Connect
      */
     public FTPSFileManager() {
+        appConfig = AppConfig.loadDefault();
+        startLogFile();
+        session = new FtpSession(appConfig, ConnectionSettings.DEFAULT_MAX_CONNECTIONS, this::appendLog);
+        transferQueue = session.getTransferQueue();
+        transferQueue.addListener(this::onTransferChanged);
         initializeGUI();
-        ftpClient = new FTPClient();
     }
     
     /**
      * Khởi tạo giao diện người dùng với layout chính:
      * - NORTH: Connection panel (host, credentials, TLS toggle)
-     * - CENTER: Split pane (file tree + command log)
+     * - CENTER: Split pane (file tree + command log / transfer queue)
      * - SOUTH: Status panel (security indicators)
      */
     private void initializeGUI() {
@@ -106,9 +145,12 @@ public class FTPSFileManager extends JFrame {
         JPanel treePanel = createTreePanel();
         mainSplit.setLeftComponent(treePanel);
         
-        // Log Panel
+        // Log Panel + Transfer Queue
         JPanel logPanel = createLogPanel();
-        mainSplit.setRightComponent(logPanel);
+        JSplitPane rightSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+            logPanel, new TransferQueuePanel(transferQueue));
+        rightSplit.setResizeWeight(0.6);
+        mainSplit.setRightComponent(rightSplit);
         
         mainSplit.setDividerLocation(400);
         add(mainSplit, BorderLayout.CENTER);
@@ -117,7 +159,7 @@ public class FTPSFileManager extends JFrame {
         JPanel statusPanel = createStatusPanel();
         add(statusPanel, BorderLayout.SOUTH);
         
-        setSize(800, 600);
+        setSize(900, 700);
         setLocationRelativeTo(null);
     }
     
@@ -125,7 +167,7 @@ public class FTPSFileManager extends JFrame {
      * Tạo connection panel với:
      * - Row 1: Host, Username, Password fields
      * - Row 2: TLS checkbox, Certificate path, Browse button
-     * - Row 3: Connect/Disconnect buttons
+     * - Row 3: Pool size, Tuning, TLS protocol, Implicit FTPS, Disconnect button
      * 
      * @return JPanel chứa tất cả connection controls
      */
@@ -191,8 +233,33 @@ public class FTPSFileManager extends JFrame {
         connectButton.addActionListener(new ConnectAction());
         panel.add(connectButton, gbc);
         
-        // Row 3: Disconnect button
-        gbc.gridx = 5; gbc.gridy = 2;
+        // Row 3: Pool size, Disconnect button
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(new JLabel("Max connections:"), gbc);
+        gbc.gridx = 1;
+        maxConnectionsSpinner = new JSpinner(new SpinnerNumberModel(
+            ConnectionSettings.DEFAULT_MAX_CONNECTIONS, 1, 16, 1));
+        panel.add(maxConnectionsSpinner, gbc);
+        
+        gbc.gridx = 2;
+        tuningButton = new JButton("Tuning...");
+        tuningButton.addActionListener(e -> showTuningDialog());
+        panel.add(tuningButton, gbc);
+        
+        gbc.gridx = 3;
+        tlsProtocolBox = new JComboBox<>(TlsPolicy.Protocol.values());
+        ConnectionSettings configured = new ConnectionSettings();
+        configured.applyConfig(appConfig);
+        tlsProtocolBox.setSelectedItem(configured.getTlsProtocol());
+        tlsProtocolBox.setToolTipText("TLS protocol version");
+        panel.add(tlsProtocolBox, gbc);
+        
+        gbc.gridx = 4;
+        implicitTlsCheckBox = new JCheckBox("Implicit", configured.isImplicitTls());
+        implicitTlsCheckBox.setToolTipText("Implicit FTPS (TLS on connect) instead of AUTH TLS");
+        panel.add(implicitTlsCheckBox, gbc);
+        
+        gbc.gridx = 5;
         disconnectButton = new JButton("Disconnect");
         disconnectButton.addActionListener(new DisconnectAction());
         disconnectButton.setEnabled(false);
@@ -203,8 +270,9 @@ public class FTPSFileManager extends JFrame {
     
     /**
      * Tạo file tree panel để browse remote directory:
-     * - JTree hiển thị files/folders từ FTP server
+     * - JTree hiển thị files/folders từ FTP server (lazy - LIST khi expand)
      * - Upload/Download buttons cho file operations
+     * - Segments spinner cho segmented download
      * 
      * @return JPanel chứa file tree và operation buttons
      */
@@ -212,9 +280,11 @@ public class FTPSFileManager extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createTitledBorder("Remote Files"));
         
-        DefaultMutableTreeNode root = new DefaultMutableTreeNode("Not Connected");
-        treeModel = new DefaultTreeModel(root);
+        treeModel = new RemoteTreeModel(session.getExecutor(), this::appendLog);
         fileTree = new JTree(treeModel);
+        fileTree.addTreeWillExpandListener(treeModel);
+        fileTree.getSelectionModel().setSelectionMode(
+            TreeSelectionModel.DISCONTIGUOUS_TREE_SELECTION);
         
         JScrollPane scrollPane = new JScrollPane(fileTree);
         panel.add(scrollPane, BorderLayout.CENTER);
@@ -229,8 +299,28 @@ public class FTPSFileManager extends JFrame {
         downloadButton.addActionListener(new DownloadAction());
         downloadButton.setEnabled(false);
         
+        refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refreshSelectedDirectories());
+        refreshButton.setEnabled(false);
+        
+        syncButton = new JButton("Sync...");
+        syncButton.addActionListener(e -> showSyncDialog());
+        syncButton.setEnabled(false);
+        
+        searchButton = new JButton("Search...");
+        searchButton.addActionListener(e -> showSearchDialog());
+        searchButton.setEnabled(false);
+        
+        segmentsSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 16, 1));
+        segmentsSpinner.setToolTipText("Parallel REST+RETR segments for large downloads");
+        
         buttonPanel.add(uploadButton);
         buttonPanel.add(downloadButton);
+        buttonPanel.add(refreshButton);
+        buttonPanel.add(syncButton);
+        buttonPanel.add(searchButton);
+        buttonPanel.add(new JLabel("Segments:"));
+        buttonPanel.add(segmentsSpinner);
         panel.add(buttonPanel, BorderLayout.SOUTH);
         
         return panel;
@@ -242,26 +332,34 @@ public class FTPSFileManager extends JFrame {
      * - TLS handshake process (AUTH TLS, PBSZ, PROT)
      * - File transfer status và error messages
      * 
-     * @return JPanel chứa scrollable log area
+     * - Ring buffer giới hạn, chỉ render các dòng đang hiển thị, filter theo level
+     * 
+     * @return LogPanel trên logBuffer
      */
     private JPanel createLogPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBorder(BorderFactory.createTitledBorder("FTP Command Log"));
-        
-        logArea = new JTextArea();
-        logArea.setEditable(false);
-        logArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-        
-        JScrollPane scrollPane = new JScrollPane(logArea);
-        panel.add(scrollPane, BorderLayout.CENTER);
-        
-        return panel;
+        return new LogPanel(logBuffer);
+    }
+    
+    /**
+     * Bật ghi log ra file (ftps.logFile=true) - flush nốt khi JVM thoát
+     */
+    private void startLogFile() {
+        try {
+            LogFileWriter logFile = LogFileWriter.fromConfig(logBuffer, appConfig);
+            if (logFile != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(logFile::close, "log-writer-close"));
+                appendLog("Logging to " + logFile.getFile());
+            }
+        } catch (IOException e) {
+            appendLog("Log file disabled: " + e.getMessage());
+        }
     }
     
     /**
      * Tạo status panel với security indicators:
-     * - 🔒 Green: "SECURE CONNECTION - Encrypted (TLS 1.2)"
+     * - 🔒 Green: "SECURE CONNECTION - Encrypted (TLSv1.3, TLS_AES_128_GCM_SHA256)" - protocol/cipher thực tế
      * - ⚠️ Red: "INSECURE CONNECTION - Plain FTP (NOT ENCRYPTED)"
+     * - Listing cache hit/miss, TLS handshake counters, throughput và TTFB (cập nhật mỗi giây)
      * 
      * @return JPanel chứa status label
      */
@@ -270,25 +368,63 @@ public class FTPSFileManager extends JFrame {
         statusLabel = new JLabel("Disconnected");
         statusLabel.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 12));
         panel.add(statusLabel);
+        
+        cacheLabel = new JLabel();
+        panel.add(Box.createHorizontalStrut(20));
+        panel.add(cacheLabel);
+        
+        tlsLabel = new JLabel();
+        panel.add(Box.createHorizontalStrut(20));
+        panel.add(tlsLabel);
+        
+        throughputLabel = new JLabel();
+        panel.add(Box.createHorizontalStrut(20));
+        panel.add(throughputLabel);
+        
+        streamsLabel = new JLabel();
+        panel.add(Box.createHorizontalStrut(20));
+        panel.add(streamsLabel);
+        new Timer(1000, e -> updateMetricsLabels()).start();
         return panel;
     }
     
     /**
-     * Thêm message vào log area với thread-safe update
-     * Tự động scroll xuống message mới nhất
+     * Hiển thị hit/miss của listing cache, TLS handshakes, throughput và
+     * số transfer song song đang chọn (pool hiện tại)
+     */
+    private void updateMetricsLabels() {
+        FtpConnectionPool pool = session.getPool();
+        if (pool == null) {
+            cacheLabel.setText("");
+            tlsLabel.setText("");
+            throughputLabel.setText("");
+            streamsLabel.setText("");
+            return;
+        }
+        DirectoryCache cache = pool.getDirectoryCache();
+        cacheLabel.setText("Listing cache: " + cache.getHits() + " hits / "
+            + cache.getMisses() + " misses (" + cache.size() + " dirs)");
+        tlsLabel.setText(pool.getSettings().isSecure() ? pool.getTlsMetrics().toString() : "");
+        throughputLabel.setText(pool.getTransferMetrics().toString());
+        String hostKey = pool.getSettings().getHostKey();
+        ConcurrencyController concurrency = transferQueue.getConcurrency(hostKey);
+        streamsLabel.setText(concurrency == null ? "" : "Transfers: "
+            + transferQueue.getRunningTransfers(hostKey) + " running, " + concurrency);
+    }
+    
+    /**
+     * Thêm message vào log buffer (thread-safe, không block)
+     * LogPanel hiển thị theo batch mỗi frame
      * 
      * @param message Log message để hiển thị
      */
     private void appendLog(String message) {
-        SwingUtilities.invokeLater(() -> {
-            logArea.append(message + "\n");
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        });
+        logBuffer.accept(message);
     }
     
     /**
      * Mở file chooser để chọn SSL certificate file
-     * Hỗ trợ các format: .pem, .crt, .cer
+     * Hỗ trợ các format: .pem, .crt, .cer (một cert hoặc bundle), .jks, .p12, .pfx
      * Certificate dùng để validate server identity
      */
     private void browseCertificate() {
@@ -298,12 +434,15 @@ public class FTPSFileManager extends JFrame {
             public boolean accept(File f) {
                 return f.isDirectory() || f.getName().toLowerCase().endsWith(".pem") 
                     || f.getName().toLowerCase().endsWith(".crt")
-                    || f.getName().toLowerCase().endsWith(".cer");
+                    || f.getName().toLowerCase().endsWith(".cer")
+                    || f.getName().toLowerCase().endsWith(".jks")
+                    || f.getName().toLowerCase().endsWith(".p12")
+                    || f.getName().toLowerCase().endsWith(".pfx");
             }
             
             @Override
             public String getDescription() {
-                return "Certificate files (*.pem, *.crt, *.cer)";
+                return "Certificate files (*.pem, *.crt, *.cer, *.jks, *.p12, *.pfx)";
             }
         });
         
@@ -312,6 +451,102 @@ public class FTPSFileManager extends JFrame {
         }
     }
     
+    /**
+     * Dialog chỉnh transfer tuning, lưu vào settings.properties.
+     * Giá trị mới có hiệu lực từ lần Connect tiếp theo.
+     * 
+     * • Transfer buffer: buffer của NIO transfer path
+     * • SO_SNDBUF / SO_RCVBUF: TCP buffer của data sockets (0 = OS default)
+     * • TCP_NODELAY: tắt Nagle cho control + data sockets
+     * • Cipher order: AES-GCM hoặc ChaCha20 trước (Auto = theo AES hardware)
+     * • Adaptive streams: tự chỉnh số transfer song song (trần = Max connections - 1)
+     * • Bandwidth limits (global, per-host, per-transfer, lịch theo giờ) -
+     *   riêng nhóm này áp dụng ngay cho cả transfer đang chạy
+     */
+    private void showTuningDialog() {
+        ConnectionSettings current = new ConnectionSettings();
+        current.applyConfig(appConfig);
+        
+        JSpinner bufferSpinner = new JSpinner(new SpinnerNumberModel(
+            current.getTransferBufferSize() / 1024, 8, 64 * 1024, 64));
+        JSpinner sendSpinner = new JSpinner(new SpinnerNumberModel(
+            current.getSocketSendBufferSize() / 1024, 0, 64 * 1024, 64));
+        JSpinner receiveSpinner = new JSpinner(new SpinnerNumberModel(
+            current.getSocketReceiveBufferSize() / 1024, 0, 64 * 1024, 64));
+        JCheckBox noDelayBox = new JCheckBox("TCP_NODELAY", current.isTcpNoDelay());
+        JComboBox<TlsPolicy.CipherPreference> cipherBox = new JComboBox<>(TlsPolicy.CipherPreference.values());
+        cipherBox.setSelectedItem(current.getCipherPreference());
+        JCheckBox adaptiveBox = new JCheckBox("Adaptive parallel transfers", current.isAdaptiveConcurrency());
+        JTextField rateField = new JTextField(appConfig.getString(BandwidthLimiter.KEY_RATE_LIMIT, "0"));
+        JTextField hostRateField = new JTextField(appConfig.getString(ConnectionSettings.KEY_HOST_RATE_LIMIT, "0"));
+        JTextField transferRateField = new JTextField(
+            appConfig.getString(BandwidthLimiter.KEY_TRANSFER_RATE_LIMIT, "0"));
+        JTextField scheduleField = new JTextField(appConfig.getString(BandwidthLimiter.KEY_RATE_SCHEDULE, ""));
+        scheduleField.setToolTipText("e.g. 08:00-18:00=1m,18:00-08:00=0");
+        
+        JPanel form = new JPanel(new GridLayout(0, 2, 8, 8));
+        form.add(new JLabel("Transfer buffer (KB):"));
+        form.add(bufferSpinner);
+        form.add(new JLabel("Socket send buffer (KB, 0 = OS):"));
+        form.add(sendSpinner);
+        form.add(new JLabel("Socket receive buffer (KB, 0 = OS):"));
+        form.add(receiveSpinner);
+        form.add(new JLabel());
+        form.add(noDelayBox);
+        form.add(new JLabel("Cipher order (hardware AES: "
+            + (TlsPolicy.hasHardwareAes() ? "yes" : "no") + "):"));
+        form.add(cipherBox);
+        form.add(new JLabel());
+        form.add(adaptiveBox);
+        form.add(new JLabel("Bandwidth limit, all transfers (512k, 10m, 0 = off):"));
+        form.add(rateField);
+        form.add(new JLabel("Bandwidth limit per server:"));
+        form.add(hostRateField);
+        form.add(new JLabel("Bandwidth limit per transfer:"));
+        form.add(transferRateField);
+        form.add(new JLabel("Limit schedule (HH:mm-HH:mm=rate, ...):"));
+        form.add(scheduleField);
+        
+        if (JOptionPane.showConfirmDialog(this, form, "Transfer Tuning",
+                JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        long hostRate;
+        try {
+            BandwidthLimiter.parseRate(rateField.getText());
+            BandwidthLimiter.parseRate(transferRateField.getText());
+            hostRate = BandwidthLimiter.parseRate(hostRateField.getText());
+            BandwidthLimiter.Schedule.parse(scheduleField.getText());
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Transfer Tuning", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        appConfig.set(ConnectionSettings.KEY_BUFFER_SIZE, Integer.toString((Integer) bufferSpinner.getValue() * 1024));
+        appConfig.set(ConnectionSettings.KEY_SEND_BUFFER, Integer.toString((Integer) sendSpinner.getValue() * 1024));
+        appConfig.set(ConnectionSettings.KEY_RECEIVE_BUFFER, Integer.toString((Integer) receiveSpinner.getValue() * 1024));
+        appConfig.set(ConnectionSettings.KEY_TCP_NODELAY, Boolean.toString(noDelayBox.isSelected()));
+        appConfig.set(ConnectionSettings.KEY_CIPHER_PREFERENCE,
+            ((TlsPolicy.CipherPreference) cipherBox.getSelectedItem()).name());
+        appConfig.set(ConnectionSettings.KEY_ADAPTIVE_CONCURRENCY, Boolean.toString(adaptiveBox.isSelected()));
+        appConfig.set(BandwidthLimiter.KEY_RATE_LIMIT, rateField.getText().trim());
+        appConfig.set(ConnectionSettings.KEY_HOST_RATE_LIMIT, hostRateField.getText().trim());
+        appConfig.set(BandwidthLimiter.KEY_TRANSFER_RATE_LIMIT, transferRateField.getText().trim());
+        appConfig.set(BandwidthLimiter.KEY_RATE_SCHEDULE, scheduleField.getText().trim());
+        
+        BandwidthLimiter bandwidth = transferQueue.getBandwidthLimiter();
+        bandwidth.applyConfig(appConfig);
+        FtpConnectionPool pool = session.getPool();
+        if (pool != null) {
+            bandwidth.setHostRate(pool.getSettings().getHostKey(), hostRate);
+        }
+        try {
+            appConfig.save();
+            appendLog("Transfer tuning saved (bandwidth limits apply now, the rest on next connect)");
+        } catch (IOException ex) {
+            appendLog("Cannot save settings: " + ex.getMessage());
+        }
+    }
+    
     /**
      * 🔗 Connection Action Handler
      * 
@@ -332,6 +567,19 @@ public class FTPSFileManager extends JFrame {
      * CERTIFICATE VALIDATION:
      * • No cert: Default trust manager (accept all)
      * • Custom cert: Validate server identity
+     * 
+     * CONNECTION POOL:
+     * • Connection đầu tiên verify credentials và log từng bước protocol
+     * • Các connection tiếp theo được mở theo nhu cầu (tối đa "Max connections")
+     * 
+     * REMOTE INDEX:
+     * • Tree hiện ngay từ index của server profile trong lúc đang connect
+     * • Index thiếu hoặc cũ → build lại ở background sau khi connect
+     * 
+     * EXECUTION:
+     * • Connect chạy trên NetworkExecutor (deadline ftps.connectTimeoutMillis)
+     * • Trong lúc connect, Disconnect đóng vai trò Cancel
+     * • Kết quả được giao về EDT qua whenDone(SwingUtilities::invokeLater)
      */
     private class ConnectAction implements ActionListener {
         @Override
@@ -345,97 +593,89 @@ public class FTPSFileManager extends JFrame {
                 return;
             }
             
-            new Thread(() -> {
-                try {
-                    appendLog("Connecting to " + host + "...");
-                    
-                    if (tlsCheckBox.isSelected()) {
-                        ftpClient = new FTPSClient();
-                        
-                        // Configure trust manager with certificate if provided
-                        String certPath = certPathField.getText().trim();
-                        if (!certPath.isEmpty()) {
-                            try {
-                                TrustManager[] trustManagers = CertificateManager.createTrustManager(certPath);
-                                ((FTPSClient)ftpClient).setTrustManager(trustManagers[0]);
-                                appendLog("Using custom certificate: " + new File(certPath).getName());
-                            } catch (Exception ex) {
-                                appendLog("Certificate error: " + ex.getMessage());
-                            }
-                        }
-                        
-                        appendLog("🔒 AUTH TLS - Initiating secure handshake...");
-                    } else {
-                        ftpClient = new FTPClient();
-                        appendLog("⚠️ Plain FTP connection - NO ENCRYPTION (INSECURE)");
-                    }
-                    
-                    // Get port from user input
-                    int port;
-                    try {
-                        port = Integer.parseInt(portField.getText().trim());
-                    } catch (NumberFormatException ex) {
-                        SwingUtilities.invokeLater(() -> 
-                            JOptionPane.showMessageDialog(FTPSFileManager.this, "Invalid port number"));
-                        return;
-                    }
-                    
-                    ftpClient.connect(host, port);
-                    appendLog("Connecting to " + host + ":" + port + " (" + (tlsCheckBox.isSelected() ? "FTPS" : "Plain FTP") + ")");
-                    
-                    int reply = ftpClient.getReplyCode();
-                    if (!FTPReply.isPositiveCompletion(reply)) {
-                        ftpClient.disconnect();
-                        appendLog("Connection failed: " + ftpClient.getReplyString());
-                        return;
-                    }
-                    
-                    appendLog("Connected: " + ftpClient.getReplyString().trim());
-                    
-                    if (ftpClient.login(username, password)) {
-                        appendLog("Login successful");
-                        
-                        // Set passive mode for better compatibility
-                        ftpClient.enterLocalPassiveMode();
-                        appendLog("PASV - Entering passive mode");
-                        
-                        if (tlsCheckBox.isSelected()) {
-                            ((FTPSClient)ftpClient).execPBSZ(0);
-                            appendLog("🔒 PBSZ 0 - Setting up secure data channel...");
-                            ((FTPSClient)ftpClient).execPROT("P");
-                            appendLog("🔒 PROT P - Data channel encryption ENABLED");
-                            
-                            String certInfo = certPathField.getText().trim().isEmpty() ? 
-                                "(Default Trust)" : "(Custom Certificate)";
-                            
-                            SwingUtilities.invokeLater(() -> {
-                                statusLabel.setText("🔒 SECURE CONNECTION - Encrypted (TLS 1.2) " + certInfo);
-                                statusLabel.setForeground(new Color(0, 128, 0)); // Green
-                            });
-                        } else {
-                            SwingUtilities.invokeLater(() -> {
-                                statusLabel.setText("⚠️ INSECURE CONNECTION - Plain FTP (NOT ENCRYPTED)");
-                                statusLabel.setForeground(new Color(255, 0, 0)); // Red
-                            });
-                        }
-                        
-                        SwingUtilities.invokeLater(() -> {
-                            connectButton.setEnabled(false);
-                            disconnectButton.setEnabled(true);
-                            uploadButton.setEnabled(true);
-                            downloadButton.setEnabled(true);
-                        });
-                        
-                        loadFileTree();
-                    } else {
-                        appendLog("Login failed");
-                        ftpClient.disconnect();
-                    }
-                    
-                } catch (Exception ex) {
-                    appendLog("Error: " + ex.getMessage());
+            // Get port from user input
+            int port;
+            try {
+                port = Integer.parseInt(portField.getText().trim());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(FTPSFileManager.this, "Invalid port number");
+                return;
+            }
+            
+            ConnectionSettings settings = new ConnectionSettings();
+            settings.setHost(host);
+            settings.setPort(port);
+            settings.setUsername(username);
+            settings.setPassword(password);
+            settings.setSecure(tlsCheckBox.isSelected());
+            settings.setCertificatePath(certPathField.getText().trim());
+            settings.setMaxConnections((Integer) maxConnectionsSpinner.getValue());
+            settings.applyConfig(appConfig);
+            settings.setTlsProtocol((TlsPolicy.Protocol) tlsProtocolBox.getSelectedItem());
+            settings.setImplicitTls(implicitTlsCheckBox.isSelected());
+            
+            RemoteIndex index = session.openIndex(settings);
+            remoteIndex = index;
+            searchButton.setEnabled(!index.isEmpty());
+            treeModel.preview(index);
+            connectButton.setEnabled(false);
+            disconnectButton.setEnabled(true);
+            
+            NetworkExecutor.Task<FtpConnectionPool> task = session.getExecutor().submit("connect",
+                () -> session.connect(settings));
+            connectTask = task;
+            task.whenDone(SwingUtilities::invokeLater, (pool, error) -> {
+                if (connectTask == task) {
+                    connectTask = null;
                 }
-            }).start();
+                if (error != null) {
+                    connectFailed(error);
+                } else {
+                    connected(pool, index);
+                }
+            });
+        }
+        
+        /**
+         * Cập nhật GUI sau khi connect thành công (trên EDT)
+         */
+        private void connected(FtpConnectionPool pool, RemoteIndex index) {
+            ConnectionSettings settings = pool.getSettings();
+            if (settings.isSecure()) {
+                String certInfo = settings.getCertificatePath().isEmpty() ? 
+                    "(Default Trust)" : "(Custom Certificate)";
+                statusLabel.setText("🔒 SECURE CONNECTION - Encrypted (" + pool.getNegotiatedTls() + ") " + certInfo);
+                statusLabel.setForeground(new Color(0, 128, 0)); // Green
+            } else {
+                statusLabel.setText("⚠️ INSECURE CONNECTION - Plain FTP (NOT ENCRYPTED)");
+                statusLabel.setForeground(new Color(255, 0, 0)); // Red
+            }
+            
+            uploadButton.setEnabled(true);
+            downloadButton.setEnabled(true);
+            refreshButton.setEnabled(true);
+            syncButton.setEnabled(true);
+            treeModel.connect(pool);
+            fileTree.expandRow(0);
+            
+            offerResume(pool);
+            refreshIndexIfStale(pool, index);
+        }
+        
+        /**
+         * Connect lỗi, hết deadline hoặc bị cancel (trên EDT)
+         */
+        private void connectFailed(IOException error) {
+            if (error instanceof TrustStoreException) {
+                appendLog("Certificate error: " + error.getMessage());
+                JOptionPane.showMessageDialog(FTPSFileManager.this,
+                    error.getMessage(), "Certificate Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                appendLog("Error: " + error.getMessage());
+            }
+            connectButton.setEnabled(true);
+            disconnectButton.setEnabled(false);
+            treeModel.disconnect();
         }
     }
     
@@ -443,108 +683,264 @@ public class FTPSFileManager extends JFrame {
      * 🔌 Disconnect Action Handler
      * 
      * Safely disconnect từ FTP server:
-     * • Send QUIT command
-     * • Close socket connection
+     * • Close connection pool (QUIT trên mọi connection)
+     * • Close socket connections
      * • Reset GUI state
      * • Clear security status
+     * • Đang connect: cancel connect task (interrupt + đóng pool đang mở)
      */
     private class DisconnectAction implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            new Thread(() -> {
-                try {
-                    if (ftpClient.isConnected()) {
-                        ftpClient.logout();
-                        ftpClient.disconnect();
-                        appendLog("Disconnected");
-                    }
-                } catch (Exception ex) {
-                    appendLog("Disconnect error: " + ex.getMessage());
+            if (connectTask != null) {
+                connectTask.cancel();
+                connectTask = null;
+            }
+            session.getExecutor().submit("disconnect", () -> {
+                session.disconnect();
+                return null;
+            }).whenDone(SwingUtilities::invokeLater, (ignored, error) -> {
+                if (error != null) {
+                    appendLog("Disconnect error: " + error.getMessage());
                 }
+                connectButton.setEnabled(true);
+                disconnectButton.setEnabled(false);
+                uploadButton.setEnabled(false);
+                downloadButton.setEnabled(false);
+                refreshButton.setEnabled(false);
+                syncButton.setEnabled(false);
+                statusLabel.setText("Disconnected");
+                statusLabel.setForeground(Color.BLACK);
                 
-                SwingUtilities.invokeLater(() -> {
-                    connectButton.setEnabled(true);
-                    disconnectButton.setEnabled(false);
-                    uploadButton.setEnabled(false);
-                    downloadButton.setEnabled(false);
-                    statusLabel.setText("Disconnected");
-                    statusLabel.setForeground(Color.BLACK);
-                    
-                    DefaultMutableTreeNode root = new DefaultMutableTreeNode("Not Connected");
-                    treeModel.setRoot(root);
-                });
-            }).start();
+                treeModel.disconnect();
+            });
         }
     }
     
     /**
-     * 📁 Load Remote Directory Tree
+     * 📁 Refresh Remote Directories
      * 
-     * Retrieve file list từ FTP server:
-     * • Try LIST command first (detailed info)
-     * • Fallback to NLST (names only) nếu LIST fails
-     * • Update JTree với files/directories
-     * • Directories hiển thị với "/" suffix
+     * LIST lại các thư mục đang chọn (root nếu không chọn thư mục nào),
+     * bỏ qua listing cache.
+     * Chỉ phần khác biệt được insert/remove - các nhánh đang mở giữ nguyên.
      */
-    private void loadFileTree() {
-        new Thread(() -> {
-            try {
-                // Try different approaches for listing files
-                FTPFile[] files = null;
-                
-                try {
-                    files = ftpClient.listFiles();
-                } catch (Exception e1) {
-                    appendLog("LIST failed, trying NLST: " + e1.getMessage());
-                    try {
-                        String[] fileNames = ftpClient.listNames();
-                        if (fileNames != null) {
-                            files = new FTPFile[fileNames.length];
-                            for (int i = 0; i < fileNames.length; i++) {
-                                files[i] = new FTPFile();
-                                files[i].setName(fileNames[i]);
-                            }
-                        }
-                    } catch (Exception e2) {
-                        appendLog("NLST also failed: " + e2.getMessage());
-                    }
+    private void refreshSelectedDirectories() {
+        boolean any = false;
+        TreePath[] selection = fileTree.getSelectionPaths();
+        if (selection != null) {
+            for (TreePath path : selection) {
+                Object node = path.getLastPathComponent();
+                if (node instanceof RemoteNode && ((RemoteNode) node).isDirectory()) {
+                    treeModel.reload((RemoteNode) node);
+                    any = true;
                 }
-                
-                if (files == null) files = new FTPFile[0];
-                
-                final FTPFile[] finalFiles = files;
-                appendLog("LIST - Retrieved " + finalFiles.length + " files");
-                
-                SwingUtilities.invokeLater(() -> {
-                    DefaultMutableTreeNode root = new DefaultMutableTreeNode("Root Directory");
-                    
-                    Arrays.stream(finalFiles)
-                        .forEach(file -> {
-                            String name = file.getName();
-                            if (file.isDirectory()) {
-                                name += "/";
-                            }
-                            root.add(new DefaultMutableTreeNode(name));
-                        });
-                    
-                    treeModel.setRoot(root);
-                    fileTree.expandRow(0);
-                });
-                
-            } catch (Exception ex) {
-                appendLog("Error loading files: " + ex.getMessage());
             }
-        }).start();
+        }
+        if (!any && treeModel.getRoot() instanceof RemoteNode) {
+            treeModel.reload((RemoteNode) treeModel.getRoot());
+        }
+    }
+    
+    /**
+     * 🔁 Sync dialog: chọn local/remote directory, chiều sync, cách so sánh
+     * 
+     * Plan được tính ở background (walk cả hai tree), hiển thị dạng dry run
+     * - overwrite/delete có dấu ⚠️ - và chỉ execute khi user xác nhận.
+     * Transfers đi qua TransferQueue như upload/download thường.
+     */
+    private void showSyncDialog() {
+        FtpConnectionPool pool = session.getPool();
+        if (pool == null) {
+            return;
+        }
+        String selectedRemote = "";
+        TreePath selection = fileTree.getSelectionPath();
+        if (selection != null && selection.getLastPathComponent() instanceof RemoteNode
+                && ((RemoteNode) selection.getLastPathComponent()).isDirectory()) {
+            selectedRemote = ((RemoteNode) selection.getLastPathComponent()).getRemotePath();
+        }
+        
+        JTextField localField = new JTextField(System.getProperty("user.home"), 24);
+        JButton browseLocal = new JButton("Browse");
+        browseLocal.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser(localField.getText());
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (chooser.showOpenDialog(FTPSFileManager.this) == JFileChooser.APPROVE_OPTION) {
+                localField.setText(chooser.getSelectedFile().getAbsolutePath());
+            }
+        });
+        JPanel localPanel = new JPanel(new BorderLayout(4, 0));
+        localPanel.add(localField, BorderLayout.CENTER);
+        localPanel.add(browseLocal, BorderLayout.EAST);
+        JTextField remoteField = new JTextField(selectedRemote, 24);
+        JComboBox<SyncEngine.Mode> modeBox = new JComboBox<>(SyncEngine.Mode.values());
+        JComboBox<SyncEngine.Compare> compareBox = new JComboBox<>(SyncEngine.Compare.values());
+        JCheckBox deleteBox = new JCheckBox("Delete files missing from source (mirror)");
+        
+        JPanel form = new JPanel(new GridLayout(0, 2, 8, 4));
+        form.add(new JLabel("Local directory:"));
+        form.add(localPanel);
+        form.add(new JLabel("Remote directory (empty = home):"));
+        form.add(remoteField);
+        form.add(new JLabel("Direction:"));
+        form.add(modeBox);
+        form.add(new JLabel("Compare:"));
+        form.add(compareBox);
+        form.add(new JLabel());
+        form.add(deleteBox);
+        
+        if (JOptionPane.showConfirmDialog(this, form, "Sync", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        SyncEngine engine = new SyncEngine(pool, session.getExecutor(), new File(localField.getText().trim()),
+            remoteField.getText().trim(), this::appendLog);
+        engine.setMode((SyncEngine.Mode) modeBox.getSelectedItem());
+        engine.setCompare((SyncEngine.Compare) compareBox.getSelectedItem());
+        engine.setDeleteExtraneous(deleteBox.isSelected());
+        
+        syncButton.setEnabled(false);
+        appendLog("Sync: scanning (" + engine.getMode() + ")...");
+        session.getExecutor().submit("sync-planner", engine::plan)
+            .whenDone(SwingUtilities::invokeLater, (plan, error) -> {
+                syncButton.setEnabled(session.isConnected());
+                if (error != null) {
+                    appendLog("Sync failed: " + error.getMessage());
+                    return;
+                }
+                appendLog("Sync plan: " + plan.summary());
+                confirmSync(engine, plan);
+            });
+    }
+    
+    /**
+     * Hiển thị dry-run plan, execute nếu user đồng ý
+     */
+    private void confirmSync(SyncEngine engine, SyncPlan plan) {
+        if (plan.isEmpty()) {
+            JOptionPane.showMessageDialog(this, plan.describe(200), "Sync", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JTextArea planArea = new JTextArea(plan.describe(5000), 20, 70);
+        planArea.setEditable(false);
+        planArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        if (JOptionPane.showConfirmDialog(this, new JScrollPane(planArea), "Sync plan (dry run)",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            appendLog("Sync: cancelled");
+            return;
+        }
+        session.getExecutor().submit("sync-executor", () -> engine.execute(plan, transferQueue))
+            .whenDone(SwingUtilities::invokeLater, (jobs, error) -> {
+                if (error != null) {
+                    appendLog("Sync failed: " + error.getMessage());
+                } else {
+                    treeModel.refreshRootLater();
+                }
+            });
+    }
+    
+    /**
+     * Build lại index ở background (RemoteWalker, 2 listing song song để
+     * không chiếm hết connections) nếu chưa có hoặc đã cũ
+     */
+    private void refreshIndexIfStale(FtpConnectionPool pool, RemoteIndex index) {
+        if (!FtpSession.isStale(index, pool.getSettings())) {
+            return;
+        }
+        session.getExecutor().submit("index-builder", () -> session.rebuildIndex(pool, 2))
+            .whenDone(SwingUtilities::invokeLater, (rebuilt, error) -> {
+                if (error != null) {
+                    appendLog("Index: rebuild failed - " + error.getMessage());
+                } else if (pool == session.getPool()) {
+                    remoteIndex = rebuilt;
+                    treeModel.setIndex(rebuilt);
+                    searchButton.setEnabled(!rebuilt.isEmpty());
+                }
+            });
+    }
+    
+    /**
+     * 🔎 Search trong RemoteIndex: prefix ("report") hoặc glob ("docs/*.pdf")
+     * - chạy hoàn toàn offline trên file đã map
+     */
+    private void showSearchDialog() {
+        RemoteIndex index = remoteIndex;
+        String query = JOptionPane.showInputDialog(this,
+            "Prefix or glob (e.g. report, *.pdf, docs/**/*.txt):", "Search index", JOptionPane.QUESTION_MESSAGE);
+        if (query == null || query.trim().isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<RemoteIndex.Entry> results = index.search(query.trim(), 10_000);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        
+        DefaultListModel<String> model = new DefaultListModel<>();
+        for (RemoteIndex.Entry entry : results) {
+            model.addElement(entry.isDirectory() ? entry + "" : String.format("%s  (%d KB) %s",
+                entry, entry.getSize() / 1024, entry.getPermissions()));
+        }
+        JList<String> list = new JList<>(model);
+        JScrollPane scroll = new JScrollPane(list);
+        scroll.setPreferredSize(new Dimension(600, 400));
+        JPanel panel = new JPanel(new BorderLayout(0, 4));
+        panel.add(new JLabel(results.size() + " result(s) in " + millis + " ms - index of "
+            + index.size() + " entries, built " + new java.util.Date(index.getCreatedMillis())), BorderLayout.NORTH);
+        panel.add(scroll, BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(this, panel, "Search: " + query.trim(), JOptionPane.PLAIN_MESSAGE);
+    }
+    
+    /**
+     * Refresh file tree khi upload cuối cùng của một đợt hoàn tất
+     * (listing đã được DirectoryCache patch sau mỗi STOR - không LIST lại)
+     *
+     * @param job Job vừa đổi state (gọi từ worker thread)
+     */
+    private void onTransferChanged(TransferJob job) {
+        if (job.getState() == TransferJob.State.COMPLETED) {
+            appendLog((job.getDirection() == TransferJob.Direction.UPLOAD ? "Upload" : "Download")
+                + " completed: " + job.getRemotePath());
+            if (job.getDirection() == TransferJob.Direction.UPLOAD && job.getPool() == session.getPool()
+                    && !transferQueue.hasPendingUploads(job.getPool())) {
+                treeModel.refreshRootLater();
+            }
+        }
+    }
+    
+    /**
+     * Hỏi user có tiếp tục các transfer bị gián đoạn (crash, restart app)
+     * của server vừa kết nối hay không
+     *
+     * @param pool Pool của server vừa kết nối
+     */
+    private void offerResume(FtpConnectionPool pool) {
+        List<TransferJournal.Entry> pending = session.pendingResumes();
+        if (pending.isEmpty()) {
+            return;
+        }
+        appendLog("Journal: " + pending.size() + " interrupted transfer(s) found");
+        SwingUtilities.invokeLater(() -> {
+            int choice = JOptionPane.showConfirmDialog(FTPSFileManager.this,
+                "Resume " + pending.size() + " interrupted transfer(s)?",
+                "Resume transfers", JOptionPane.YES_NO_OPTION);
+            if (choice != JOptionPane.YES_OPTION || pool != session.getPool()) {
+                return;
+            }
+            try {
+                session.resume(pending);
+            } catch (IOException ex) {
+                appendLog("Resume failed: " + ex.getMessage());
+            }
+        });
     }
     
     /**
      * ⬆️ Upload Action Handler
      * 
      * Upload file lên FTP server:
-     * • Mở file chooser để chọn local file
-     * • Use STOR command để transfer
-     * • Monitor upload progress trong log
-     * • Refresh file tree sau khi complete
+     * • Mở file chooser (multi-select) để chọn local files
+     * • Mỗi file thành một STOR job trong TransferQueue
+     * • Monitor upload progress trong Transfer Queue panel
+     * • Refresh file tree sau khi upload cuối cùng complete
      * 
      * SECURITY NOTE:
      * • Plain FTP: File content transmitted unencrypted
@@ -553,26 +949,17 @@ public class FTPSFileManager extends JFrame {
     private class UploadAction implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
+            if (!session.isConnected()) {
+                return;
+            }
             JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setMultiSelectionEnabled(true);
             if (fileChooser.showOpenDialog(FTPSFileManager.this) == JFileChooser.APPROVE_OPTION) {
-                File selectedFile = fileChooser.getSelectedFile();
-                
-                new Thread(() -> {
-                    try (FileInputStream fis = new FileInputStream(selectedFile)) {
-                        appendLog("STOR " + selectedFile.getName() + " - Uploading...");
-                        
-                        boolean success = ftpClient.storeFile(selectedFile.getName(), fis);
-                        if (success) {
-                            appendLog("Upload completed: " + selectedFile.getName());
-                            loadFileTree();
-                        } else {
-                            appendLog("Upload failed: " + ftpClient.getReplyString());
-                        }
-                        
-                    } catch (Exception ex) {
-                        appendLog("Upload error: " + ex.getMessage());
-                    }
-                }).start();
+                try {
+                    session.upload(Arrays.asList(fileChooser.getSelectedFiles()), "");
+                } catch (IOException ex) {
+                    appendLog("Upload failed: " + ex.getMessage());
+                }
             }
         }
     }
@@ -581,10 +968,11 @@ public class FTPSFileManager extends JFrame {
      * ⬇️ Download Action Handler
      * 
      * Download file từ FTP server:
-     * • Get selected file từ tree
-     * • Mở save dialog để chọn local path
-     * • Use RETR command để transfer
-     * • Monitor download progress trong log
+     * • Get selected files từ tree (multi-select)
+     * • Một file: save dialog để chọn local path
+     * • Nhiều file: chọn thư mục đích
+     * • Mỗi file thành một RETR job trong TransferQueue
+     * • Segments > 1: file lớn được tải song song bằng REST + RETR
      * 
      * SECURITY NOTE:
      * • Plain FTP: File content transmitted unencrypted
@@ -593,41 +981,47 @@ public class FTPSFileManager extends JFrame {
     private class DownloadAction implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            DefaultMutableTreeNode selectedNode = 
-                (DefaultMutableTreeNode) fileTree.getLastSelectedPathComponent();
-            
-            if (selectedNode == null || selectedNode.isRoot()) {
-                JOptionPane.showMessageDialog(FTPSFileManager.this, "Please select a file");
+            if (!session.isConnected()) {
                 return;
             }
+            List<RemoteNode> files = new ArrayList<>();
+            TreePath[] selection = fileTree.getSelectionPaths();
+            if (selection != null) {
+                for (TreePath path : selection) {
+                    Object node = path.getLastPathComponent();
+                    if (node instanceof RemoteNode && !((RemoteNode) node).isDirectory()) {
+                        files.add((RemoteNode) node);
+                    }
+                }
+            }
             
-            String fileName = selectedNode.toString();
-            if (fileName.endsWith("/")) {
-                JOptionPane.showMessageDialog(FTPSFileManager.this, "Cannot download directory");
+            if (files.isEmpty()) {
+                JOptionPane.showMessageDialog(FTPSFileManager.this, "Please select a file (directories cannot be downloaded)");
                 return;
             }
             
+            Map<String, File> targets = new LinkedHashMap<>();
             JFileChooser fileChooser = new JFileChooser();
-            fileChooser.setSelectedFile(new File(fileName));
-            
-            if (fileChooser.showSaveDialog(FTPSFileManager.this) == JFileChooser.APPROVE_OPTION) {
-                File saveFile = fileChooser.getSelectedFile();
-                
-                new Thread(() -> {
-                    try (FileOutputStream fos = new FileOutputStream(saveFile)) {
-                        appendLog("RETR " + fileName + " - Downloading...");
-                        
-                        boolean success = ftpClient.retrieveFile(fileName, fos);
-                        if (success) {
-                            appendLog("Download completed: " + fileName);
-                        } else {
-                            appendLog("Download failed: " + ftpClient.getReplyString());
-                        }
-                        
-                    } catch (Exception ex) {
-                        appendLog("Download error: " + ex.getMessage());
-                    }
-                }).start();
+            if (files.size() == 1) {
+                fileChooser.setSelectedFile(new File(files.get(0).getName()));
+                if (fileChooser.showSaveDialog(FTPSFileManager.this) != JFileChooser.APPROVE_OPTION) {
+                    return;
+                }
+                targets.put(files.get(0).getRemotePath(), fileChooser.getSelectedFile());
+            } else {
+                fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+                if (fileChooser.showSaveDialog(FTPSFileManager.this) != JFileChooser.APPROVE_OPTION) {
+                    return;
+                }
+                File targetDir = fileChooser.getSelectedFile();
+                for (RemoteNode file : files) {
+                    targets.put(file.getRemotePath(), new File(targetDir, file.getName()));
+                }
+            }
+            try {
+                session.download(targets, (Integer) segmentsSpinner.getValue());
+            } catch (IOException ex) {
+                appendLog("Download failed: " + ex.getMessage());
             }
         }
     }
@@ -0,0 +1,330 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * 🚚 File Transfer - Thực thi một TransferJob trên connection đã borrow
+ *
+ * • UPLOAD: STOR localFile → remotePath (APPE khi resume)
+ * • DOWNLOAD: RETR remotePath → localFile (REST offset khi resume)
+ * • DOWNLOAD với segments > 1: SegmentedDownloader (REST + RETR song song)
+ * • Job có modifiedTime (sync): đặt mtime của file đích sau khi xong
+ *
+ * Dữ liệu đi qua ChannelTransfer (FileChannel + data socket trực tiếp),
+ * nén MODE Z khi DataCompression cho phép (transfer từ đầu file).
+ * BandwidthLimiter.Throttle trả tokens sau mỗi chunk (buffer thu nhỏ
+ * theo giới hạn đang áp dụng).
+ *
+ * VERIFY:
+ * Checksum được tính inline trong lúc transfer rồi so với server
+ * (TransferVerifier - HASH/XCRC/XMD5, hoặc SIZE). Lệch → bỏ checkpoint
+ * và transfer lại từ đầu, tối đa ftps.verifyRetries lần. Segmented
+ * download tính CRC từng range khi bytes đến rồi ghép theo offset
+ * (SegmentChecksum) - không đọc lại file; server không có CRC → so SIZE.
+ * Sau mỗi chunk, progress được cộng dồn và cờ pause/cancel được kiểm
+ * tra - nhờ vậy job đang chạy có thể dừng giữa chừng.
+ *
+ * RESUME:
+ * Khi có TransferJournal, mỗi CHECKPOINT_BYTES bytes được ghi checkpoint
+ * (offset + tail CRC). Lần chạy sau của cùng transfer:
+ * • Download: verify SIZE không đổi và tail CRC của local file → REST + RETR
+ * • Upload: verify local file không đổi → SIZE remote → APPE phần còn lại
+ * • Segmented download không được journal (không có offset liên tục) -
+ *   bị dừng thì tải lại từ đầu
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferQueue
+ * @see TransferJournal
+ */
+public final class FileTransfer {
+    /** Khoảng cách giữa hai journal checkpoint */
+    public static final long CHECKPOINT_BYTES = 4L * 1024 * 1024;
+
+    private FileTransfer() {
+    }
+
+    /**
+     * Chạy job trên connection cho trước
+     *
+     * @param client Connection đã login, dành riêng cho job này
+     * @param job Job cần thực thi
+     * @param journal Journal cho resume, null để tắt resume
+     * @param throttle Giới hạn bandwidth của job
+     * @param executor Chạy các segment phụ của segmented download
+     * @throws TransferJob.TransferAbortedException nếu user pause/cancel
+     * @throws IOException nếu server từ chối hoặc connection lỗi
+     */
+    public static void execute(FTPClient client, TransferJob job, TransferJournal journal,
+                               BandwidthLimiter.Throttle throttle, NetworkExecutor executor) throws IOException {
+        int retries = job.getPool().getSettings().getVerifyRetries();
+        for (int attempt = 1; ; attempt++) {
+            job.startProgress();
+            try {
+                transfer(client, job, journal, throttle, executor);
+                break;
+            } catch (TransferVerifier.IntegrityException e) {
+                if (journal != null) {
+                    // Bytes ở đích không đáng tin - lần sau không resume từ checkpoint
+                    journal.complete(TransferJournal.keyOf(job));
+                }
+                if (attempt > retries) {
+                    throw e;
+                }
+                job.setState(TransferJob.State.RUNNING, e.getMessage() + " - retry " + attempt + "/" + retries);
+            }
+        }
+        preserveModifiedTime(client, job);
+    }
+
+    /**
+     * Một lần transfer + verify
+     */
+    private static void transfer(FTPClient client, TransferJob job, TransferJournal journal,
+                                 BandwidthLimiter.Throttle throttle, NetworkExecutor executor) throws IOException {
+        if (job.getDirection() == TransferJob.Direction.UPLOAD) {
+            job.setExpectedSize(job.getLocalFile().length());
+            upload(client, job, journal, throttle);
+        } else if (job.getSegments() > 1) {
+            // Segment ghi không theo thứ tự - không có offset liên tục để checkpoint,
+            // nên không ghi journal (entry không resume được). Checkpoint cũ của cùng
+            // file không còn đúng sau khi file bị ghi đè.
+            if (journal != null && journal.find(TransferJournal.keyOf(job)) != null) {
+                journal.complete(TransferJournal.keyOf(job));
+            }
+            RemoteChecksum checksum = SegmentedDownloader.download(client, job, throttle, executor);
+            TransferVerifier.verify(client, job, checksum, job.getLocalFile().length());
+        } else {
+            download(client, job, journal, throttle);
+        }
+    }
+
+    /**
+     * Đặt mtime của file đích bằng mtime nguồn (job từ SyncEngine). Lỗi
+     * không làm transfer fail - lần sync sau chỉ so sánh lại.
+     */
+    private static void preserveModifiedTime(FTPClient client, TransferJob job) throws IOException {
+        long modified = job.getModifiedTime();
+        if (modified < 0) {
+            return;
+        }
+        if (job.getDirection() == TransferJob.Direction.DOWNLOAD) {
+            job.getLocalFile().setLastModified(modified);
+        } else if (job.getPool().getServerFeatures().has("MFMT")) {
+            SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            client.setModificationTime(job.getRemotePath(), format.format(new Date(modified)));
+        }
+    }
+
+    /**
+     * STOR (hoặc APPE khi resume được)
+     */
+    private static void upload(FTPClient client, TransferJob job, TransferJournal journal,
+                               BandwidthLimiter.Throttle throttle) throws IOException {
+        File source = job.getLocalFile();
+        String key = TransferJournal.keyOf(job);
+        long offset = 0;
+
+        if (journal != null) {
+            offset = uploadResumeOffset(client, source, journal.find(key));
+            if (offset == source.length() && offset > 0) {
+                // Server đã có đủ bytes - lần trước chỉ thiếu record D
+                journal.complete(key);
+                job.addResumedBytes(offset);
+                return;
+            }
+            if (offset == 0) {
+                journal.begin(job, source.length(), source.lastModified());
+            } else {
+                job.setState(TransferJob.State.RUNNING, "Resumed at " + (offset / 1024) + " KB");
+                job.addResumedBytes(offset);
+            }
+        }
+
+        StreamingChecksum checksum = TransferVerifier.inline(job.getPool(), offset);
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            Checkpointer checkpointer = journal == null ? null : new Checkpointer(journal, key, source, offset);
+            if (offset == 0 && DataCompression.shouldCompressUpload(job.getPool(), source.getName(), channel)
+                    && DataCompression.enter(client)) {
+                try {
+                    ChannelTransfer.uploadDeflated(client, FTPCmd.STOR, job.getRemotePath(), channel,
+                        job.getPool().getSettings().getCompressionLevel(), bufferSize(job, throttle),
+                        progress(job, checkpointer, throttle), checksum);
+                } finally {
+                    DataCompression.leave(client);
+                }
+            } else {
+                ChannelTransfer.upload(client, offset > 0 ? FTPCmd.APPE : FTPCmd.STOR, job.getRemotePath(),
+                    channel, offset, bufferSize(job, throttle), progress(job, checkpointer, throttle), checksum);
+            }
+        }
+        TransferVerifier.verify(client, job, checksum, source.length());
+        if (journal != null) {
+            journal.complete(key);
+        }
+    }
+
+    /**
+     * RETR (với REST offset khi resume được)
+     */
+    private static void download(FTPClient client, TransferJob job, TransferJournal journal,
+                                 BandwidthLimiter.Throttle throttle) throws IOException {
+        File target = job.getLocalFile();
+        String key = TransferJournal.keyOf(job);
+        long offset = 0;
+
+        if (journal != null) {
+            long remoteSize = remoteSizeOrUnknown(client, job.getRemotePath());
+            if (remoteSize >= 0) {
+                job.setExpectedSize(remoteSize);
+            }
+            TransferJournal.Entry entry = journal.find(key);
+            if (entry != null && entry.getOffset() > 0 && remoteSize >= 0
+                    && remoteSize == entry.getSourceSize()
+                    && TransferJournal.tailCrc(target, entry.getOffset()) == entry.getTailCrc()) {
+                offset = entry.getOffset();
+                job.setState(TransferJob.State.RUNNING, "Resumed at " + (offset / 1024) + " KB");
+                job.addResumedBytes(offset);
+            } else {
+                journal.begin(job, remoteSize, -1);
+            }
+        }
+
+        if (offset > 0) {
+            // Bỏ phần ghi sau checkpoint cuối - chưa được verify
+            try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+            }
+            client.setRestartOffset(offset);
+        }
+
+        StreamingChecksum checksum = TransferVerifier.inline(job.getPool(), offset);
+        OpenOption truncate = offset > 0 ? StandardOpenOption.CREATE : StandardOpenOption.TRUNCATE_EXISTING;
+        try (FileChannel channel = FileChannel.open(target.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, truncate)) {
+            Checkpointer checkpointer = journal == null ? null : new Checkpointer(journal, key, target, offset);
+            if (offset == 0
+                    && DataCompression.shouldCompressDownload(job.getPool(), job.getRemotePath(), job.getExpectedSize())
+                    && DataCompression.enter(client)) {
+                try {
+                    ChannelTransfer.downloadDeflated(client, job.getRemotePath(), channel,
+                        bufferSize(job, throttle), progress(job, checkpointer, throttle), checksum);
+                } finally {
+                    DataCompression.leave(client);
+                }
+            } else {
+                ChannelTransfer.download(client, job.getRemotePath(), channel, offset,
+                    bufferSize(job, throttle), progress(job, checkpointer, throttle), checksum);
+            }
+        }
+        TransferVerifier.verify(client, job, checksum, target.length());
+        if (journal != null) {
+            journal.complete(key);
+        }
+    }
+
+    /**
+     * Tính offset upload có thể resume: local file không đổi kể từ lần đầu
+     * (size, mtime, tail CRC) và server đang giữ một phần của nó
+     *
+     * @return Số bytes server đã có, 0 nếu phải upload lại từ đầu
+     */
+    private static long uploadResumeOffset(FTPClient client, File source,
+                                           TransferJournal.Entry entry) throws IOException {
+        if (entry == null || entry.getSourceSize() != source.length()
+                || entry.getSourceMtime() != source.lastModified()) {
+            return 0;
+        }
+        if (entry.getOffset() > 0 && TransferJournal.tailCrc(source, entry.getOffset()) != entry.getTailCrc()) {
+            return 0;
+        }
+        long remoteSize = remoteSizeOrUnknown(client, entry.getRemotePath());
+        return remoteSize > 0 && remoteSize <= source.length() ? remoteSize : 0;
+    }
+
+    /**
+     * @return SIZE của remote file, -1 nếu không có/không hỗ trợ
+     */
+    private static long remoteSizeOrUnknown(FTPClient client, String remotePath) {
+        try {
+            return SegmentedDownloader.remoteSize(client, remotePath);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static int bufferSize(TransferJob job, BandwidthLimiter.Throttle throttle) {
+        return throttle.chunkSize(job.getPool().getSettings().getTransferBufferSize());
+    }
+
+    /**
+     * Listener sau mỗi chunk: kiểm tra pause/cancel, cộng progress, checkpoint,
+     * chờ bandwidth limiter.
+     * Size trong reply 150 của RETR được dùng cho ETA khi chưa biết size.
+     * Transfer MODE Z cộng bytes trước/sau nén vào TransferMetrics.
+     */
+    private static ChannelTransfer.ProgressListener progress(TransferJob job, Checkpointer checkpointer,
+                                                             BandwidthLimiter.Throttle throttle) {
+        return new ChannelTransfer.ProgressListener() {
+            @Override
+            public void bytesTransferred(long bytes) throws IOException {
+                job.addBytesTransferred(bytes);
+                if (checkpointer != null) {
+                    checkpointer.advance(bytes);
+                }
+                job.checkAbort();
+                throttle.acquire(bytes);
+            }
+
+            @Override
+            public void sizeAnnounced(long size) {
+                if (job.getExpectedSize() < 0) {
+                    job.setExpectedSize(size);
+                }
+            }
+
+            @Override
+            public void compressed(long rawBytes, long wireBytes) {
+                job.getPool().getTransferMetrics().compressionFinished(rawBytes, wireBytes);
+            }
+        };
+    }
+
+    /**
+     * Ghi checkpoint vào journal mỗi CHECKPOINT_BYTES bytes
+     */
+    private static final class Checkpointer {
+        private final TransferJournal journal;
+        private final String key;
+        private final File localFile;
+        private long position;
+        private long lastCheckpoint;
+
+        Checkpointer(TransferJournal journal, String key, File localFile, long startOffset) {
+            this.journal = journal;
+            this.key = key;
+            this.localFile = localFile;
+            this.position = startOffset;
+            this.lastCheckpoint = startOffset;
+        }
+
+        void advance(long bytes) throws IOException {
+            position += bytes;
+            if (position - lastCheckpoint >= CHECKPOINT_BYTES) {
+                journal.checkpoint(key, position, TransferJournal.tailCrc(localFile, position));
+                lastCheckpoint = position;
+            }
+        }
+    }
+}
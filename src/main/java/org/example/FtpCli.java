@@ -0,0 +1,757 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 🖥️ FTP CLI - Headless front end (cron, server không có display)
+ *
+ * Dùng chung FtpSession với GUI - cùng connection pool, transfer queue,
+ * journal và sync engine. Không load AWT/Swing.
+ *
+ * CÁCH DÙNG:
+ *   ftps-cli [options] <command> [args...]
+ *   ftps-cli [options] --batch script.txt
+ *
+ * COMMANDS:
+ * • connect [host[:port]] - kết nối (các command khác tự connect nếu cần)
+ * • ls [path] - list thư mục
+ * • get <remote> [local] - download file
+ * • put <local> [remoteDir] - upload file
+ * • mirror [--download|--both] [--delete] [--checksum] [--dry-run] <local> <remote>
+ * • limit <rate> [transfer] - đổi giới hạn bandwidth giữa các command của batch
+ * • disconnect
+ *
+ * BATCH FILE: mỗi dòng một command, "#" là comment. Command lỗi dừng script
+ * (trừ khi có --continue-on-error).
+ *
+ * EXIT CODE: 0 thành công, 1 command lỗi, 2 sai cú pháp.
+ *
+ * RESOURCES: số connection và transfer worker cố định (--connections, mặc
+ * định 2), mọi connection được đóng trước khi thoát.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpSession
+ * @see Main
+ */
+public final class FtpCli {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+
+    /** Connection mặc định của CLI - ít hơn GUI để cron job không chiếm server */
+    private static final int DEFAULT_CLI_CONNECTIONS = 2;
+
+    /** Command line sai cú pháp */
+    private static final class UsageException extends Exception {
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    private final ConnectionSettings settings = new ConnectionSettings();
+    private final PrintStream out;
+    private final PrintStream err;
+    private boolean verbose;
+    private boolean continueOnError;
+    private int segments = 1;
+    private boolean progress;
+    /** --compress / --compress-level: ghi đè ftps.compression sau khi đọc config */
+    private boolean compress;
+    private int compressLevel;
+    /** --verify: ghi đè ftps.verify / ftps.checksumAlgorithm sau khi đọc config, null = theo config */
+    private TransferVerifier.Mode verify;
+    private RemoteChecksum.Algorithm verifyAlgorithm;
+    /** --limit-rate / --transfer-limit-rate: ghi đè ftps.rateLimit / ftps.transferRateLimit, null = theo config */
+    private Long limitRate;
+    private Long transferLimitRate;
+    /** --streams: 0 = tự chỉnh (ftps.adaptiveConcurrency), n = cố định n transfer song song, null = theo config */
+    private Integer streams;
+    /** Snapshot metrics sau mỗi command (--metrics-file), null = tắt */
+    private Path metricsFile;
+    /** Log ring buffer - chỉ tạo khi có --log-file */
+    private LogBuffer logBuffer;
+    private FtpSession session;
+
+    private FtpCli(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+        settings.setMaxConnections(DEFAULT_CLI_CONNECTIONS);
+    }
+
+    /**
+     * Entry point của headless mode
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Chạy CLI, không gọi System.exit
+     *
+     * @return Exit code
+     */
+    public static int run(String[] args) {
+        return new FtpCli(System.out, System.err).execute(args);
+    }
+
+    private int execute(String[] args) {
+        List<String> command = new ArrayList<>();
+        String batch = null;
+        String logFile = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!command.isEmpty() || !arg.startsWith("-")) {
+                    command.add(arg);
+                    continue;
+                }
+                switch (arg) {
+                    case "--host":
+                        settings.setHost(value(args, ++i, arg));
+                        break;
+                    case "--port":
+                        settings.setPort(number(value(args, ++i, arg), arg));
+                        break;
+                    case "--user":
+                        settings.setUsername(value(args, ++i, arg));
+                        break;
+                    case "--password":
+                        settings.setPassword(value(args, ++i, arg));
+                        break;
+                    case "--tls":
+                        settings.setSecure(true);
+                        break;
+                    case "--implicit":
+                        settings.setSecure(true);
+                        settings.setImplicitTls(true);
+                        break;
+                    case "--tls-protocol":
+                        settings.setTlsProtocol(protocol(value(args, ++i, arg)));
+                        break;
+                    case "--cert":
+                        settings.setCertificatePath(value(args, ++i, arg));
+                        break;
+                    case "--connections":
+                        settings.setMaxConnections(Math.max(1, number(value(args, ++i, arg), arg)));
+                        break;
+                    case "--segments":
+                        segments = Math.max(1, number(value(args, ++i, arg), arg));
+                        break;
+                    case "--batch":
+                        batch = value(args, ++i, arg);
+                        break;
+                    case "--continue-on-error":
+                        continueOnError = true;
+                        break;
+                    case "--log-file":
+                        logFile = value(args, ++i, arg);
+                        break;
+                    case "--metrics-file":
+                        metricsFile = Paths.get(value(args, ++i, arg));
+                        break;
+                    case "--progress":
+                        progress = true;
+                        break;
+                    case "--compress":
+                        compress = true;
+                        break;
+                    case "--compress-level":
+                        compress = true;
+                        compressLevel = number(value(args, ++i, arg), arg);
+                        break;
+                    case "--verify":
+                        verifyOption(value(args, ++i, arg));
+                        break;
+                    case "--limit-rate":
+                        limitRate = rate(value(args, ++i, arg), arg);
+                        break;
+                    case "--transfer-limit-rate":
+                        transferLimitRate = rate(value(args, ++i, arg), arg);
+                        break;
+                    case "--streams":
+                        String count = value(args, ++i, arg);
+                        streams = count.equalsIgnoreCase("auto") ? 0 : Math.max(1, number(count, arg));
+                        break;
+                    case "-v":
+                    case "--verbose":
+                        verbose = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        usage(out);
+                        return EXIT_OK;
+                    default:
+                        throw new UsageException("Unknown option " + arg);
+                }
+            }
+            if (batch == null && command.isEmpty()) {
+                throw new UsageException("No command given");
+            }
+        } catch (UsageException e) {
+            err.println("Error: " + e.getMessage());
+            usage(err);
+            return EXIT_USAGE;
+        }
+
+        if (settings.getPassword().isEmpty() && System.getenv("FTPS_PASSWORD") != null) {
+            settings.setPassword(System.getenv("FTPS_PASSWORD"));
+        }
+        AppConfig config = AppConfig.loadDefault();
+        settings.applyConfig(config);
+        if (compress) {
+            settings.setCompression(true);
+            if (compressLevel > 0) {
+                settings.setCompressionLevel(compressLevel);
+            }
+        }
+        if (verify != null) {
+            settings.setVerify(verify);
+        }
+        if (verifyAlgorithm != null) {
+            settings.setChecksumAlgorithm(verifyAlgorithm);
+        }
+        if (streams != null) {
+            settings.setAdaptiveConcurrency(streams == 0);
+            settings.setMaxTransfersPerHost(streams);
+        }
+        LogFileWriter logWriter = null;
+        if (logFile != null) {
+            logBuffer = new LogBuffer();
+            try {
+                logWriter = new LogFileWriter(logBuffer, Paths.get(logFile),
+                    config.getLong(LogFileWriter.KEY_LOG_FILE_MAX_BYTES, LogFileWriter.DEFAULT_MAX_BYTES),
+                    config.getInt(LogFileWriter.KEY_LOG_FILE_COUNT, LogFileWriter.DEFAULT_FILE_COUNT));
+            } catch (IOException e) {
+                err.println("Cannot open log file " + logFile + ": " + e.getMessage());
+                return EXIT_USAGE;
+            }
+        }
+        session = new FtpSession(config, settings.getMaxConnections(), this::log);
+        BandwidthLimiter bandwidth = session.getTransferQueue().getBandwidthLimiter();
+        if (limitRate != null) {
+            bandwidth.setGlobalRate(limitRate);
+        }
+        if (transferLimitRate != null) {
+            bandwidth.setTransferRate(transferLimitRate);
+        }
+        try {
+            return batch != null ? runBatch(batch) : runCommand(command);
+        } finally {
+            session.close();
+            if (logWriter != null) {
+                logWriter.close();
+            }
+        }
+    }
+
+    /**
+     * Chạy từng dòng của batch file
+     */
+    private int runBatch(String path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            err.println("Cannot read batch file " + path + ": " + e.getMessage());
+            return EXIT_USAGE;
+        }
+        int result = EXIT_OK;
+        for (int number = 1; number <= lines.size(); number++) {
+            String line = lines.get(number - 1).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int code = runCommand(tokenize(line));
+            if (code != EXIT_OK) {
+                err.println(path + ":" + number + ": command failed: " + line);
+                result = code;
+                if (!continueOnError) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int runCommand(List<String> command) {
+        String name = command.get(0).toLowerCase(Locale.ROOT);
+        List<String> args = command.subList(1, command.size());
+        try {
+            return dispatch(name, args);
+        } finally {
+            if (session.isConnected()) {
+                writeMetrics();
+            }
+        }
+    }
+
+    private int dispatch(String name, List<String> args) {
+        try {
+            switch (name) {
+                case "connect":
+                case "open":
+                    connect(args);
+                    break;
+                case "ls":
+                case "dir":
+                    ls(args);
+                    break;
+                case "stat":
+                    stat(args);
+                    break;
+                case "get":
+                    get(args);
+                    break;
+                case "put":
+                    put(args);
+                    break;
+                case "mirror":
+                    return mirror(args);
+                case "limit":
+                    limit(args);
+                    break;
+                case "disconnect":
+                case "close":
+                    writeMetrics();
+                    session.disconnect();
+                    break;
+                default:
+                    throw new UsageException("Unknown command " + name);
+            }
+            return EXIT_OK;
+        } catch (UsageException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            err.println(name + ": " + e.getMessage());
+            return EXIT_FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println(name + ": interrupted");
+            return EXIT_FAILED;
+        }
+    }
+
+    private void connect(List<String> args) throws IOException, UsageException {
+        if (args.size() > 1) {
+            throw new UsageException("connect [host[:port]]");
+        }
+        if (!args.isEmpty()) {
+            String target = args.get(0);
+            int colon = target.lastIndexOf(':');
+            if (colon > 0) {
+                settings.setPort(number(target.substring(colon + 1), "connect"));
+                target = target.substring(0, colon);
+            }
+            settings.setHost(target);
+        }
+        if (settings.getHost().isEmpty()) {
+            throw new UsageException("No host - use --host or connect <host>");
+        }
+        FtpConnectionPool pool = session.connect(settings);
+        out.println("Connected to " + settings.getHost() + ":" + settings.getPort()
+            + (settings.isSecure() ? " (" + pool.getNegotiatedTls() + ")" : " (plain FTP)"));
+    }
+
+    /** Các command cần connection tự connect bằng options */
+    private void ensureConnected() throws IOException, UsageException {
+        if (!session.isConnected()) {
+            connect(Collections.emptyList());
+        }
+    }
+
+    private void ls(List<String> args) throws IOException, UsageException {
+        ensureConnected();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        for (FTPFile file : session.list(args.isEmpty() ? "" : args.get(0))) {
+            String time = file.getTimestamp() != null ? format.format(file.getTimestamp().getTime()) : "-";
+            out.printf("%s %12d %s %s%n", file.isDirectory() ? "d" : "-", file.getSize(), time,
+                file.getName() + (file.isDirectory() ? "/" : ""));
+        }
+    }
+
+    /**
+     * stat &lt;remote&gt;... hoặc stat @file (một path mỗi dòng) - một batch pipelined
+     */
+    private void stat(List<String> args) throws IOException, UsageException {
+        if (args.isEmpty()) {
+            throw new UsageException("stat <remote>... | stat @listfile");
+        }
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("@")) {
+                for (String line : Files.readAllLines(Paths.get(arg.substring(1)), StandardCharsets.UTF_8)) {
+                    if (!line.trim().isEmpty()) {
+                        paths.add(line.trim());
+                    }
+                }
+            } else {
+                paths.add(arg);
+            }
+        }
+        ensureConnected();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        int missing = 0;
+        for (Map.Entry<String, FTPFile> entry : session.stat(paths).entrySet()) {
+            FTPFile file = entry.getValue();
+            if (file == null) {
+                err.println("stat: not found: " + entry.getKey());
+                missing++;
+                continue;
+            }
+            String time = file.getTimestamp() != null ? format.format(file.getTimestamp().getTime()) : "-";
+            out.printf("%s %12d %s %s%n", file.isDirectory() ? "d" : "-", file.getSize(), time, entry.getKey());
+        }
+        if (missing > 0) {
+            throw new IOException(missing + " path(s) not found");
+        }
+    }
+
+    private void get(List<String> args) throws IOException, UsageException, InterruptedException {
+        if (args.isEmpty() || args.size() > 2) {
+            throw new UsageException("get <remote> [local]");
+        }
+        ensureConnected();
+        String remote = args.get(0);
+        String name = remote.substring(remote.lastIndexOf('/') + 1);
+        File local = args.size() > 1 ? new File(args.get(1)) : new File(name);
+        if (local.isDirectory()) {
+            local = new File(local, name);
+        }
+        Map<String, File> targets = new LinkedHashMap<>();
+        targets.put(remote, local);
+        await(session.download(targets, segments));
+    }
+
+    private void put(List<String> args) throws IOException, UsageException, InterruptedException {
+        if (args.isEmpty() || args.size() > 2) {
+            throw new UsageException("put <local> [remoteDir]");
+        }
+        File local = new File(args.get(0));
+        if (!local.isFile()) {
+            throw new IOException("Not a file: " + local);
+        }
+        ensureConnected();
+        await(session.upload(Collections.singletonList(local), args.size() > 1 ? args.get(1) : ""));
+    }
+
+    /**
+     * limit &lt;rate&gt; [transfer] - giới hạn global (mặc định) hoặc mặc định mỗi transfer
+     */
+    private void limit(List<String> args) throws UsageException {
+        boolean perTransfer = args.size() == 2 && args.get(1).equalsIgnoreCase("transfer");
+        if (args.isEmpty() || args.size() > 2 || (args.size() == 2 && !perTransfer)) {
+            throw new UsageException("limit <rate> [transfer]");
+        }
+        long bytesPerSecond = rate(args.get(0), "limit");
+        BandwidthLimiter bandwidth = session.getTransferQueue().getBandwidthLimiter();
+        if (perTransfer) {
+            bandwidth.setTransferRate(bytesPerSecond);
+        } else {
+            bandwidth.setGlobalRate(bytesPerSecond);
+        }
+        out.println((perTransfer ? "Per-transfer" : "Global") + " limit: " + BandwidthLimiter.formatRate(bytesPerSecond));
+    }
+
+    private int mirror(List<String> args) throws IOException, UsageException, InterruptedException {
+        SyncEngine.Mode mode = SyncEngine.Mode.UPLOAD;
+        SyncEngine.Compare compare = SyncEngine.Compare.SIZE_MTIME;
+        boolean delete = false;
+        boolean dryRun = false;
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            switch (arg) {
+                case "--download":
+                    mode = SyncEngine.Mode.DOWNLOAD;
+                    break;
+                case "--both":
+                    mode = SyncEngine.Mode.BOTH;
+                    break;
+                case "--delete":
+                    delete = true;
+                    break;
+                case "--checksum":
+                    compare = SyncEngine.Compare.CHECKSUM;
+                    break;
+                case "--dry-run":
+                    dryRun = true;
+                    break;
+                default:
+                    paths.add(arg);
+            }
+        }
+        if (paths.size() != 2) {
+            throw new UsageException("mirror [--download|--both] [--delete] [--checksum] [--dry-run] <local> <remote>");
+        }
+        ensureConnected();
+        SyncEngine engine = session.newSync(new File(paths.get(0)), paths.get(1));
+        engine.setMode(mode);
+        engine.setCompare(compare);
+        engine.setDeleteExtraneous(delete);
+        SyncPlan plan = engine.plan();
+        if (dryRun) {
+            out.print(plan.describe(Integer.MAX_VALUE));
+            return EXIT_OK;
+        }
+        out.println(plan.summary());
+        if (plan.isEmpty()) {
+            return plan.count(SyncPlan.ActionType.CONFLICT) == 0 ? EXIT_OK : EXIT_FAILED;
+        }
+        await(engine.execute(plan, session.getTransferQueue()));
+        return plan.count(SyncPlan.ActionType.CONFLICT) == 0 ? EXIT_OK : EXIT_FAILED;
+    }
+
+    /**
+     * Chờ transfers xong, in kết quả từng job
+     *
+     * @throws IOException nếu có job không COMPLETED
+     */
+    private void await(List<TransferJob> jobs) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Thread reporter = progress ? startProgressReporter(jobs) : null;
+        boolean ok;
+        try {
+            ok = session.awaitCompletion(jobs);
+        } finally {
+            if (reporter != null) {
+                reporter.interrupt();
+                reporter.join();
+                err.println();
+            }
+        }
+        long bytes = 0;
+        int failed = 0;
+        for (TransferJob job : jobs) {
+            bytes += job.getBytesTransferred();
+            if (job.getState() != TransferJob.State.COMPLETED) {
+                failed++;
+                err.println((job.getDirection() == TransferJob.Direction.UPLOAD ? "put " : "get ")
+                    + job.getRemotePath() + ": " + job.getState() + " " + job.getMessage());
+            }
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        out.printf("%d file(s), %d KB in %d ms (%d KB/s)%n", jobs.size() - failed, bytes / 1024, millis,
+            bytes * 1000 / 1024 / millis);
+        if (!ok) {
+            throw new IOException(failed + " transfer(s) failed");
+        }
+    }
+
+    /**
+     * --progress: một dòng trên stderr mỗi giây (ghi đè bằng \r)
+     */
+    private Thread startProgressReporter(List<TransferJob> jobs) {
+        Thread reporter = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(1000);
+                    err.print("\r" + progressLine(jobs));
+                    err.flush();
+                }
+            } catch (InterruptedException e) {
+                err.print("\r" + progressLine(jobs));
+            }
+        }, "cli-progress");
+        reporter.setDaemon(true);
+        reporter.start();
+        return reporter;
+    }
+
+    /**
+     * @return "3/10 files, 45/120 MB, 8.2 MB/s, ETA 9 s"
+     */
+    static String progressLine(List<TransferJob> jobs) {
+        int finished = 0;
+        long bytes = 0;
+        long size = 0;
+        boolean sizeKnown = true;
+        double rate = 0;
+        for (TransferJob job : jobs) {
+            if (job.isFinished()) {
+                finished++;
+            }
+            bytes += job.getBytesTransferred();
+            sizeKnown &= job.getExpectedSize() >= 0;
+            size += Math.max(0, job.getExpectedSize());
+            rate += job.getRate();
+        }
+        String line = finished + "/" + jobs.size() + " files, " + (bytes >> 20)
+            + (sizeKnown ? "/" + (size >> 20) : "") + " MB, " + RateMeter.format(rate);
+        if (sizeKnown && rate > 0) {
+            line += ", ETA " + (long) Math.ceil(Math.max(0, size - bytes) / rate) + " s";
+        }
+        return line + "    ";
+    }
+
+    /**
+     * Ghi snapshot metrics (--metrics-file). Lỗi chỉ được báo, không làm command fail.
+     */
+    private void writeMetrics() {
+        if (metricsFile == null) {
+            return;
+        }
+        try {
+            session.getMetricsExporter().writeFile(metricsFile);
+        } catch (IOException e) {
+            err.println("Cannot write metrics to " + metricsFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Log của engine: stderr khi --verbose, file khi --log-file
+     * (stdout chỉ chứa kết quả)
+     */
+    private void log(String message) {
+        if (logBuffer != null) {
+            logBuffer.accept(message);
+        }
+        if (verbose) {
+            err.println(message);
+        }
+    }
+
+    /**
+     * Tách dòng batch theo khoảng trắng, giữ nguyên phần trong "..."
+     */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+                any = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (any) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    any = false;
+                }
+            } else {
+                current.append(c);
+                any = true;
+            }
+        }
+        if (any) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static String value(String[] args, int index, String option) throws UsageException {
+        if (index >= args.length) {
+            throw new UsageException(option + " requires a value");
+        }
+        return args[index];
+    }
+
+    private static int number(String value, String option) throws UsageException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException(option + ": invalid number " + value);
+        }
+    }
+
+    private static long rate(String value, String option) throws UsageException {
+        try {
+            return BandwidthLimiter.parseRate(value);
+        } catch (IllegalArgumentException e) {
+            throw new UsageException(option + ": invalid rate " + value + " (e.g. 512k, 10m, 0)");
+        }
+    }
+
+    private static TlsPolicy.Protocol protocol(String value) throws UsageException {
+        // "auto", "1.3", "TLSv1.2", "tls13" ...
+        String normalized = value.toUpperCase(Locale.ROOT).replace("TLSV", "").replace("TLS", "").replace(".", "");
+        for (TlsPolicy.Protocol protocol : TlsPolicy.Protocol.values()) {
+            if (protocol.name().replace("TLS", "").equals(normalized)) {
+                return protocol;
+            }
+        }
+        throw new UsageException("--tls-protocol: expected auto, 1.3 or 1.2");
+    }
+
+    /**
+     * "off", "size", "checksum" hoặc tên thuật toán ("sha256", "crc32c",
+     * "xxh64"...) - tên thuật toán ngầm bật checksum
+     */
+    private void verifyOption(String value) throws UsageException {
+        String normalized = value.toUpperCase(Locale.ROOT).replace("-", "");
+        for (TransferVerifier.Mode mode : TransferVerifier.Mode.values()) {
+            if (mode.name().equals(normalized)) {
+                verify = mode;
+                return;
+            }
+        }
+        for (RemoteChecksum.Algorithm algorithm : RemoteChecksum.Algorithm.values()) {
+            if (algorithm.name().equals(normalized)) {
+                verify = TransferVerifier.Mode.CHECKSUM;
+                verifyAlgorithm = algorithm;
+                return;
+            }
+        }
+        throw new UsageException("--verify: expected off, size, checksum, sha256, crc32c or xxh64");
+    }
+
+    private static void usage(PrintStream stream) {
+        stream.println("Usage: ftps-cli [options] <command> [args...]");
+        stream.println("       ftps-cli [options] --batch <script>");
+        stream.println();
+        stream.println("Options:");
+        stream.println("  --host <host>          Server host");
+        stream.println("  --port <port>          Server port (default 21)");
+        stream.println("  --user <name>          Username");
+        stream.println("  --password <password>  Password (or FTPS_PASSWORD environment variable)");
+        stream.println("  --tls                  Explicit FTPS (AUTH TLS)");
+        stream.println("  --implicit             Implicit FTPS");
+        stream.println("  --tls-protocol <p>     auto, 1.3 or 1.2");
+        stream.println("  --cert <file>          Trusted certificate / trust store");
+        stream.println("  --connections <n>      Max connections and parallel transfers (default "
+            + DEFAULT_CLI_CONNECTIONS + ")");
+        stream.println("  --segments <n>         Parallel segments per download (default 1)");
+        stream.println("  --continue-on-error    Keep running a batch after a failed command");
+        stream.println("  --progress             Live progress, rate and ETA on stderr");
+        stream.println("  --compress             MODE Z (deflate) transfers when the server supports it");
+        stream.println("  --compress-level <n>   Deflate level 1-9 for uploads (implies --compress, default "
+            + DataCompression.DEFAULT_LEVEL + ")");
+        stream.println("  --verify <mode>        off, size, checksum (default) or a preferred hash:");
+        stream.println("                         sha256, crc32c, xxh64 - mismatches are re-transferred");
+        stream.println("  --streams <auto|n>     Parallel transfers per server: tuned from throughput and 421");
+        stream.println("                         replies (default, up to --connections - 1) or fixed at n");
+        stream.println("  --limit-rate <rate>    Total bandwidth for all transfers, e.g. 512k, 10m (0 = unlimited)");
+        stream.println("  --transfer-limit-rate <rate>  Bandwidth per transfer");
+        stream.println("  --metrics-file <file>  Write metrics after each command (.json or Prometheus text)");
+        stream.println("  --log-file <file>      Append the protocol log to a rotating file");
+        stream.println("  -v, --verbose          Protocol log on stderr");
+        stream.println();
+        stream.println("Commands:");
+        stream.println("  connect [host[:port]]");
+        stream.println("  ls [path]");
+        stream.println("  stat <remote>... | stat @listfile");
+        stream.println("  get <remote> [local]");
+        stream.println("  put <local> [remoteDir]");
+        stream.println("  mirror [--download|--both] [--delete] [--checksum] [--dry-run] <local> <remote>");
+        stream.println("  limit <rate> [transfer]");
+        stream.println("  disconnect");
+        stream.println();
+        stream.println("Exit codes: 0 success, 1 command failed, 2 usage error");
+    }
+}
@@ -0,0 +1,295 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.net.ftp.FTPSClient;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.function.Consumer;
+
+/**
+ * 🏭 FTP Connection Factory - Tạo control connection đã sẵn sàng sử dụng
+ *
+ * Mỗi connection đi qua đúng trình tự như ConnectAction ban đầu:
+ *
+ * 1. connect(host, port) - kiểm tra reply 2xx
+ *    (FTPS: AUTH TLS, hoặc TLS ngay khi connect nếu implicit)
+ * 2. login(username, password)
+ * 3. PASV - passive mode cho firewall compatibility
+ *    + TYPE I - binary mode (REST offsets và SIZE tính theo bytes thật)
+ * 4. PBSZ 0 - thiết lập secure data channel (chỉ FTPS)
+ * 5. PROT P - bật data encryption (chỉ FTPS)
+ * 6. FEAT - chỉ trên connection đầu tiên, kết quả dùng chung (ServerFeatures)
+ *    + OPTS MLST type;size;modify;UNIX.mode; (facts server quảng bá) nếu
+ *      server hỗ trợ MLSD
+ *
+ * TrustManager và SSLContext được tạo một lần cho cả factory: certificate
+ * file không bị đọc lại mỗi khi pool mở thêm connection, và mọi connection
+ * dùng chung client session cache - control connections sau và mọi data
+ * connection resume TLS session thay vì full handshake.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpConnectionPool
+ */
+public class FtpConnectionFactory {
+    private final ConnectionSettings settings;
+    private final Consumer<String> log;
+    private final SSLContext sslContext;
+    private final TlsMetrics tlsMetrics = new TlsMetrics();
+    private final String[] tlsProtocols;
+    private final String[] cipherSuites;
+    private volatile String negotiatedTls = "";
+    private volatile ServerFeatures serverFeatures;
+
+    /**
+     * @param settings Thông số kết nối
+     * @param log Callback ghi log (thread-safe)
+     * @throws IOException nếu không khởi tạo được SSLContext (FTPS)
+     */
+    public FtpConnectionFactory(ConnectionSettings settings, Consumer<String> log) throws IOException {
+        this.settings = settings;
+        this.log = log;
+
+        this.sslContext = settings.isSecure() ? createSslContext() : null;
+        if (sslContext != null) {
+            this.tlsProtocols = TlsPolicy.enabledProtocols(sslContext, settings.getTlsProtocol());
+            this.cipherSuites = TlsPolicy.orderedCipherSuites(sslContext, settings.getCipherPreference());
+            log.accept("🔒 TLS protocols: " + String.join(", ", tlsProtocols) + " - "
+                + (TlsPolicy.prefersAes(settings.getCipherPreference()) ? "AES-GCM" : "ChaCha20")
+                + " preferred (hardware AES: " + (TlsPolicy.hasHardwareAes() ? "yes" : "no") + ")");
+        } else {
+            this.tlsProtocols = null;
+            this.cipherSuites = null;
+        }
+    }
+
+    /**
+     * SSLContext dùng chung cho mọi connection (trust custom certificate
+     * nếu có, ngược lại accept-all như ConnectAction ban đầu - demo server
+     * dùng self-signed certificate)
+     *
+     * @throws TrustStoreException nếu certificate file không load được
+     */
+    private SSLContext createSslContext() throws IOException {
+        String certPath = settings.getCertificatePath();
+        String password = settings.getTrustStorePassword();
+        TrustManager[] trustManagers = CertificateManager.createTrustManager(certPath,
+            password.isEmpty() ? null : password.toCharArray());
+        if (trustManagers[0] instanceof CertificateManager.PinnedTrustManager) {
+            log.accept("Using custom certificate: " + new File(certPath).getName() + " ("
+                + ((CertificateManager.PinnedTrustManager) trustManagers[0]).getCertificateCount()
+                + " trusted certificates)");
+        }
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, trustManagers, null);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot initialize TLS: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return Protocol và cipher suite đã negotiate trên control connection
+     *         gần nhất, ví dụ "TLSv1.3, TLS_AES_128_GCM_SHA256" ("" nếu plain FTP)
+     */
+    public String getNegotiatedTls() {
+        return negotiatedTls;
+    }
+
+    /** @return Handshake counters của mọi connection tạo bởi factory này */
+    public TlsMetrics getTlsMetrics() {
+        return tlsMetrics;
+    }
+
+    public ConnectionSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return FEAT của server, ServerFeatures.NONE trước khi connection
+     *         đầu tiên được tạo
+     */
+    public ServerFeatures getServerFeatures() {
+        ServerFeatures features = serverFeatures;
+        return features == null ? ServerFeatures.NONE : features;
+    }
+
+    /**
+     * Mở connection mới và chạy toàn bộ login sequence
+     *
+     * @param verbose true để log từng bước (AUTH TLS, PBSZ, PROT) -
+     *                dùng cho connection đầu tiên để demo protocol
+     * @return FTPClient đã login, passive mode, PROT P nếu secure
+     * @throws IOException nếu connect/login thất bại
+     */
+    public FTPClient create(boolean verbose) throws IOException {
+        FTPClient client;
+        if (settings.isSecure()) {
+            ChannelFTPSClient ftpsClient = new ChannelFTPSClient(settings.isImplicitTls(), sslContext, tlsMetrics);
+            ftpsClient.setEnabledProtocols(tlsProtocols);
+            ftpsClient.setEnabledCipherSuites(cipherSuites);
+            ftpsClient.setDataTcpNoDelay(settings.isTcpNoDelay());
+            client = ftpsClient;
+            if (verbose) {
+                log.accept(settings.isImplicitTls()
+                    ? "🔒 Implicit TLS - Handshake on connect..."
+                    : "🔒 AUTH TLS - Initiating secure handshake...");
+            }
+        } else {
+            ChannelFTPClient plainClient = new ChannelFTPClient();
+            plainClient.setDataTcpNoDelay(settings.isTcpNoDelay());
+            client = plainClient;
+            if (verbose) log.accept("⚠️ Plain FTP connection - NO ENCRYPTION (INSECURE)");
+        }
+        applyTuning(client);
+
+        try {
+            client.connect(settings.getHost(), settings.getPort());
+            client.setTcpNoDelay(settings.isTcpNoDelay());
+            if (verbose) {
+                log.accept("Connecting to " + settings.getHostKey() + " ("
+                    + (settings.isSecure() ? "FTPS" : "Plain FTP") + ")");
+            }
+
+            if (!FTPReply.isPositiveCompletion(client.getReplyCode())) {
+                throw new IOException("Connection failed: " + client.getReplyString().trim());
+            }
+            if (verbose) log.accept("Connected: " + client.getReplyString().trim());
+            if (client instanceof ChannelFTPSClient) {
+                SSLSession session = ((ChannelFTPSClient) client).getControlSession();
+                if (session != null) {
+                    negotiatedTls = session.getProtocol() + ", " + session.getCipherSuite();
+                    if (verbose) log.accept("🔒 Negotiated " + negotiatedTls);
+                }
+            }
+
+            if (!client.login(settings.getUsername(), settings.getPassword())) {
+                throw new IOException("Login failed: " + client.getReplyString().trim());
+            }
+            if (verbose) log.accept("Login successful");
+
+            client.enterLocalPassiveMode();
+            if (verbose) log.accept("PASV - Entering passive mode");
+            if (!client.setFileType(FTP.BINARY_FILE_TYPE)) {
+                throw new IOException("TYPE I failed: " + client.getReplyString().trim());
+            }
+
+            if (client instanceof FTPSClient) {
+                FTPSClient ftpsClient = (FTPSClient) client;
+                ftpsClient.execPBSZ(0);
+                if (verbose) log.accept("🔒 PBSZ 0 - Setting up secure data channel...");
+                ftpsClient.execPROT("P");
+                if (verbose) log.accept("🔒 PROT P - Data channel encryption ENABLED");
+            } else {
+                // Data sockets có SocketChannel → transferTo zero-copy
+                client.setSocketFactory(new ChannelSocketFactory());
+            }
+            negotiateFeatures(client);
+            client.setSoTimeout(0);
+            return client;
+        } catch (IOException e) {
+            destroy(client);
+            throw e;
+        }
+    }
+
+    /**
+     * FEAT một lần cho cả factory (mọi connection cùng server), sau đó chọn
+     * MLST facts cần thiết trên từng connection
+     */
+    private void negotiateFeatures(FTPClient client) throws IOException {
+        if (serverFeatures == null) {
+            ServerFeatures features = client.features()
+                ? ServerFeatures.parse(client.getReplyStrings()) : ServerFeatures.NONE;
+            serverFeatures = features;
+            log.accept("FEAT - " + features);
+        }
+        if (serverFeatures.supportsMlsd()) {
+            // UNIX.mode: permissions cho tree, search và RemoteIndex
+            String facts = serverFeatures.mlstFacts("type", "size", "modify", "UNIX.mode");
+            if (!facts.isEmpty()) {
+                client.sendCommand("OPTS", "MLST " + facts);
+            }
+        }
+    }
+
+    /** @return Thời gian chờ reply cho NOOP/QUIT - connect timeout */
+    private int controlTimeout() {
+        return (int) Math.min(Integer.MAX_VALUE, settings.getConnectTimeoutMillis());
+    }
+
+    /**
+     * Buffer sizes cho data connections (áp dụng trước khi connect data socket
+     * để TCP window scaling có hiệu lực)
+     */
+    private void applyTuning(FTPClient client) {
+        client.setBufferSize(settings.getTransferBufferSize());
+        // Timeout chỉ áp dụng cho login sequence (server treo không giữ thread mãi) -
+        // reset về 0 sau login vì HASH/LIST trên server chậm có thể mất nhiều phút
+        int connectTimeout = (int) Math.min(Integer.MAX_VALUE, settings.getConnectTimeoutMillis());
+        client.setConnectTimeout(connectTimeout);
+        client.setDefaultTimeout(connectTimeout);
+        if (settings.getSocketSendBufferSize() > 0) {
+            client.setSendDataSocketBufferSize(settings.getSocketSendBufferSize());
+        }
+        if (settings.getSocketReceiveBufferSize() > 0) {
+            client.setReceieveDataSocketBufferSize(settings.getSocketReceiveBufferSize());
+        }
+    }
+
+    /**
+     * NOOP health check với soTimeout = connect timeout: sau login soTimeout
+     * là 0 (chờ vô hạn), server treo sẽ giữ thread borrow/keepalive mãi.
+     * soTimeout cũ được trả lại sau NOOP.
+     *
+     * @return true nếu server trả lời 2xx trong thời hạn
+     */
+    public boolean ping(FTPClient client) {
+        if (!client.isConnected()) {
+            return false;
+        }
+        try {
+            int previous = client.getSoTimeout();
+            client.setSoTimeout(controlTimeout());
+            try {
+                return client.sendNoOp();
+            } finally {
+                client.setSoTimeout(previous);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Đóng connection một cách an toàn: QUIT (chờ reply tối đa connect
+     * timeout) rồi close socket. Mọi lỗi đều bị bỏ qua vì connection đang
+     * bị loại bỏ.
+     *
+     * @param client Connection cần đóng
+     */
+    public void destroy(FTPClient client) {
+        if (client == null || !client.isConnected()) {
+            return;
+        }
+        try {
+            client.setSoTimeout(controlTimeout());
+            client.logout();
+        } catch (IOException ignored) {
+            // Server có thể đã đóng control channel
+        }
+        try {
+            client.disconnect();
+        } catch (IOException ignored) {
+            // Socket đã đóng
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 🔁 FTP Connection Pool - Pool các control connection tái sử dụng
+ *
+ * Thay thế field ftpClient dùng chung: mỗi thao tác (LIST, STOR, RETR)
+ * borrow một connection riêng, dùng xong thì release lại pool. Nhờ vậy
+ * transfer và directory listing chạy song song mà không tranh nhau
+ * một control channel.
+ *
+ * TÍNH NĂNG:
+ * • Min/max size cấu hình qua ConnectionSettings
+ * • borrow()/release()/invalidate() - hoặc execute() cho gọn
+ * • releaseAfterFailure(): sau IOException chỉ giữ connection khi control
+ *   channel chắc chắn còn đồng bộ - không probe bằng NOOP (reply 226/426
+ *   của data command dở dang sẽ bị đọc nhầm thành reply của NOOP)
+ * • Idle eviction: đóng connection idle quá idleTimeout (giữ lại min)
+ * • Keepalive: gửi NOOP định kỳ cho idle connections, loại bỏ connection chết
+ * • Reconnect-on-failure: executeIdempotent() retry một lần với connection
+ *   mới khi control channel bị đứt - chỉ cho thao tác chạy lại được
+ *   (listing, SIZE, HASH); execute() không retry
+ * • DirectoryCache dùng chung: mỗi connection gắn một command tracker
+ *   để patch cache khi STOR/DELE/RNTO/MKD thành công
+ * • TransferMetrics: throughput, TTFB và command round-trip của server này
+ *
+ * THREAD SAFETY:
+ * Toàn bộ state được bảo vệ bởi một ReentrantLock. Network I/O
+ * (connect, NOOP, QUIT) luôn chạy ngoài lock.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpConnectionFactory
+ */
+public class FtpConnectionPool implements AutoCloseable {
+
+    /**
+     * Callback chạy với một connection đã borrow
+     *
+     * @param <T> Kiểu kết quả
+     */
+    @FunctionalInterface
+    public interface FtpCallback<T> {
+        T doWithClient(FTPClient client) throws IOException;
+    }
+
+    /** Idle connection cùng thời điểm được trả về pool */
+    private static final class IdleEntry {
+        final FTPClient client;
+        final long idleSince;
+
+        IdleEntry(FTPClient client, long idleSince) {
+            this.client = client;
+            this.idleSince = idleSince;
+        }
+    }
+
+    private final FtpConnectionFactory factory;
+    private final ConnectionSettings settings;
+    private final Consumer<String> log;
+    private final DirectoryCache directoryCache;
+    private final TransferMetrics transferMetrics = new TransferMetrics();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<IdleEntry> idle = new ArrayDeque<>();
+    private final Map<FTPClient, Boolean> borrowed = new IdentityHashMap<>();
+    private int totalConnections;
+    private boolean closed;
+    private boolean firstConnection = true;
+    /** Kết quả probe pipelining của server (null = chưa probe) */
+    private volatile Boolean pipeliningSupported;
+
+    private final ScheduledExecutorService maintenance;
+
+    /**
+     * @param factory Factory tạo connection (connect → login → PASV → PBSZ → PROT)
+     * @param log Callback ghi log
+     */
+    public FtpConnectionPool(FtpConnectionFactory factory, Consumer<String> log) {
+        this.factory = factory;
+        this.settings = factory.getSettings();
+        this.log = log;
+        this.directoryCache = new DirectoryCache(settings.getListingCacheTtlMillis(),
+            settings.getListingCacheEntries());
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ftp-pool-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Mở connection đầu tiên (verify credentials) và lấp đầy đến min size,
+     * sau đó bật maintenance task (idle eviction + NOOP keepalive)
+     *
+     * @throws IOException nếu connection đầu tiên thất bại
+     */
+    public void start() throws IOException {
+        FTPClient first = borrow();
+        try {
+            directoryCache.setHome(first.printWorkingDirectory());
+        } finally {
+            release(first);
+        }
+        ensureMinimum();
+
+        long interval = Math.max(1_000, settings.getKeepAliveIntervalMillis());
+        maintenance.scheduleWithFixedDelay(this::runMaintenance, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow một connection. Ưu tiên idle connection mới nhất (LIFO - socket
+     * còn "ấm"), mở connection mới nếu chưa đạt max, ngược lại chờ tối đa
+     * borrowTimeout.
+     *
+     * @return Connection dành riêng cho caller cho đến khi release/invalidate
+     * @throws IOException nếu pool đã đóng, hết thời gian chờ hoặc connect lỗi
+     */
+    public FTPClient borrow() throws IOException {
+        return borrow(true);
+    }
+
+    /**
+     * Borrow không chờ - dùng khi caller đã giữ một connection và chỉ muốn
+     * thêm connection nếu pool còn chỗ (ví dụ segmented download)
+     *
+     * @return Connection hoặc null nếu pool đã full
+     * @throws IOException nếu pool đã đóng hoặc connect lỗi
+     */
+    public FTPClient tryBorrow() throws IOException {
+        return borrow(false);
+    }
+
+    private FTPClient borrow(boolean wait) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getBorrowTimeoutMillis());
+        while (true) {
+            IdleEntry candidate = null;
+            boolean create = false;
+            boolean verbose = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new IOException("Connection pool is closed");
+                    }
+                    if (!idle.isEmpty()) {
+                        candidate = idle.pollFirst();
+                        borrowed.put(candidate.client, Boolean.TRUE);
+                        break;
+                    }
+                    if (totalConnections < settings.getMaxConnections()) {
+                        totalConnections++;
+                        create = true;
+                        verbose = firstConnection;
+                        firstConnection = false;
+                        break;
+                    }
+                    if (!wait) {
+                        return null;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new IOException("Timed out waiting for a free connection ("
+                            + settings.getMaxConnections() + " in use)");
+                    }
+                    available.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a connection", e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                return openNew(verbose);
+            }
+
+            // Connection idle lâu có thể đã bị server timeout - kiểm tra bằng NOOP
+            long idleFor = System.currentTimeMillis() - candidate.idleSince;
+            if (idleFor < settings.getKeepAliveIntervalMillis() || isHealthy(candidate.client)) {
+                return candidate.client;
+            }
+            log.accept("Pool: stale connection dropped, reconnecting...");
+            invalidate(candidate.client);
+        }
+    }
+
+    /**
+     * Trả connection về pool. Connection đã mất kết nối sẽ bị loại bỏ.
+     *
+     * @param client Connection đã borrow trước đó
+     */
+    public void release(FTPClient client) {
+        if (client == null) {
+            return;
+        }
+        boolean discard;
+        lock.lock();
+        try {
+            if (borrowed.remove(client) == null) {
+                return;
+            }
+            discard = closed || !client.isConnected();
+            if (discard) {
+                totalConnections--;
+            } else {
+                idle.addFirst(new IdleEntry(client, System.currentTimeMillis()));
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (discard) {
+            factory.destroy(client);
+        }
+    }
+
+    /**
+     * Loại bỏ connection bị lỗi (control channel hỏng, reply không đồng bộ...)
+     * thay vì trả về pool
+     *
+     * @param client Connection đã borrow trước đó
+     */
+    public void invalidate(FTPClient client) {
+        if (client == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (borrowed.remove(client) == null) {
+                return;
+            }
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        factory.destroy(client);
+    }
+
+    /**
+     * Sau khi thao tác trên connection ném IOException: trả về pool nếu
+     * control channel còn đồng bộ (server chỉ từ chối command - 550...),
+     * ngược lại loại bỏ. Không gửi NOOP để kiểm tra.
+     *
+     * @param client Connection đã borrow trước đó
+     * @param error Lỗi vừa xảy ra
+     * @return true nếu connection được giữ lại
+     */
+    public boolean releaseAfterFailure(FTPClient client, IOException error) {
+        if (isReusable(client, error)) {
+            release(client);
+            return true;
+        }
+        invalidate(client);
+        return false;
+    }
+
+    /**
+     * Connection còn dùng được sau lỗi khi: còn connect, không có reply
+     * của data command đang nợ, và lỗi không phải lỗi mạng/timeout (reply
+     * của command cuối có thể chưa được đọc)
+     */
+    static boolean isReusable(FTPClient client, IOException error) {
+        if (client == null || !client.isConnected()) {
+            return false;
+        }
+        if (client instanceof DataChannelClient && ((DataChannelClient) client).isReplyPending()) {
+            return false;
+        }
+        return !(error instanceof FTPConnectionClosedException || error instanceof SocketException
+            || error instanceof InterruptedIOException || error instanceof SSLException
+            || error instanceof EOFException);
+    }
+
+    /**
+     * Borrow → chạy callback → release. Không retry: callback có thể đã
+     * có tác dụng trên server (DELE, MKD, STOR...) trước khi lỗi.
+     *
+     * @param callback Thao tác FTP cần chạy
+     * @return Kết quả của callback
+     * @throws IOException nếu callback thất bại
+     */
+    public <T> T execute(FtpCallback<T> callback) throws IOException {
+        FTPClient client = borrow();
+        try {
+            T result = callback.doWithClient(client);
+            release(client);
+            return result;
+        } catch (IOException e) {
+            releaseAfterFailure(client, e);
+            throw e;
+        } catch (RuntimeException e) {
+            invalidate(client);
+            throw e;
+        }
+    }
+
+    /**
+     * Như execute(), nhưng nếu connection bị đứt (hoặc mất đồng bộ) giữa
+     * chừng thì callback được chạy lại một lần trên connection mới
+     * (reconnect-on-failure). Chỉ dùng cho thao tác chạy lại không đổi kết
+     * quả: listing, SIZE, MDTM, HASH.
+     *
+     * @param callback Thao tác FTP idempotent
+     * @return Kết quả của callback
+     * @throws IOException nếu server từ chối, hoặc cả hai lần đều thất bại
+     */
+    public <T> T executeIdempotent(FtpCallback<T> callback) throws IOException {
+        FTPClient client = borrow();
+        try {
+            T result = callback.doWithClient(client);
+            release(client);
+            return result;
+        } catch (IOException e) {
+            if (releaseAfterFailure(client, e)) {
+                // Lỗi ở tầng ứng dụng (file không tồn tại...) - chạy lại cũng vậy
+                throw e;
+            }
+            log.accept("Pool: connection lost (" + e.getMessage() + "), retrying on a new connection");
+        } catch (RuntimeException e) {
+            invalidate(client);
+            throw e;
+        }
+
+        return execute(callback);
+    }
+
+    /** @return Tổng số connection đang mở (idle + borrowed) */
+    public int getTotalConnections() {
+        lock.lock();
+        try {
+            return totalConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return Số connection đang idle trong pool */
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public ConnectionSettings getSettings() {
+        return settings;
+    }
+
+    /** @return FEAT của server (lấy khi mở connection đầu tiên) */
+    public ServerFeatures getServerFeatures() {
+        return factory.getServerFeatures();
+    }
+
+    /** @return Protocol + cipher suite đã negotiate ("" nếu plain FTP) */
+    public String getNegotiatedTls() {
+        return factory.getNegotiatedTls();
+    }
+
+    /** @return TLS handshake counters (chỉ có số liệu với FTPS) */
+    public TlsMetrics getTlsMetrics() {
+        return factory.getTlsMetrics();
+    }
+
+    /** @return true/false sau khi CommandPipeline probe server, null nếu chưa */
+    public Boolean getPipeliningSupported() {
+        return pipeliningSupported;
+    }
+
+    void setPipeliningSupported(boolean supported) {
+        pipeliningSupported = supported;
+    }
+
+    /** @return Throughput, TTFB và command latency của server này */
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
+
+    /** @return Directory listing cache của server này */
+    public DirectoryCache getDirectoryCache() {
+        return directoryCache;
+    }
+
+    /**
+     * Đóng pool: dừng maintenance, QUIT tất cả idle connections.
+     * Connection đang borrowed sẽ bị đóng khi được release.
+     */
+    @Override
+    public void close() {
+        List<IdleEntry> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            totalConnections -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        maintenance.shutdownNow();
+        for (IdleEntry entry : toClose) {
+            factory.destroy(entry.client);
+        }
+    }
+
+    /**
+     * Mở connection mới cho slot đã được reserve trong totalConnections
+     */
+    private FTPClient openNew(boolean verbose) throws IOException {
+        FTPClient client;
+        try {
+            client = factory.create(verbose);
+            client.addProtocolCommandListener(directoryCache.newCommandTracker());
+            client.addProtocolCommandListener(transferMetrics.newCommandTracker());
+        } catch (IOException | RuntimeException e) {
+            lock.lock();
+            try {
+                totalConnections--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            if (!closed) {
+                borrowed.put(client, Boolean.TRUE);
+                if (!verbose) {
+                    log.accept("Pool: opened connection " + totalConnections + "/" + settings.getMaxConnections());
+                }
+                return client;
+            }
+            totalConnections--;
+        } finally {
+            lock.unlock();
+        }
+        factory.destroy(client);
+        throw new IOException("Connection pool is closed");
+    }
+
+    /**
+     * NOOP health check - true nếu server trả lời 2xx trong connect timeout
+     */
+    private boolean isHealthy(FTPClient client) {
+        return factory.ping(client);
+    }
+
+    /**
+     * Maintenance task:
+     * 1. Đóng connection idle quá idleTimeout (vẫn giữ tối thiểu minConnections)
+     * 2. NOOP keepalive cho các idle connection còn lại
+     * 3. Mở lại connection cho đủ min size
+     */
+    private void runMaintenance() {
+        List<IdleEntry> expired = new ArrayList<>();
+        List<IdleEntry> toPing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            // Deque chứa connection mới nhất ở đầu - duyệt từ cuối (cũ nhất)
+            while (!idle.isEmpty() && totalConnections > settings.getMinConnections()
+                    && now - idle.peekLast().idleSince > settings.getIdleTimeoutMillis()) {
+                expired.add(idle.pollLast());
+                totalConnections--;
+            }
+            // Tạm lấy idle connections ra khỏi pool để ping mà không bị borrow đồng thời
+            while (!idle.isEmpty()) {
+                IdleEntry entry = idle.pollFirst();
+                borrowed.put(entry.client, Boolean.TRUE);
+                toPing.add(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (IdleEntry entry : expired) {
+            factory.destroy(entry.client);
+        }
+        if (!expired.isEmpty()) {
+            log.accept("Pool: closed " + expired.size() + " idle connection(s)");
+        }
+
+        for (IdleEntry entry : toPing) {
+            if (isHealthy(entry.client)) {
+                lock.lock();
+                try {
+                    borrowed.remove(entry.client);
+                    if (closed) {
+                        totalConnections--;
+                    } else {
+                        // Giữ nguyên idleSince để idle eviction vẫn tính đúng
+                        idle.addLast(entry);
+                        available.signal();
+                        continue;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                factory.destroy(entry.client);
+            } else {
+                log.accept("Pool: keepalive NOOP failed, dropping connection");
+                invalidate(entry.client);
+            }
+        }
+
+        try {
+            ensureMinimum();
+        } catch (IOException e) {
+            log.accept("Pool: reconnect failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mở thêm connection cho đến khi totalConnections >= minConnections
+     */
+    private void ensureMinimum() throws IOException {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || totalConnections >= settings.getMinConnections()) {
+                    return;
+                }
+                totalConnections++;
+            } finally {
+                lock.unlock();
+            }
+            release(openNew(false));
+        }
+    }
+}
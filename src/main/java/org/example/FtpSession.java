@@ -0,0 +1,373 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * ⚙️ FTP Session - Engine dùng chung cho Swing GUI và headless CLI
+ *
+ * Gom toàn bộ logic protocol/transfer không phụ thuộc giao diện:
+ * • Connect / disconnect (connection pool của một server profile)
+ * • Bandwidth limits: ftps.rateLimit / ftps.rateSchedule / ftps.transferRateLimit
+ *   cho cả queue, ftps.hostRateLimit cho server vừa connect
+ * • List thư mục, stat hàng loạt (CommandPipeline), upload / download qua TransferQueue
+ * • Resume transfers từ journal, sync/mirror, remote index
+ * • NetworkExecutor cho mọi thao tác blocking (virtual threads nếu có)
+ * • MetricsExporter: JSON/Prometheus qua loopback HTTP (ftps.metricsPort) hoặc file
+ *
+ * Không import AWT/Swing - FtpCli dùng class này mà không load AWT.
+ * Front end chỉ lo input và hiển thị (log callback, dialog, stdout).
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FTPSFileManager
+ * @see FtpCli
+ */
+public class FtpSession implements AutoCloseable {
+    private final AppConfig config;
+    private final TransferJournal journal;
+    private final TransferQueue transferQueue;
+    private final Consumer<String> log;
+    private final NetworkExecutor executor;
+    private final MetricsExporter metricsExporter;
+    /** connect() gán pool / disconnect() gỡ pool dưới lock này - cancel không để lọt pool mở */
+    private final Object poolLock = new Object();
+    private volatile FtpConnectionPool pool;
+
+    /**
+     * @param config Persistent settings (tuning keys được apply khi connect)
+     * @param transferWorkers Số transfer chạy đồng thời
+     * @param log Callback ghi log (thread-safe)
+     */
+    public FtpSession(AppConfig config, int transferWorkers, Consumer<String> log) {
+        this.config = config;
+        this.log = log;
+        this.executor = new NetworkExecutor("ftp-io", NetworkExecutor.DEFAULT_PLATFORM_THREADS);
+        this.journal = openJournal();
+        this.transferQueue = new TransferQueue(transferWorkers, TransferQueue.Ordering.FIFO, journal,
+            executor, log);
+        this.transferQueue.getBandwidthLimiter().applyConfig(config);
+        this.transferQueue.addListener(job -> {
+            if (job.isFinished()) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        });
+        this.metricsExporter = new MetricsExporter(this::getPool, transferQueue);
+        startMetricsEndpoint();
+    }
+
+    /**
+     * Mở HTTP endpoint nếu ftps.metricsPort &gt; 0. Port bận chỉ tắt endpoint.
+     */
+    private void startMetricsEndpoint() {
+        int port = config.getInt(MetricsExporter.KEY_METRICS_PORT, 0);
+        if (port <= 0) {
+            return;
+        }
+        try {
+            metricsExporter.start(port);
+            log.accept("Metrics: http://127.0.0.1:" + port + "/metrics (.json for JSON)");
+        } catch (IOException e) {
+            log.accept("Metrics endpoint disabled: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mở transfer journal ở ~/.ftps-file-manager. Lỗi không chặn app -
+     * chỉ tắt tính năng resume.
+     */
+    private TransferJournal openJournal() {
+        try {
+            return new TransferJournal(TransferJournal.defaultPath());
+        } catch (IOException e) {
+            log.accept("Transfer journal disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Kết nối tới server (đóng connection cũ nếu có). Connection đầu tiên
+     * chạy đủ sequence connect → login → PASV → PBSZ → PROT trong một
+     * Scope với deadline ftps.connectTimeoutMillis - hết giờ hoặc thread
+     * gọi bị interrupt (user bấm Cancel) thì pool bị đóng.
+     *
+     * @param settings Settings từ form/command line - tuning keys của AppConfig được apply trước đó
+     * @return Pool mới
+     * @throws TrustStoreException nếu certificate/trust store không đọc được
+     * @throws IOException nếu connect/login lỗi, hết deadline hoặc bị cancel
+     */
+    public FtpConnectionPool connect(ConnectionSettings settings) throws IOException {
+        disconnect();
+        log.accept("Connecting to " + settings.getHost() + "...");
+        FtpConnectionPool connected = new FtpConnectionPool(new FtpConnectionFactory(settings, log), log);
+        try (NetworkExecutor.Scope scope = executor.scope("connect", settings.getConnectTimeoutMillis())) {
+            scope.fork("login", () -> {
+                connected.start();
+                return null;
+            });
+            scope.join();
+        } catch (IOException | RuntimeException e) {
+            connected.close();
+            throw e;
+        }
+        synchronized (poolLock) {
+            // Cancel đến sau khi login xong nhưng trước khi gán pool
+            if (Thread.currentThread().isInterrupted()) {
+                connected.close();
+                throw new InterruptedIOException("Connect cancelled");
+            }
+            pool = connected;
+        }
+        transferQueue.getBandwidthLimiter().setHostRate(settings.getHostKey(), settings.getHostRateLimit());
+        log.accept("Connection pool ready (max " + settings.getMaxConnections() + " connections)");
+        return connected;
+    }
+
+    /**
+     * Hủy transfers của server hiện tại và đóng mọi connection
+     */
+    public void disconnect() {
+        FtpConnectionPool current;
+        synchronized (poolLock) {
+            current = pool;
+            pool = null;
+        }
+        if (current != null) {
+            transferQueue.cancelAll(current);
+            current.close();
+            log.accept("Disconnected");
+        }
+    }
+
+    /** @return Pool đang kết nối, null nếu chưa connect */
+    public FtpConnectionPool getPool() {
+        return pool;
+    }
+
+    public boolean isConnected() {
+        return pool != null;
+    }
+
+    public AppConfig getConfig() {
+        return config;
+    }
+
+    public TransferQueue getTransferQueue() {
+        return transferQueue;
+    }
+
+    /** @return Exporter JSON/Prometheus của pool hiện tại và transfer queue */
+    public MetricsExporter getMetricsExporter() {
+        return metricsExporter;
+    }
+
+    /** @return Executor cho mọi thao tác blocking của front end */
+    public NetworkExecutor getExecutor() {
+        return executor;
+    }
+
+    /** @return Pool hiện tại */
+    private FtpConnectionPool requirePool() throws IOException {
+        FtpConnectionPool current = pool;
+        if (current == null) {
+            throw new IOException("Not connected");
+        }
+        return current;
+    }
+
+    /**
+     * List một thư mục (MLSD nếu server hỗ trợ, ngược lại LIST)
+     *
+     * @param path Thư mục remote ("" = home directory)
+     */
+    public List<FTPFile> list(String path) throws IOException {
+        FtpConnectionPool current = requirePool();
+        return current.executeIdempotent(client -> DirectoryLister.list(client, current.getServerFeatures(), path,
+            chunk -> { }, log));
+    }
+
+    /**
+     * Metadata của nhiều path trong ít round trip (pipelining hoặc rải
+     * trên các connection của pool)
+     *
+     * @param paths Remote paths
+     * @return path → FTPFile, null nếu không tồn tại
+     */
+    public Map<String, FTPFile> stat(List<String> paths) throws IOException {
+        return newPipeline().stat(paths);
+    }
+
+    /**
+     * @return Pipeline cho các batch command read-only (SIZE, MDTM, MLST, HASH...)
+     */
+    public CommandPipeline newPipeline() throws IOException {
+        return new CommandPipeline(requirePool(), executor, log);
+    }
+
+    /**
+     * Queue upload các local files vào một thư mục remote
+     *
+     * @param files Local files (thư mục bị bỏ qua - dùng sync cho thư mục)
+     * @param remoteDirectory Thư mục đích ("" = home directory)
+     * @return Jobs đã submit
+     */
+    public List<TransferJob> upload(List<File> files, String remoteDirectory) throws IOException {
+        FtpConnectionPool current = requirePool();
+        List<TransferJob> jobs = new ArrayList<>();
+        for (File file : files) {
+            if (file.isFile()) {
+                jobs.add(new TransferJob(TransferJob.Direction.UPLOAD, file,
+                    RemoteWalker.join(remoteDirectory, file.getName()), current));
+            }
+        }
+        log.accept("STOR - Queued " + jobs.size() + " file(s) for upload");
+        transferQueue.submitAll(jobs);
+        return jobs;
+    }
+
+    /**
+     * Queue download các remote files
+     *
+     * @param targets Remote path → local file (theo thứ tự submit)
+     * @param segments Số segment song song cho file lớn (1 = tắt)
+     * @return Jobs đã submit
+     */
+    public List<TransferJob> download(Map<String, File> targets, int segments) throws IOException {
+        FtpConnectionPool current = requirePool();
+        List<TransferJob> jobs = new ArrayList<>();
+        for (Map.Entry<String, File> target : targets.entrySet()) {
+            TransferJob job = new TransferJob(TransferJob.Direction.DOWNLOAD, target.getValue(), target.getKey(), current);
+            job.setSegments(segments);
+            jobs.add(job);
+        }
+        log.accept("RETR - Queued " + jobs.size() + " file(s) for download"
+            + (segments > 1 ? " (" + segments + " segments each)" : ""));
+        transferQueue.submitAll(jobs);
+        return jobs;
+    }
+
+    /**
+     * @return Transfers bị gián đoạn (crash, restart) của server đang kết nối
+     */
+    public List<TransferJournal.Entry> pendingResumes() {
+        FtpConnectionPool current = pool;
+        if (journal == null || current == null) {
+            return new ArrayList<>();
+        }
+        return journal.pending(current.getSettings().getHostKey());
+    }
+
+    /**
+     * Submit lại các transfer trong journal
+     *
+     * @return Jobs đã submit
+     */
+    public List<TransferJob> resume(List<TransferJournal.Entry> entries) throws IOException {
+        FtpConnectionPool current = requirePool();
+        List<TransferJob> jobs = new ArrayList<>();
+        for (TransferJournal.Entry entry : entries) {
+            jobs.add(new TransferJob(entry.getDirection(), new File(entry.getLocalPath()),
+                entry.getRemotePath(), current));
+        }
+        transferQueue.submitAll(jobs);
+        return jobs;
+    }
+
+    /**
+     * @return SyncEngine cho server đang kết nối (caller set mode/compare rồi plan/execute)
+     */
+    public SyncEngine newSync(File localRoot, String remoteRoot) throws IOException {
+        return new SyncEngine(requirePool(), executor, localRoot, remoteRoot, log);
+    }
+
+    /**
+     * Block cho đến khi mọi job kết thúc
+     *
+     * @return true nếu mọi job COMPLETED
+     */
+    public boolean awaitCompletion(List<TransferJob> jobs) throws InterruptedException {
+        synchronized (this) {
+            while (!allFinished(jobs)) {
+                wait(1000);
+            }
+        }
+        for (TransferJob job : jobs) {
+            if (job.getState() != TransferJob.State.COMPLETED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allFinished(List<TransferJob> jobs) {
+        for (TransferJob job : jobs) {
+            if (!job.isFinished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Map index của server profile. Index hỏng chỉ bị bỏ qua (build lại sau).
+     */
+    public RemoteIndex openIndex(ConnectionSettings settings) {
+        try {
+            return RemoteIndex.open(RemoteIndex.pathFor(settings));
+        } catch (IOException e) {
+            log.accept("Index: " + e.getMessage() + " - rebuilding");
+            return RemoteIndex.EMPTY;
+        }
+    }
+
+    /**
+     * @return true nếu index chưa có hoặc cũ hơn ftps.indexMaxAgeMinutes
+     */
+    public static boolean isStale(RemoteIndex index, ConnectionSettings settings) {
+        long maxAge = settings.getIndexMaxAgeMinutes() * 60_000;
+        return index.isEmpty() || System.currentTimeMillis() - index.getCreatedMillis() >= maxAge;
+    }
+
+    /**
+     * Walk toàn bộ server và ghi lại index (block - gọi từ background thread)
+     *
+     * @param pool Pool của server (không dùng pool hiện tại để tránh đổi server giữa chừng)
+     * @param parallelism Số listing song song
+     */
+    public RemoteIndex rebuildIndex(FtpConnectionPool pool, int parallelism) throws IOException {
+        RemoteIndex.Builder entries = new RemoteIndex.Builder();
+        RemoteWalker walker = new RemoteWalker(pool, executor, log);
+        walker.setParallelism(parallelism);
+        walker.walk("", (path, file, depth) -> entries.add(path, file));
+        RemoteIndex rebuilt = entries.write(RemoteIndex.pathFor(pool.getSettings()));
+        log.accept("Index: " + rebuilt.size() + " entries saved");
+        return rebuilt;
+    }
+
+    /**
+     * Disconnect, dừng transfer workers và đóng journal
+     */
+    @Override
+    public void close() {
+        disconnect();
+        transferQueue.close();
+        executor.close();
+        metricsExporter.close();
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.accept("Journal close failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 📈 Latency Histogram - Histogram log-linear kiểu HdrHistogram
+ *
+ * • Giá trị lưu theo microsecond, mỗi lũy thừa của 2 chia thành
+ *   SUB_BUCKETS bucket tuyến tính → sai số tương đối ≤ 1/16 (~6%)
+ * • Bộ nhớ cố định (~5 KB) dù ghi hàng triệu giá trị, dải 1 µs đến ~12 ngày
+ * • record() lock-free (AtomicLongArray) - gọi từ mọi worker thread
+ * • Percentile trả về cận trên của bucket (như highestEquivalentValue
+ *   của HdrHistogram), không vượt quá max thật
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferMetrics
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** 2^40 µs ≈ 12 ngày - giá trị lớn hơn được ghi vào bucket cuối */
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Ghi một latency
+     *
+     * @param nanos Thời gian đo bằng System.nanoTime()
+     */
+    public void record(long nanos) {
+        long micros = Math.min(MAX_VALUE, Math.max(0, nanos / 1_000));
+        counts.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /** Giá trị &lt; 16 µs: một bucket mỗi µs; còn lại (exponent, 4 bit kế tiếp) */
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** @return Giá trị lớn nhất (µs) rơi vào bucket */
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + sub) << shift) + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /** @return Tổng latency (ms) - cho Prometheus _sum */
+    public double getSumMillis() {
+        return sumMicros.get() / 1e3;
+    }
+
+    /** @return Latency trung bình (ms), 0 nếu chưa có */
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : sumMicros.get() / 1e3 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1e3;
+    }
+
+    /**
+     * @param percentile 0-100, ví dụ 99.9
+     * @return Latency (ms) mà percentile% giá trị không vượt quá, 0 nếu chưa có
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, percentile) / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros.get()) / 1e3;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * @return "p50 1.2 / p99 8.4 / max 12.0 ms (n=340)"
+     */
+    @Override
+    public String toString() {
+        return String.format("p50 %.1f / p99 %.1f / max %.1f ms (n=%d)",
+            getPercentileMillis(50), getPercentileMillis(99), getMaxMillis(), getCount());
+    }
+}
@@ -0,0 +1,191 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 🪵 Log Buffer - Ring buffer lock-free cho log entries
+ *
+ * • Producer (worker threads) ghi bằng một getAndIncrement + một set -
+ *   không lock, không invokeLater mỗi dòng
+ * • Dung lượng cố định (lũy thừa của 2): entry cũ nhất bị ghi đè, bộ nhớ
+ *   không tăng theo thời gian chạy
+ * • Consumer (LogPanel, LogFileWriter) giữ cursor riêng (sequence number)
+ *   và đọc theo batch bằng drain()
+ *
+ * Không phụ thuộc AWT - dùng chung cho GUI và CLI.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see LogPanel
+ * @see LogFileWriter
+ */
+public final class LogBuffer implements Consumer<String> {
+
+    /** Mặc định 8192 entries (~1-2 MB) */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** Mức log - dùng cho filter trong LogPanel */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR;
+
+        /**
+         * Đoán level từ message của các callback Consumer&lt;String&gt; hiện có:
+         * lỗi → ERROR, retry/cancel/⚠️ → WARN, dòng protocol (MLSD, LIST,
+         * RETR, PBSZ...) → DEBUG, còn lại INFO
+         */
+        public static Level infer(String message) {
+            String lower = message.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("error") || lower.contains("failed") || lower.contains(" error")) {
+                return ERROR;
+            }
+            if (message.contains("⚠️") || lower.contains("retry") || lower.contains("cancel")
+                    || lower.contains("disabled") || lower.contains("stale")) {
+                return WARN;
+            }
+            return isProtocolLine(message) ? DEBUG : INFO;
+        }
+
+        /** "MLSD /x - Retrieved 20 entries", "PASV - ...", "Pool: ..." */
+        private static boolean isProtocolLine(String message) {
+            int end = 0;
+            while (end < message.length() && end < 5 && Character.isUpperCase(message.charAt(end))) {
+                end++;
+            }
+            return (end >= 3 && end <= 4 && (end == message.length() || message.charAt(end) == ' '))
+                || message.startsWith("Pool: ") || message.startsWith("Walker: ");
+        }
+    }
+
+    /**
+     * Một dòng log (immutable)
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final long timestamp;
+        private final Level level;
+        private final String thread;
+        private final String message;
+
+        Entry(long sequence, long timestamp, Level level, String thread, String message) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.level = level;
+            this.thread = thread;
+            this.message = message;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /** @return Thời điểm ghi (ms UTC) */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        /** @return Tên thread đã ghi entry */
+        public String getThread() {
+            return thread;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return message;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    /** Sequence tiếp theo sẽ được cấp (= tổng số entry đã ghi) */
+    private final AtomicLong next = new AtomicLong();
+
+    public LogBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Số entry giữ lại (làm tròn lên lũy thừa của 2)
+     */
+    public LogBuffer(int capacity) {
+        int size = capacity <= 16 ? 16 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /** Ghi một dòng với level đoán từ nội dung */
+    @Override
+    public void accept(String message) {
+        log(Level.infer(message), message);
+    }
+
+    /**
+     * Ghi một dòng (thread-safe, không block)
+     */
+    public void log(Level level, String message) {
+        long sequence = next.getAndIncrement();
+        slots.set((int) (sequence & mask), new Entry(sequence, System.currentTimeMillis(), level,
+            Thread.currentThread().getName(), message));
+    }
+
+    /** @return Sequence sẽ được cấp cho entry tiếp theo */
+    public long getNextSequence() {
+        return next.get();
+    }
+
+    /**
+     * Đọc các entry từ sequence {@code from} trở đi
+     *
+     * @param from Sequence đầu tiên cần đọc (cursor của consumer)
+     * @param max Số entry tối đa
+     * @param sink Nhận entries theo thứ tự
+     * @return Cursor mới. Nếu consumer chậm hơn capacity, các entry đã bị
+     *         ghi đè được bỏ qua (cursor nhảy tới entry cũ nhất còn lại).
+     *         Dừng ở slot producer đã cấp sequence nhưng chưa set xong.
+     */
+    public long drain(long from, int max, Consumer<Entry> sink) {
+        long end = next.get();
+        long cursor = Math.max(from, end - slots.length());
+        int count = 0;
+        while (cursor < end && count < max) {
+            Entry entry = slots.get((int) (cursor & mask));
+            if (entry == null || entry.sequence < cursor) {
+                break;
+            }
+            if (entry.sequence > cursor) {
+                // Slot đã bị ghi đè bởi vòng sau - nhảy tới phần còn giữ
+                cursor = Math.max(cursor + 1, next.get() - slots.length());
+                continue;
+            }
+            sink.accept(entry);
+            cursor++;
+            count++;
+        }
+        return cursor;
+    }
+
+    /**
+     * @return Snapshot các entry còn trong buffer, cũ trước
+     */
+    public List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>(slots.length());
+        drain(0, slots.length(), entries::add);
+        return entries;
+    }
+}
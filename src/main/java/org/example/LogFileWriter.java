@@ -0,0 +1,202 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 📝 Log File Writer - Ghi LogBuffer ra file ở background, có rotation
+ *
+ * • Thread "log-writer" drain buffer mỗi FLUSH_INTERVAL_MILLIS - producer
+ *   không bao giờ chờ disk
+ * • File vượt maxBytes → ftps.log → ftps.log.1 → ... → ftps.log.N (bỏ file cũ nhất)
+ * • Writer chậm hơn buffer (disk rất chậm) → ghi một dòng "N entries dropped"
+ *   thay vì giữ lại bộ nhớ
+ * • close() đánh thức thread bằng unpark, không interrupt, và file mở qua
+ *   FileOutputStream: FileChannel bị interrupt sẽ tự đóng
+ *   (ClosedByInterruptException) và mất các entry cuối
+ * • maxBytes tính theo bytes UTF-8 thật sự ghi ra, không theo số ký tự
+ *
+ * Bật bằng ftps.logFile=true (GUI) hoặc --log-file (CLI).
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see LogBuffer
+ */
+public final class LogFileWriter implements AutoCloseable {
+    public static final String KEY_LOG_FILE = "ftps.logFile";
+    public static final String KEY_LOG_FILE_MAX_BYTES = "ftps.logFileMaxBytes";
+    public static final String KEY_LOG_FILE_COUNT = "ftps.logFileCount";
+
+    public static final long DEFAULT_MAX_BYTES = 5L * 1024 * 1024;
+    public static final int DEFAULT_FILE_COUNT = 5;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    private static final int BATCH_SIZE = 4096;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final LogBuffer buffer;
+    private final Path file;
+    private final long maxBytes;
+    private final int fileCount;
+    private final Thread thread;
+    private volatile boolean closed;
+    private long cursor;
+    private OutputStream out;
+    private long written;
+
+    /**
+     * @param buffer Buffer nguồn - chỉ các entry ghi sau thời điểm này được lưu
+     * @param file File log hiện tại (thư mục được tạo nếu chưa có)
+     * @param maxBytes Kích thước trước khi rotate
+     * @param fileCount Số file cũ giữ lại
+     */
+    public LogFileWriter(LogBuffer buffer, Path file, long maxBytes, int fileCount) throws IOException {
+        this.buffer = buffer;
+        this.file = file;
+        this.maxBytes = Math.max(64 * 1024, maxBytes);
+        this.fileCount = Math.max(1, fileCount);
+        this.cursor = buffer.getNextSequence();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        open();
+        this.thread = new Thread(this::run, "log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return ~/.ftps-file-manager/logs/ftps.log
+     */
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("user.home"), ".ftps-file-manager", "logs", "ftps.log");
+    }
+
+    /**
+     * Tạo writer theo settings.properties
+     *
+     * @return null nếu ftps.logFile không bật
+     */
+    public static LogFileWriter fromConfig(LogBuffer buffer, AppConfig config) throws IOException {
+        if (!config.getBoolean(KEY_LOG_FILE, false)) {
+            return null;
+        }
+        return new LogFileWriter(buffer, defaultPath(), config.getLong(KEY_LOG_FILE_MAX_BYTES, DEFAULT_MAX_BYTES),
+            config.getInt(KEY_LOG_FILE_COUNT, DEFAULT_FILE_COUNT));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void open() throws IOException {
+        out = new BufferedOutputStream(new FileOutputStream(file.toFile(), true), 64 * 1024);
+        written = Files.size(file);
+    }
+
+    private void run() {
+        while (!closed) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS));
+            flush();
+        }
+    }
+
+    /**
+     * Ghi mọi entry mới ra disk (chỉ gọi trên thread log-writer, hoặc sau khi thread dừng)
+     */
+    private synchronized void flush() {
+        try {
+            while (true) {
+                long before = cursor;
+                long next = buffer.drain(cursor, BATCH_SIZE, this::write);
+                if (next == before) {
+                    break;
+                }
+                cursor = Math.max(cursor, next);
+            }
+            out.flush();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Log file write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi một entry; sequence nhảy cóc nghĩa là buffer đã ghi đè phần writer chưa kịp đọc
+     */
+    private void write(LogBuffer.Entry entry) {
+        try {
+            if (entry.getSequence() > cursor) {
+                writeLine(TIME_FORMAT.format(Instant.now()) + " WARN  [log-writer] "
+                    + (entry.getSequence() - cursor) + " entries dropped (writer fell behind)");
+            }
+            cursor = entry.getSequence() + 1;
+            writeLine(TIME_FORMAT.format(Instant.ofEpochMilli(entry.getTimestamp())) + " "
+                + String.format("%-5s", entry.getLevel()) + " [" + entry.getThread() + "] " + entry.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        if (written >= maxBytes) {
+            rotate();
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.write(LINE_SEPARATOR);
+        written += bytes.length + LINE_SEPARATOR.length;
+    }
+
+    /**
+     * ftps.log.(N-1) → ftps.log.N, ..., ftps.log → ftps.log.1
+     */
+    private void rotate() throws IOException {
+        out.close();
+        Files.deleteIfExists(Paths.get(file + "." + fileCount));
+        for (int i = fileCount - 1; i >= 1; i--) {
+            Path source = Paths.get(file + "." + i);
+            if (Files.exists(source)) {
+                Files.move(source, Paths.get(file + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    /**
+     * Ghi nốt các entry còn lại rồi đóng file
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(2_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            flush();
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.err.println("Log file close failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.example;
+
+import javax.swing.*;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 📜 Log Panel - View ảo hóa của LogBuffer
+ *
+ * • Timer của Swing flush theo frame (FRAME_MILLIS): mỗi frame drain mọi
+ *   entry mới thành một fireIntervalAdded - không còn một invokeLater mỗi dòng
+ * • JList với fixed cell height: chỉ các dòng đang hiển thị được render,
+ *   không đo chiều cao từng dòng như JTextArea
+ * • Model giữ tối đa capacity của buffer - dòng cũ nhất bị bỏ khi đầy
+ * • Filter theo level (DEBUG để xem từng FTP command)
+ * • Chỉ tự cuộn xuống cuối khi user đang ở cuối danh sách
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see LogBuffer
+ */
+public class LogPanel extends JPanel {
+    /** ~30 frame/giây */
+    private static final int FRAME_MILLIS = 33;
+
+    private final LogBuffer buffer;
+    private final EntryListModel listModel;
+    private final JList<LogBuffer.Entry> list;
+    private final JComboBox<LogBuffer.Level> levelBox = new JComboBox<>(LogBuffer.Level.values());
+    private final JLabel countLabel = new JLabel();
+    private long cursor;
+
+    /**
+     * @param buffer Buffer nguồn (ghi từ mọi thread)
+     */
+    public LogPanel(LogBuffer buffer) {
+        super(new BorderLayout());
+        this.buffer = buffer;
+        this.listModel = new EntryListModel(buffer.getCapacity());
+        setBorder(BorderFactory.createTitledBorder("FTP Command Log"));
+
+        list = new JList<>(listModel);
+        list.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        list.setCellRenderer(new EntryRenderer());
+        list.setFixedCellHeight(list.getFontMetrics(list.getFont()).getHeight() + 2);
+        add(new JScrollPane(list), BorderLayout.CENTER);
+
+        levelBox.setSelectedItem(LogBuffer.Level.DEBUG);
+        levelBox.addActionListener(e -> reload());
+        JButton clearButton = new JButton("Clear");
+        clearButton.addActionListener(e -> {
+            listModel.clear();
+            updateCount();
+        });
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        controls.add(new JLabel("Level:"));
+        controls.add(levelBox);
+        controls.add(clearButton);
+        controls.add(countLabel);
+        add(controls, BorderLayout.SOUTH);
+
+        new Timer(FRAME_MILLIS, e -> flush()).start();
+    }
+
+    /**
+     * Một frame: lấy mọi entry mới từ buffer, append một lần
+     */
+    private void flush() {
+        if (cursor == buffer.getNextSequence()) {
+            return;
+        }
+        boolean atBottom = isAtBottom();
+        LogBuffer.Level minimum = (LogBuffer.Level) levelBox.getSelectedItem();
+        List<LogBuffer.Entry> batch = new ArrayList<>();
+        cursor = buffer.drain(cursor, buffer.getCapacity(), entry -> {
+            if (entry.getLevel().compareTo(minimum) >= 0) {
+                batch.add(entry);
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        listModel.addAll(batch);
+        updateCount();
+        if (atBottom) {
+            list.ensureIndexIsVisible(listModel.getSize() - 1);
+        }
+    }
+
+    /**
+     * Đổi level filter: dựng lại model từ những gì buffer còn giữ
+     */
+    private void reload() {
+        listModel.clear();
+        cursor = 0;
+        flush();
+        updateCount();
+        if (listModel.getSize() > 0) {
+            list.ensureIndexIsVisible(listModel.getSize() - 1);
+        }
+    }
+
+    private boolean isAtBottom() {
+        int size = listModel.getSize();
+        return size == 0 || list.getLastVisibleIndex() >= size - 2 || list.getLastVisibleIndex() < 0;
+    }
+
+    private void updateCount() {
+        countLabel.setText(listModel.getSize() + " lines");
+    }
+
+    /**
+     * List model dạng ring: thêm ở cuối, bỏ ở đầu khi vượt capacity
+     */
+    private static final class EntryListModel extends AbstractListModel<LogBuffer.Entry> {
+        private final int capacity;
+        private final ArrayDeque<LogBuffer.Entry> entries = new ArrayDeque<>();
+        /** ArrayDeque không có get(index) - snapshot được dựng lại lười sau mỗi thay đổi */
+        private LogBuffer.Entry[] view = new LogBuffer.Entry[0];
+        private boolean dirty;
+
+        EntryListModel(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public int getSize() {
+            return entries.size();
+        }
+
+        @Override
+        public LogBuffer.Entry getElementAt(int index) {
+            if (dirty) {
+                view = entries.toArray(new LogBuffer.Entry[0]);
+                dirty = false;
+            }
+            return view[index];
+        }
+
+        void addAll(List<LogBuffer.Entry> batch) {
+            int removed = 0;
+            for (LogBuffer.Entry entry : batch) {
+                entries.addLast(entry);
+                if (entries.size() > capacity) {
+                    entries.removeFirst();
+                    removed++;
+                }
+            }
+            dirty = true;
+            if (removed > 0) {
+                fireIntervalRemoved(this, 0, removed - 1);
+            }
+            int added = batch.size() - removed;
+            if (added > 0) {
+                fireIntervalAdded(this, entries.size() - added, entries.size() - 1);
+            } else {
+                fireContentsChanged(this, 0, entries.size() - 1);
+            }
+        }
+
+        void clear() {
+            int size = entries.size();
+            entries.clear();
+            dirty = true;
+            if (size > 0) {
+                fireIntervalRemoved(this, 0, size - 1);
+            }
+        }
+    }
+
+    /**
+     * "12:30:01.123 Message" - WARN màu cam, ERROR màu đỏ, DEBUG màu xám
+     */
+    private static final class EntryRenderer extends DefaultListCellRenderer {
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        private final Date date = new Date();
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            LogBuffer.Entry entry = (LogBuffer.Entry) value;
+            date.setTime(entry.getTimestamp());
+            super.getListCellRendererComponent(list, timeFormat.format(date) + " " + entry.getMessage(),
+                index, isSelected, cellHasFocus);
+            if (!isSelected) {
+                switch (entry.getLevel()) {
+                    case ERROR:
+                        setForeground(new Color(200, 0, 0));
+                        break;
+                    case WARN:
+                        setForeground(new Color(200, 110, 0));
+                        break;
+                    case DEBUG:
+                        setForeground(Color.GRAY);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return this;
+        }
+    }
+}
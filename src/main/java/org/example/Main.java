@@ -21,17 +21,29 @@ package org.example;
  * 2. Chạy client: gradlew.bat run
  * 3. Tick/untick "🔒 Enable TLS" để so sánh bảo mật
  * 
+ * HEADLESS MODE:
+ * • Có arguments hoặc -Djava.awt.headless=true → FtpCli (không load AWT)
+ * • Ví dụ: gradlew.bat run --args="--host localhost --user u ls"
+ * 
  * @author Demo Application
  * @version 1.0
  * @see FTPSFileManager Main GUI application
+ * @see FtpCli Headless command line
  */
 public class Main {
     /**
-     * Application entry point - khởi động FTPS File Manager GUI
+     * Application entry point - GUI khi không có arguments, ngược lại CLI
+     * 
+     * FTPSFileManager chỉ được load khi thực sự mở GUI - nhánh CLI không
+     * chạm tới class nào của AWT/Swing.
      * 
-     * @param args Command line arguments (không sử dụng)
+     * @param args Command line arguments (xem FtpCli)
      */
     public static void main(String[] args) {
-        FTPSFileManager.main(args);
+        if (args.length > 0 || Boolean.getBoolean("java.awt.headless")) {
+            FtpCli.main(args);
+        } else {
+            FTPSFileManager.main(args);
+        }
     }
-}
\ No newline at end of file
+}
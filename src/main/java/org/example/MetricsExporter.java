@@ -0,0 +1,343 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * 📤 Metrics Exporter - Xuất TransferMetrics dạng JSON hoặc Prometheus text
+ *
+ * • HTTP endpoint chỉ bind 127.0.0.1 (ftps.metricsPort, 0 = tắt):
+ *   /metrics (Prometheus text 0.0.4) và /metrics.json
+ * • writeFile(): ghi snapshot ra file (.json → JSON, còn lại Prometheus) -
+ *   ghi file tạm rồi move để node_exporter textfile collector không đọc dở
+ * • Số liệu lấy từ pool đang kết nối (throughput, TTFB, command RTT, TLS)
+ *   và TransferQueue (số job theo state, progress các job đang chạy, số
+ *   transfer song song ConcurrencyController đang chọn)
+ *
+ * Không phụ thuộc AWT - dùng chung cho GUI và CLI.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferMetrics
+ * @see FtpSession
+ */
+public final class MetricsExporter implements AutoCloseable {
+    public static final String KEY_METRICS_PORT = "ftps.metricsPort";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final Supplier<FtpConnectionPool> pool;
+    private final TransferQueue queue;
+    private HttpServer server;
+    private ExecutorService httpExecutor;
+
+    /**
+     * @param pool Pool hiện tại (null khi chưa connect)
+     * @param queue Transfer queue của session
+     */
+    public MetricsExporter(Supplier<FtpConnectionPool> pool, TransferQueue queue) {
+        this.pool = pool;
+        this.queue = queue;
+    }
+
+    /**
+     * Mở HTTP endpoint trên loopback
+     *
+     * @param port Port (0 = chọn port trống)
+     * @return Port thực tế
+     * @throws IOException nếu port đã bị dùng
+     */
+    public synchronized int start(int port) throws IOException {
+        if (server != null) {
+            return server.getAddress().getPort();
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpExecutor = Executors.newSingleThreadExecutor(NetworkExecutor.threadFactory("metrics-http"));
+        server.setExecutor(httpExecutor);
+        server.createContext("/metrics", exchange -> {
+            boolean json = exchange.getRequestURI().getPath().endsWith(".json");
+            byte[] body = (json ? toJson() : toPrometheus()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                json ? "application/json; charset=utf-8" : "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Ghi snapshot ra file (atomic move)
+     *
+     * @param file *.json → JSON, còn lại → Prometheus text
+     */
+    public void writeFile(Path file) throws IOException {
+        boolean json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, ".metrics", ".tmp");
+        try {
+            Files.write(temp, (json ? toJson() : toPrometheus()).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** @return Số job theo state */
+    private Map<TransferJob.State, Integer> countJobs(List<TransferJob> jobs) {
+        Map<TransferJob.State, Integer> counts = new EnumMap<>(TransferJob.State.class);
+        for (TransferJob.State state : TransferJob.State.values()) {
+            counts.put(state, 0);
+        }
+        for (TransferJob job : jobs) {
+            counts.merge(job.getState(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * @return Prometheus text exposition format
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        List<TransferJob> jobs = queue.getJobs();
+
+        out.append("# HELP ftps_queue_jobs Jobs in the transfer queue by state\n");
+        out.append("# TYPE ftps_queue_jobs gauge\n");
+        for (Map.Entry<TransferJob.State, Integer> count : countJobs(jobs).entrySet()) {
+            sample(out, "ftps_queue_jobs", "state=\"" + lower(count.getKey()) + "\"", count.getValue());
+        }
+        out.append("# HELP ftps_transfer_rate_bytes Bytes per second of running transfers\n");
+        out.append("# TYPE ftps_transfer_rate_bytes gauge\n");
+        for (TransferJob job : jobs) {
+            if (job.getState() == TransferJob.State.RUNNING) {
+                sample(out, "ftps_transfer_rate_bytes", "id=\"" + job.getId() + "\",direction=\""
+                    + lower(job.getDirection()) + "\",path=\"" + escape(job.getRemotePath()) + "\"", job.getRate());
+            }
+        }
+
+        FtpConnectionPool current = pool.get();
+        if (current == null) {
+            return out.toString();
+        }
+        TransferMetrics metrics = current.getTransferMetrics();
+        String host = "host=\"" + escape(current.getSettings().getHostKey()) + "\"";
+
+        out.append("# HELP ftps_pool_connections Open control connections\n");
+        out.append("# TYPE ftps_pool_connections gauge\n");
+        sample(out, "ftps_pool_connections", host + ",state=\"total\"", current.getTotalConnections());
+        sample(out, "ftps_pool_connections", host + ",state=\"idle\"", current.getIdleConnections());
+        ConcurrencyController concurrency = queue.getConcurrency(current.getSettings().getHostKey());
+        if (concurrency != null) {
+            out.append("# HELP ftps_transfer_streams Parallel transfers: running, current limit and ceiling\n");
+            out.append("# TYPE ftps_transfer_streams gauge\n");
+            sample(out, "ftps_transfer_streams", host + ",kind=\"running\"",
+                queue.getRunningTransfers(current.getSettings().getHostKey()));
+            sample(out, "ftps_transfer_streams", host + ",kind=\"limit\"", concurrency.getLimit());
+            sample(out, "ftps_transfer_streams", host + ",kind=\"ceiling\"", concurrency.getCeiling());
+        }
+
+        out.append("# HELP ftps_bytes_total Bytes transferred since connect\n");
+        out.append("# TYPE ftps_bytes_total counter\n");
+        sample(out, "ftps_bytes_total", host + ",direction=\"upload\"", metrics.getUploadRate().getTotal());
+        sample(out, "ftps_bytes_total", host + ",direction=\"download\"", metrics.getDownloadRate().getTotal());
+        out.append("# HELP ftps_rate_bytes Moving-window throughput in bytes per second\n");
+        out.append("# TYPE ftps_rate_bytes gauge\n");
+        sample(out, "ftps_rate_bytes", host + ",direction=\"upload\"", metrics.getUploadRate().getRate());
+        sample(out, "ftps_rate_bytes", host + ",direction=\"download\"", metrics.getDownloadRate().getRate());
+        out.append("# HELP ftps_transfers_total Finished transfers since connect\n");
+        out.append("# TYPE ftps_transfers_total counter\n");
+        sample(out, "ftps_transfers_total", host + ",result=\"completed\"", metrics.getCompletedTransfers());
+        sample(out, "ftps_transfers_total", host + ",result=\"failed\"", metrics.getFailedTransfers());
+        out.append("# HELP ftps_compression_bytes_total Bytes of MODE Z transfers before (raw) and after (wire) deflate\n");
+        out.append("# TYPE ftps_compression_bytes_total counter\n");
+        sample(out, "ftps_compression_bytes_total", host + ",stage=\"raw\"", metrics.getCompressionRawBytes());
+        sample(out, "ftps_compression_bytes_total", host + ",stage=\"wire\"", metrics.getCompressionWireBytes());
+        out.append("# HELP ftps_verifications_total Post-transfer checksum/SIZE checks against the server\n");
+        out.append("# TYPE ftps_verifications_total counter\n");
+        sample(out, "ftps_verifications_total", host + ",result=\"ok\"", metrics.getVerifiedTransfers());
+        sample(out, "ftps_verifications_total", host + ",result=\"mismatch\"", metrics.getIntegrityFailures());
+
+        summary(out, "ftps_ttfb_seconds", "Time to first data byte", host, metrics.getTimeToFirstByte());
+        if (current.getSettings().isSecure()) {
+            summary(out, "ftps_tls_handshake_seconds", "TLS handshake latency", host,
+                current.getTlsMetrics().getHandshakeLatency());
+        }
+        out.append("# HELP ftps_command_rtt_seconds Control command round-trip latency\n");
+        out.append("# TYPE ftps_command_rtt_seconds summary\n");
+        for (Map.Entry<String, LatencyHistogram> command : metrics.getCommandLatency().entrySet()) {
+            summaryValues(out, "ftps_command_rtt_seconds", host + ",command=\"" + escape(command.getKey()) + "\"",
+                command.getValue());
+        }
+        return out.toString();
+    }
+
+    private static void summary(StringBuilder out, String name, String help, String labels,
+                                LatencyHistogram histogram) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        summaryValues(out, name, labels, histogram);
+    }
+
+    private static void summaryValues(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        for (double quantile : QUANTILES) {
+            sample(out, name, labels + ",quantile=\"" + quantile + "\"",
+                histogram.getPercentileMillis(quantile * 100) / 1e3);
+        }
+        sample(out, name + "_sum", labels, histogram.getSumMillis() / 1e3);
+        sample(out, name + "_count", labels, histogram.getCount());
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.6g", value));
+        }
+        out.append('\n');
+    }
+
+    /**
+     * @return JSON snapshot (một object, không cần thư viện JSON)
+     */
+    public String toJson() {
+        StringBuilder out = new StringBuilder("{");
+        List<TransferJob> jobs = queue.getJobs();
+        out.append("\"timestamp\":").append(System.currentTimeMillis());
+
+        out.append(",\"transfers\":{");
+        boolean first = true;
+        for (Map.Entry<TransferJob.State, Integer> count : countJobs(jobs).entrySet()) {
+            out.append(first ? "" : ",").append('"').append(lower(count.getKey())).append("\":").append(count.getValue());
+            first = false;
+        }
+        out.append(",\"active\":[");
+        first = true;
+        for (TransferJob job : jobs) {
+            if (job.getState() != TransferJob.State.RUNNING) {
+                continue;
+            }
+            out.append(first ? "" : ",").append("{\"id\":").append(job.getId())
+                .append(",\"direction\":\"").append(lower(job.getDirection()))
+                .append("\",\"remotePath\":\"").append(escape(job.getRemotePath()))
+                .append("\",\"bytes\":").append(job.getBytesTransferred())
+                .append(",\"size\":").append(job.getExpectedSize())
+                .append(",\"bytesPerSecond\":").append(number(job.getRate()))
+                .append(",\"etaSeconds\":").append(job.getEtaSeconds())
+                .append(",\"ttfbMillis\":").append(number(job.getTimeToFirstByteMillis()))
+                .append('}');
+            first = false;
+        }
+        out.append("]}");
+
+        FtpConnectionPool current = pool.get();
+        out.append(",\"connected\":").append(current != null);
+        if (current != null) {
+            TransferMetrics metrics = current.getTransferMetrics();
+            out.append(",\"host\":\"").append(escape(current.getSettings().getHostKey())).append('"');
+            out.append(",\"pool\":{\"total\":").append(current.getTotalConnections())
+                .append(",\"idle\":").append(current.getIdleConnections()).append('}');
+            ConcurrencyController concurrency = queue.getConcurrency(current.getSettings().getHostKey());
+            if (concurrency != null) {
+                out.append(",\"streams\":{\"running\":")
+                    .append(queue.getRunningTransfers(current.getSettings().getHostKey()))
+                    .append(",\"limit\":").append(concurrency.getLimit())
+                    .append(",\"ceiling\":").append(concurrency.getCeiling())
+                    .append(",\"adaptive\":").append(concurrency.isAdaptive())
+                    .append(",\"decision\":\"").append(escape(concurrency.getDecision().name().toLowerCase(Locale.ROOT)))
+                    .append("\"}");
+            }
+            out.append(",\"throughput\":{\"uploadBytes\":").append(metrics.getUploadRate().getTotal())
+                .append(",\"downloadBytes\":").append(metrics.getDownloadRate().getTotal())
+                .append(",\"uploadBytesPerSecond\":").append(number(metrics.getUploadRate().getRate()))
+                .append(",\"downloadBytesPerSecond\":").append(number(metrics.getDownloadRate().getRate()))
+                .append(",\"completed\":").append(metrics.getCompletedTransfers())
+                .append(",\"failed\":").append(metrics.getFailedTransfers()).append('}');
+            out.append(",\"compression\":{\"transfers\":").append(metrics.getCompressedTransfers())
+                .append(",\"rawBytes\":").append(metrics.getCompressionRawBytes())
+                .append(",\"wireBytes\":").append(metrics.getCompressionWireBytes()).append('}');
+            out.append(",\"verification\":{\"ok\":").append(metrics.getVerifiedTransfers())
+                .append(",\"mismatch\":").append(metrics.getIntegrityFailures()).append('}');
+            out.append(",\"latencyMillis\":{\"ttfb\":");
+            histogramJson(out, metrics.getTimeToFirstByte());
+            if (current.getSettings().isSecure()) {
+                out.append(",\"tlsHandshake\":");
+                histogramJson(out, current.getTlsMetrics().getHandshakeLatency());
+            }
+            out.append(",\"commands\":{");
+            first = true;
+            for (Map.Entry<String, LatencyHistogram> command : metrics.getCommandLatency().entrySet()) {
+                out.append(first ? "" : ",").append('"').append(escape(command.getKey())).append("\":");
+                histogramJson(out, command.getValue());
+                first = false;
+            }
+            out.append("}}");
+        }
+        return out.append('}').toString();
+    }
+
+    private static void histogramJson(StringBuilder out, LatencyHistogram histogram) {
+        out.append("{\"count\":").append(histogram.getCount())
+            .append(",\"mean\":").append(number(histogram.getMeanMillis()))
+            .append(",\"p50\":").append(number(histogram.getPercentileMillis(50)))
+            .append(",\"p90\":").append(number(histogram.getPercentileMillis(90)))
+            .append(",\"p99\":").append(number(histogram.getPercentileMillis(99)))
+            .append(",\"max\":").append(number(histogram.getMaxMillis())).append('}');
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String lower(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    /** Escape cho cả JSON string và Prometheus label value (\, ", xuống dòng) */
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '\\' || c == '"') {
+                escaped.append('\\').append(c);
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Dừng HTTP endpoint
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            httpExecutor.shutdownNow();
+            server = null;
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🧶 Network Executor - Execution layer cho mọi thao tác FTP blocking
+ *
+ * Thay cho các new Thread() rời rạc: mọi task có tên, có thể cancel,
+ * có timeout, và kết quả được giao về thread chỉ định (EDT với GUI).
+ *
+ * THREADS:
+ * • Java 21+: mỗi task một virtual thread - hàng nghìn listing/transfer
+ *   blocking cùng lúc mà không tốn hàng nghìn OS threads
+ * • Java 17: fallback sang pool platform threads có giới hạn (task thừa
+ *   xếp hàng) - phát hiện bằng reflection, build vẫn target Java 17
+ * • -Dftps.virtualThreads=false để ép dùng platform threads
+ *
+ * CANCELLATION:
+ * • Task.cancel() interrupt thread đang chạy - SocketChannel (data
+ *   connections) bị đóng ngay, chờ borrow connection bị dừng
+ * • Timeout = cancel tự động sau deadline
+ *
+ * STRUCTURED CONCURRENCY (Scope):
+ * • Các bước con của một thao tác (connect + login + PROT, các segment
+ *   của một download...) được fork trong một Scope
+ * • Một bước lỗi hoặc hết deadline → các bước còn lại bị cancel
+ * • Đóng Scope chờ mọi bước con kết thúc - không task nào sống lâu hơn
+ *   thao tác cha
+ *
+ * Không phụ thuộc AWT - GUI truyền SwingUtilities::invokeLater làm
+ * callback executor, CLI dùng Runnable::run.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpSession
+ */
+public final class NetworkExecutor implements AutoCloseable {
+
+    /** Platform threads tối đa khi không có virtual threads */
+    public static final int DEFAULT_PLATFORM_THREADS = 32;
+
+    /** Chờ tối đa khi đóng Scope cho bước con đang kẹt trong I/O không interrupt được */
+    private static final long SCOPE_CLOSE_WAIT_MILLIS = 5_000;
+
+    /** Thread.ofVirtual() builder (null nếu JVM không hỗ trợ) */
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "network-timeout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Callback khi task kết thúc
+     *
+     * @param <T> Kiểu kết quả
+     */
+    @FunctionalInterface
+    public interface Completion<T> {
+        /**
+         * @param result Kết quả (null nếu lỗi)
+         * @param error Lỗi - InterruptedIOException nếu bị cancel/timeout, null nếu thành công
+         */
+        void done(T result, IOException error);
+    }
+
+    private final String name;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final Set<Task<?>> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param name Prefix cho tên threads
+     * @param platformThreads Số platform threads tối đa khi không có virtual threads
+     */
+    public NetworkExecutor(String name, int platformThreads) {
+        this.name = name;
+        ExecutorService virtualExecutor = newVirtualExecutor(name);
+        this.virtual = virtualExecutor != null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(platformThreads, platformThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), platformThreadFactory(name));
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+    }
+
+    /**
+     * @return true nếu JVM có virtual threads (Java 21+) và không bị tắt
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return OF_VIRTUAL != null && Boolean.parseBoolean(System.getProperty("ftps.virtualThreads", "true"));
+    }
+
+    /**
+     * Thread factory cho các worker dài hạn (transfer workers, tree loaders):
+     * virtual threads nếu có, ngược lại daemon platform threads
+     *
+     * @param prefix Tên thread = prefix-N
+     */
+    public static ThreadFactory threadFactory(String prefix) {
+        ThreadFactory virtualFactory = virtualThreadFactory(prefix);
+        return virtualFactory != null ? virtualFactory : platformThreadFactory(prefix);
+    }
+
+    /** @return true nếu task chạy trên virtual threads */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /** @return Số task đang chạy hoặc đang chờ */
+    public int getActiveCount() {
+        return running.size();
+    }
+
+    /**
+     * Chạy work trên một thread của executor
+     *
+     * @param taskName Tên hiển thị trong thread dump và log
+     */
+    public <T> Task<T> submit(String taskName, Callable<T> work) {
+        return submit(taskName, 0, work);
+    }
+
+    /**
+     * @param timeoutMillis Cancel task nếu chưa xong sau khoảng này (0 = không giới hạn)
+     */
+    public <T> Task<T> submit(String taskName, long timeoutMillis, Callable<T> work) {
+        Task<T> task = new Task<>(name + "-" + taskName, work, timeoutMillis);
+        running.add(task);
+        task.whenDone(Runnable::run, (result, error) -> running.remove(task));
+        executor.execute(task);
+        if (timeoutMillis > 0) {
+            TIMER.schedule(task::timeout, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return task;
+    }
+
+    /**
+     * Mở scope cho một thao tác nhiều bước
+     *
+     * @param scopeName Tên thao tác (log, thread names)
+     * @param timeoutMillis Deadline cho cả scope (0 = không giới hạn)
+     */
+    public Scope scope(String scopeName, long timeoutMillis) {
+        return new Scope(scopeName, timeoutMillis);
+    }
+
+    /**
+     * Cancel mọi task và dừng nhận task mới
+     */
+    @Override
+    public void close() {
+        for (Task<?> task : running) {
+            task.cancel();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Handle của một task: kết quả, cancel, callback khi xong
+     *
+     * @param <T> Kiểu kết quả
+     */
+    public static final class Task<T> extends FutureTask<T> {
+        private final String taskName;
+        private final long timeoutMillis;
+        private final List<Runnable> callbacks = new ArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile boolean timedOut;
+        private volatile boolean started;
+        private boolean done;
+
+        Task(String taskName, Callable<T> work, long timeoutMillis) {
+            super(work);
+            this.taskName = taskName;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public String getName() {
+            return taskName;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            Thread thread = Thread.currentThread();
+            String original = thread.getName();
+            thread.setName(taskName);
+            try {
+                super.run();
+            } finally {
+                thread.setName(original);
+                terminated.countDown();
+            }
+        }
+
+        /** Interrupt thread đang chạy task */
+        public void cancel() {
+            cancel(true);
+        }
+
+        void timeout() {
+            if (!isDone()) {
+                timedOut = true;
+                cancel(true);
+            }
+        }
+
+        /** @return true nếu task bị cancel do hết timeout */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Chờ kết quả
+         *
+         * @throws IOException lỗi của task (RuntimeException được bọc lại)
+         * @throws InterruptedIOException nếu task bị cancel, timeout hoặc thread gọi bị interrupt
+         */
+        public T await() throws IOException {
+            try {
+                return get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(taskName + " interrupted");
+            } catch (CancellationException | ExecutionException e) {
+                throw failure();
+            }
+        }
+
+        /**
+         * Đăng ký callback khi task kết thúc (thành công, lỗi hoặc cancel)
+         *
+         * @param callbackExecutor Thread chạy callback - SwingUtilities::invokeLater cho EDT
+         */
+        public Task<T> whenDone(Executor callbackExecutor, Completion<? super T> completion) {
+            Runnable callback = () -> callbackExecutor.execute(() -> {
+                IOException error = isCancelled() || isFailed() ? failure() : null;
+                completion.done(error == null ? resultNow() : null, error);
+            });
+            boolean runNow;
+            synchronized (callbacks) {
+                runNow = done;
+                if (!runNow) {
+                    callbacks.add(callback);
+                }
+            }
+            if (runNow) {
+                callback.run();
+            }
+            return this;
+        }
+
+        @Override
+        protected void done() {
+            List<Runnable> pending;
+            synchronized (callbacks) {
+                done = true;
+                pending = new ArrayList<>(callbacks);
+                callbacks.clear();
+            }
+            for (Runnable callback : pending) {
+                callback.run();
+            }
+        }
+
+        /** Chờ thread của task thực sự thoát (sau cancel) */
+        boolean awaitTermination(long millis) throws InterruptedException {
+            return !started || terminated.await(millis, TimeUnit.MILLISECONDS);
+        }
+
+        private boolean isFailed() {
+            if (!isDone() || isCancelled()) {
+                return false;
+            }
+            try {
+                get();
+                return false;
+            } catch (InterruptedException | ExecutionException e) {
+                return true;
+            }
+        }
+
+        private T resultNow() {
+            try {
+                return get();
+            } catch (InterruptedException | ExecutionException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @return Lỗi của task dạng IOException
+         */
+        IOException failure() {
+            if (isCancelled()) {
+                return new InterruptedIOException(timedOut
+                    ? taskName + " timed out after " + timeoutMillis + " ms" : taskName + " cancelled");
+            }
+            try {
+                get();
+                return null;
+            } catch (InterruptedException e) {
+                return new InterruptedIOException(taskName + " interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                return cause instanceof IOException ? (IOException) cause
+                    : new IOException(taskName + " failed: " + cause, cause);
+            }
+        }
+    }
+
+    /**
+     * Structured concurrency: các bước con cùng sống, cùng chết
+     *
+     * <pre>
+     * try (NetworkExecutor.Scope scope = executor.scope("connect", 15_000)) {
+     *     Task&lt;A&gt; a = scope.fork("login", ...);
+     *     Task&lt;B&gt; b = scope.fork("index", ...);
+     *     scope.join();          // lỗi đầu tiên → cancel phần còn lại và throw
+     *     use(a.await(), b.await());
+     * }                          // close: cancel + chờ các bước chưa xong
+     * </pre>
+     */
+    public final class Scope implements AutoCloseable {
+        private final String scopeName;
+        private final long timeoutMillis;
+        private final long deadline;
+        private final List<Task<?>> tasks = new ArrayList<>();
+        private final Object lock = new Object();
+        private IOException firstFailure;
+
+        Scope(String scopeName, long timeoutMillis) {
+            this.scopeName = scopeName;
+            this.timeoutMillis = timeoutMillis;
+            this.deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        }
+
+        /**
+         * Chạy một bước con song song với các bước khác của scope
+         */
+        public <T> Task<T> fork(String stepName, Callable<T> work) {
+            Task<T> task = submit(scopeName + "/" + stepName, work);
+            synchronized (lock) {
+                tasks.add(task);
+            }
+            task.whenDone(Runnable::run, (result, error) -> {
+                synchronized (lock) {
+                    if (error != null && firstFailure == null) {
+                        firstFailure = error;
+                    }
+                    lock.notifyAll();
+                }
+            });
+            return task;
+        }
+
+        /**
+         * Chờ mọi bước con xong
+         *
+         * @throws IOException lỗi đầu tiên của một bước con (các bước khác bị cancel)
+         * @throws InterruptedIOException nếu hết deadline hoặc thread gọi bị interrupt (cancel từ cha)
+         */
+        public void join() throws IOException {
+            IOException failure;
+            try {
+                synchronized (lock) {
+                    while (firstFailure == null && !allDone()) {
+                        if (deadline == 0) {
+                            lock.wait();
+                            continue;
+                        }
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            firstFailure = new InterruptedIOException(scopeName + " timed out after "
+                                + timeoutMillis + " ms");
+                            break;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                    failure = firstFailure;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll();
+                throw new InterruptedIOException(scopeName + " cancelled");
+            }
+            if (failure != null) {
+                cancelAll();
+                throw failure;
+            }
+        }
+
+        private boolean allDone() {
+            for (Task<?> task : tasks) {
+                if (!task.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void cancelAll() {
+            List<Task<?>> snapshot;
+            synchronized (lock) {
+                snapshot = new ArrayList<>(tasks);
+            }
+            for (Task<?> task : snapshot) {
+                task.cancel();
+            }
+        }
+
+        /**
+         * Cancel các bước chưa xong và chờ thread của chúng thoát
+         */
+        @Override
+        public void close() {
+            cancelAll();
+            List<Task<?>> snapshot;
+            synchronized (lock) {
+                snapshot = new ArrayList<>(tasks);
+            }
+            boolean interrupted = false;
+            for (Task<?> task : snapshot) {
+                try {
+                    task.awaitTermination(SCOPE_CLOSE_WAIT_MILLIS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Thread.ofVirtual().name(prefix + "-", 1).factory() qua reflection
+     *
+     * @return null nếu không có virtual threads
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        if (!isVirtualThreadsAvailable()) {
+            return null;
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Executors.newThreadPerTaskExecutor(virtual factory) qua reflection
+     */
+    private static ExecutorService newVirtualExecutor(String prefix) {
+        ThreadFactory factory = virtualThreadFactory(prefix);
+        if (factory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ⏱️ Rate Meter - Throughput trung bình trượt (bytes/giây)
+ *
+ * • Cửa sổ chia thành các slot SLOT_MILLIS; add() cộng vào slot hiện tại,
+ *   slot cũ được tái sử dụng khi vòng qua (không cần timer)
+ * • getRate() chỉ cộng các slot còn trong cửa sổ - rate phản ánh vài giây
+ *   gần nhất thay vì trung bình từ đầu transfer
+ * • Lock-free; khi hai thread cùng reset một slot có thể mất vài bytes của
+ *   slot đó - chấp nhận được cho số liệu hiển thị
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferMetrics
+ */
+public final class RateMeter {
+    private static final long SLOT_MILLIS = 250;
+    /** 20 × 250 ms = cửa sổ 5 giây */
+    public static final int DEFAULT_SLOTS = 20;
+
+    private final AtomicLongArray bytes;
+    private final AtomicLongArray epochs;
+    private final AtomicLong total = new AtomicLong();
+    private volatile long startMillis = System.currentTimeMillis();
+
+    public RateMeter() {
+        this(DEFAULT_SLOTS);
+    }
+
+    /**
+     * @param slots Số slot SLOT_MILLIS trong cửa sổ
+     */
+    public RateMeter(int slots) {
+        this.bytes = new AtomicLongArray(Math.max(2, slots));
+        this.epochs = new AtomicLongArray(Math.max(2, slots));
+    }
+
+    /**
+     * Cộng bytes vào slot hiện tại
+     */
+    public void add(long count) {
+        long epoch = System.currentTimeMillis() / SLOT_MILLIS;
+        int index = (int) (epoch % bytes.length());
+        long current = epochs.get(index);
+        if (current != epoch && epochs.compareAndSet(index, current, epoch)) {
+            bytes.set(index, 0);
+        }
+        bytes.addAndGet(index, count);
+        total.addAndGet(count);
+    }
+
+    /**
+     * Bắt đầu đo lại từ đầu (job chạy lại sau pause/retry)
+     */
+    public void reset() {
+        for (int i = 0; i < bytes.length(); i++) {
+            epochs.set(i, 0);
+            bytes.set(i, 0);
+        }
+        total.set(0);
+        startMillis = System.currentTimeMillis();
+    }
+
+    /** @return Tổng bytes từ lúc tạo/reset */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return Bytes/giây trong cửa sổ gần nhất (cửa sổ ngắn hơn khi mới bắt đầu)
+     */
+    public double getRate() {
+        long now = System.currentTimeMillis();
+        long epoch = now / SLOT_MILLIS;
+        long oldest = epoch - bytes.length() + 1;
+        long sum = 0;
+        for (int i = 0; i < bytes.length(); i++) {
+            if (epochs.get(i) >= oldest) {
+                sum += bytes.get(i);
+            }
+        }
+        long window = (bytes.length() - 1) * SLOT_MILLIS + now % SLOT_MILLIS;
+        window = Math.max(SLOT_MILLIS, Math.min(window, now - startMillis));
+        return sum * 1000.0 / window;
+    }
+
+    /**
+     * @return "1.2 MB/s", "850 KB/s", "12 B/s"
+     */
+    public static String format(double bytesPerSecond) {
+        if (bytesPerSecond >= 1024 * 1024) {
+            return String.format("%.1f MB/s", bytesPerSecond / (1024 * 1024));
+        }
+        if (bytesPerSecond >= 1024) {
+            return String.format("%.0f KB/s", bytesPerSecond / 1024);
+        }
+        return String.format("%.0f B/s", bytesPerSecond);
+    }
+}
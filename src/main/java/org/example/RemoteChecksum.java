@@ -0,0 +1,302 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 🧮 Remote Checksum - Hash của file trên server mà không cần download
+ *
+ * Thứ tự command được thử (theo FEAT):
+ * • HASH (draft-bryan-ftpext-hash): SHA-256 / SHA-1 / MD5 / CRC32 (và
+ *   CRC32C / XXH64 nếu server có) - thuật toán server đang chọn (đánh dấu
+ *   "*" trong FEAT), hoặc thuật toán caller muốn qua OPTS HASH
+ * • XCRC: CRC32
+ * • MD5 / XMD5: MD5
+ *
+ * local() tính cùng thuật toán trên local file để so sánh (SyncEngine);
+ * transfer tính inline bằng StreamingChecksum, không đọc lại file.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see SyncEngine
+ * @see ServerFeatures
+ */
+public final class RemoteChecksum {
+
+    /** Thuật toán hash được hỗ trợ */
+    public enum Algorithm {
+        SHA256("SHA-256"),
+        SHA1("SHA-1"),
+        MD5("MD5"),
+        CRC32("CRC32"),
+        CRC32C("CRC32C"),
+        XXH64("XXH64");
+
+        private final String ftpName;
+
+        Algorithm(String ftpName) {
+            this.ftpName = ftpName;
+        }
+
+        /** @return Tên trong FEAT/HASH reply, ví dụ "SHA-256" */
+        public String getFtpName() {
+            return ftpName;
+        }
+
+        static Algorithm fromFtpName(String name) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.ftpName.equalsIgnoreCase(name)) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Algorithm algorithm;
+    private final String hex;
+
+    public RemoteChecksum(Algorithm algorithm, String hex) {
+        this.algorithm = algorithm;
+        this.hex = hex.toLowerCase(Locale.ROOT);
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /** @return Hash dạng hex chữ thường */
+    public String getHex() {
+        return hex;
+    }
+
+    /**
+     * @return Thuật toán server sẽ dùng, null nếu server không có command hash nào
+     */
+    public static Algorithm supportedAlgorithm(ServerFeatures features) {
+        if (features.has("HASH")) {
+            Algorithm selected = hashAlgorithm(features.getParameters("HASH"));
+            if (selected != null) {
+                return selected;
+            }
+        }
+        if (features.has("XCRC")) {
+            return Algorithm.CRC32;
+        }
+        if (features.has("MD5") || features.has("XMD5")) {
+            return Algorithm.MD5;
+        }
+        return null;
+    }
+
+    /**
+     * Hỏi server hash của file
+     *
+     * @return Checksum, null nếu server không hỗ trợ command hash nào
+     * @throws IOException nếu server từ chối (file không tồn tại...) hoặc connection lỗi
+     */
+    public static RemoteChecksum remote(FTPClient client, ServerFeatures features, String path) throws IOException {
+        if (features.has("HASH")) {
+            Algorithm algorithm = hashAlgorithm(features.getParameters("HASH"));
+            if (algorithm != null) {
+                return hash(client, path, algorithm);
+            }
+        }
+        if (features.has("XCRC")) {
+            return new RemoteChecksum(Algorithm.CRC32, hexToken(client, command(client, "XCRC", path), 8));
+        }
+        if (features.has("MD5")) {
+            return new RemoteChecksum(Algorithm.MD5, hexToken(client, command(client, "MD5", path), 32));
+        }
+        if (features.has("XMD5")) {
+            return new RemoteChecksum(Algorithm.MD5, hexToken(client, command(client, "XMD5", path), 32));
+        }
+        return null;
+    }
+
+    /**
+     * Thuật toán để tính inline khi transfer - phải là thuật toán server trả
+     * lời được, nếu không thì không so sánh được
+     *
+     * @param preferred Thuật toán user chọn (ftps.checksumAlgorithm)
+     * @return preferred nếu HASH của server có nó, ngược lại thuật toán
+     *         server dùng mặc định; null nếu server không có command hash nào
+     */
+    public static Algorithm negotiate(ServerFeatures features, Algorithm preferred) {
+        if (features.has("HASH") && hashAlgorithms(features.getParameters("HASH")).contains(preferred)) {
+            return preferred;
+        }
+        return supportedAlgorithm(features);
+    }
+
+    /**
+     * Thuật toán cho segmented download - phải ghép được từ các range
+     * (SegmentChecksum.isCombinable) và server phải trả lời được
+     *
+     * @param preferred Thuật toán user chọn (ftps.checksumAlgorithm)
+     * @return preferred nếu ghép được và HASH của server có nó, ngược lại
+     *         CRC32C rồi CRC32 (HASH hoặc XCRC); null nếu server không có CRC
+     */
+    public static Algorithm negotiateCombinable(ServerFeatures features, Algorithm preferred) {
+        List<Algorithm> offered = features.has("HASH") ? hashAlgorithms(features.getParameters("HASH")) : List.of();
+        if (SegmentChecksum.isCombinable(preferred) && offered.contains(preferred)) {
+            return preferred;
+        }
+        if (offered.contains(Algorithm.CRC32C)) {
+            return Algorithm.CRC32C;
+        }
+        if (offered.contains(Algorithm.CRC32) || features.has("XCRC")) {
+            return Algorithm.CRC32;
+        }
+        return null;
+    }
+
+    /**
+     * Hỏi server hash của file bằng một thuật toán cụ thể (OPTS HASH khi
+     * server đang chọn thuật toán khác)
+     *
+     * @param wanted Thuật toán từ negotiate()
+     * @return Checksum - thuật toán có thể khác wanted nếu server không đổi
+     *         được; null nếu server không hỗ trợ command hash nào
+     * @throws IOException nếu server từ chối hoặc connection lỗi
+     */
+    public static RemoteChecksum remote(FTPClient client, ServerFeatures features, String path,
+                                        Algorithm wanted) throws IOException {
+        if (features.has("HASH") && hashAlgorithms(features.getParameters("HASH")).contains(wanted)) {
+            RemoteChecksum checksum = hash(client, path, wanted);
+            if (checksum.algorithm == wanted) {
+                return checksum;
+            }
+            // Thuật toán được chọn theo session - OPTS một lần, các lần sau trúng ngay
+            command(client, "OPTS", "HASH " + wanted.getFtpName());
+            return hash(client, path, wanted);
+        }
+        if (wanted == Algorithm.CRC32 && features.has("XCRC")) {
+            return new RemoteChecksum(Algorithm.CRC32, hexToken(client, command(client, "XCRC", path), 8));
+        }
+        return remote(client, features, path);
+    }
+
+    /**
+     * Tính hash của local file
+     */
+    public static RemoteChecksum local(File file, Algorithm algorithm) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            StreamingChecksum checksum = new StreamingChecksum(algorithm);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                checksum.update(buffer);
+                buffer.clear();
+            }
+            return checksum.finish();
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * HASH path - reply "213 SHA-256 0-1023 &lt;hex&gt; &lt;filename&gt;"
+     *
+     * @param fallback Thuật toán khi reply không ghi tên nhận ra được
+     */
+    private static RemoteChecksum hash(FTPClient client, String path, Algorithm fallback) throws IOException {
+        String[] tokens = command(client, "HASH", path).split(" ");
+        if (tokens.length >= 4) {
+            Algorithm replied = Algorithm.fromFtpName(tokens[1]);
+            return new RemoteChecksum(replied != null ? replied : fallback, tokens[3]);
+        }
+        throw new IOException("Unexpected HASH reply: " + client.getReplyString().trim());
+    }
+
+    /**
+     * @return Các thuật toán đã biết trong FEAT "HASH SHA-256*;SHA-1;MD5;CRC32"
+     */
+    private static List<Algorithm> hashAlgorithms(String parameters) {
+        List<Algorithm> algorithms = new ArrayList<>();
+        if (parameters != null) {
+            for (String name : parameters.split(";")) {
+                String trimmed = name.trim();
+                Algorithm algorithm = Algorithm.fromFtpName(trimmed.endsWith("*")
+                    ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+                if (algorithm != null) {
+                    algorithms.add(algorithm);
+                }
+            }
+        }
+        return algorithms;
+    }
+
+    /**
+     * Thuật toán đang chọn trong FEAT "HASH SHA-256*;SHA-1;MD5;CRC32"
+     */
+    private static Algorithm hashAlgorithm(String parameters) {
+        if (parameters == null) {
+            return null;
+        }
+        Algorithm fallback = null;
+        for (String name : parameters.split(";")) {
+            String trimmed = name.trim();
+            boolean selected = trimmed.endsWith("*");
+            Algorithm algorithm = Algorithm.fromFtpName(selected ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+            if (selected) {
+                return algorithm;
+            }
+            if (fallback == null) {
+                fallback = algorithm;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * @return Phần text của reply (sau reply code)
+     */
+    private static String command(FTPClient client, String command, String path) throws IOException {
+        int code = client.sendCommand(command, path);
+        if (!FTPReply.isPositiveCompletion(code)) {
+            throw new IOException(command + " failed: " + client.getReplyString().trim());
+        }
+        String reply = client.getReplyString().trim();
+        return reply.length() > 4 ? reply.substring(4).trim() : "";
+    }
+
+    /**
+     * Tìm token hex có độ dài cho trước - vị trí hash khác nhau giữa các
+     * server ("250 <hex>", "251 <file> <hex>", "250 <hex> <file>")
+     */
+    private static String hexToken(FTPClient client, String text, int length) throws IOException {
+        String[] tokens = text.replace("\"", " ").split("\\s+");
+        for (int i = tokens.length - 1; i >= 0; i--) {
+            if (tokens[i].length() == length && tokens[i].matches("[0-9A-Fa-f]+")) {
+                return tokens[i];
+            }
+        }
+        throw new IOException("Unexpected checksum reply: " + client.getReplyString().trim());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RemoteChecksum && ((RemoteChecksum) other).algorithm == algorithm
+            && ((RemoteChecksum) other).hex.equals(hex);
+    }
+
+    @Override
+    public int hashCode() {
+        return algorithm.hashCode() * 31 + hex.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return algorithm.getFtpName() + ":" + hex;
+    }
+}
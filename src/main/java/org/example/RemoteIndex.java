@@ -0,0 +1,450 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+/**
+ * 🗃️ Remote Index - Metadata của toàn bộ remote tree lưu trên disk (mỗi server profile một file)
+ *
+ * • Connect lại: file tree hiện ngay từ index, sau đó được revalidate bằng
+ *   listing thật ở background
+ * • Search theo prefix hoặc glob mà không gửi command nào tới server
+ *
+ * FILE FORMAT (sorted-key, đọc một lượt vào heap buffer read-only):
+ * <pre>
+ * Header (32 bytes):  "FTPIDX01" | int count | long createdMillis | long stringsOffset | int 0
+ * Records (32 bytes): int pathOffset | int pathLength | int parentLength | int flags
+ *                     | long size | long mtime
+ * Strings:            UTF-8 paths nối liền nhau
+ * </pre>
+ * Records sắp xếp theo (thư mục cha, tên) so sánh byte unsigned - children
+ * của một thư mục nằm liền nhau, tìm bằng binary search O(log n).
+ * flags: bit 0-8 permissions (rwx user/group/world), bit 9 = có permissions,
+ * bit 12-13 = type (0 file, 1 directory, 2 symlink).
+ *
+ * File được ghi ra file tạm rồi rename atomically. open() đọc cả file vào
+ * heap rồi đóng ngay, không memory-map: Windows không cho replace một file
+ * đang được map, còn index trong heap vẫn dùng được trong lúc rebuild.
+ * Index nhỏ (32 bytes/entry + path) nên đọc một lượt rẻ hơn giữ mapping.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see RemoteWalker
+ * @see RemoteTreeModel
+ */
+public final class RemoteIndex {
+    private static final byte[] MAGIC = "FTPIDX01".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 32;
+
+    private static final int PERMISSIONS_MASK = 0x1FF;
+    private static final int HAS_PERMISSIONS = 1 << 9;
+    private static final int TYPE_SHIFT = 12;
+    private static final int TYPE_DIRECTORY = 1;
+    private static final int TYPE_SYMLINK = 2;
+
+    private static final int[][] PERMISSION_BITS = {
+        {FTPFile.USER_ACCESS, FTPFile.READ_PERMISSION, 8}, {FTPFile.USER_ACCESS, FTPFile.WRITE_PERMISSION, 7},
+        {FTPFile.USER_ACCESS, FTPFile.EXECUTE_PERMISSION, 6}, {FTPFile.GROUP_ACCESS, FTPFile.READ_PERMISSION, 5},
+        {FTPFile.GROUP_ACCESS, FTPFile.WRITE_PERMISSION, 4}, {FTPFile.GROUP_ACCESS, FTPFile.EXECUTE_PERMISSION, 3},
+        {FTPFile.WORLD_ACCESS, FTPFile.READ_PERMISSION, 2}, {FTPFile.WORLD_ACCESS, FTPFile.WRITE_PERMISSION, 1},
+        {FTPFile.WORLD_ACCESS, FTPFile.EXECUTE_PERMISSION, 0}
+    };
+
+    /** Index rỗng (chưa từng walk server này) */
+    public static final RemoteIndex EMPTY = new RemoteIndex(ByteBuffer.allocate(0), 0, 0, 0);
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final long createdMillis;
+    private final int stringsOffset;
+
+    private RemoteIndex(ByteBuffer buffer, int count, long createdMillis, int stringsOffset) {
+        this.buffer = buffer;
+        this.count = count;
+        this.createdMillis = createdMillis;
+        this.stringsOffset = stringsOffset;
+    }
+
+    /**
+     * Một entry đọc từ index (immutable)
+     */
+    public static final class Entry {
+        private final String path;
+        private final int flags;
+        private final long size;
+        private final long modifiedTime;
+
+        Entry(String path, int flags, long size, long modifiedTime) {
+            this.path = path;
+            this.flags = flags;
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+        }
+
+        /** @return Path so với home directory, ví dụ "docs/a.txt" */
+        public String getPath() {
+            return path;
+        }
+
+        public String getName() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        public boolean isDirectory() {
+            return (flags >> TYPE_SHIFT & 3) == TYPE_DIRECTORY;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /** @return mtime (ms UTC), -1 nếu không biết */
+        public long getModifiedTime() {
+            return modifiedTime;
+        }
+
+        /** @return Permissions dạng "rwxr-xr-x", "" nếu server không cung cấp */
+        public String getPermissions() {
+            if ((flags & HAS_PERMISSIONS) == 0) {
+                return "";
+            }
+            StringBuilder text = new StringBuilder(9);
+            for (int bit = 8; bit >= 0; bit--) {
+                text.append((flags & 1 << bit) != 0 ? "rwx".charAt((8 - bit) % 3) : '-');
+            }
+            return text.toString();
+        }
+
+        /** @return FTPFile tương đương (cho RemoteTreeModel / DirectoryLister.ChunkListener) */
+        public FTPFile toFtpFile() {
+            FTPFile file = new FTPFile();
+            file.setName(getName());
+            int type = flags >> TYPE_SHIFT & 3;
+            file.setType(type == TYPE_DIRECTORY ? FTPFile.DIRECTORY_TYPE
+                : type == TYPE_SYMLINK ? FTPFile.SYMBOLIC_LINK_TYPE : FTPFile.FILE_TYPE);
+            file.setSize(size);
+            if (modifiedTime >= 0) {
+                Calendar timestamp = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                timestamp.setTimeInMillis(modifiedTime);
+                file.setTimestamp(timestamp);
+            }
+            for (int[] permission : PERMISSION_BITS) {
+                file.setPermission(permission[0], permission[1], (flags & 1 << permission[2]) != 0);
+            }
+            return file;
+        }
+
+        @Override
+        public String toString() {
+            return path + (isDirectory() ? "/" : "");
+        }
+    }
+
+    /**
+     * @return ~/.ftps-file-manager/index/&lt;host&gt;_&lt;port&gt;_&lt;user&gt;.idx
+     */
+    public static Path pathFor(ConnectionSettings settings) {
+        String profile = (settings.getHost() + "_" + settings.getPort() + "_" + settings.getUsername())
+            .replaceAll("[^A-Za-z0-9._-]", "_");
+        return Paths.get(System.getProperty("user.home"), ".ftps-file-manager", "index", profile + ".idx");
+    }
+
+    /**
+     * Đọc index file vào heap buffer (không giữ file mở)
+     *
+     * @return Index, EMPTY nếu file chưa tồn tại
+     * @throws IOException nếu file hỏng hoặc không đọc được
+     */
+    public static RemoteIndex open(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid index file: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Index file truncated: " + file);
+                }
+            }
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(0, magic);
+            int count = buffer.getInt(8);
+            long created = buffer.getLong(12);
+            long strings = buffer.getLong(20);
+            if (!Arrays.equals(magic, MAGIC) || count < 0
+                    || strings != HEADER_SIZE + (long) count * RECORD_SIZE || strings > length) {
+                throw new IOException("Invalid index file: " + file);
+            }
+            return new RemoteIndex(buffer.asReadOnlyBuffer(), count, created, (int) strings);
+        }
+    }
+
+    /** @return Số entries */
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** @return Thời điểm index được build (ms), 0 nếu EMPTY */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Children trực tiếp của một thư mục - binary search, không scan
+     *
+     * @param directory Path của thư mục ("" = home directory)
+     */
+    public List<Entry> children(String directory) {
+        byte[] parent = directory.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareParent(mid, parent) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        List<Entry> result = new ArrayList<>();
+        for (int i = low; i < count && compareParent(i, parent) == 0; i++) {
+            result.add(entry(i));
+        }
+        return result;
+    }
+
+    /**
+     * Search trong index
+     *
+     * • Có ký tự glob (* ? [) → glob; không có → prefix
+     * • Có "/" → so với path đầy đủ ("docs/*.pdf"); không có → so với tên
+     *   ở mọi cấp ("report*")
+     *
+     * @param query Prefix hoặc glob (không phân biệt hoa thường)
+     * @param limit Số kết quả tối đa
+     */
+    public List<Entry> search(String query, int limit) {
+        if (query.isEmpty() || count == 0) {
+            return Collections.emptyList();
+        }
+        boolean glob = query.indexOf('*') >= 0 || query.indexOf('?') >= 0 || query.indexOf('[') >= 0;
+        boolean fullPath = query.indexOf('/') >= 0;
+        Pattern pattern = glob ? globToRegex(query) : null;
+        String prefix = query.toLowerCase(Locale.ROOT);
+
+        List<Entry> result = new ArrayList<>();
+        for (int i = 0; i < count && result.size() < limit; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            int offset = stringsOffset + buffer.getInt(record);
+            int length = buffer.getInt(record + 4);
+            int parentLength = buffer.getInt(record + 8);
+            int nameStart = parentLength == 0 ? 0 : parentLength + 1;
+            String text = fullPath ? string(offset, length) : string(offset + nameStart, length - nameStart);
+            boolean match = glob ? pattern.matcher(text).matches() : text.toLowerCase(Locale.ROOT).startsWith(prefix);
+            if (match) {
+                result.add(entry(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * * khớp mọi ký tự trừ "/" (khi so path), ** khớp cả "/", ? một ký tự,
+     * [abc] / [a-z] / [!abc] tập ký tự
+     */
+    static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if (c == '[') {
+                int end = glob.indexOf(']', i + 1);
+                if (end < 0) {
+                    regex.append("\\[");
+                } else {
+                    String set = glob.substring(i + 1, end);
+                    boolean negated = set.startsWith("!");
+                    // Giữ "-" cho range [0-9], escape các ký tự đặc biệt khác của regex
+                    String escaped = (negated ? set.substring(1) : set).replaceAll("([\\\\\\[\\]&^])", "\\\\$1");
+                    regex.append('[').append(negated ? "^" : "").append(escaped).append(']');
+                    i = end;
+                }
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    private Entry entry(int index) {
+        int record = HEADER_SIZE + index * RECORD_SIZE;
+        String path = string(stringsOffset + buffer.getInt(record), buffer.getInt(record + 4));
+        return new Entry(path, buffer.getInt(record + 12), buffer.getLong(record + 16), buffer.getLong(record + 24));
+    }
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * So sánh thư mục cha của record với parent (unsigned bytes)
+     */
+    private int compareParent(int index, byte[] parent) {
+        int record = HEADER_SIZE + index * RECORD_SIZE;
+        int offset = stringsOffset + buffer.getInt(record);
+        int parentLength = buffer.getInt(record + 8);
+        int common = Math.min(parentLength, parent.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(offset + i) & 0xFF) - (parent[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return parentLength - parent.length;
+    }
+
+    /**
+     * 🏗️ Gom entries (từ nhiều walker threads) rồi ghi index file
+     */
+    public static final class Builder {
+        private final List<byte[]> paths = new ArrayList<>();
+        private final List<long[]> values = new ArrayList<>();
+
+        /**
+         * @param path Path so với home directory (thread-safe)
+         */
+        public synchronized void add(String path, FTPFile file) {
+            int flags = 0;
+            if (file.isDirectory()) {
+                flags |= TYPE_DIRECTORY << TYPE_SHIFT;
+            } else if (file.isSymbolicLink()) {
+                flags |= TYPE_SYMLINK << TYPE_SHIFT;
+            }
+            boolean hasPermissions = false;
+            for (int[] permission : PERMISSION_BITS) {
+                if (file.hasPermission(permission[0], permission[1])) {
+                    flags |= 1 << permission[2];
+                    hasPermissions = true;
+                }
+            }
+            if (hasPermissions) {
+                flags |= HAS_PERMISSIONS;
+            }
+            long modified = file.getTimestamp() == null ? -1 : file.getTimestamp().getTimeInMillis();
+            paths.add(path.getBytes(StandardCharsets.UTF_8));
+            values.add(new long[] {flags, file.getSize(), modified});
+        }
+
+        public synchronized int size() {
+            return paths.size();
+        }
+
+        /**
+         * Sắp xếp theo (parent, name), ghi file tạm rồi rename atomically
+         *
+         * @return Index vừa ghi (đã map)
+         */
+        public synchronized RemoteIndex write(Path file) throws IOException {
+            int n = paths.size();
+            int[] parentLengths = new int[n];
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+                parentLengths[i] = parentLength(paths.get(i));
+            }
+            Arrays.sort(order, (a, b) -> {
+                byte[] pa = paths.get(a);
+                byte[] pb = paths.get(b);
+                int byParent = Arrays.compareUnsigned(pa, 0, parentLengths[a], pb, 0, parentLengths[b]);
+                return byParent != 0 ? byParent
+                    : Arrays.compareUnsigned(pa, parentLengths[a], pa.length, pb, parentLengths[b], pb.length);
+            });
+
+            long stringBytes = 0;
+            for (byte[] path : paths) {
+                stringBytes += path.length;
+            }
+            long total = HEADER_SIZE + (long) n * RECORD_SIZE + stringBytes;
+            if (total > Integer.MAX_VALUE) {
+                throw new IOException("Index too large: " + n + " entries");
+            }
+
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp), 256 * 1024))) {
+                out.write(MAGIC);
+                out.writeInt(n);
+                out.writeLong(System.currentTimeMillis());
+                out.writeLong(HEADER_SIZE + (long) n * RECORD_SIZE);
+                out.writeInt(0);
+                int offset = 0;
+                for (Integer i : order) {
+                    byte[] path = paths.get(i);
+                    long[] value = values.get(i);
+                    out.writeInt(offset);
+                    out.writeInt(path.length);
+                    out.writeInt(parentLengths[i]);
+                    out.writeInt((int) value[0]);
+                    out.writeLong(value[1]);
+                    out.writeLong(value[2]);
+                    offset += path.length;
+                }
+                for (Integer i : order) {
+                    out.write(paths.get(i));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(file);
+        }
+
+        /** @return Số bytes của thư mục cha ("a/b/c" → 3, "c" → 0) */
+        private static int parentLength(byte[] path) {
+            for (int i = path.length - 1; i >= 0; i--) {
+                if (path[i] == '/') {
+                    return i;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * 📂 Remote Node - Một file/thư mục trên server trong RemoteTreeModel
+ *
+ * • Thư mục luôn hiển thị expand handle (isLeaf = false) kể cả khi chưa
+ *   load - children chỉ được LIST khi user expand
+ * • remotePath tương đối với working directory lúc login ("" = root)
+ * • loadState chỉ được đọc/ghi trên EDT
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see RemoteTreeModel
+ */
+public class RemoteNode extends DefaultMutableTreeNode {
+
+    /** Trạng thái load children của một thư mục */
+    enum LoadState { UNLOADED, LOADING, LOADED }
+
+    private final String remotePath;
+    private final boolean directory;
+    private LoadState loadState = LoadState.UNLOADED;
+    /** Refresh được yêu cầu trong khi đang load - chạy lại sau khi xong */
+    private boolean reloadRequested;
+
+    /**
+     * @param name Tên hiển thị (không có "/")
+     * @param remotePath Đường dẫn tương đối với root
+     * @param directory true nếu là thư mục
+     */
+    public RemoteNode(String name, String remotePath, boolean directory) {
+        super(name, directory);
+        this.remotePath = remotePath;
+        this.directory = directory;
+    }
+
+    /**
+     * @return Root node (working directory sau khi login)
+     */
+    static RemoteNode root() {
+        return new RemoteNode("Root Directory", "", true);
+    }
+
+    public String getName() {
+        return (String) getUserObject();
+    }
+
+    public String getRemotePath() {
+        return remotePath;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return Đường dẫn của child có tên cho trước
+     */
+    String childPath(String childName) {
+        return remotePath.isEmpty() ? childName : remotePath + "/" + childName;
+    }
+
+    LoadState getLoadState() {
+        return loadState;
+    }
+
+    void setLoadState(LoadState loadState) {
+        this.loadState = loadState;
+    }
+
+    boolean isReloadRequested() {
+        return reloadRequested;
+    }
+
+    void setReloadRequested(boolean reloadRequested) {
+        this.reloadRequested = reloadRequested;
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return !directory;
+    }
+
+    /**
+     * Thư mục hiển thị với "/" suffix (giữ cách hiển thị cũ của file tree)
+     */
+    @Override
+    public String toString() {
+        if (remotePath.isEmpty()) {
+            return getName();
+        }
+        return directory ? getName() + "/" : getName();
+    }
+}
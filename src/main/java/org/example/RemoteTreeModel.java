@@ -0,0 +1,443 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+
+import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 🌲 Remote Tree Model - Lazy tree cho remote directory
+ *
+ * • Children của một thư mục chỉ được LIST khi node sắp expand
+ *   (TreeWillExpandListener), trong task của NetworkExecutor - không
+ *   block EDT; tối đa MAX_CONCURRENT_LOADS listing cùng lúc - load thừa
+ *   chờ trong queue trên EDT, không chiếm thread của executor để chờ slot
+ * • Kết quả được áp dụng bằng nodesWereInserted/nodesWereRemoved,
+ *   không bao giờ setRoot khi refresh - các nhánh đang mở giữ nguyên
+ * • Entries được insert theo chunk (DirectoryLister.CHUNK_SIZE) ngay khi
+ *   được parse - thư mục rất lớn hiện dần, EDT không bị giữ lâu
+ * • Listing đi qua DirectoryCache của pool - refresh sau upload dùng
+ *   listing đã được patch thay vì LIST lại
+ * • RemoteIndex: trước khi connect xong, tree được dựng ngay từ index
+ *   trên disk (preview); thư mục chưa có children được điền từ index thay
+ *   cho "Loading...", rồi listing thật revalidate (thêm/bớt entries)
+ *
+ * Mọi thay đổi node diễn ra trên EDT. Load task chỉ gọi LIST và
+ * chuyển kết quả về qua invokeLater. disconnect/connect lại cancel các
+ * load đang chạy; kết quả lọt qua của session cũ bị bỏ qua nhờ epoch counter.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see RemoteNode
+ */
+public class RemoteTreeModel extends DefaultTreeModel implements TreeWillExpandListener {
+    /** Số thư mục được LIST cùng lúc - còn lại chờ trong queuedLoads */
+    private static final int MAX_CONCURRENT_LOADS = 2;
+
+    private final NetworkExecutor executor;
+    /** Load chờ slot, theo thứ tự expand (chỉ trên EDT) */
+    private final ArrayDeque<Callable<Void>> queuedLoads = new ArrayDeque<>();
+    /** Load đã submit, chưa kết thúc (chỉ trên EDT) */
+    private int runningLoads;
+    /** Load đang chạy - cancel khi session đổi */
+    private final Set<NetworkExecutor.Task<Void>> loads = ConcurrentHashMap.newKeySet();
+    private final Consumer<String> log;
+
+    /** Pool của session hiện tại (chỉ đọc/ghi trên EDT) */
+    private FtpConnectionPool pool;
+    /** Tăng mỗi lần connect/disconnect để bỏ kết quả cũ (chỉ trên EDT) */
+    private int epoch;
+    /** Metadata offline của server (chỉ trên EDT) */
+    private RemoteIndex index = RemoteIndex.EMPTY;
+    /** true khi tree đang hiển thị từ index, chưa có connection */
+    private boolean previewing;
+
+    /**
+     * @param executor Chạy các listing
+     * @param log Nơi ghi log (thread-safe)
+     */
+    public RemoteTreeModel(NetworkExecutor executor, Consumer<String> log) {
+        super(new DefaultMutableTreeNode("Not Connected"));
+        this.executor = executor;
+        this.log = log;
+    }
+
+    /**
+     * Bắt đầu session mới: root là working directory, chưa load.
+     * Gọi trên EDT, sau đó expand root để trigger LIST.
+     *
+     * @param pool Pool của server vừa kết nối
+     */
+    public void connect(FtpConnectionPool pool) {
+        cancelLoads();
+        this.pool = pool;
+        epoch++;
+        if (previewing && getRoot() instanceof RemoteNode) {
+            // Giữ các nhánh đã mở từ index, revalidate những thư mục đã có children
+            previewing = false;
+            List<RemoteNode> filled = new ArrayList<>();
+            collectFilled((RemoteNode) getRoot(), filled);
+            for (RemoteNode node : filled) {
+                load(node);
+            }
+            return;
+        }
+        previewing = false;
+        setRoot(RemoteNode.root());
+    }
+
+    /**
+     * Hiển thị tree từ index trong lúc đang connect. Gọi trên EDT.
+     *
+     * @param index Index của server profile (EMPTY = không preview)
+     */
+    public void preview(RemoteIndex index) {
+        this.index = index;
+        if (index.isEmpty()) {
+            return;
+        }
+        pool = null;
+        epoch++;
+        previewing = true;
+        RemoteNode root = RemoteNode.root();
+        setRoot(root);
+        fillFromIndex(root);
+    }
+
+    /**
+     * Đổi sang index mới (sau khi build lại ở background). Gọi trên EDT.
+     */
+    public void setIndex(RemoteIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Kết thúc session - bỏ mọi kết quả đang chờ. Gọi trên EDT.
+     */
+    public void disconnect() {
+        cancelLoads();
+        pool = null;
+        previewing = false;
+        epoch++;
+        setRoot(new DefaultMutableTreeNode("Not Connected"));
+    }
+
+    /**
+     * Cancel các load của session cũ - load chưa tới lượt bị bỏ, listing
+     * đang dở bị interrupt, connection của nó bị pool loại bỏ
+     */
+    private void cancelLoads() {
+        queuedLoads.clear();
+        for (NetworkExecutor.Task<Void> task : loads) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Submit load đang chờ khi còn slot (EDT). Slot được trả trên EDT khi
+     * task kết thúc - không task nào block thread của executor để chờ.
+     */
+    private void startLoads() {
+        while (runningLoads < MAX_CONCURRENT_LOADS && !queuedLoads.isEmpty()) {
+            runningLoads++;
+            NetworkExecutor.Task<Void> task = executor.submit("tree-load", queuedLoads.poll());
+            loads.add(task);
+            task.whenDone(SwingUtilities::invokeLater, (result, error) -> {
+                loads.remove(task);
+                runningLoads--;
+                startLoads();
+            });
+        }
+    }
+
+    /**
+     * Áp dụng listing hiện tại (cache hoặc LIST) cho một thư mục đã load.
+     * Thư mục chưa từng expand không cần refresh. Gọi trên EDT.
+     *
+     * @param node Thư mục cần refresh
+     */
+    public void refresh(RemoteNode node) {
+        switch (node.getLoadState()) {
+            case LOADED:
+                load(node);
+                break;
+            case LOADING:
+                node.setReloadRequested(true);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Bỏ listing đã cache rồi refresh - luôn LIST lại từ server. Gọi trên EDT.
+     *
+     * @param node Thư mục cần reload
+     */
+    public void reload(RemoteNode node) {
+        if (pool != null) {
+            pool.getDirectoryCache().invalidate(node.getRemotePath());
+        }
+        refresh(node);
+    }
+
+    /**
+     * Refresh root từ bất kỳ thread nào (ví dụ sau khi upload xong)
+     */
+    public void refreshRootLater() {
+        SwingUtilities.invokeLater(() -> {
+            if (getRoot() instanceof RemoteNode) {
+                refresh((RemoteNode) getRoot());
+            }
+        });
+    }
+
+    @Override
+    public void treeWillExpand(TreeExpansionEvent event) {
+        Object node = event.getPath().getLastPathComponent();
+        if (node instanceof RemoteNode && previewing) {
+            if (((RemoteNode) node).getChildCount() == 0) {
+                fillFromIndex((RemoteNode) node);
+            }
+        } else if (node instanceof RemoteNode && ((RemoteNode) node).getLoadState() == RemoteNode.LoadState.UNLOADED) {
+            load((RemoteNode) node);
+        }
+    }
+
+    @Override
+    public void treeWillCollapse(TreeExpansionEvent event) {
+        // Children đã load được giữ lại - expand lần sau không LIST lại
+    }
+
+    /**
+     * Trạng thái của một lần load trên EDT: entries đã thấy trong listing
+     * mới và children có sẵn từ lần load trước
+     */
+    private static final class LoadSession {
+        final RemoteNode node;
+        final int epoch;
+        final Set<String> seen = new HashSet<>();
+        Set<String> existing;
+
+        LoadSession(RemoteNode node, int epoch) {
+            this.node = node;
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * Đánh dấu LOADING, thêm placeholder nếu node còn trống và list trong
+     * một task của executor. Entries về EDT theo từng chunk trong lúc đang đọc.
+     */
+    private void load(RemoteNode node) {
+        FtpConnectionPool current = pool;
+        if (current == null) {
+            return;
+        }
+        node.setLoadState(RemoteNode.LoadState.LOADING);
+        node.setReloadRequested(false);
+        if (node.getChildCount() == 0 && !fillFromIndex(node)) {
+            insertNodeInto(new DefaultMutableTreeNode("Loading...", false), node, 0);
+        }
+
+        LoadSession session = new LoadSession(node, epoch);
+        String path = node.getRemotePath();
+        DirectoryLister.ChunkListener chunks = chunk -> SwingUtilities.invokeLater(() -> applyChunk(session, chunk));
+        queuedLoads.add(() -> {
+            try {
+                DirectoryCache cache = current.getDirectoryCache();
+                List<FTPFile> cached = cache.get(path);
+                if (cached != null) {
+                    DirectoryLister.deliver(cached, chunks);
+                } else {
+                    cache.put(path, current.executeIdempotent(client ->
+                        DirectoryLister.list(client, current.getServerFeatures(), path, chunks, log)));
+                }
+                SwingUtilities.invokeLater(() -> complete(session));
+            } catch (InterruptedIOException e) {
+                // Bị cancel bởi disconnect/connect - session đã đổi, không cần báo lỗi
+                SwingUtilities.invokeLater(() -> failed(session));
+            } catch (Exception e) {
+                log.accept("Error loading " + (path.isEmpty() ? "/" : path) + ": " + e.getMessage());
+                SwingUtilities.invokeLater(() -> failed(session));
+            }
+            return null;
+        });
+        startLoads();
+    }
+
+    /**
+     * Áp dụng listing đầy đủ ngay trên thread hiện tại - cùng đường
+     * applyChunk/complete như load() nhưng không qua executor và
+     * invokeLater. Dùng cho benchmark dựng tree (src/jmh); caller phải
+     * giữ quy tắc một thread như EDT.
+     */
+    void applyListing(RemoteNode node, List<FTPFile> files) {
+        LoadSession session = new LoadSession(node, epoch);
+        DirectoryLister.deliver(files, chunk -> applyChunk(session, chunk));
+        complete(session);
+    }
+
+    /**
+     * Áp dụng một chunk: chunk đầu tiên bỏ placeholder; entry chưa có
+     * node thì được append (một nodesWereInserted cho cả chunk)
+     */
+    private void applyChunk(LoadSession session, List<FTPFile> chunk) {
+        if (session.epoch != epoch) {
+            return;
+        }
+        RemoteNode node = session.node;
+        if (session.existing == null) {
+            session.existing = new HashSet<>();
+            removeChildren(node, child -> !(child instanceof RemoteNode));
+            for (int i = 0; i < node.getChildCount(); i++) {
+                session.existing.add(key((RemoteNode) node.getChildAt(i)));
+            }
+        }
+
+        int[] indices = new int[chunk.size()];
+        int count = 0;
+        for (FTPFile file : chunk) {
+            String key = key(file.getName(), file.isDirectory());
+            if (session.seen.add(key) && !session.existing.contains(key)) {
+                indices[count++] = node.getChildCount();
+                node.add(new RemoteNode(file.getName(), node.childPath(file.getName()), file.isDirectory()));
+            }
+        }
+        if (count > 0) {
+            nodesWereInserted(node, Arrays.copyOf(indices, count));
+        }
+    }
+
+    /**
+     * Listing xong: bỏ children không còn trên server, các nhánh còn lại
+     * (kể cả đang expand) giữ nguyên
+     */
+    private void complete(LoadSession session) {
+        if (session.epoch != epoch) {
+            return;
+        }
+        applyChunk(session, Collections.emptyList());
+        removeChildren(session.node, child -> !session.seen.contains(key((RemoteNode) child)));
+        finish(session.node, RemoteNode.LoadState.LOADED);
+    }
+
+    /**
+     * List lỗi: bỏ placeholder, cho phép thử lại ở lần expand sau
+     */
+    private void failed(LoadSession session) {
+        if (session.epoch != epoch) {
+            return;
+        }
+        RemoteNode node = session.node;
+        removeChildren(node, child -> !(child instanceof RemoteNode));
+        finish(node, node.getChildCount() > 0 ? RemoteNode.LoadState.LOADED : RemoteNode.LoadState.UNLOADED);
+    }
+
+    private void finish(RemoteNode node, RemoteNode.LoadState state) {
+        node.setLoadState(state);
+        if (node.isReloadRequested() && state == RemoteNode.LoadState.LOADED) {
+            load(node);
+        } else {
+            node.setReloadRequested(false);
+        }
+    }
+
+    /**
+     * Điền children của một thư mục trống từ index (binary search trên file đã map)
+     *
+     * @return true nếu index có entries cho thư mục này
+     */
+    private boolean fillFromIndex(RemoteNode node) {
+        List<RemoteIndex.Entry> entries = index.children(node.getRemotePath());
+        if (entries.isEmpty()) {
+            return false;
+        }
+        int[] indices = new int[entries.size()];
+        for (int i = 0; i < indices.length; i++) {
+            RemoteIndex.Entry entry = entries.get(i);
+            indices[i] = node.getChildCount();
+            node.add(new RemoteNode(entry.getName(), node.childPath(entry.getName()), entry.isDirectory()));
+        }
+        nodesWereInserted(node, indices);
+        return true;
+    }
+
+    /**
+     * Thư mục đã có children (từ index) - cần revalidate khi connect xong
+     */
+    private void collectFilled(RemoteNode node, List<RemoteNode> result) {
+        if (node.getChildCount() == 0) {
+            return;
+        }
+        result.add(node);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (node.getChildAt(i) instanceof RemoteNode && ((RemoteNode) node.getChildAt(i)).isDirectory()) {
+                collectFilled((RemoteNode) node.getChildAt(i), result);
+            }
+        }
+    }
+
+    /**
+     * Bỏ các children thỏa điều kiện và fire một nodesWereRemoved.
+     * removeAllChildren + add lại: O(n) thay vì remove(i) lặp trên Vector.
+     */
+    private void removeChildren(RemoteNode node, Predicate<TreeNode> remove) {
+        List<MutableTreeNode> kept = new ArrayList<>();
+        List<Integer> removedIndices = new ArrayList<>();
+        List<Object> removedNodes = new ArrayList<>();
+        for (int i = 0; i < node.getChildCount(); i++) {
+            TreeNode child = node.getChildAt(i);
+            if (remove.test(child)) {
+                removedIndices.add(i);
+                removedNodes.add(child);
+            } else {
+                kept.add((MutableTreeNode) child);
+            }
+        }
+        if (removedIndices.isEmpty()) {
+            return;
+        }
+        node.removeAllChildren();
+        for (MutableTreeNode child : kept) {
+            node.add(child);
+        }
+        nodesWereRemoved(node, toArray(removedIndices), removedNodes.toArray());
+    }
+
+    /**
+     * File và thư mục cùng tên là hai entry khác nhau (đổi loại = remove + insert)
+     */
+    private static String key(String name, boolean directory) {
+        return directory ? name + "/" : name;
+    }
+
+    private static String key(RemoteNode node) {
+        return key(node.getName(), node.isDirectory());
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,347 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 🌲 Remote Walker - Walk đệ quy remote tree, list nhiều thư mục song song
+ *
+ * • Mỗi thư mục là một task của NetworkExecutor (virtual thread nếu có),
+ *   MLSD/LIST trên connection borrow từ pool
+ * • Bounded fan-out: tối đa `parallelism` listing (mặc định = max
+ *   connections của pool) - không bao giờ mở quá số connection. Thư mục
+ *   vượt quá chờ trong queue của walk và chỉ được submit khi có listing
+ *   kết thúc, nên walk không chiếm thread nào của NetworkExecutor để chờ
+ *   (pool 32 platform threads trên Java 17 dùng chung với tree load,
+ *   segment, checksum...)
+ * • Breadth-first: queue FIFO - thư mục được lên lịch trước (gần root)
+ *   được list trước
+ * • Streaming: entries được giao cho Visitor ngay khi từng chunk MLSD đến,
+ *   thư mục con được lên lịch trước khi listing của cha kết thúc
+ * • Depth limit tùy chọn (0 = chỉ root, -1 = không giới hạn)
+ * • cancel() và deadline (setTimeout) cancel mọi task của walk
+ *
+ * Visitor được gọi đồng thời từ nhiều worker threads - phải thread-safe.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see DirectoryLister
+ * @see SyncEngine
+ */
+public class RemoteWalker {
+
+    /**
+     * Nhận entries trong lúc walk (gọi từ nhiều thread cùng lúc)
+     */
+    public interface Visitor {
+        /**
+         * @param relativePath Path so với root của walk, phân cách bằng "/"
+         * @param file Entry (không có "." và "..")
+         * @param depth 0 cho entries trực tiếp trong root
+         */
+        void visit(String relativePath, FTPFile file, int depth);
+
+        /**
+         * Thư mục không list được
+         *
+         * @param relativePath Thư mục lỗi ("" = root)
+         * @param replyCode Reply code cuối cùng của server
+         * @return true để bỏ qua thư mục và tiếp tục, false để dừng walk với lỗi này
+         */
+        default boolean directoryFailed(String relativePath, int replyCode, IOException error) {
+            return false;
+        }
+    }
+
+    private final FtpConnectionPool pool;
+    private final NetworkExecutor executor;
+    private final Consumer<String> log;
+    private int parallelism;
+    private int maxDepth = -1;
+    private long timeoutMillis;
+    private volatile boolean cancelled;
+    private volatile Walk current;
+
+    /**
+     * @param pool Pool của server
+     * @param executor Chạy các listing
+     * @param log Callback ghi log (thread-safe)
+     */
+    public RemoteWalker(FtpConnectionPool pool, NetworkExecutor executor, Consumer<String> log) {
+        this.pool = pool;
+        this.executor = executor;
+        this.log = log;
+        this.parallelism = pool.getSettings().getMaxConnections();
+    }
+
+    /**
+     * @param parallelism Số listing chạy cùng lúc (bị giới hạn bởi max connections của pool)
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param maxDepth Độ sâu tối đa được list (0 = chỉ root, -1 = không giới hạn)
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @param timeoutMillis Deadline cho cả walk (0 = không giới hạn)
+     */
+    public void setTimeout(long timeoutMillis) {
+        this.timeoutMillis = Math.max(0, timeoutMillis);
+    }
+
+    /** Dừng walk đang chạy - task đang chờ lẫn listing đang dở bị cancel */
+    public void cancel() {
+        cancelled = true;
+        Walk walk = current;
+        if (walk != null) {
+            // Task bị cancel trước khi chạy không bao giờ giảm outstanding
+            walk.done.completeExceptionally(new InterruptedIOException("Remote walk cancelled"));
+            walk.cancelAll();
+        }
+    }
+
+    /**
+     * Walk toàn bộ tree dưới root, block cho đến khi xong
+     *
+     * @param root Thư mục remote ("" = home directory)
+     * @param visitor Nhận entries (thread-safe)
+     * @return Số thư mục đã list
+     * @throws IOException nếu một thư mục lỗi và visitor không bỏ qua, hoặc bị cancel
+     */
+    public long walk(String root, Visitor visitor) throws IOException {
+        cancelled = false;
+        int permits = Math.max(1, Math.min(parallelism, pool.getSettings().getMaxConnections()));
+        Walk walk = new Walk(root, visitor, permits);
+        current = walk;
+        long start = System.nanoTime();
+        try {
+            walk.schedule("", 0);
+            if (timeoutMillis > 0) {
+                walk.done.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                walk.done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            throw new InterruptedIOException("Remote walk interrupted");
+        } catch (TimeoutException e) {
+            cancelled = true;
+            throw new InterruptedIOException("Remote walk timed out after " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                : new IOException("Remote walk failed: " + e.getCause(), e.getCause());
+        } finally {
+            current = null;
+            walk.cancelAll();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.accept("Walked " + walk.directories.get() + " directories, " + walk.entries.get()
+            + " entries in " + millis + " ms (" + permits + " parallel listings)");
+        return walk.directories.get();
+    }
+
+    /**
+     * @return root + "/" + relativePath, xử lý root "" (home) và "/"
+     */
+    public static String join(String root, String relativePath) {
+        if (relativePath.isEmpty()) {
+            return root;
+        }
+        if (root.isEmpty()) {
+            return relativePath;
+        }
+        return root.endsWith("/") ? root + relativePath : root + "/" + relativePath;
+    }
+
+    /** Thư mục đã lên lịch, chờ tới lượt list */
+    private static final class PendingDirectory {
+        final String directory;
+        final int depth;
+
+        PendingDirectory(String directory, int depth) {
+            this.directory = directory;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * State của một lần walk: số thư mục chưa xong, kết quả
+     */
+    private final class Walk {
+        private final String root;
+        private final Visitor visitor;
+        /** Bounded fan-out: số listing được chạy cùng lúc */
+        private final int permits;
+        /** Thư mục chờ listing slot - FIFO để thư mục gần root được list trước (guarded by pending) */
+        private final ArrayDeque<PendingDirectory> pending = new ArrayDeque<>();
+        /** Listing đã submit, chưa kết thúc (guarded by pending) */
+        private int running;
+        private final ServerFeatures features;
+        /** Task chưa kết thúc - cancel khi walk lỗi, bị cancel hoặc hết deadline */
+        private final Set<NetworkExecutor.Task<Void>> tasks = ConcurrentHashMap.newKeySet();
+        /** Thư mục đã lên lịch nhưng chưa list xong - về 0 là walk kết thúc */
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong directories = new AtomicLong();
+        private final AtomicLong entries = new AtomicLong();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Walk(String root, Visitor visitor, int permits) {
+            this.root = root;
+            this.visitor = visitor;
+            this.permits = permits;
+            this.features = pool.getServerFeatures();
+        }
+
+        /**
+         * Xếp thư mục vào queue rồi submit những thư mục tới lượt
+         */
+        void schedule(String directory, int depth) {
+            outstanding.incrementAndGet();
+            synchronized (pending) {
+                pending.add(new PendingDirectory(directory, depth));
+            }
+            dispatch();
+        }
+
+        /**
+         * Một task cho mỗi thư mục, chỉ submit khi còn listing slot - task
+         * không bao giờ chờ slot trên thread của executor. Slot được trả
+         * khi task kết thúc (kể cả bị cancel).
+         */
+        private void dispatch() {
+            while (true) {
+                PendingDirectory next;
+                boolean skip;
+                synchronized (pending) {
+                    if (running >= permits || pending.isEmpty()) {
+                        return;
+                    }
+                    next = pending.poll();
+                    skip = cancelled || done.isDone();
+                    if (!skip) {
+                        running++;
+                    }
+                }
+                if (skip) {
+                    directoryFinished();
+                    continue;
+                }
+                NetworkExecutor.Task<Void> task = executor.submit("walk", () -> {
+                    list(next.directory, next.depth);
+                    return null;
+                });
+                tasks.add(task);
+                task.whenDone(Runnable::run, (result, error) -> {
+                    tasks.remove(task);
+                    synchronized (pending) {
+                        running--;
+                    }
+                    dispatch();
+                });
+            }
+        }
+
+        void cancelAll() {
+            for (NetworkExecutor.Task<Void> task : tasks) {
+                task.cancel();
+            }
+        }
+
+        private void list(String directory, int depth) {
+            try {
+                if (!cancelled && !done.isDone()) {
+                    listWithRetry(directory, depth);
+                    directories.incrementAndGet();
+                }
+            } catch (IOException e) {
+                done.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            } finally {
+                directoryFinished();
+            }
+        }
+
+        /** Thư mục đã list xong hoặc bị bỏ qua - thư mục cuối cùng kết thúc walk */
+        private void directoryFinished() {
+            if (outstanding.decrementAndGet() == 0) {
+                if (cancelled) {
+                    done.completeExceptionally(new InterruptedIOException("Remote walk cancelled"));
+                } else {
+                    done.complete(null);
+                }
+            }
+        }
+
+        /**
+         * List một thư mục. Connection đứt giữa chừng → list lại trên
+         * connection mới, bỏ qua số entries đã giao (không giao trùng).
+         */
+        private void listWithRetry(String directory, int depth) throws IOException {
+            int[] delivered = {0};
+            for (int attempt = 1; ; attempt++) {
+                FTPClient client = pool.borrow();
+                int skip = delivered[0];
+                int[] seen = {0};
+                try {
+                    DirectoryLister.list(client, features, join(root, directory), chunk ->
+                        deliver(directory, depth, chunk, skip, seen, delivered), message -> { });
+                    pool.release(client);
+                    return;
+                } catch (IOException e) {
+                    // Reply của chính listing (550...) - đọc trước khi connection được trả/bỏ
+                    int replyCode = client.getReplyCode();
+                    boolean connectionLost = !pool.releaseAfterFailure(client, e);
+                    if (connectionLost && attempt == 1) {
+                        log.accept("Walker: connection lost listing " + display(directory) + ", retrying");
+                        continue;
+                    }
+                    if (visitor.directoryFailed(directory, replyCode, e)) {
+                        return;
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        private void deliver(String directory, int depth, List<FTPFile> chunk, int skip, int[] seen, int[] delivered) {
+            for (FTPFile file : chunk) {
+                if (seen[0]++ < skip) {
+                    continue;
+                }
+                delivered[0]++;
+                entries.incrementAndGet();
+                String path = directory.isEmpty() ? file.getName() : directory + "/" + file.getName();
+                visitor.visit(path, file, depth);
+                if (file.isDirectory() && (maxDepth < 0 || depth < maxDepth) && !cancelled) {
+                    schedule(path, depth + 1);
+                }
+            }
+        }
+
+        private String display(String directory) {
+            return directory.isEmpty() ? "/" : directory;
+        }
+    }
+}
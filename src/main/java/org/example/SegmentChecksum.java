@@ -0,0 +1,155 @@
+package org.example;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 🧩 Segment Checksum - CRC của cả file ghép từ CRC của từng byte range
+ *
+ * Segmented download nhận các range song song, không theo thứ tự, nên
+ * không thể đưa bytes vào một StreamingChecksum duy nhất. Mỗi range tính
+ * CRC riêng trong lúc bytes đến (ChannelTransfer.downloadRange), rồi
+ * finish() ghép theo thứ tự offset bằng crc32_combine của zlib:
+ *
+ *   crc(A‖B) = crc(A) · x^(8·|B|) ⊕ crc(B)   (trên GF(2), mod đa thức CRC)
+ *
+ * Phép nhân với x^(8·|B|) dùng ma trận 32×32 bình phương liên tiếp -
+ * O(log |B|) cho mỗi lần ghép, không đọc lại file.
+ *
+ * • Chỉ CRC32 và CRC32C ghép được (isCombinable()); hash mật mã và XXH64
+ *   thì không - TransferVerifier khi đó chỉ so SIZE
+ * • add() thread-safe: mỗi connection của SegmentedDownloader thêm range
+ *   của nó khi range tải xong; range lỗi không được thêm (tải lại từ đầu)
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see SegmentedDownloader
+ * @see TransferVerifier
+ */
+public final class SegmentChecksum {
+    /** Đa thức CRC-32 (IEEE) dạng reflected */
+    private static final int CRC32_POLY = 0xEDB88320;
+    /** Đa thức CRC-32C (Castagnoli) dạng reflected */
+    private static final int CRC32C_POLY = 0x82F63B78;
+
+    private final RemoteChecksum.Algorithm algorithm;
+    private final int poly;
+    /** start → {crc, length} */
+    private final TreeMap<Long, long[]> parts = new TreeMap<>();
+
+    /**
+     * @throws IllegalArgumentException nếu thuật toán không ghép được
+     */
+    public SegmentChecksum(RemoteChecksum.Algorithm algorithm) {
+        if (!isCombinable(algorithm)) {
+            throw new IllegalArgumentException(algorithm.getFtpName() + " cannot be combined");
+        }
+        this.algorithm = algorithm;
+        this.poly = algorithm == RemoteChecksum.Algorithm.CRC32 ? CRC32_POLY : CRC32C_POLY;
+    }
+
+    /**
+     * @return true nếu checksum của các range ghép lại được thành checksum cả file
+     */
+    public static boolean isCombinable(RemoteChecksum.Algorithm algorithm) {
+        return algorithm == RemoteChecksum.Algorithm.CRC32 || algorithm == RemoteChecksum.Algorithm.CRC32C;
+    }
+
+    public RemoteChecksum.Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /** @return Checksum mới cho một range */
+    public StreamingChecksum newPart() {
+        return new StreamingChecksum(algorithm);
+    }
+
+    /**
+     * Ghi nhận một range đã tải xong
+     *
+     * @param start Offset của range trong file
+     * @param part Checksum từ newPart(), đã update đủ bytes của range
+     */
+    public synchronized void add(long start, StreamingChecksum part) {
+        parts.put(start, new long[] {part.value(), part.getBytes()});
+    }
+
+    /**
+     * Ghép các range theo offset
+     *
+     * @param size Kích thước file
+     * @return Checksum cả file, null nếu các range không phủ liền [0, size)
+     */
+    public synchronized RemoteChecksum finish(long size) {
+        long crc = 0;
+        long end = 0;
+        for (Map.Entry<Long, long[]> part : parts.entrySet()) {
+            if (part.getKey() != end) {
+                return null;
+            }
+            long length = part.getValue()[1];
+            crc = combine(crc, part.getValue()[0], length, poly);
+            end += length;
+        }
+        return end == size ? new RemoteChecksum(algorithm, String.format("%08x", crc)) : null;
+    }
+
+    /**
+     * crc32_combine của zlib: CRC của A‖B từ crc(A), crc(B) và |B|
+     *
+     * @param poly Đa thức reflected (init/xorout 0xFFFFFFFF như CRC32/CRC32C)
+     */
+    static long combine(long crc1, long crc2, long length2, int poly) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        int[] even = new int[32];
+        int[] odd = new int[32];
+
+        // odd = toán tử cho một bit 0
+        odd[0] = poly;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd);  // 2 bit 0
+        square(odd, even);  // 4 bit 0
+
+        // Byte đầu tiên áp dụng toán tử 8 bit 0 (even), rồi bình phương dần
+        int crc = (int) crc1;
+        long remaining = length2;
+        do {
+            square(even, odd);
+            if ((remaining & 1) != 0) {
+                crc = times(even, crc);
+            }
+            remaining >>>= 1;
+            if (remaining == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((remaining & 1) != 0) {
+                crc = times(odd, crc);
+            }
+            remaining >>>= 1;
+        } while (remaining != 0);
+        return (crc ^ (int) crc2) & 0xFFFFFFFFL;
+    }
+
+    private static int times(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
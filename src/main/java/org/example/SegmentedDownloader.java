@@ -0,0 +1,263 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ✂️ Segmented Downloader - Tải một file lớn qua nhiều data channel song song
+ *
+ * Một RETR bị giới hạn bởi một TCP stream và một TLS cipher context.
+ * Segmented mode chia file thành N byte range:
+ *
+ * 1. SIZE remotePath → tổng số bytes
+ * 2. Preallocate local file (setLength) để mọi segment ghi thẳng vào vị trí
+ * 3. Mỗi connection lấy range tiếp theo: REST start → RETR → đọc đúng
+ *    (end - start) bytes → FileChannel.write(buffer, position), qua
+ *    ChannelTransfer.downloadRange (data socket trực tiếp, ftps.bufferSize)
+ * 4. Verify: tổng bytes nhận được và file length phải bằng SIZE
+ * 5. Khi verify CHECKSUM và server có CRC32/CRC32C: mỗi range tính CRC
+ *    lúc bytes đến, ghép theo offset thành CRC cả file (SegmentChecksum)
+ *
+ * CONNECTIONS:
+ * Connection của worker luôn tham gia; các connection thêm được lấy bằng
+ * tryBorrow() nên không bao giờ chờ pool (tránh deadlock khi mọi worker
+ * cùng tải segmented). Range được phân phát qua queue, nên dù chỉ có một
+ * connection thì download vẫn hoàn tất. Helper chạy trong một
+ * NetworkExecutor.Scope, scope đóng (cancel + chờ) trước khi file được đóng.
+ *
+ * LỖI:
+ * • Helper lỗi I/O: range được trả lại queue, connection lỗi bị bỏ và
+ *   helper dừng - download tiếp tục trên các connection còn lại
+ * • Range đã retry một lần mà lỗi tiếp, hoặc connection của worker lỗi
+ *   → cả download thất bại (các helper còn lại bị cancel)
+ * • Bytes của range lỗi được trừ khỏi progress trước khi range chạy lại
+ * • Worker chỉ kết thúc khi queue rỗng và mọi helper đã dừng, nên range
+ *   bị trả lại muộn vẫn được tải
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FileTransfer
+ */
+public final class SegmentedDownloader {
+    /** Segment nhỏ hơn mức này không đáng một data connection riêng */
+    public static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+
+    /** Worker chờ range bị helper trả lại theo từng khoảng này */
+    private static final long HELPER_POLL_MILLIS = 100;
+
+    /** Byte range [start, end) */
+    private static final class Range {
+        final long start;
+        final long end;
+        /** Đã bị một helper trả lại một lần */
+        volatile boolean retried;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private SegmentedDownloader() {
+    }
+
+    /**
+     * Tải job.remotePath về job.localFile bằng nhiều connection
+     *
+     * @param primary Connection của worker (không bị release ở đây)
+     * @param job Download job với segments > 1
+     * @param throttle Giới hạn bandwidth của job - các segment dùng chung
+     * @param executor Chạy các connection phụ
+     * @return Checksum cả file để TransferVerifier so với server, null nếu
+     *         không cần hoặc không ghép được (chỉ so SIZE)
+     * @throws IOException nếu SIZE không hỗ trợ, segment lỗi hoặc verify thất bại
+     */
+    public static RemoteChecksum download(FTPClient primary, TransferJob job, BandwidthLimiter.Throttle throttle,
+                                          NetworkExecutor executor) throws IOException {
+        long size = remoteSize(primary, job.getRemotePath());
+        job.setExpectedSize(size);
+        int segmentCount = (int) Math.max(1, Math.min(job.getSegments(),
+            (size + MIN_SEGMENT_SIZE - 1) / MIN_SEGMENT_SIZE));
+
+        LinkedBlockingQueue<Range> ranges = new LinkedBlockingQueue<>();
+        long segmentSize = (size + segmentCount - 1) / Math.max(1, segmentCount);
+        for (long start = 0; start < size; start += segmentSize) {
+            ranges.add(new Range(start, Math.min(size, start + segmentSize)));
+        }
+        SegmentChecksum checksum = TransferVerifier.segmented(job.getPool());
+
+        try (RandomAccessFile raf = new RandomAccessFile(job.getLocalFile(), "rw");
+             NetworkExecutor.Scope scope = executor.scope("segments " + job.getRemotePath(), 0)) {
+            raf.setLength(size);
+            FileChannel channel = raf.getChannel();
+
+            // Connection phụ - chỉ lấy khi pool còn chỗ
+            FtpConnectionPool pool = job.getPool();
+            List<NetworkExecutor.Task<Long>> helpers = new ArrayList<>();
+            AtomicInteger helpersRunning = new AtomicInteger();
+            for (int i = 1; i < segmentCount; i++) {
+                FTPClient extra = pool.tryBorrow();
+                if (extra == null) {
+                    break;
+                }
+                helpersRunning.incrementAndGet();
+                helpers.add(scope.fork("segment " + i, () -> {
+                    try {
+                        return helperRanges(extra, job, ranges, channel, throttle, checksum);
+                    } finally {
+                        helpersRunning.decrementAndGet();
+                    }
+                }));
+            }
+
+            long received = 0;
+            try {
+                Range range;
+                while ((range = nextRange(job, ranges, helpersRunning)) != null) {
+                    received += fetchRange(primary, job, range, channel, throttle, checksum);
+                }
+            } catch (IOException e) {
+                // Helper còn lại bị cancel khi scope đóng
+                ranges.clear();
+                throw e;
+            }
+            scope.join();
+            for (NetworkExecutor.Task<Long> helper : helpers) {
+                received += helper.await();
+            }
+
+            if (received != size || channel.size() != size) {
+                throw new IOException("Segmented download incomplete: received " + received
+                    + " of " + size + " bytes");
+            }
+            channel.force(false);
+        }
+        return checksum == null ? null : checksum.finish(size);
+    }
+
+    /**
+     * SIZE remotePath
+     *
+     * @return Kích thước file trên server
+     * @throws IOException nếu server không hỗ trợ SIZE
+     */
+    static long remoteSize(FTPClient client, String remotePath) throws IOException {
+        String reply = client.getSize(remotePath);
+        if (reply == null) {
+            throw new IOException("SIZE not supported: " + client.getReplyString().trim());
+        }
+        try {
+            return Long.parseLong(reply.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid SIZE reply: " + reply.trim());
+        }
+    }
+
+    /**
+     * Connection phụ: lấy range từ queue cho đến khi hết. Range lỗi lần
+     * đầu được trả lại queue và helper dừng (bỏ connection lỗi) mà không
+     * làm fail download.
+     *
+     * @return Tổng bytes của các range đã tải xong
+     * @throws IOException nếu range đã retry mà vẫn lỗi, hoặc job bị abort
+     */
+    private static long helperRanges(FTPClient client, TransferJob job, LinkedBlockingQueue<Range> ranges,
+                                     FileChannel channel, BandwidthLimiter.Throttle throttle,
+                                     SegmentChecksum checksum) throws IOException {
+        FtpConnectionPool pool = job.getPool();
+        long total = 0;
+        try {
+            Range range;
+            while ((range = ranges.poll()) != null) {
+                try {
+                    total += fetchRange(client, job, range, channel, throttle, checksum);
+                } catch (TransferJob.TransferAbortedException e) {
+                    throw e;
+                } catch (IOException e) {
+                    if (range.retried) {
+                        throw e;
+                    }
+                    range.retried = true;
+                    ranges.add(range);
+                    pool.releaseAfterFailure(client, e);
+                    return total;
+                }
+            }
+            pool.release(client);
+            return total;
+        } catch (IOException e) {
+            pool.releaseAfterFailure(client, e);
+            throw e;
+        } catch (RuntimeException e) {
+            pool.invalidate(client);
+            throw e;
+        }
+    }
+
+    /**
+     * Range tiếp theo cho connection của worker. Queue rỗng nhưng helper
+     * còn chạy → chờ, vì helper lỗi có thể trả range lại.
+     *
+     * @return null khi queue rỗng và mọi helper đã dừng
+     * @throws IOException nếu job bị abort hoặc thread bị interrupt
+     */
+    private static Range nextRange(TransferJob job, LinkedBlockingQueue<Range> ranges,
+                                   AtomicInteger helpersRunning) throws IOException {
+        try {
+            while (true) {
+                Range range = ranges.poll(HELPER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (range != null) {
+                    return range;
+                }
+                if (helpersRunning.get() == 0) {
+                    // Helper trả range rồi mới dừng - poll lần cuối
+                    return ranges.poll();
+                }
+                job.checkAbort();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Segmented download interrupted: " + job.getRemotePath());
+        }
+    }
+
+    /**
+     * Một range qua ChannelTransfer.downloadRange (cùng buffer settings với
+     * transfer thường). Range lỗi giữa chừng: bytes đã nhận được trừ khỏi
+     * progress và CRC của nó bị bỏ, vì range sẽ được tải lại từ đầu.
+     *
+     * @param checksum CRC ghép của cả file, null = không tính
+     */
+    private static long fetchRange(FTPClient client, TransferJob job, Range range, FileChannel channel,
+                                   BandwidthLimiter.Throttle throttle, SegmentChecksum checksum)
+            throws IOException {
+        int bufferSize = throttle.chunkSize(job.getPool().getSettings().getTransferBufferSize());
+        StreamingChecksum part = checksum == null ? null : checksum.newPart();
+        long[] counted = new long[1];
+        try {
+            long bytes = ChannelTransfer.downloadRange(client, job.getRemotePath(), channel, range.start,
+                range.end - range.start, bufferSize, n -> {
+                    job.addBytesTransferred(n);
+                    counted[0] += n;
+                    job.checkAbort();
+                    throttle.acquire(n);
+                }, part);
+            if (checksum != null) {
+                checksum.add(range.start, part);
+            }
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            job.discardBytes(counted[0]);
+            throw e;
+        }
+    }
+}
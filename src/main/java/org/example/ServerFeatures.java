@@ -0,0 +1,117 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 🧭 Server Features - Kết quả FEAT (RFC 2389) của một server
+ *
+ * FEAT chỉ được gửi một lần khi pool mở connection đầu tiên. Các thành
+ * phần khác hỏi capability ở đây thay vì gửi lại FEAT trên mỗi connection:
+ *
+ * • MLST → DirectoryLister dùng MLSD thay cho LIST, mlstFacts() chọn
+ *   facts cho OPTS MLST
+ * • SIZE, MDTM, REST STREAM, UTF8
+ *
+ * Object immutable - an toàn khi đọc từ nhiều thread.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpConnectionFactory
+ */
+public final class ServerFeatures {
+    /** Server không trả lời FEAT (hoặc FEAT lỗi) - không có feature nào */
+    public static final ServerFeatures NONE = new ServerFeatures(Collections.emptyMap());
+
+    private final Map<String, String> features;
+
+    private ServerFeatures(Map<String, String> features) {
+        this.features = features;
+    }
+
+    /**
+     * Parse reply 211 của FEAT
+     *
+     * @param replyLines client.getReplyStrings() sau FEAT
+     *                   ("211-Features:", " MLST type*;size*;", ..., "211 End")
+     * @return Features của server
+     */
+    public static ServerFeatures parse(String[] replyLines) {
+        Map<String, String> features = new LinkedHashMap<>();
+        if (replyLines != null) {
+            for (String line : replyLines) {
+                // Feature lines bắt đầu bằng một space, dòng đầu/cuối là "211-..."/"211 ..."
+                if (line.length() < 2 || line.charAt(0) != ' ') {
+                    continue;
+                }
+                String feature = line.trim();
+                int space = feature.indexOf(' ');
+                String name = (space < 0 ? feature : feature.substring(0, space)).toUpperCase(Locale.ROOT);
+                String parameters = space < 0 ? "" : feature.substring(space + 1).trim();
+                features.merge(name, parameters, (a, b) -> a.isEmpty() ? b : a + " " + b);
+            }
+        }
+        return new ServerFeatures(Collections.unmodifiableMap(features));
+    }
+
+    /**
+     * @param name Tên feature (không phân biệt hoa thường), ví dụ "MLST"
+     */
+    public boolean has(String name) {
+        return features.containsKey(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return Parameters của feature ("" nếu không có), null nếu không hỗ trợ
+     */
+    public String getParameters(String name) {
+        return features.get(name.toUpperCase(Locale.ROOT));
+    }
+
+    /** @return true nếu server hỗ trợ MLST/MLSD (RFC 3659) */
+    public boolean supportsMlsd() {
+        return has("MLST");
+    }
+
+    /**
+     * Facts cho "OPTS MLST": các fact trong wanted mà server quảng bá
+     * trong FEAT ("MLST type*;size*;modify*;UNIX.mode;"), giữ tên đúng như
+     * server viết. Server không liệt kê facts → gửi nguyên wanted (fact
+     * không hỗ trợ bị bỏ qua, RFC 3659 7.9).
+     *
+     * @param wanted Facts cần, ví dụ "type", "size", "modify", "UNIX.mode"
+     * @return "type;size;modify;UNIX.mode;", "" nếu không có fact nào dùng được
+     */
+    public String mlstFacts(String... wanted) {
+        String advertised = getParameters("MLST");
+        StringBuilder facts = new StringBuilder();
+        for (String fact : wanted) {
+            String name = advertised == null || advertised.isEmpty() ? fact : findFact(advertised, fact);
+            if (name != null) {
+                facts.append(name).append(';');
+            }
+        }
+        return facts.toString();
+    }
+
+    private static String findFact(String advertised, String fact) {
+        for (String entry : advertised.split(";")) {
+            String name = entry.trim();
+            if (name.endsWith("*")) {
+                name = name.substring(0, name.length() - 1);
+            }
+            if (name.equalsIgnoreCase(fact)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    /** @return Danh sách feature để log, ví dụ "MLST, SIZE, MDTM" */
+    @Override
+    public String toString() {
+        return features.isEmpty() ? "(none)" : String.join(", ", features.keySet());
+    }
+}
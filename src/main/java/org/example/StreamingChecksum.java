@@ -0,0 +1,117 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * 🧮 Streaming Checksum - Hash tính dần trên bytes đang được transfer
+ *
+ * • ChannelTransfer gọi update() với đúng buffer vừa đọc từ file (upload)
+ *   hoặc từ socket (download) - không đọc lại file sau khi transfer
+ * • CRC32 / CRC32C / XXH64 qua java.util.zip.Checksum (CRC32C có intrinsic
+ *   phần cứng), SHA-256 / SHA-1 / MD5 qua MessageDigest
+ * • update(ByteBuffer) đọc cả direct buffer mà không copy sang heap
+ *
+ * Một instance cho một lần transfer, chỉ một thread dùng.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see RemoteChecksum
+ * @see TransferVerifier
+ */
+public final class StreamingChecksum {
+    private final RemoteChecksum.Algorithm algorithm;
+    private final Checksum checksum;
+    private final MessageDigest digest;
+    private long bytes;
+
+    /**
+     * @throws IllegalStateException nếu JDK không có MessageDigest tương ứng
+     */
+    public StreamingChecksum(RemoteChecksum.Algorithm algorithm) {
+        this.algorithm = algorithm;
+        switch (algorithm) {
+            case CRC32:
+                this.checksum = new CRC32();
+                this.digest = null;
+                break;
+            case CRC32C:
+                this.checksum = new CRC32C();
+                this.digest = null;
+                break;
+            case XXH64:
+                this.checksum = new Xxh64();
+                this.digest = null;
+                break;
+            default:
+                this.checksum = null;
+                try {
+                    this.digest = MessageDigest.getInstance(algorithm.getFtpName());
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(algorithm.getFtpName() + " not available", e);
+                }
+        }
+    }
+
+    public RemoteChecksum.Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /** @return Số bytes đã cộng vào hash */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Cộng phần [position, limit) của buffer. Position của buffer không đổi
+     * - caller vẫn ghi được chính buffer đó ra file/socket sau đó.
+     */
+    public void update(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        bytes += view.remaining();
+        if (checksum != null) {
+            checksum.update(view);
+        } else {
+            digest.update(view);
+        }
+    }
+
+    public void update(byte[] array, int offset, int length) {
+        bytes += length;
+        if (checksum != null) {
+            checksum.update(array, offset, length);
+        } else {
+            digest.update(array, offset, length);
+        }
+    }
+
+    /**
+     * @return Giá trị hiện tại của CRC32/CRC32C/XXH64 (SegmentChecksum ghép
+     *         giá trị của từng range)
+     * @throws IllegalStateException với thuật toán MessageDigest
+     */
+    long value() {
+        if (checksum == null) {
+            throw new IllegalStateException(algorithm.getFtpName() + " has no numeric value");
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * @return Checksum cuối cùng, cùng định dạng hex với reply của server
+     */
+    public RemoteChecksum finish() {
+        if (checksum == null) {
+            return new RemoteChecksum(algorithm, HexFormat.of().formatHex(digest.digest()));
+        }
+        String hex = algorithm == RemoteChecksum.Algorithm.XXH64
+            ? String.format("%016x", checksum.getValue())
+            : String.format("%08x", checksum.getValue());
+        return new RemoteChecksum(algorithm, hex);
+    }
+}
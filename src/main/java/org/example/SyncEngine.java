@@ -0,0 +1,553 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 🔁 Sync Engine - Mirror/sync đệ quy giữa local directory và remote directory
+ *
+ * MODES:
+ * • UPLOAD: local → remote (local là nguồn)
+ * • DOWNLOAD: remote → local (remote là nguồn)
+ * • BOTH: hai chiều - bên mới hơn thắng, cả hai cùng đổi → CONFLICT
+ *
+ * QUY TRÌNH:
+ * 1. plan(): walk local tree (task của NetworkExecutor) song song với
+ *    remote tree (RemoteWalker - nhiều MLSD/LIST cùng lúc qua pool), so
+ *    sánh từng path → SyncPlan (dry run)
+ * 2. execute(plan, queue): delete → mkdir → submit transfers vào
+ *    TransferQueue (song song, per-host limit, resume như transfer thường)
+ *
+ * DELTA DETECTION:
+ * • Size khác → copy
+ * • SIZE_MTIME: nguồn mới hơn đích quá tolerance (2s với MLSD, 60s với
+ *   LIST vì LIST chỉ chính xác tới phút) → copy
+ * • CHECKSUM: file cùng size được so hash (HASH/XCRC/MD5 của server vs
+ *   local), mtime bị bỏ qua. Server không hỗ trợ → fallback SIZE_MTIME
+ * • Sau transfer, mtime của đích được đặt bằng mtime nguồn (MFMT /
+ *   setLastModified) để lần sync sau không copy lại
+ *
+ * Deletes chỉ có ở one-way mirror (deleteExtraneous) - sync hai chiều
+ * không có state nên không phân biệt được "file mới" với "file đã xóa".
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see SyncPlan
+ * @see TransferQueue
+ * @see RemoteChecksum
+ */
+public class SyncEngine {
+
+    /** Chiều sync */
+    public enum Mode {
+        UPLOAD("Local → Remote"),
+        DOWNLOAD("Remote → Local"),
+        BOTH("Both directions");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** Cách phát hiện file thay đổi */
+    public enum Compare {
+        SIZE_MTIME("Size + mtime"),
+        CHECKSUM("Checksum (HASH/XCRC/MD5)");
+
+        private final String label;
+
+        Compare(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** mtime tolerance khi timestamp từ MLSD (giây) / LIST (phút) */
+    static final long MLSD_MTIME_TOLERANCE_MILLIS = 2_000;
+    static final long LIST_MTIME_TOLERANCE_MILLIS = 60_000;
+    /** Log tiến độ scan mỗi chừng này entries */
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    /**
+     * Một file/thư mục trong tree (compact - có thể có hàng triệu)
+     */
+    static final class Entry {
+        final boolean directory;
+        final long size;
+        final long modifiedTime;
+
+        Entry(boolean directory, long size, long modifiedTime) {
+            this.directory = directory;
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+        }
+    }
+
+    private final FtpConnectionPool pool;
+    private final NetworkExecutor executor;
+    private final File localRoot;
+    private final String remoteRoot;
+    private final Consumer<String> log;
+
+    private Mode mode = Mode.UPLOAD;
+    private Compare compare = Compare.SIZE_MTIME;
+    private boolean deleteExtraneous;
+    private volatile boolean cancelled;
+    private volatile boolean remoteRootMissing;
+    private volatile RemoteWalker walker;
+
+    /**
+     * @param pool Pool của server
+     * @param executor Chạy local walk, remote listings và checksum
+     * @param localRoot Thư mục local
+     * @param remoteRoot Thư mục remote ("" = home directory)
+     * @param log Callback ghi log (thread-safe)
+     */
+    public SyncEngine(FtpConnectionPool pool, NetworkExecutor executor, File localRoot, String remoteRoot,
+                      Consumer<String> log) {
+        this.pool = pool;
+        this.executor = executor;
+        this.localRoot = localRoot;
+        this.remoteRoot = trimSlash(remoteRoot == null ? "" : remoteRoot.trim());
+        this.log = log;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setCompare(Compare compare) {
+        this.compare = compare;
+    }
+
+    /**
+     * @param deleteExtraneous true để xóa file ở đích không có ở nguồn
+     *                         (chỉ one-way mirror)
+     */
+    public void setDeleteExtraneous(boolean deleteExtraneous) {
+        this.deleteExtraneous = deleteExtraneous;
+    }
+
+    /** Dừng plan()/execute() đang chạy ở bước tiếp theo */
+    public void cancel() {
+        cancelled = true;
+        RemoteWalker current = walker;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * Dry run: walk cả hai tree, so sánh, không thay đổi gì
+     *
+     * @return Plan để user xem trước và truyền vào execute()
+     * @throws IOException nếu không walk được một trong hai tree
+     */
+    public SyncPlan plan() throws IOException {
+        cancelled = false;
+        if (mode == Mode.UPLOAD && !localRoot.isDirectory()) {
+            throw new IOException("Local directory not found: " + localRoot);
+        }
+        Map<String, Entry> remote;
+        Map<String, Entry> local;
+        // Remote walk lỗi → scope đóng cancel local walk
+        try (NetworkExecutor.Scope scope = executor.scope("sync-scan", 0)) {
+            NetworkExecutor.Task<Map<String, Entry>> localWalk = scope.fork("local", this::walkLocal);
+            remote = walkRemote();
+            scope.join();
+            local = localWalk.await();
+        }
+        log.accept("Sync: scanned " + local.size() + " local, " + remote.size() + " remote entries");
+
+        Map<String, Boolean> checksumDiffers = compare == Compare.CHECKSUM ? compareChecksums(local, remote) : null;
+        long tolerance = pool.getServerFeatures().supportsMlsd()
+            ? MLSD_MTIME_TOLERANCE_MILLIS : LIST_MTIME_TOLERANCE_MILLIS;
+        if (mode == Mode.BOTH && deleteExtraneous) {
+            log.accept("Sync: deletes are not propagated in two-way sync");
+        }
+
+        Set<String> union = new HashSet<>(local.keySet());
+        union.addAll(remote.keySet());
+        List<String> paths = new ArrayList<>(union);
+        // Thư mục cha ("a") luôn đứng trước con ("a/b")
+        Collections.sort(paths);
+
+        SyncPlan plan = new SyncPlan();
+        plan.setScanned(local.size(), remote.size());
+        for (String path : paths) {
+            Entry localEntry = local.get(path);
+            Entry remoteEntry = remote.get(path);
+            Boolean differs = checksumDiffers == null ? null : checksumDiffers.get(path);
+            if (mode == Mode.UPLOAD) {
+                oneWay(plan, path, localEntry, remoteEntry, true, differs, tolerance);
+            } else if (mode == Mode.DOWNLOAD) {
+                oneWay(plan, path, remoteEntry, localEntry, false, differs, tolerance);
+            } else {
+                twoWay(plan, path, localEntry, remoteEntry, differs, tolerance);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Thực hiện plan: deletes (con trước cha), mkdirs (cha trước con), rồi
+     * submit mọi upload/download vào queue
+     *
+     * @return Transfer jobs đã submit
+     * @throws IOException nếu không tạo được thư mục gốc
+     */
+    public List<TransferJob> execute(SyncPlan plan, TransferQueue queue) throws IOException {
+        cancelled = false;
+        List<SyncPlan.Action> actions = plan.getActions();
+
+        for (int i = actions.size() - 1; i >= 0 && !cancelled; i--) {
+            SyncPlan.Action action = actions.get(i);
+            if (action.getType() == SyncPlan.ActionType.DELETE_REMOTE) {
+                deleteRemote(action);
+            } else if (action.getType() == SyncPlan.ActionType.DELETE_LOCAL) {
+                Files.deleteIfExists(localFile(action.getRelativePath()).toPath());
+            }
+        }
+
+        if (remoteRootMissing) {
+            makeRemoteRoot();
+        }
+        if (plan.count(SyncPlan.ActionType.MKDIR_LOCAL) > 0 || plan.count(SyncPlan.ActionType.DOWNLOAD) > 0) {
+            Files.createDirectories(localRoot.toPath());
+        }
+        List<TransferJob> jobs = new ArrayList<>();
+        for (SyncPlan.Action action : actions) {
+            if (cancelled) {
+                break;
+            }
+            String path = action.getRelativePath();
+            switch (action.getType()) {
+                case MKDIR_REMOTE:
+                    pool.execute(client -> client.makeDirectory(remotePath(path)));
+                    break;
+                case MKDIR_LOCAL:
+                    Files.createDirectories(localFile(path).toPath());
+                    break;
+                case UPLOAD:
+                case DOWNLOAD:
+                    TransferJob job = new TransferJob(action.getType() == SyncPlan.ActionType.UPLOAD
+                        ? TransferJob.Direction.UPLOAD : TransferJob.Direction.DOWNLOAD,
+                        localFile(path), remotePath(path), pool);
+                    job.setModifiedTime(action.getModifiedTime());
+                    job.setExpectedSize(action.getSize());
+                    jobs.add(job);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!jobs.isEmpty() && !cancelled) {
+            queue.submitAll(jobs);
+        }
+        log.accept("Sync: queued " + jobs.size() + " transfer(s)");
+        return jobs;
+    }
+
+    /**
+     * So sánh một chiều: source là nguồn, target là đích
+     */
+    private void oneWay(SyncPlan plan, String path, Entry source, Entry target, boolean upload,
+                        Boolean checksumDiffers, long tolerance) {
+        SyncPlan.ActionType copy = upload ? SyncPlan.ActionType.UPLOAD : SyncPlan.ActionType.DOWNLOAD;
+        if (source != null && target == null) {
+            if (source.directory) {
+                plan.add(upload ? SyncPlan.ActionType.MKDIR_REMOTE : SyncPlan.ActionType.MKDIR_LOCAL,
+                    SyncPlan.Reason.NEW, path, true, -1, -1);
+            } else {
+                plan.add(copy, SyncPlan.Reason.NEW, path, false, source.size, source.modifiedTime);
+            }
+        } else if (source == null) {
+            if (deleteExtraneous) {
+                plan.add(upload ? SyncPlan.ActionType.DELETE_REMOTE : SyncPlan.ActionType.DELETE_LOCAL,
+                    SyncPlan.Reason.EXTRANEOUS, path, target.directory, target.size, target.modifiedTime);
+            }
+        } else if (source.directory != target.directory) {
+            plan.add(SyncPlan.ActionType.CONFLICT, SyncPlan.Reason.TYPE, path, source.directory, -1, -1);
+        } else if (!source.directory) {
+            SyncPlan.Reason reason = difference(source, target, checksumDiffers);
+            if (reason == null && source.modifiedTime >= 0 && target.modifiedTime >= 0
+                    && checksumDiffers == null && source.modifiedTime > target.modifiedTime + tolerance) {
+                reason = SyncPlan.Reason.MTIME;
+            }
+            if (reason != null) {
+                plan.add(copy, reason, path, false, source.size, source.modifiedTime);
+            }
+        }
+    }
+
+    /**
+     * So sánh hai chiều: bên chỉ có ở một phía được copy sang phía kia,
+     * file khác nhau thì bên mới hơn thắng
+     */
+    private void twoWay(SyncPlan plan, String path, Entry local, Entry remote,
+                        Boolean checksumDiffers, long tolerance) {
+        if (local == null || remote == null) {
+            oneWay(plan, path, local != null ? local : remote, null, local != null, checksumDiffers, tolerance);
+            return;
+        }
+        if (local.directory != remote.directory) {
+            plan.add(SyncPlan.ActionType.CONFLICT, SyncPlan.Reason.TYPE, path, local.directory, -1, -1);
+            return;
+        }
+        if (local.directory) {
+            return;
+        }
+        SyncPlan.Reason reason = difference(local, remote, checksumDiffers);
+        boolean timesKnown = local.modifiedTime >= 0 && remote.modifiedTime >= 0;
+        boolean localNewer = timesKnown && local.modifiedTime > remote.modifiedTime + tolerance;
+        boolean remoteNewer = timesKnown && remote.modifiedTime > local.modifiedTime + tolerance;
+        if (reason == null && checksumDiffers == null && (localNewer || remoteNewer)) {
+            reason = SyncPlan.Reason.MTIME;
+        }
+        if (reason == null) {
+            return;
+        }
+        if (localNewer) {
+            plan.add(SyncPlan.ActionType.UPLOAD, reason, path, false, local.size, local.modifiedTime);
+        } else if (remoteNewer) {
+            plan.add(SyncPlan.ActionType.DOWNLOAD, reason, path, false, remote.size, remote.modifiedTime);
+        } else {
+            plan.add(SyncPlan.ActionType.CONFLICT, reason, path, false, -1, -1);
+        }
+    }
+
+    /**
+     * @return SIZE / CHECKSUM nếu nội dung chắc chắn khác, null nếu chưa kết luận được
+     */
+    private static SyncPlan.Reason difference(Entry a, Entry b, Boolean checksumDiffers) {
+        if (a.size >= 0 && b.size >= 0 && a.size != b.size) {
+            return SyncPlan.Reason.SIZE;
+        }
+        if (Boolean.TRUE.equals(checksumDiffers)) {
+            return SyncPlan.Reason.CHECKSUM;
+        }
+        return null;
+    }
+
+    /**
+     * Hash của các cặp file cùng size, song song trên các connection của pool
+     * (một task mỗi file, tối đa maxConnections task cùng lúc)
+     *
+     * @return path → true nếu hash khác; null nếu server không hỗ trợ hash
+     */
+    private Map<String, Boolean> compareChecksums(Map<String, Entry> local, Map<String, Entry> remote)
+            throws IOException {
+        ServerFeatures features = pool.getServerFeatures();
+        RemoteChecksum.Algorithm algorithm = RemoteChecksum.supportedAlgorithm(features);
+        if (algorithm == null) {
+            log.accept("Sync: server has no HASH/XCRC/MD5 - comparing size + mtime");
+            return null;
+        }
+        List<String> candidates = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : local.entrySet()) {
+            Entry other = remote.get(entry.getKey());
+            if (!entry.getValue().directory && other != null && !other.directory
+                    && (other.size < 0 || other.size == entry.getValue().size)) {
+                candidates.add(entry.getKey());
+            }
+        }
+        log.accept("Sync: comparing " + candidates.size() + " file(s) by " + algorithm.getFtpName());
+
+        Map<String, Boolean> result = new ConcurrentHashMap<>();
+        Semaphore slots = new Semaphore(Math.max(1, pool.getSettings().getMaxConnections()));
+        try (NetworkExecutor.Scope scope = executor.scope("sync-checksum", 0)) {
+            for (String path : candidates) {
+                if (cancelled) {
+                    break;
+                }
+                // Chờ slot trước khi fork - không xếp hàng nghìn task cùng lúc
+                slots.acquire();
+                scope.fork(path, () -> {
+                    try {
+                        RemoteChecksum remoteSum = pool.executeIdempotent(client -> RemoteChecksum.remote(client,
+                            features, remotePath(path)));
+                        if (remoteSum != null) {
+                            RemoteChecksum localSum = RemoteChecksum.local(localFile(path), remoteSum.getAlgorithm());
+                            result.put(path, !localSum.equals(remoteSum));
+                        }
+                        return null;
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            scope.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Checksum comparison interrupted");
+        }
+        checkCancelled();
+        return result;
+    }
+
+    /**
+     * Walk local tree (chạy song song với walkRemote trong scope sync-scan)
+     */
+    private Map<String, Entry> walkLocal() throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!localRoot.isDirectory()) {
+            return entries;
+        }
+        Path root = localRoot.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (cancelled) {
+                    return FileVisitResult.TERMINATE;
+                }
+                if (!dir.equals(root)) {
+                    add(dir, new Entry(true, -1, -1));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // Symlink và special files bị bỏ qua
+                if (attrs.isRegularFile()) {
+                    add(file, new Entry(false, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+                return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                log.accept("Sync: skipping " + file + " (" + e.getMessage() + ")");
+                return FileVisitResult.CONTINUE;
+            }
+
+            private void add(Path path, Entry entry) {
+                entries.put(root.relativize(path).toString().replace(File.separatorChar, '/'), entry);
+                if (entries.size() % PROGRESS_INTERVAL == 0) {
+                    log.accept("Sync: scanned " + entries.size() + " local entries...");
+                }
+            }
+        });
+        checkCancelled();
+        return entries;
+    }
+
+    /**
+     * Walk remote tree song song (RemoteWalker), entries đổ vào concurrent map
+     */
+    private Map<String, Entry> walkRemote() throws IOException {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        AtomicLong scanned = new AtomicLong();
+        RemoteWalker walker = new RemoteWalker(pool, executor, log);
+        this.walker = walker;
+        walker.walk(remoteRoot, new RemoteWalker.Visitor() {
+            @Override
+            public void visit(String relativePath, FTPFile file, int depth) {
+                if (file.isDirectory()) {
+                    entries.put(relativePath, new Entry(true, -1, -1));
+                } else if (!file.isSymbolicLink()) {
+                    long modified = file.getTimestamp() == null ? -1 : file.getTimestamp().getTimeInMillis();
+                    entries.put(relativePath, new Entry(false, file.getSize(), modified));
+                }
+                if (scanned.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+                    log.accept("Sync: scanned " + scanned.get() + " remote entries...");
+                }
+            }
+
+            @Override
+            public boolean directoryFailed(String relativePath, int replyCode, IOException error) {
+                // Remote root chưa tồn tại (550) - upload sẽ tạo nó
+                return relativePath.isEmpty() && !remoteRoot.isEmpty() && mode != Mode.DOWNLOAD
+                    && replyCode == FTPReply.FILE_UNAVAILABLE;
+            }
+        });
+        this.walker = null;
+        checkCancelled();
+        // Một số server trả listing rỗng thay vì 550 cho thư mục không tồn tại -
+        // execute() MKD remote root (vô hại nếu đã có)
+        remoteRootMissing = !remoteRoot.isEmpty() && entries.isEmpty();
+        return entries;
+    }
+
+    private void deleteRemote(SyncPlan.Action action) throws IOException {
+        String path = remotePath(action.getRelativePath());
+        boolean deleted = pool.execute(client -> action.isDirectory()
+            ? client.removeDirectory(path) : client.deleteFile(path));
+        if (!deleted) {
+            log.accept("Sync: cannot delete " + path);
+        }
+    }
+
+    /**
+     * MKD từng cấp của remote root (server không tạo thư mục cha)
+     */
+    private void makeRemoteRoot() throws IOException {
+        String[] parts = remoteRoot.split("/");
+        StringBuilder path = new StringBuilder(remoteRoot.startsWith("/") ? "/" : "");
+        for (String part : parts) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            path.append(path.length() == 0 || path.charAt(path.length() - 1) == '/' ? "" : "/").append(part);
+            String directory = path.toString();
+            pool.execute(client -> client.makeDirectory(directory));
+        }
+        remoteRootMissing = false;
+    }
+
+    private String remotePath(String relativePath) {
+        return RemoteWalker.join(remoteRoot, relativePath);
+    }
+
+    private File localFile(String relativePath) {
+        return new File(localRoot, relativePath.replace('/', File.separatorChar));
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Sync cancelled");
+        }
+    }
+
+    /**
+     * "/data/" → "/data", "/" giữ nguyên
+     */
+    private static String trimSlash(String path) {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
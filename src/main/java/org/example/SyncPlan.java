@@ -0,0 +1,188 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🗺️ Sync Plan - Danh sách thay đổi SyncEngine sẽ thực hiện
+ *
+ * Plan được tính trước khi có bất kỳ thay đổi nào (dry run): user xem
+ * những file sẽ bị ghi đè / xóa rồi mới execute.
+ *
+ * • Actions theo thứ tự relative path - thư mục cha đứng trước thư mục con
+ * • Summary: số action mỗi loại và tổng bytes cần truyền
+ * • CONFLICT: cả hai phía đều thay đổi (sync hai chiều) - không làm gì
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see SyncEngine
+ */
+public class SyncPlan {
+
+    /** Loại thay đổi */
+    public enum ActionType {
+        MKDIR_REMOTE("mkdir remote"),
+        MKDIR_LOCAL("mkdir local"),
+        UPLOAD("upload"),
+        DOWNLOAD("download"),
+        DELETE_REMOTE("delete remote"),
+        DELETE_LOCAL("delete local"),
+        CONFLICT("conflict");
+
+        private final String label;
+
+        ActionType(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** Lý do file được chọn */
+    public enum Reason { NEW, SIZE, MTIME, CHECKSUM, EXTRANEOUS, TYPE }
+
+    /**
+     * Một thay đổi trên một path (immutable)
+     */
+    public static final class Action {
+        private final ActionType type;
+        private final Reason reason;
+        private final String relativePath;
+        private final boolean directory;
+        private final long size;
+        private final long modifiedTime;
+
+        Action(ActionType type, Reason reason, String relativePath, boolean directory, long size, long modifiedTime) {
+            this.type = type;
+            this.reason = reason;
+            this.relativePath = relativePath;
+            this.directory = directory;
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+        }
+
+        public ActionType getType() {
+            return type;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+        /** @return Path tương đối so với sync root, phân cách bằng "/" */
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /** @return Size của file nguồn (-1 nếu không biết) */
+        public long getSize() {
+            return size;
+        }
+
+        /** @return mtime của file nguồn (ms UTC, -1 nếu không biết) */
+        public long getModifiedTime() {
+            return modifiedTime;
+        }
+
+        /** @return true nếu action ghi đè hoặc xóa dữ liệu đã có */
+        public boolean isDestructive() {
+            return type == ActionType.DELETE_LOCAL || type == ActionType.DELETE_REMOTE
+                || ((type == ActionType.UPLOAD || type == ActionType.DOWNLOAD) && reason != Reason.NEW);
+        }
+
+        @Override
+        public String toString() {
+            String text = String.format("%-14s %s%s", type, relativePath, directory ? "/" : "");
+            if (reason != Reason.NEW && reason != Reason.EXTRANEOUS) {
+                text += " (" + reason.name().toLowerCase() + " differs)";
+            }
+            return isDestructive() ? text + " ⚠️" : text;
+        }
+    }
+
+    private final List<Action> actions = new ArrayList<>();
+    private final Map<ActionType, Integer> counts = new EnumMap<>(ActionType.class);
+    private long transferBytes;
+    private long scannedLocal;
+    private long scannedRemote;
+
+    void add(ActionType type, Reason reason, String relativePath, boolean directory, long size, long modifiedTime) {
+        actions.add(new Action(type, reason, relativePath, directory, size, modifiedTime));
+        counts.merge(type, 1, Integer::sum);
+        if ((type == ActionType.UPLOAD || type == ActionType.DOWNLOAD) && size > 0) {
+            transferBytes += size;
+        }
+    }
+
+    void setScanned(long scannedLocal, long scannedRemote) {
+        this.scannedLocal = scannedLocal;
+        this.scannedRemote = scannedRemote;
+    }
+
+    /** @return Mọi action, theo thứ tự path */
+    public List<Action> getActions() {
+        return Collections.unmodifiableList(actions);
+    }
+
+    public int count(ActionType type) {
+        return counts.getOrDefault(type, 0);
+    }
+
+    /** @return Tổng bytes sẽ upload/download */
+    public long getTransferBytes() {
+        return transferBytes;
+    }
+
+    /** @return true nếu hai phía đã giống nhau */
+    public boolean isEmpty() {
+        return actions.size() == count(ActionType.CONFLICT);
+    }
+
+    /**
+     * @return Tóm tắt, ví dụ "Scanned 1200 local / 1180 remote entries - 12 upload (3 MB), 2 delete remote"
+     */
+    public String summary() {
+        StringBuilder text = new StringBuilder("Scanned " + scannedLocal + " local / " + scannedRemote
+            + " remote entries - ");
+        if (isEmpty() && count(ActionType.CONFLICT) == 0) {
+            return text.append("already in sync").toString();
+        }
+        boolean first = true;
+        for (Map.Entry<ActionType, Integer> entry : counts.entrySet()) {
+            text.append(first ? "" : ", ").append(entry.getValue()).append(' ').append(entry.getKey());
+            first = false;
+        }
+        if (transferBytes > 0) {
+            text.append(" (").append(transferBytes / 1024).append(" KB to transfer)");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Dry-run listing cho user xem
+     *
+     * @param limit Số dòng tối đa (plan của 2M files không hiển thị hết)
+     */
+    public String describe(int limit) {
+        StringBuilder text = new StringBuilder(summary()).append('\n');
+        int shown = 0;
+        for (Action action : actions) {
+            if (shown++ == limit) {
+                text.append("... ").append(actions.size() - limit).append(" more\n");
+                break;
+            }
+            text.append(action).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📊 TLS Metrics - Số lần handshake và latency của một server (một pool)
+ *
+ * • Control: AUTH TLS trên mỗi control connection của pool
+ * • Data: handshake trên mỗi data connection (PROT P)
+ * • Full vs resumed: resumed khi session được lấy lại từ client session
+ *   cache (creation time của session sớm hơn lúc bắt đầu handshake)
+ * • Histogram latency của mọi handshake (p50/p99 cho MetricsExporter)
+ *
+ * Lock-free - được cập nhật từ nhiều worker threads cùng lúc.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ChannelFTPSClient
+ */
+public class TlsMetrics {
+    private final AtomicLong controlFull = new AtomicLong();
+    private final AtomicLong controlResumed = new AtomicLong();
+    private final AtomicLong dataFull = new AtomicLong();
+    private final AtomicLong dataResumed = new AtomicLong();
+    private final AtomicLong fullNanos = new AtomicLong();
+    private final AtomicLong resumedNanos = new AtomicLong();
+    private final LatencyHistogram handshakes = new LatencyHistogram();
+
+    /**
+     * Ghi nhận một handshake đã hoàn tất
+     *
+     * @param control true cho control connection, false cho data connection
+     * @param resumed true nếu session được resume
+     * @param nanos Thời gian handshake
+     */
+    public void record(boolean control, boolean resumed, long nanos) {
+        handshakes.record(nanos);
+        if (resumed) {
+            (control ? controlResumed : dataResumed).incrementAndGet();
+            resumedNanos.addAndGet(nanos);
+        } else {
+            (control ? controlFull : dataFull).incrementAndGet();
+            fullNanos.addAndGet(nanos);
+        }
+    }
+
+    public long getControlFullHandshakes() {
+        return controlFull.get();
+    }
+
+    public long getControlResumedHandshakes() {
+        return controlResumed.get();
+    }
+
+    public long getDataFullHandshakes() {
+        return dataFull.get();
+    }
+
+    public long getDataResumedHandshakes() {
+        return dataResumed.get();
+    }
+
+    /** @return Latency của mọi handshake (full + resumed, control + data) */
+    public LatencyHistogram getHandshakeLatency() {
+        return handshakes;
+    }
+
+    /** @return Latency trung bình của full handshakes (ms), 0 nếu chưa có */
+    public double getAverageFullMillis() {
+        long count = controlFull.get() + dataFull.get();
+        return count == 0 ? 0 : fullNanos.get() / 1e6 / count;
+    }
+
+    /** @return Latency trung bình của resumed handshakes (ms), 0 nếu chưa có */
+    public double getAverageResumedMillis() {
+        long count = controlResumed.get() + dataResumed.get();
+        return count == 0 ? 0 : resumedNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * @return Tóm tắt cho status bar, ví dụ
+     *         "TLS handshakes: 2 full (38.1 ms avg), 57 resumed (4.2 ms avg)"
+     */
+    @Override
+    public String toString() {
+        return String.format("TLS handshakes: %d full (%.1f ms avg), %d resumed (%.1f ms avg)",
+            controlFull.get() + dataFull.get(), getAverageFullMillis(),
+            controlResumed.get() + dataResumed.get(), getAverageResumedMillis());
+    }
+}
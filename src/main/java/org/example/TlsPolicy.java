@@ -0,0 +1,217 @@
+package org.example;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 🛡️ TLS Policy - Chọn TLS protocol và thứ tự cipher suites
+ *
+ * PROTOCOL: Auto (TLS 1.3, fallback 1.2), chỉ TLS 1.3, hoặc chỉ TLS 1.2.
+ *
+ * CIPHER ORDER:
+ * • CPU có AES hardware (AES-NI / ARMv8 AES) → AES-GCM trước ChaCha20
+ * • Không có → ChaCha20-Poly1305 trước (nhanh hơn AES bằng software)
+ * • AES-128 trước AES-256 (ít round hơn, cùng mức an toàn thực tế)
+ * • Chỉ đổi chỗ trong cùng nhóm key exchange của JSSE: TLS 1.3 → ECDHE →
+ *   DHE. Suite không forward secrecy (TLS_RSA_*, TLS_ECDH_*) và suite
+ *   không AEAD giữ nguyên vị trí cuối như thứ tự mặc định
+ *
+ * AES hardware được phát hiện qua HotSpot flag UseAESIntrinsics (JVM chỉ
+ * bật khi CPU hỗ trợ), fallback /proc/cpuinfo trên Linux.
+ *
+ * Thứ tự chỉ là đề xuất của client - server cấu hình "server preference"
+ * vẫn chọn theo thứ tự của nó.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpConnectionFactory
+ */
+public final class TlsPolicy {
+
+    /** Các TLS protocol được bật */
+    public enum Protocol {
+        AUTO("Auto (TLS 1.3/1.2)", "TLSv1.3", "TLSv1.2"),
+        TLS13("TLS 1.3", "TLSv1.3"),
+        TLS12("TLS 1.2", "TLSv1.2");
+
+        private final String label;
+        private final String[] names;
+
+        Protocol(String label, String... names) {
+            this.label = label;
+            this.names = names;
+        }
+
+        /** @return Tên protocol theo JSSE ("TLSv1.3", ...) */
+        public String[] getNames() {
+            return names.clone();
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** Cipher family ưu tiên */
+    public enum CipherPreference {
+        AUTO("Auto (detect AES hardware)"),
+        AES_GCM("AES-GCM first"),
+        CHACHA20("ChaCha20 first");
+
+        private final String label;
+
+        CipherPreference(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** Rank của suite giữ nguyên thứ tự JSSE (không AEAD hoặc không forward secrecy) */
+    private static final int UNRANKED = 3 * 4;
+
+    private static volatile Boolean hardwareAes;
+
+    private TlsPolicy() {
+    }
+
+    /**
+     * @return true nếu JVM dùng AES instructions của CPU (kết quả được cache)
+     */
+    public static boolean hasHardwareAes() {
+        Boolean result = hardwareAes;
+        if (result == null) {
+            result = detectHardwareAes();
+            hardwareAes = result;
+        }
+        return result;
+    }
+
+    private static boolean detectHardwareAes() {
+        try {
+            HotSpotDiagnosticMXBean hotspot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            if (hotspot != null) {
+                return Boolean.parseBoolean(hotspot.getVMOption("UseAESIntrinsics").getValue());
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // Không phải HotSpot - thử /proc/cpuinfo
+        }
+        Path cpuinfo = Paths.get("/proc/cpuinfo");
+        if (Files.isReadable(cpuinfo)) {
+            try {
+                for (String line : Files.readAllLines(cpuinfo)) {
+                    String lower = line.toLowerCase(Locale.ROOT);
+                    // x86: "flags : ... aes ...", ARM: "Features : ... aes ..."
+                    if ((lower.startsWith("flags") || lower.startsWith("features"))
+                            && Arrays.asList(lower.substring(lower.indexOf(':') + 1).trim().split("\\s+")).contains("aes")) {
+                        return true;
+                    }
+                }
+            } catch (IOException ignored) {
+                // Không đọc được - coi như không có
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param preference Cipher family ưu tiên (AUTO = theo AES hardware)
+     * @return true nếu AES-GCM nên đứng trước ChaCha20
+     */
+    public static boolean prefersAes(CipherPreference preference) {
+        switch (preference) {
+            case AES_GCM:
+                return true;
+            case CHACHA20:
+                return false;
+            default:
+                return hasHardwareAes();
+        }
+    }
+
+    /**
+     * Protocols được bật, chỉ giữ những cái JSSE hỗ trợ
+     *
+     * @throws IOException nếu JVM không hỗ trợ protocol nào được chọn
+     */
+    public static String[] enabledProtocols(SSLContext context, Protocol protocol) throws IOException {
+        List<String> supported = Arrays.asList(context.getSupportedSSLParameters().getProtocols());
+        List<String> result = new ArrayList<>();
+        for (String name : protocol.names) {
+            if (supported.contains(name)) {
+                result.add(name);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IOException(protocol + " is not supported by this JVM");
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Cipher suites mặc định của context, sắp lại theo preference
+     *
+     * @return Suites theo nhóm key exchange (TLS 1.3, ECDHE, DHE), trong mỗi
+     *         nhóm family ưu tiên → family còn lại; phần còn lại giữ thứ tự JSSE
+     */
+    public static String[] orderedCipherSuites(SSLContext context, CipherPreference preference) {
+        String[] suites = context.getDefaultSSLParameters().getCipherSuites();
+        boolean aesFirst = prefersAes(preference);
+        List<String> ordered = new ArrayList<>(Arrays.asList(suites));
+        // List.sort là stable - trong cùng rank giữ thứ tự mặc định của JSSE
+        ordered.sort((a, b) -> Integer.compare(rank(a, aesFirst), rank(b, aesFirst)));
+        return ordered.toArray(new String[0]);
+    }
+
+    private static int rank(String suite, boolean aesFirst) {
+        int group = keyExchange(suite);
+        int cipher = cipherRank(suite, aesFirst);
+        return group < 0 || cipher < 0 ? UNRANKED : group * 4 + cipher;
+    }
+
+    /**
+     * @return 0 = TLS 1.3, 1 = ECDHE, 2 = DHE; -1 = không forward secrecy
+     *         (TLS_RSA_*, TLS_ECDH_*) hoặc signaling suite
+     */
+    private static int keyExchange(String suite) {
+        if (suite.startsWith("TLS_AES_") || suite.startsWith("TLS_CHACHA20_")) {
+            return 0;
+        }
+        if (suite.startsWith("TLS_ECDHE_")) {
+            return 1;
+        }
+        if (suite.startsWith("TLS_DHE_")) {
+            return 2;
+        }
+        return -1;
+    }
+
+    /**
+     * @return 0..3 theo preference cho AES-GCM / ChaCha20, -1 cho cipher khác
+     */
+    private static int cipherRank(String suite, boolean aesFirst) {
+        int aes = suite.contains("AES_128_GCM") ? 0 : suite.contains("AES_256_GCM") ? 1 : -1;
+        boolean chacha = suite.contains("CHACHA20");
+        if (aes >= 0) {
+            return aesFirst ? aes : 2 + aes;
+        }
+        if (chacha) {
+            return aesFirst ? 2 : 0;
+        }
+        return -1;
+    }
+}
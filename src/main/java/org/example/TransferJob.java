@@ -0,0 +1,291 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📦 Transfer Job - Một upload/download trong TransferQueue
+ *
+ * Job lưu lại:
+ * • Direction (UPLOAD = STOR, DOWNLOAD = RETR)
+ * • Local file và remote path
+ * • Connection pool của server đích (per-host limits dựa vào đây)
+ * • Priority (số lớn chạy trước khi queue ở chế độ PRIORITY)
+ * • Số segment cho download song song (REST + RETR)
+ * • mtime cần giữ cho file đích (sync) - MFMT sau upload, setLastModified sau download
+ * • Giới hạn bandwidth riêng (BandwidthLimiter), đổi được khi đang chạy
+ * • State hiện tại và số bytes đã truyền
+ * • Progress: size dự kiến, rate trượt, ETA, time-to-first-byte
+ *
+ * PAUSE/CANCEL:
+ * pause() và cancel() chỉ đặt cờ; transfer stream kiểm tra cờ sau mỗi
+ * buffer và ném TransferAbortedException để dừng transfer đang chạy.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferQueue
+ */
+public class TransferJob {
+
+    /** Chiều transfer */
+    public enum Direction { UPLOAD, DOWNLOAD }
+
+    /** Vòng đời của job */
+    public enum State { QUEUED, RUNNING, PAUSED, COMPLETED, FAILED, CANCELLED }
+
+    /**
+     * Ném ra từ transfer stream khi user pause/cancel job đang chạy
+     */
+    public static class TransferAbortedException extends IOException {
+        public TransferAbortedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final long id;
+    private final Direction direction;
+    private final File localFile;
+    private final String remotePath;
+    private final FtpConnectionPool pool;
+
+    private volatile int priority;
+    private volatile long sequence;
+    private volatile State state = State.QUEUED;
+    private volatile State abortRequest;
+    private volatile String message = "";
+    private volatile int segments = 1;
+    private volatile long modifiedTime = -1;
+    private volatile long rateLimit = -1;
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private volatile long expectedSize = -1;
+    private final RateMeter rate = new RateMeter();
+    private volatile long startNanos;
+    private final AtomicLong firstByteNanos = new AtomicLong();
+
+    /**
+     * @param direction UPLOAD hoặc DOWNLOAD
+     * @param localFile File nguồn (upload) hoặc đích (download)
+     * @param remotePath Tên/đường dẫn file trên server
+     * @param pool Connection pool của server đích
+     */
+    public TransferJob(Direction direction, File localFile, String remotePath, FtpConnectionPool pool) {
+        this.id = SEQUENCE.incrementAndGet();
+        this.sequence = id;
+        this.direction = direction;
+        this.localFile = localFile;
+        this.remotePath = remotePath;
+        this.pool = pool;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public File getLocalFile() {
+        return localFile;
+    }
+
+    public String getRemotePath() {
+        return remotePath;
+    }
+
+    public FtpConnectionPool getPool() {
+        return pool;
+    }
+
+    /** @return "host:port" của server đích */
+    public String getHostKey() {
+        return pool.getSettings().getHostKey();
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    /** Thứ tự FIFO - được làm mới mỗi lần job vào lại queue */
+    long getSequence() {
+        return sequence;
+    }
+
+    void renewSequence() {
+        sequence = SEQUENCE.incrementAndGet();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state, String message) {
+        State previous = this.state;
+        this.state = state;
+        this.message = message == null ? "" : message;
+        if (previous != state) {
+            pool.getTransferMetrics().transferFinished(state);
+        }
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /** @return Số segment song song cho download (1 = tải tuần tự) */
+    public int getSegments() {
+        return segments;
+    }
+
+    public void setSegments(int segments) {
+        this.segments = Math.max(1, segments);
+    }
+
+    /** @return mtime (ms UTC) đặt cho file đích sau transfer, -1 = không đặt */
+    public long getModifiedTime() {
+        return modifiedTime;
+    }
+
+    public void setModifiedTime(long modifiedTime) {
+        this.modifiedTime = modifiedTime;
+    }
+
+    /**
+     * @return Giới hạn bytes/giây của job, 0 = không giới hạn,
+     *         -1 = theo mặc định của BandwidthLimiter (ftps.transferRateLimit)
+     */
+    public long getRateLimit() {
+        return rateLimit;
+    }
+
+    /** Có hiệu lực từ chunk tiếp theo nếu job đang chạy */
+    public void setRateLimit(long rateLimit) {
+        this.rateLimit = Math.max(-1, rateLimit);
+    }
+
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    /**
+     * Thread-safe - segmented download cộng dồn từ nhiều connection.
+     * Chunk đầu tiên của lần chạy ghi time-to-first-byte.
+     */
+    void addBytesTransferred(long bytes) {
+        bytesTransferred.addAndGet(bytes);
+        rate.add(bytes);
+        TransferMetrics metrics = pool.getTransferMetrics();
+        metrics.bytesTransferred(direction, bytes);
+        if (firstByteNanos.get() == 0) {
+            long now = System.nanoTime();
+            if (firstByteNanos.compareAndSet(0, now)) {
+                metrics.firstByte(now - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Bytes đã có sẵn ở đích (resume) - tính vào progress, không tính vào rate
+     */
+    void addResumedBytes(long bytes) {
+        bytesTransferred.addAndGet(bytes);
+    }
+
+    /**
+     * Trừ bytes của một segment lỗi khỏi progress - segment sẽ được tải lại
+     */
+    void discardBytes(long bytes) {
+        bytesTransferred.addAndGet(-bytes);
+    }
+
+    /**
+     * Bắt đầu một lần chạy mới: progress, rate và TTFB đo lại từ đầu
+     */
+    void startProgress() {
+        bytesTransferred.set(0);
+        rate.reset();
+        firstByteNanos.set(0);
+        startNanos = System.nanoTime();
+    }
+
+    /** @return Tổng số bytes của file, -1 nếu chưa biết */
+    public long getExpectedSize() {
+        return expectedSize;
+    }
+
+    public void setExpectedSize(long expectedSize) {
+        this.expectedSize = expectedSize;
+    }
+
+    /** @return Bytes/giây trong vài giây gần nhất (0 khi không chạy) */
+    public double getRate() {
+        return state == State.RUNNING ? rate.getRate() : 0;
+    }
+
+    /** @return Giây còn lại theo rate hiện tại, -1 nếu chưa tính được */
+    public long getEtaSeconds() {
+        double current = getRate();
+        long size = expectedSize;
+        if (size < 0 || current <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil(Math.max(0, size - getBytesTransferred()) / current);
+    }
+
+    /** @return Time-to-first-byte của lần chạy gần nhất (ms), -1 nếu chưa có byte nào */
+    public double getTimeToFirstByteMillis() {
+        long first = firstByteNanos.get();
+        return first == 0 ? -1 : (first - startNanos) / 1e6;
+    }
+
+    /** @return true nếu job đã kết thúc (không thể resume) */
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    /**
+     * Yêu cầu dừng job đang chạy (PAUSED hoặc CANCELLED)
+     */
+    void requestAbort(State target) {
+        abortRequest = target;
+    }
+
+    /** @return State được yêu cầu khi abort, null nếu không có yêu cầu */
+    State getAbortRequest() {
+        return abortRequest;
+    }
+
+    void clearAbortRequest() {
+        abortRequest = null;
+    }
+
+    /**
+     * Gọi từ transfer loop sau mỗi buffer
+     *
+     * @throws TransferAbortedException nếu user đã pause/cancel job
+     */
+    void checkAbort() throws TransferAbortedException {
+        State request = abortRequest;
+        if (request != null) {
+            throw new TransferAbortedException(request == State.PAUSED ? "Paused" : "Cancelled");
+        }
+    }
+
+    @Override
+    public String toString() {
+        String arrow = direction == Direction.UPLOAD ? "⬆️ " : "⬇️ ";
+        String name = direction == Direction.UPLOAD ? localFile.getName() : remotePath;
+        String text = arrow + name + " [" + state + "] " + (getBytesTransferred() / 1024) + " KB";
+        if (priority != 0) {
+            text += " (priority " + priority + ")";
+        }
+        return message.isEmpty() ? text : text + " - " + message;
+    }
+}
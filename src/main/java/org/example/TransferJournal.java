@@ -0,0 +1,313 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 📓 Transfer Journal - Nhật ký append-only cho resumable transfers
+ *
+ * Mỗi transfer đang chạy được ghi lại trên disk để có thể tiếp tục sau
+ * khi mất kết nối, app crash hoặc restart:
+ *
+ * FORMAT (một record mỗi dòng, các field cách nhau bằng TAB, URL-encoded):
+ * • B key direction hostKey remotePath localPath sourceSize sourceMtime - bắt đầu
+ * • P key offset tailCrc - checkpoint: bytes đã ghi an toàn + CRC32 của
+ *   TAIL_WINDOW bytes ngay trước offset
+ * • D key - hoàn tất (entry bị xóa khi replay)
+ *
+ * Khi mở, journal replay toàn bộ file để dựng lại state. Dòng cuối bị cắt
+ * dở (crash giữa lúc ghi) được bỏ qua. File được compact khi số record
+ * vượt quá mức cho phép.
+ *
+ * TAIL CRC:
+ * Trước khi resume, CRC32 của đoạn cuối phần đã truyền được tính lại từ
+ * local file và so với checkpoint. Nếu khác (file bị sửa, ghi dở...),
+ * transfer bắt đầu lại từ byte 0 thay vì nối dữ liệu sai.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FileTransfer
+ */
+public class TransferJournal implements Closeable {
+    /** Số bytes cuối dùng để tính tail CRC */
+    public static final int TAIL_WINDOW = 64 * 1024;
+
+    /** Compact khi số record gấp nhiều lần số entry đang sống */
+    private static final int COMPACT_THRESHOLD = 10_000;
+
+    /**
+     * Trạng thái của một transfer chưa hoàn tất
+     */
+    public static final class Entry {
+        private final String key;
+        private final TransferJob.Direction direction;
+        private final String hostKey;
+        private final String remotePath;
+        private final String localPath;
+        private final long sourceSize;
+        private final long sourceMtime;
+        private long offset;
+        private long tailCrc;
+
+        Entry(String key, TransferJob.Direction direction, String hostKey, String remotePath,
+              String localPath, long sourceSize, long sourceMtime) {
+            this.key = key;
+            this.direction = direction;
+            this.hostKey = hostKey;
+            this.remotePath = remotePath;
+            this.localPath = localPath;
+            this.sourceSize = sourceSize;
+            this.sourceMtime = sourceMtime;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public TransferJob.Direction getDirection() {
+            return direction;
+        }
+
+        public String getHostKey() {
+            return hostKey;
+        }
+
+        public String getRemotePath() {
+            return remotePath;
+        }
+
+        public String getLocalPath() {
+            return localPath;
+        }
+
+        /** @return Kích thước nguồn lúc bắt đầu (local file khi upload, SIZE khi download) */
+        public long getSourceSize() {
+            return sourceSize;
+        }
+
+        /** @return mtime của local source khi upload, -1 khi download */
+        public long getSourceMtime() {
+            return sourceMtime;
+        }
+
+        /** @return Offset của checkpoint gần nhất */
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getTailCrc() {
+            return tailCrc;
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private BufferedWriter writer;
+    private int recordCount;
+
+    /**
+     * Mở (hoặc tạo) journal và replay các record đã có
+     *
+     * @param file Đường dẫn journal file
+     * @throws IOException nếu không đọc/ghi được journal
+     */
+    public TransferJournal(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        if (Files.exists(file)) {
+            replay();
+        }
+        compact();
+    }
+
+    /**
+     * @return ~/.ftps-file-manager/transfers.journal
+     */
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("user.home"), ".ftps-file-manager", "transfers.journal");
+    }
+
+    /**
+     * Key duy nhất cho một transfer: direction + host + remote + local
+     */
+    public static String keyOf(TransferJob job) {
+        return job.getDirection() + "|" + job.getHostKey() + "|" + job.getRemotePath()
+            + "|" + job.getLocalFile().getAbsolutePath();
+    }
+
+    /** @return Entry chưa hoàn tất của key, null nếu không có */
+    public synchronized Entry find(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Ghi record bắt đầu transfer (ghi đè entry cũ cùng key)
+     */
+    public synchronized Entry begin(TransferJob job, long sourceSize, long sourceMtime) throws IOException {
+        String key = keyOf(job);
+        Entry entry = new Entry(key, job.getDirection(), job.getHostKey(), job.getRemotePath(),
+            job.getLocalFile().getAbsolutePath(), sourceSize, sourceMtime);
+        entries.put(key, entry);
+        append("B", key, entry.direction.name(), entry.hostKey, entry.remotePath, entry.localPath,
+            Long.toString(sourceSize), Long.toString(sourceMtime));
+        return entry;
+    }
+
+    /**
+     * Ghi checkpoint: offset bytes đã truyền an toàn
+     */
+    public synchronized void checkpoint(String key, long offset, long tailCrc) throws IOException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        entry.offset = offset;
+        entry.tailCrc = tailCrc;
+        append("P", key, Long.toString(offset), Long.toString(tailCrc));
+    }
+
+    /**
+     * Đánh dấu transfer hoàn tất - entry bị xóa
+     */
+    public synchronized void complete(String key) throws IOException {
+        if (entries.remove(key) != null) {
+            append("D", key);
+        }
+    }
+
+    /**
+     * @param hostKey "host:port" của server
+     * @return Các transfer chưa hoàn tất của server này
+     */
+    public synchronized List<Entry> pending(String hostKey) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.hostKey.equals(hostKey)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * CRC32 của tối đa TAIL_WINDOW bytes kết thúc tại offset
+     *
+     * @param source Local file (đích khi download, nguồn khi upload)
+     * @param offset Vị trí kết thúc (exclusive)
+     * @return CRC32 value, hoặc -1 nếu file ngắn hơn offset
+     */
+    public static long tailCrc(File source, long offset) throws IOException {
+        if (!source.isFile() || source.length() < offset) {
+            return -1;
+        }
+        int length = (int) Math.min(TAIL_WINDOW, offset);
+        byte[] buffer = new byte[length];
+        try (RandomAccessFile raf = new RandomAccessFile(source, "r")) {
+            raf.seek(offset - length);
+            raf.readFully(buffer);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * Dựng lại entries từ journal file. Dòng không hợp lệ bị bỏ qua.
+     */
+    private void replay() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                try {
+                    for (int i = 1; i < fields.length; i++) {
+                        fields[i] = URLDecoder.decode(fields[i], StandardCharsets.UTF_8);
+                    }
+                    switch (fields[0]) {
+                        case "B":
+                            entries.put(fields[1], new Entry(fields[1], TransferJob.Direction.valueOf(fields[2]),
+                                fields[3], fields[4], fields[5], Long.parseLong(fields[6]), Long.parseLong(fields[7])));
+                            break;
+                        case "P":
+                            Entry entry = entries.get(fields[1]);
+                            if (entry != null) {
+                                entry.offset = Long.parseLong(fields[2]);
+                                entry.tailCrc = Long.parseLong(fields[3]);
+                            }
+                            break;
+                        case "D":
+                            entries.remove(fields[1]);
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (RuntimeException e) {
+                    // Record bị cắt dở khi crash - bỏ qua
+                }
+            }
+        }
+    }
+
+    /**
+     * Viết lại journal chỉ với các entry còn sống (atomic rename)
+     */
+    private void compact() throws IOException {
+        close();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries.values()) {
+                out.write(record("B", entry.key, entry.direction.name(), entry.hostKey, entry.remotePath,
+                    entry.localPath, Long.toString(entry.sourceSize), Long.toString(entry.sourceMtime)));
+                if (entry.offset > 0) {
+                    out.write(record("P", entry.key, Long.toString(entry.offset), Long.toString(entry.tailCrc)));
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordCount = entries.size();
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void append(String type, String... fields) throws IOException {
+        writer.write(record(type, fields));
+        // Flush mỗi record - journal phải sống sót khi app crash
+        writer.flush();
+        if (++recordCount > COMPACT_THRESHOLD && recordCount > entries.size() * 4) {
+            compact();
+        }
+    }
+
+    private static String record(String type, String... fields) {
+        StringBuilder sb = new StringBuilder(type);
+        for (String field : fields) {
+            sb.append('\t').append(URLEncoder.encode(field, StandardCharsets.UTF_8));
+        }
+        return sb.append('\n').toString();
+    }
+}
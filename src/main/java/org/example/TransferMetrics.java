@@ -0,0 +1,174 @@
+package org.example;
+
+import org.apache.commons.net.ProtocolCommandEvent;
+import org.apache.commons.net.ProtocolCommandListener;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📊 Transfer Metrics - Throughput và latency của một server (một pool)
+ *
+ * • Throughput upload/download: tổng bytes + rate trượt (RateMeter)
+ * • Số transfer completed/failed
+ * • MODE Z: bytes của file và bytes trên dây của các transfer có nén
+ * • Verify sau transfer: số lần khớp / lệch (checksum hoặc SIZE)
+ * • Time-to-first-byte: từ lúc job bắt đầu (trước REST/RETR/STOR) đến chunk đầu tiên
+ * • Command round-trip: từ lúc gửi command đến reply đầu tiên (1xx hoặc
+ *   final), histogram riêng cho mỗi command (LIST, RETR, NOOP...)
+ *
+ * TLS handshake latency nằm ở TlsMetrics. Lock-free - cập nhật từ mọi
+ * worker thread; MetricsExporter và status bar chỉ đọc.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see LatencyHistogram
+ * @see MetricsExporter
+ */
+public class TransferMetrics {
+    private final RateMeter uploadRate = new RateMeter();
+    private final RateMeter downloadRate = new RateMeter();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong compressedTransfers = new AtomicLong();
+    private final AtomicLong compressionRawBytes = new AtomicLong();
+    private final AtomicLong compressionWireBytes = new AtomicLong();
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong integrityFailures = new AtomicLong();
+    private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> commandLatency = new ConcurrentHashMap<>();
+
+    /**
+     * Cộng bytes của một chunk vào throughput tổng
+     */
+    void bytesTransferred(TransferJob.Direction direction, long bytes) {
+        (direction == TransferJob.Direction.UPLOAD ? uploadRate : downloadRate).add(bytes);
+    }
+
+    void firstByte(long nanos) {
+        timeToFirstByte.record(nanos);
+    }
+
+    /**
+     * Ghi nhận job kết thúc (chỉ COMPLETED/FAILED được đếm)
+     */
+    void transferFinished(TransferJob.State state) {
+        if (state == TransferJob.State.COMPLETED) {
+            completed.incrementAndGet();
+        } else if (state == TransferJob.State.FAILED) {
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Ghi nhận một transfer MODE Z đã xong
+     */
+    void compressionFinished(long rawBytes, long wireBytes) {
+        compressedTransfers.incrementAndGet();
+        compressionRawBytes.addAndGet(rawBytes);
+        compressionWireBytes.addAndGet(wireBytes);
+    }
+
+    /**
+     * Ghi nhận kết quả verify của một transfer (mỗi lần thử một lần)
+     */
+    void verificationFinished(boolean matched) {
+        (matched ? verified : integrityFailures).incrementAndGet();
+    }
+
+    public RateMeter getUploadRate() {
+        return uploadRate;
+    }
+
+    public RateMeter getDownloadRate() {
+        return downloadRate;
+    }
+
+    public long getCompletedTransfers() {
+        return completed.get();
+    }
+
+    public long getFailedTransfers() {
+        return failed.get();
+    }
+
+    public long getCompressedTransfers() {
+        return compressedTransfers.get();
+    }
+
+    /** @return Tổng bytes của file trong các transfer MODE Z */
+    public long getCompressionRawBytes() {
+        return compressionRawBytes.get();
+    }
+
+    /** @return Tổng bytes thực sự đi qua data connection trong các transfer MODE Z */
+    public long getCompressionWireBytes() {
+        return compressionWireBytes.get();
+    }
+
+    /** @return raw / wire của các transfer MODE Z, 0 nếu chưa có */
+    public double getCompressionRatio() {
+        long wire = compressionWireBytes.get();
+        return wire == 0 ? 0 : (double) compressionRawBytes.get() / wire;
+    }
+
+    /** @return Số transfer đã verify khớp với server */
+    public long getVerifiedTransfers() {
+        return verified.get();
+    }
+
+    /** @return Số lần verify lệch (mỗi lần transfer lại được đếm riêng) */
+    public long getIntegrityFailures() {
+        return integrityFailures.get();
+    }
+
+    public LatencyHistogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    /** @return Histogram theo command, sắp xếp theo tên */
+    public Map<String, LatencyHistogram> getCommandLatency() {
+        return new TreeMap<>(commandLatency);
+    }
+
+    /**
+     * Listener gắn vào mỗi control connection của pool. Một connection chỉ
+     * được một thread dùng tại một thời điểm nên state không cần đồng bộ.
+     */
+    public ProtocolCommandListener newCommandTracker() {
+        return new ProtocolCommandListener() {
+            private String command;
+            private long sentNanos;
+
+            @Override
+            public void protocolCommandSent(ProtocolCommandEvent event) {
+                command = event.getCommand().toUpperCase(Locale.ROOT);
+                sentNanos = System.nanoTime();
+            }
+
+            @Override
+            public void protocolReplyReceived(ProtocolCommandEvent event) {
+                // Greeting khi connect và reply thứ hai (226 sau 150) không có command đi kèm
+                if (command != null) {
+                    commandLatency.computeIfAbsent(command, key -> new LatencyHistogram())
+                        .record(System.nanoTime() - sentNanos);
+                    command = null;
+                }
+            }
+        };
+    }
+
+    /**
+     * @return Tóm tắt cho status bar, ví dụ
+     *         "⬆️ 1.2 MB/s ⬇️ 8.4 MB/s - TTFB p50 12.0 / p99 40.1 / max 52.3 ms (n=20) - MODE Z 7.9:1"
+     */
+    @Override
+    public String toString() {
+        return "⬆️ " + RateMeter.format(uploadRate.getRate()) + " ⬇️ " + RateMeter.format(downloadRate.getRate())
+            + (timeToFirstByte.getCount() == 0 ? "" : " - TTFB " + timeToFirstByte)
+            + (compressedTransfers.get() == 0 ? "" : String.format(" - MODE Z %.1f:1", getCompressionRatio()));
+    }
+}
@@ -0,0 +1,574 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 📋 Transfer Queue - Bounded worker scheduler cho upload/download song song
+ *
+ * Thay cho "new Thread" mỗi lần bấm Upload/Download:
+ *
+ * • Số worker cố định - giới hạn số transfer chạy cùng lúc
+ * • Mỗi worker giữ connection riêng (borrow từ pool của server đích) và
+ *   tái sử dụng cho các job tiếp theo cùng host
+ * • Per-host concurrency limit: tự chỉnh theo throughput và reply 421
+ *   (ConcurrencyController), trần là ConnectionSettings.maxTransfersPerHost
+ * • Ordering: FIFO hoặc PRIORITY (priority cao chạy trước, cùng priority thì FIFO)
+ * • Pause/Resume/Cancel từng job, kể cả job đang chạy
+ * • Resume từ offset đã truyền nhờ TransferJournal (pause, lỗi mạng, restart app)
+ * • Giới hạn bandwidth global / per-host / per-job (BandwidthLimiter)
+ *
+ * SCHEDULING:
+ * Worker lấy job từ PriorityBlockingQueue. Nếu host của job đã đạt limit,
+ * job được đưa vào hàng chờ riêng của host đó và chỉ quay lại queue chính
+ * khi một transfer cùng host kết thúc - worker không bị block vô ích.
+ * Thread "transfer-tuner" đo throughput của mỗi host mỗi
+ * ConcurrencyController.SAMPLE_MILLIS; limit tăng thì job bị hoãn được
+ * đưa lại queue ngay. Job không mở được connection vì 421 được xếp lại
+ * sau khi limit giảm, thay vì FAILED.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferJob
+ * @see FileTransfer
+ */
+public class TransferQueue implements AutoCloseable {
+
+    /** Thứ tự lấy job khỏi queue */
+    public enum Ordering { FIFO, PRIORITY }
+
+    /**
+     * Callback khi state/progress của job thay đổi (gọi từ worker thread)
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void jobChanged(TransferJob job);
+    }
+
+    /** Worker trả connection về pool nếu không có job mới trong khoảng này */
+    private static final long IDLE_RELEASE_MILLIS = 2_000;
+
+    /** Per-host slot: số transfer đang chạy + job bị hoãn vì đạt limit */
+    private static final class HostSlot {
+        int running;
+        final Deque<TransferJob> deferred = new ArrayDeque<>();
+        final ConcurrencyController controller;
+        /** Pool của job gần nhất - nguồn bytes cho controller */
+        FtpConnectionPool pool;
+
+        HostSlot(ConnectionSettings settings) {
+            controller = new ConcurrencyController(settings.getMaxTransfersPerHost(),
+                settings.isAdaptiveConcurrency());
+        }
+    }
+
+    private volatile Ordering ordering;
+    private final PriorityBlockingQueue<TransferJob> pending;
+    private final Map<String, HostSlot> hosts = new ConcurrentHashMap<>();
+    private final List<TransferJob> jobs = new CopyOnWriteArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Thread tuner;
+    private final BandwidthLimiter bandwidth = new BandwidthLimiter();
+    private final TransferJournal journal;
+    private final NetworkExecutor executor;
+    private final Consumer<String> log;
+    private volatile boolean closed;
+
+    /**
+     * @param workerCount Số transfer tối đa chạy đồng thời (mọi host)
+     * @param ordering FIFO hoặc PRIORITY
+     * @param journal Journal cho resumable transfers, null để tắt resume
+     * @param executor Chạy các segment phụ của segmented download
+     * @param log Callback ghi log
+     */
+    public TransferQueue(int workerCount, Ordering ordering, TransferJournal journal,
+                         NetworkExecutor executor, Consumer<String> log) {
+        this.ordering = ordering;
+        this.journal = journal;
+        this.executor = executor;
+        this.log = log;
+        Comparator<TransferJob> comparator = (a, b) -> {
+            if (this.ordering == Ordering.PRIORITY && a.getPriority() != b.getPriority()) {
+                return Integer.compare(b.getPriority(), a.getPriority());
+            }
+            return Long.compare(a.getSequence(), b.getSequence());
+        };
+        this.pending = new PriorityBlockingQueue<>(64, comparator);
+
+        ThreadFactory threads = NetworkExecutor.threadFactory("transfer-worker");
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threads.newThread(new Worker());
+            workers.add(worker);
+            worker.start();
+        }
+        tuner = NetworkExecutor.threadFactory("transfer-tuner").newThread(this::tuneLoop);
+        tuner.start();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Thêm job vào queue
+     *
+     * @param job Job mới (state QUEUED)
+     */
+    public synchronized void submit(TransferJob job) {
+        if (closed) {
+            throw new IllegalStateException("Transfer queue is closed");
+        }
+        jobs.add(job);
+        job.setState(TransferJob.State.QUEUED, "");
+        pending.add(job);
+        fireChanged(job);
+    }
+
+    /**
+     * Thêm nhiều job một lần (multi-select upload/download)
+     *
+     * @param batch Các job mới
+     */
+    public synchronized void submitAll(List<TransferJob> batch) {
+        if (closed) {
+            throw new IllegalStateException("Transfer queue is closed");
+        }
+        jobs.addAll(batch);
+        for (TransferJob job : batch) {
+            job.setState(TransferJob.State.QUEUED, "");
+            pending.add(job);
+            fireChanged(job);
+        }
+    }
+
+    /**
+     * Đổi ordering - sắp xếp lại các job đang chờ
+     */
+    public synchronized void setOrdering(Ordering ordering) {
+        List<TransferJob> waiting = new ArrayList<>();
+        pending.drainTo(waiting);
+        this.ordering = ordering;
+        pending.addAll(waiting);
+    }
+
+    public Ordering getOrdering() {
+        return ordering;
+    }
+
+    /**
+     * @return Controller của host ("host:port"), null nếu chưa có job nào tới host đó
+     */
+    public ConcurrencyController getConcurrency(String hostKey) {
+        HostSlot slot = hosts.get(hostKey);
+        return slot == null ? null : slot.controller;
+    }
+
+    /** @return Số transfer đang chạy tới host */
+    public int getRunningTransfers(String hostKey) {
+        HostSlot slot = hosts.get(hostKey);
+        if (slot == null) {
+            return 0;
+        }
+        synchronized (slot) {
+            return slot.running;
+        }
+    }
+
+    /**
+     * @return Quyết định hiện tại của mọi host, ví dụ
+     *         "ftp.example.com:21 3/4 streams (probing ↑, 12.3 MB/s)"
+     */
+    public String describeConcurrency() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, HostSlot> entry : hosts.entrySet()) {
+            synchronized (entry.getValue()) {
+                text.append(text.length() == 0 ? "" : "; ").append(entry.getKey()).append(' ')
+                    .append(entry.getValue().controller);
+            }
+        }
+        return text.toString();
+    }
+
+    /** @return Giới hạn bandwidth dùng chung cho mọi job của queue */
+    public BandwidthLimiter getBandwidthLimiter() {
+        return bandwidth;
+    }
+
+    /**
+     * Đổi priority của job - job đang chờ được sắp xếp lại ngay
+     */
+    public synchronized void setPriority(TransferJob job, int priority) {
+        boolean wasPending = pending.remove(job);
+        job.setPriority(priority);
+        if (wasPending) {
+            pending.add(job);
+        }
+        fireChanged(job);
+    }
+
+    /**
+     * Tạm dừng job. Job đang chờ bị rút khỏi queue; job đang chạy dừng
+     * ở buffer tiếp theo.
+     */
+    public synchronized void pause(TransferJob job) {
+        if (job.getState() == TransferJob.State.RUNNING) {
+            job.requestAbort(TransferJob.State.PAUSED);
+        } else if (job.getState() == TransferJob.State.QUEUED && removeWaiting(job)) {
+            job.setState(TransferJob.State.PAUSED, "");
+            fireChanged(job);
+        }
+    }
+
+    /**
+     * Đưa job PAUSED trở lại cuối queue
+     */
+    public synchronized void resume(TransferJob job) {
+        if (job.getState() != TransferJob.State.PAUSED || closed) {
+            return;
+        }
+        job.clearAbortRequest();
+        job.renewSequence();
+        job.setState(TransferJob.State.QUEUED, "");
+        pending.add(job);
+        fireChanged(job);
+    }
+
+    /**
+     * Hủy job (đang chờ, đang pause hoặc đang chạy)
+     */
+    public synchronized void cancel(TransferJob job) {
+        switch (job.getState()) {
+            case RUNNING:
+                job.requestAbort(TransferJob.State.CANCELLED);
+                break;
+            case QUEUED:
+            case PAUSED:
+                removeWaiting(job);
+                job.setState(TransferJob.State.CANCELLED, "");
+                forget(job);
+                fireChanged(job);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Hủy mọi job chưa kết thúc của một server (dùng khi Disconnect)
+     */
+    public synchronized void cancelAll(FtpConnectionPool pool) {
+        for (TransferJob job : jobs) {
+            if (job.getPool() == pool && !job.isFinished()) {
+                cancel(job);
+            }
+        }
+    }
+
+    /** Xóa các job đã kết thúc khỏi danh sách */
+    public void clearFinished() {
+        jobs.removeIf(TransferJob::isFinished);
+    }
+
+    /** @return Snapshot tất cả job (theo thứ tự submit) */
+    public List<TransferJob> getJobs() {
+        return new ArrayList<>(jobs);
+    }
+
+    /**
+     * @return true nếu còn upload chưa chạy xong cho server này
+     *         (dùng để gộp các lần refresh file tree)
+     */
+    public boolean hasPendingUploads(FtpConnectionPool pool) {
+        for (TransferJob job : jobs) {
+            if (job.getPool() == pool && job.getDirection() == TransferJob.Direction.UPLOAD
+                    && (job.getState() == TransferJob.State.QUEUED || job.getState() == TransferJob.State.RUNNING)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dừng mọi worker - job đang chạy bị cancel
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (TransferJob job : jobs) {
+                if (!job.isFinished()) {
+                    cancel(job);
+                }
+            }
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        tuner.interrupt();
+    }
+
+    /**
+     * Xóa journal entry của job bị cancel - user không muốn resume nữa
+     */
+    private void forget(TransferJob job) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.complete(TransferJournal.keyOf(job));
+        } catch (IOException e) {
+            log.accept("Journal error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rút job đang chờ khỏi queue chính hoặc hàng chờ per-host
+     */
+    private boolean removeWaiting(TransferJob job) {
+        if (pending.remove(job)) {
+            return true;
+        }
+        HostSlot slot = hosts.get(job.getHostKey());
+        if (slot != null) {
+            synchronized (slot) {
+                return slot.deferred.remove(job);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Giữ chỗ cho job trên host của nó. Nếu host đã đạt limit, job
+     * được hoãn lại cho đến khi một transfer cùng host kết thúc.
+     *
+     * @return true nếu worker được chạy job ngay
+     */
+    private boolean tryAcquireHost(TransferJob job) {
+        ConnectionSettings settings = job.getPool().getSettings();
+        HostSlot slot = hosts.computeIfAbsent(job.getHostKey(), k -> new HostSlot(settings));
+        synchronized (slot) {
+            slot.controller.configure(settings.getMaxTransfersPerHost(), settings.isAdaptiveConcurrency());
+            slot.pool = job.getPool();
+            if (slot.running < slot.controller.getLimit()) {
+                slot.running++;
+                return true;
+            }
+            slot.deferred.addLast(job);
+            return false;
+        }
+    }
+
+    /**
+     * Trả chỗ của host và đưa một job bị hoãn quay lại queue chính
+     * (trừ khi limit vừa giảm xuống dưới số đang chạy)
+     */
+    private void releaseHost(TransferJob job) {
+        HostSlot slot = hosts.get(job.getHostKey());
+        TransferJob next = null;
+        synchronized (slot) {
+            slot.running--;
+            if (slot.running < slot.controller.getLimit()) {
+                next = slot.deferred.pollFirst();
+            }
+        }
+        if (next != null) {
+            pending.add(next);
+        }
+    }
+
+    /**
+     * Sample controller của mọi host mỗi SAMPLE_MILLIS
+     */
+    private void tuneLoop() {
+        try {
+            while (!closed) {
+                Thread.sleep(ConcurrencyController.SAMPLE_MILLIS);
+                for (Map.Entry<String, HostSlot> entry : hosts.entrySet()) {
+                    tune(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Một lần đo: limit tăng → đưa job bị hoãn lại queue cho đủ slot mới
+     */
+    private void tune(String hostKey, HostSlot slot) {
+        List<TransferJob> released = new ArrayList<>();
+        String decision = null;
+        synchronized (slot) {
+            if (slot.pool == null) {
+                return;
+            }
+            TransferMetrics metrics = slot.pool.getTransferMetrics();
+            long bytes = metrics.getUploadRate().getTotal() + metrics.getDownloadRate().getTotal();
+            int before = slot.controller.getLimit();
+            boolean saturated = slot.running >= before && !slot.deferred.isEmpty();
+            if (slot.controller.sample(bytes, saturated, System.nanoTime())) {
+                decision = hostKey + ": " + before + " → " + slot.controller;
+            }
+            while (slot.running + released.size() < slot.controller.getLimit() && !slot.deferred.isEmpty()) {
+                released.add(slot.deferred.pollFirst());
+            }
+        }
+        pending.addAll(released);
+        if (decision != null) {
+            log.accept("Transfer streams " + decision);
+        }
+    }
+
+    /**
+     * Server trả 421: giảm limit của host. Nếu limit giảm được, job quay lại
+     * queue (resume từ journal) thay vì FAILED.
+     *
+     * @return true nếu job đã được xếp lại
+     */
+    private boolean requeueOnOverload(TransferJob job, IOException error) {
+        if (!ConcurrencyController.isOverload(error)) {
+            return false;
+        }
+        HostSlot slot = hosts.get(job.getHostKey());
+        String decision;
+        synchronized (slot) {
+            if (!slot.controller.overloaded()) {
+                return false;
+            }
+            decision = slot.controller.toString();
+        }
+        synchronized (this) {
+            if (closed || job.getAbortRequest() != null) {
+                return false;
+            }
+            job.setState(TransferJob.State.QUEUED, "Server busy - retrying with " + decision);
+            pending.add(job);
+        }
+        log.accept("Transfer streams " + job.getHostKey() + ": server busy (" + error.getMessage().trim()
+            + ") → " + decision);
+        return true;
+    }
+
+    private void fireChanged(TransferJob job) {
+        for (Listener listener : listeners) {
+            listener.jobChanged(job);
+        }
+    }
+
+    /**
+     * Worker loop - giữ một connection cho đến khi queue rảnh
+     */
+    private class Worker implements Runnable {
+        private FtpConnectionPool connectionPool;
+        private FTPClient connection;
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    TransferJob job = pending.poll(IDLE_RELEASE_MILLIS, TimeUnit.MILLISECONDS);
+                    if (job == null) {
+                        releaseConnection();
+                        continue;
+                    }
+                    if (job.getState() != TransferJob.State.QUEUED || !tryAcquireHost(job)) {
+                        continue;
+                    }
+                    try {
+                        runJob(job);
+                    } finally {
+                        releaseHost(job);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                releaseConnection();
+            }
+        }
+
+        private void runJob(TransferJob job) {
+            synchronized (TransferQueue.this) {
+                if (job.getState() != TransferJob.State.QUEUED) {
+                    return;
+                }
+                job.setState(TransferJob.State.RUNNING, "");
+            }
+            fireChanged(job);
+
+            try {
+                FTPClient client = acquireConnection(job.getPool());
+                FileTransfer.execute(client, job, journal, bandwidth.open(job), executor);
+                job.setState(TransferJob.State.COMPLETED, "");
+            } catch (IOException e) {
+                TransferJob.State abort = job.getAbortRequest();
+                if (abort != null || !FtpConnectionPool.isReusable(connection, e)) {
+                    // Data transfer bị cắt giữa chừng (226/426 chưa đọc) hoặc lỗi mạng -
+                    // control channel không còn đồng bộ, không probe bằng NOOP
+                    dropConnection();
+                }
+                if (abort != null) {
+                    job.setState(abort, "");
+                    if (abort == TransferJob.State.CANCELLED) {
+                        forget(job);
+                    }
+                    log.accept("Transfer " + abort.name().toLowerCase() + ": " + job.getRemotePath());
+                } else if (!requeueOnOverload(job, e)) {
+                    job.setState(TransferJob.State.FAILED, e.getMessage());
+                    log.accept("Transfer failed: " + job.getRemotePath() + " - " + e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                dropConnection();
+                job.setState(TransferJob.State.FAILED, e.toString());
+            }
+            fireChanged(job);
+        }
+
+        /**
+         * Dùng lại connection hiện có nếu cùng server, ngược lại borrow mới
+         */
+        private FTPClient acquireConnection(FtpConnectionPool pool) throws IOException {
+            if (connection != null && (connectionPool != pool || !connection.isConnected())) {
+                releaseConnection();
+            }
+            if (connection == null) {
+                connection = pool.borrow();
+                connectionPool = pool;
+            }
+            return connection;
+        }
+
+        private void releaseConnection() {
+            if (connection != null) {
+                connectionPool.release(connection);
+                connection = null;
+                connectionPool = null;
+            }
+        }
+
+        private void dropConnection() {
+            if (connection != null) {
+                connectionPool.invalidate(connection);
+                connection = null;
+                connectionPool = null;
+            }
+        }
+    }
+}
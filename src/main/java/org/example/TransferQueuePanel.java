@@ -0,0 +1,251 @@
+package org.example;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableColumnModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 📋 Transfer Queue Panel - Hiển thị và điều khiển TransferQueue
+ *
+ * • Bảng progress: state, % (progress bar), rate trượt, ETA, TTFB của
+ *   từng job (refresh mỗi 500ms)
+ * • Pause / Resume / Cancel cho các job được chọn
+ * • Priority ↑ để đẩy job lên đầu queue (chế độ PRIORITY)
+ * • Limit… đặt giới hạn bandwidth cho các job được chọn (kể cả đang chạy),
+ *   nhãn bên cạnh hiện giới hạn global đang áp dụng
+ * • Combo chọn ordering FIFO / PRIORITY
+ *
+ * Mọi update từ worker threads được chuyển về EDT qua invokeLater.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferQueue
+ */
+public class TransferQueuePanel extends JPanel {
+    private final TransferQueue queue;
+    private final JobTableModel tableModel = new JobTableModel();
+    private final JTable jobTable = new JTable(tableModel);
+    private final JLabel limitLabel = new JLabel();
+
+    /**
+     * @param queue Transfer queue cần hiển thị
+     */
+    public TransferQueuePanel(TransferQueue queue) {
+        super(new BorderLayout());
+        this.queue = queue;
+        setBorder(BorderFactory.createTitledBorder("Transfer Queue"));
+
+        jobTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        jobTable.setFillsViewportHeight(true);
+        jobTable.setDefaultRenderer(Double.class, new ProgressRenderer());
+        TableColumnModel columns = jobTable.getColumnModel();
+        int[] widths = {260, 80, 120, 80, 60, 70, 200};
+        for (int i = 0; i < widths.length; i++) {
+            columns.getColumn(i).setPreferredWidth(widths[i]);
+        }
+        DefaultTableCellRenderer right = new DefaultTableCellRenderer();
+        right.setHorizontalAlignment(SwingConstants.RIGHT);
+        for (int i = JobTableModel.COLUMN_RATE; i <= JobTableModel.COLUMN_TTFB; i++) {
+            columns.getColumn(i).setCellRenderer(right);
+        }
+        add(new JScrollPane(jobTable), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton pauseButton = new JButton("Pause");
+        pauseButton.addActionListener(e -> forSelected(queue::pause));
+        JButton resumeButton = new JButton("Resume");
+        resumeButton.addActionListener(e -> forSelected(queue::resume));
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> forSelected(queue::cancel));
+        JButton priorityButton = new JButton("Priority ↑");
+        priorityButton.addActionListener(e -> forSelected(job -> queue.setPriority(job, job.getPriority() + 1)));
+        JButton limitButton = new JButton("Limit…");
+        limitButton.addActionListener(e -> limitSelected());
+        JButton clearButton = new JButton("Clear finished");
+        clearButton.addActionListener(e -> {
+            queue.clearFinished();
+            tableModel.removeFinished();
+        });
+
+        JComboBox<TransferQueue.Ordering> orderingBox = new JComboBox<>(TransferQueue.Ordering.values());
+        orderingBox.setSelectedItem(queue.getOrdering());
+        orderingBox.addActionListener(e ->
+            queue.setOrdering((TransferQueue.Ordering) orderingBox.getSelectedItem()));
+
+        buttonPanel.add(pauseButton);
+        buttonPanel.add(resumeButton);
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(priorityButton);
+        buttonPanel.add(limitButton);
+        buttonPanel.add(clearButton);
+        buttonPanel.add(new JLabel("Order:"));
+        buttonPanel.add(orderingBox);
+        buttonPanel.add(limitLabel);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        queue.addListener(job -> SwingUtilities.invokeLater(() -> tableModel.update(job)));
+
+        // Progress (bytes, rate) thay đổi liên tục - refresh định kỳ thay vì mỗi buffer
+        new Timer(500, e -> {
+            tableModel.refreshRunning();
+            limitLabel.setText("Max: " + BandwidthLimiter.formatRate(queue.getBandwidthLimiter().getEffectiveGlobalRate()));
+        }).start();
+    }
+
+    /**
+     * Hỏi rate cho các job được chọn: "512k", "0" = không giới hạn,
+     * để trống = theo mặc định per-transfer
+     */
+    private void limitSelected() {
+        int[] rows = jobTable.getSelectedRows();
+        if (rows.length == 0) {
+            return;
+        }
+        long current = tableModel.getJob(rows[0]).getRateLimit();
+        String input = JOptionPane.showInputDialog(this,
+            "Rate limit for selected transfers (e.g. 512k, 10m, 0 = unlimited, empty = default):",
+            current < 0 ? "" : current == 0 ? "0" : (current / 1024) + "k");
+        if (input == null) {
+            return;
+        }
+        long rate;
+        try {
+            rate = input.trim().isEmpty() ? -1 : BandwidthLimiter.parseRate(input);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage());
+            return;
+        }
+        forSelected(job -> job.setRateLimit(rate));
+    }
+
+    private void forSelected(java.util.function.Consumer<TransferJob> action) {
+        for (int row : jobTable.getSelectedRows()) {
+            action.accept(tableModel.getJob(row));
+        }
+    }
+
+    /**
+     * Table model với index lookup O(1) - queue có thể chứa hàng nghìn job
+     */
+    private static final class JobTableModel extends AbstractTableModel {
+        static final int COLUMN_PROGRESS = 2;
+        static final int COLUMN_RATE = 3;
+        static final int COLUMN_TTFB = 5;
+        private static final String[] COLUMNS = {"File", "State", "Progress", "Rate", "ETA", "TTFB", "Message"};
+
+        private final List<TransferJob> jobs = new ArrayList<>();
+        private final Map<TransferJob, Integer> indexes = new IdentityHashMap<>();
+
+        @Override
+        public int getRowCount() {
+            return jobs.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == COLUMN_PROGRESS ? Double.class : String.class;
+        }
+
+        TransferJob getJob(int row) {
+            return jobs.get(row);
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            TransferJob job = jobs.get(row);
+            switch (column) {
+                case 0:
+                    return (job.getDirection() == TransferJob.Direction.UPLOAD ? "⬆️ " + job.getLocalFile().getName()
+                        : "⬇️ " + job.getRemotePath()) + (job.getPriority() != 0 ? " (priority " + job.getPriority() + ")" : "");
+                case 1:
+                    return job.getState().toString();
+                case COLUMN_PROGRESS:
+                    // < 0: size chưa biết - renderer hiện số KB
+                    long size = job.getExpectedSize();
+                    return size > 0 ? Math.min(1.0, job.getBytesTransferred() / (double) size)
+                        : size == 0 && job.getState() == TransferJob.State.COMPLETED ? 1.0 : -1.0 - job.getBytesTransferred();
+                case COLUMN_RATE:
+                    return job.getState() == TransferJob.State.RUNNING ? RateMeter.format(job.getRate()) : "";
+                case 4:
+                    long eta = job.getEtaSeconds();
+                    return eta < 0 ? "" : eta >= 3600 ? (eta / 3600) + "h " + (eta % 3600 / 60) + "m"
+                        : eta >= 60 ? (eta / 60) + "m " + (eta % 60) + "s" : eta + "s";
+                case COLUMN_TTFB:
+                    double ttfb = job.getTimeToFirstByteMillis();
+                    return ttfb < 0 ? "" : String.format("%.0f ms", ttfb);
+                default:
+                    return job.getMessage();
+            }
+        }
+
+        void update(TransferJob job) {
+            Integer index = indexes.get(job);
+            if (index == null) {
+                indexes.put(job, jobs.size());
+                jobs.add(job);
+                fireTableRowsInserted(jobs.size() - 1, jobs.size() - 1);
+            } else {
+                fireTableRowsUpdated(index, index);
+            }
+        }
+
+        /** Chỉ các job đang chạy có progress/rate thay đổi */
+        void refreshRunning() {
+            for (int i = 0; i < jobs.size(); i++) {
+                if (jobs.get(i).getState() == TransferJob.State.RUNNING) {
+                    fireTableRowsUpdated(i, i);
+                }
+            }
+        }
+
+        void removeFinished() {
+            jobs.removeIf(TransferJob::isFinished);
+            indexes.clear();
+            for (int i = 0; i < jobs.size(); i++) {
+                indexes.put(jobs.get(i), i);
+            }
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Progress bar trong cell: % khi biết size, số KB khi chưa biết
+     */
+    private static final class ProgressRenderer extends JProgressBar implements javax.swing.table.TableCellRenderer {
+        ProgressRenderer() {
+            super(0, 1000);
+            setStringPainted(true);
+            setBorderPainted(false);
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            double fraction = (Double) value;
+            if (fraction >= 0) {
+                setValue((int) (fraction * 1000));
+                setString(String.format("%.1f%%", fraction * 100));
+            } else {
+                setValue(0);
+                setString((long) (-1.0 - fraction) / 1024 + " KB");
+            }
+            return this;
+        }
+    }
+}
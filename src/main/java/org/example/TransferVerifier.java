@@ -0,0 +1,153 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+
+import java.io.IOException;
+
+/**
+ * ✅ Transfer Verifier - Kiểm tra end-to-end sau mỗi transfer
+ *
+ * Trước transfer (inline()): chọn thuật toán cả hai phía cùng tính được -
+ * ftps.checksumAlgorithm nếu HASH của server có, ngược lại thuật toán
+ * server dùng (HASH mặc định, XCRC = CRC32, XMD5 = MD5). ChannelTransfer
+ * hash bytes khi chúng đi qua, không đọc lại file.
+ *
+ * Sau transfer (verify()):
+ * • CHECKSUM: so hash inline với HASH/XCRC/XMD5 của server
+ * • Server không có command hash, từ chối HASH, hoặc transfer là resume
+ *   (REST/APPE - hash inline chỉ phủ phần vừa truyền) → so SIZE
+ * • SIZE: chỉ so kích thước - bắt được file bị cắt, không bắt được byte hỏng
+ * • Segmented download (segmented()): CRC32/CRC32C của từng range ghép
+ *   thành CRC cả file (SegmentChecksum). SHA/MD5/XXH64 không ghép được
+ *   từ các range đến không theo thứ tự - server không có CRC32/CRC32C
+ *   (HASH hoặc XCRC) thì segmented download chỉ so SIZE, thay vì đọc
+ *   lại cả file để hash
+ *
+ * Lệch → IntegrityException; FileTransfer bỏ checkpoint trong journal và
+ * transfer lại từ đầu tối đa ftps.verifyRetries lần.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see StreamingChecksum
+ * @see RemoteChecksum
+ * @see FileTransfer
+ */
+public final class TransferVerifier {
+    /** Số lần transfer lại mặc định khi verify thất bại */
+    public static final int DEFAULT_RETRIES = 2;
+
+    /** Mức kiểm tra (ftps.verify) */
+    public enum Mode { OFF, SIZE, CHECKSUM }
+
+    /**
+     * Bytes ở đích khác nguồn - transfer lại có thể sửa được
+     */
+    public static class IntegrityException extends IOException {
+        public IntegrityException(String message) {
+            super(message);
+        }
+    }
+
+    private TransferVerifier() {
+    }
+
+    /**
+     * @param offset Offset bắt đầu (REST/APPE), 0 = transfer cả file
+     * @return Checksum cần tính inline, null nếu không cần (OFF/SIZE, resume,
+     *         server không có command hash)
+     */
+    public static StreamingChecksum inline(FtpConnectionPool pool, long offset) {
+        ConnectionSettings settings = pool.getSettings();
+        if (offset > 0 || settings.getVerify() != Mode.CHECKSUM) {
+            return null;
+        }
+        RemoteChecksum.Algorithm algorithm = RemoteChecksum.negotiate(pool.getServerFeatures(),
+            settings.getChecksumAlgorithm());
+        return algorithm == null ? null : new StreamingChecksum(algorithm);
+    }
+
+    /**
+     * @return CRC ghép từng range cho segmented download, null nếu không cần
+     *         (OFF/SIZE) hoặc server không có CRC32/CRC32C - khi đó chỉ so SIZE
+     */
+    public static SegmentChecksum segmented(FtpConnectionPool pool) {
+        ConnectionSettings settings = pool.getSettings();
+        if (settings.getVerify() != Mode.CHECKSUM) {
+            return null;
+        }
+        RemoteChecksum.Algorithm algorithm = RemoteChecksum.negotiateCombinable(pool.getServerFeatures(),
+            settings.getChecksumAlgorithm());
+        return algorithm == null ? null : new SegmentChecksum(algorithm);
+    }
+
+    /**
+     * So đích với nguồn sau khi transfer xong (connection vẫn là của job)
+     *
+     * @param checksum Hash inline từ inline(), null = chỉ so SIZE
+     * @param localSize Kích thước local file sau transfer
+     * @throws IntegrityException nếu hash hoặc size lệch
+     * @throws IOException nếu connection lỗi
+     */
+    public static void verify(FTPClient client, TransferJob job, StreamingChecksum checksum, long localSize)
+            throws IOException {
+        verify(client, job, checksum == null ? null : checksum.finish(), localSize);
+    }
+
+    /**
+     * @param local Checksum đã tính xong (SegmentChecksum.finish()), null = chỉ so SIZE
+     */
+    public static void verify(FTPClient client, TransferJob job, RemoteChecksum local, long localSize)
+            throws IOException {
+        FtpConnectionPool pool = job.getPool();
+        if (pool.getSettings().getVerify() == Mode.OFF) {
+            return;
+        }
+        if (local != null) {
+            RemoteChecksum remote = rejectedAsNull(client, () -> RemoteChecksum.remote(client,
+                pool.getServerFeatures(), job.getRemotePath(), local.getAlgorithm()));
+            if (remote != null && remote.getAlgorithm() == local.getAlgorithm()) {
+                boolean matched = remote.equals(local);
+                pool.getTransferMetrics().verificationFinished(matched);
+                if (!matched) {
+                    throw new IntegrityException("Checksum mismatch: " + local + " local, " + remote.getHex()
+                        + " on server");
+                }
+                return;
+            }
+        }
+        Long remoteSize = rejectedAsNull(client, () -> SegmentedDownloader.remoteSize(client, job.getRemotePath()));
+        if (remoteSize == null) {
+            // Không có cách nào hỏi server - giữ hành vi cũ
+            return;
+        }
+        boolean matched = remoteSize == localSize;
+        pool.getTransferMetrics().verificationFinished(matched);
+        if (!matched) {
+            throw new IntegrityException("Size mismatch: " + localSize + " bytes local, " + remoteSize
+                + " on server");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Query<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * @return Kết quả query, null nếu server trả lời từ chối (command không
+     *         hỗ trợ, file đang bị khóa...) - lỗi connection vẫn được ném ra
+     */
+    private static <T> T rejectedAsNull(FTPClient client, Query<T> query) throws IOException {
+        try {
+            return query.run();
+        } catch (FTPConnectionClosedException e) {
+            throw e;
+        } catch (IOException e) {
+            if (!client.isConnected()) {
+                throw e;
+            }
+            return null;
+        }
+    }
+}
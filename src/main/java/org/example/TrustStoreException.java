@@ -0,0 +1,47 @@
+package org.example;
+
+import java.io.IOException;
+
+/**
+ * ⚠️ Trust Store Exception - Không load được certificate / trust store
+ *
+ * CertificateManager ném exception này thay vì tự hiện dialog, để caller
+ * (connection factory, UI) quyết định cách báo lỗi. Extends IOException
+ * nên đi theo đường lỗi connect sẵn có.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see CertificateManager
+ */
+public class TrustStoreException extends IOException {
+
+    /** Lý do load thất bại */
+    public enum Reason {
+        /** File không tồn tại hoặc không đọc được */
+        NOT_FOUND,
+        /** Không phải PEM/DER certificate, JKS hay PKCS12 hợp lệ */
+        UNREADABLE,
+        /** Keystore cần password khác */
+        BAD_PASSWORD,
+        /** File hợp lệ nhưng không chứa certificate nào */
+        EMPTY
+    }
+
+    private final String path;
+    private final Reason reason;
+
+    public TrustStoreException(String path, Reason reason, String message, Throwable cause) {
+        super(message + ": " + path, cause);
+        this.path = path;
+        this.reason = reason;
+    }
+
+    /** @return Đường dẫn certificate / trust store */
+    public String getPath() {
+        return path;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,132 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🚦 BandwidthLimiter - token bucket giữ đúng rate, chunk size theo giới hạn,
+ * cú pháp rate và khung giờ của schedule
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see BandwidthLimiter
+ */
+class BandwidthLimiterTest {
+    private static final int CHUNK = 64 * 1024;
+
+    @Test
+    void globalLimitPacesTransfer() throws IOException {
+        BandwidthLimiter limiter = new BandwidthLimiter();
+        limiter.setGlobalRate(1024 * 1024);
+        BandwidthLimiter.Throttle throttle = limiter.open(job());
+        long start = System.nanoTime();
+        // 1.5 MB ở 1 MB/s, trừ burst 250 ms
+        for (int i = 0; i < 24; i++) {
+            throttle.acquire(CHUNK);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis >= 1_150, "finished in " + millis + " ms");
+        assertTrue(millis < 5_000, "finished in " + millis + " ms");
+    }
+
+    @Test
+    void unlimitedTransferDoesNotWait() throws IOException {
+        BandwidthLimiter.Throttle throttle = new BandwidthLimiter().open(job());
+        long start = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            throttle.acquire(CHUNK);
+        }
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 1_000);
+    }
+
+    @Test
+    void chunkSizeFollowsLimits() throws IOException {
+        BandwidthLimiter limiter = new BandwidthLimiter();
+        BandwidthLimiter.Throttle throttle = limiter.open(job());
+        assertEquals(1024 * 1024, throttle.chunkSize(1024 * 1024));
+
+        limiter.setGlobalRate(2 * 1024 * 1024);
+        assertEquals(2 * 1024 * 1024 / 10, throttle.chunkSize(1024 * 1024));
+
+        limiter.setTransferRate(100 * 1024);
+        assertEquals(100 * 1024, throttle.chunkSize(1024 * 1024));
+
+        limiter.setGlobalRate(0);
+        limiter.setTransferRate(50 * 1024);
+        assertEquals(16 * 1024, throttle.chunkSize(1024 * 1024));
+    }
+
+    @Test
+    void parsesRatesWithUnits() {
+        assertEquals(100, BandwidthLimiter.parseRate("100"));
+        assertEquals(100, BandwidthLimiter.parseRate("100b/s"));
+        assertEquals(512 * 1024, BandwidthLimiter.parseRate("512k"));
+        assertEquals(512 * 1024, BandwidthLimiter.parseRate(" 512KB/s "));
+        assertEquals(1_572_864, BandwidthLimiter.parseRate("1.5m"));
+        assertEquals(2L * 1024 * 1024 * 1024, BandwidthLimiter.parseRate("2g"));
+    }
+
+    @Test
+    void parsesUnlimitedRates() {
+        assertEquals(0, BandwidthLimiter.parseRate(""));
+        assertEquals(0, BandwidthLimiter.parseRate("0"));
+        assertEquals(0, BandwidthLimiter.parseRate("off"));
+        assertEquals(0, BandwidthLimiter.parseRate("Unlimited"));
+    }
+
+    @Test
+    void rejectsInvalidRates() {
+        assertThrows(IllegalArgumentException.class, () -> BandwidthLimiter.parseRate("fast"));
+        assertThrows(IllegalArgumentException.class, () -> BandwidthLimiter.parseRate("-1k"));
+        assertThrows(IllegalArgumentException.class, () -> BandwidthLimiter.parseRate("1x"));
+    }
+
+    @Test
+    void scheduleUsesFirstMatchingWindow() {
+        BandwidthLimiter.Schedule schedule = BandwidthLimiter.Schedule.parse(
+            "08:00-18:00=1m, 22:00-06:00=0, 12:00-13:00=5m");
+        assertEquals(1024 * 1024, schedule.rateAt(LocalTime.of(8, 0)));
+        assertEquals(1024 * 1024, schedule.rateAt(LocalTime.of(12, 30)));
+        assertEquals(-1, schedule.rateAt(LocalTime.of(18, 0)));
+        assertEquals(-1, schedule.rateAt(LocalTime.of(21, 59)));
+    }
+
+    @Test
+    void scheduleWindowWrapsPastMidnight() {
+        BandwidthLimiter.Schedule schedule = BandwidthLimiter.Schedule.parse("22:00-06:00=256k");
+        assertEquals(256 * 1024, schedule.rateAt(LocalTime.of(23, 30)));
+        assertEquals(256 * 1024, schedule.rateAt(LocalTime.of(0, 0)));
+        assertEquals(256 * 1024, schedule.rateAt(LocalTime.of(5, 59)));
+        assertEquals(-1, schedule.rateAt(LocalTime.of(6, 0)));
+    }
+
+    @Test
+    void emptyScheduleIsNone() {
+        assertSame(BandwidthLimiter.Schedule.NONE, BandwidthLimiter.Schedule.parse(" , "));
+        assertEquals(-1, BandwidthLimiter.Schedule.NONE.rateAt(LocalTime.NOON));
+    }
+
+    @Test
+    void rejectsInvalidSchedule() {
+        assertThrows(IllegalArgumentException.class, () -> BandwidthLimiter.Schedule.parse("08:00=1m"));
+        assertThrows(IllegalArgumentException.class, () -> BandwidthLimiter.Schedule.parse("8am-5pm=1m"));
+        assertThrows(IllegalArgumentException.class, () -> BandwidthLimiter.Schedule.parse("08:00-18:00=fast"));
+    }
+
+    /** Job không cần server: limiter chỉ đọc host key và rate riêng */
+    private static TransferJob job() throws IOException {
+        ConnectionSettings settings = new ConnectionSettings();
+        settings.setHost("localhost");
+        FtpConnectionPool pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }),
+            message -> { });
+        return new TransferJob(TransferJob.Direction.DOWNLOAD, new File("unused.bin"), "unused.bin", pool);
+    }
+}
@@ -0,0 +1,99 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 📌 CertificateManager - trust store cache theo mtime/size, pin set tính
+ * sẵn, certificate lạ bị từ chối
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see CertificateManager
+ */
+class CertificateManagerTest {
+    private static EmbeddedFtpServer server;
+    private static EmbeddedFtpServer other;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void startServers() throws Exception {
+        // Mỗi server tự tạo certificate riêng lúc start
+        server = EmbeddedFtpServer.start();
+        other = EmbeddedFtpServer.start();
+    }
+
+    @AfterAll
+    static void stopServers() throws Exception {
+        server.close();
+        other.close();
+        CertificateManager.clearCache();
+    }
+
+    @Test
+    void trustStoreIsCachedUntilFileChanges() throws Exception {
+        Path file = directory.resolve("server.crt");
+        Files.copy(server.getCertificate(), file);
+        CertificateManager.PinnedTrustManager first = CertificateManager.load(file.toString(), null);
+        assertSame(first, CertificateManager.load(file.toString(), null));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60_000));
+        CertificateManager.PinnedTrustManager reloaded = CertificateManager.load(file.toString(), null);
+        assertNotSame(first, reloaded);
+        assertEquals(first.getPins(), reloaded.getPins());
+    }
+
+    @Test
+    void pinnedLeafIsTrusted() throws Exception {
+        X509Certificate leaf = read(server.getCertificate());
+        CertificateManager.PinnedTrustManager manager =
+            CertificateManager.load(server.getCertificate().toString(), null);
+        assertEquals(1, manager.getCertificateCount());
+        assertTrue(manager.getPins().contains(CertificateManager.fingerprint(leaf)));
+        assertDoesNotThrow(() -> manager.checkServerTrusted(new X509Certificate[] {leaf}, "ECDHE_RSA"));
+        // Lần hai đi qua verified cache
+        assertDoesNotThrow(() -> manager.checkServerTrusted(new X509Certificate[] {leaf}, "ECDHE_RSA"));
+    }
+
+    @Test
+    void unknownCertificateIsRejected() throws Exception {
+        CertificateManager.PinnedTrustManager manager =
+            CertificateManager.load(server.getCertificate().toString(), null);
+        X509Certificate stranger = read(other.getCertificate());
+        assertThrows(CertificateException.class,
+            () -> manager.checkServerTrusted(new X509Certificate[] {stranger}, "ECDHE_RSA"));
+        assertThrows(CertificateException.class, () -> manager.checkServerTrusted(new X509Certificate[0], "ECDHE_RSA"));
+    }
+
+    @Test
+    void missingFileIsReported() {
+        TrustStoreException error = assertThrows(TrustStoreException.class,
+            () -> CertificateManager.load(directory.resolve("missing.crt").toString(), null));
+        assertEquals(TrustStoreException.Reason.NOT_FOUND, error.getReason());
+    }
+
+    private static X509Certificate read(Path file) throws Exception {
+        try (InputStream in = Files.newInputStream(file)) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(in);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🚇 CommandPipeline - reply khớp đúng command của nó khi pipeline (plain và
+ * FTPS) lẫn khi rải cho pool, stat qua MLST, từ chối command thay đổi server
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see CommandPipeline
+ * @see EmbeddedFtpServer
+ */
+class CommandPipelineTest {
+    /** Hơn WINDOW để window phải trượt */
+    private static final int FILES = 80;
+
+    private static EmbeddedFtpServer server;
+    private static NetworkExecutor executor;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = EmbeddedFtpServer.start();
+        for (int i = 0; i < FILES; i++) {
+            // Size = chỉ số của file để nhận ra reply lệch chỗ
+            Files.write(server.getHome().resolve("f" + i + ".bin"), new byte[i]);
+        }
+        executor = new NetworkExecutor("pipeline-test", 4);
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        executor.close();
+        server.close();
+    }
+
+    @Test
+    void pipelinedRepliesMatchCommands() throws Exception {
+        assertRepliesInOrder(false, CommandPipeline.Mode.ON);
+    }
+
+    @Test
+    void pipelinedRepliesMatchCommandsOverTls() throws Exception {
+        assertRepliesInOrder(true, CommandPipeline.Mode.ON);
+    }
+
+    @Test
+    void spreadRepliesMatchCommands() throws Exception {
+        assertRepliesInOrder(false, CommandPipeline.Mode.OFF);
+    }
+
+    @Test
+    void statUsesMlst() throws Exception {
+        FtpConnectionPool pool = pool(false, CommandPipeline.Mode.AUTO);
+        try {
+            Map<String, FTPFile> files = new CommandPipeline(pool, executor, message -> { })
+                .stat(List.of("f7.bin", "missing.bin", "f42.bin"));
+            assertEquals(7, files.get("f7.bin").getSize());
+            assertTrue(files.get("f42.bin").isFile());
+            assertEquals(42, files.get("f42.bin").getSize());
+            assertNull(files.get("missing.bin"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void rejectsCommandsThatChangeServer() throws Exception {
+        FtpConnectionPool pool = pool(false, CommandPipeline.Mode.ON);
+        try {
+            CommandPipeline pipeline = new CommandPipeline(pool, executor, message -> { });
+            assertThrows(IllegalArgumentException.class, () -> pipeline.execute(List.of("SIZE f1.bin", "DELE f1.bin")));
+        } finally {
+            pool.close();
+        }
+    }
+
+    /** SIZE xen kẽ file có và không có - reply lệch một chỗ là sai size hoặc sai code */
+    private static void assertRepliesInOrder(boolean secure, CommandPipeline.Mode mode) throws Exception {
+        FtpConnectionPool pool = pool(secure, mode);
+        try {
+            List<String> commands = new ArrayList<>();
+            for (int i = 0; i < FILES; i++) {
+                commands.add("SIZE f" + i + ".bin");
+                commands.add("SIZE missing" + i + ".bin");
+            }
+            List<CommandPipeline.Reply> replies = new CommandPipeline(pool, executor, message -> { })
+                .execute(commands);
+            assertEquals(commands.size(), replies.size());
+            for (int i = 0; i < FILES; i++) {
+                CommandPipeline.Reply size = replies.get(2 * i);
+                assertEquals(FTPReply.FILE_STATUS, size.getCode(), commands.get(2 * i));
+                assertEquals(String.valueOf(i), size.getText().trim(), commands.get(2 * i));
+                assertEquals(FTPReply.FILE_UNAVAILABLE, replies.get(2 * i + 1).getCode(), commands.get(2 * i + 1));
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    private static FtpConnectionPool pool(boolean secure, CommandPipeline.Mode mode) throws Exception {
+        ConnectionSettings settings = server.settings(secure);
+        settings.setPipelining(mode);
+        FtpConnectionPool pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }),
+            message -> { });
+        pool.start();
+        return pool;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🎚️ ConcurrencyController - probe, giữ/bỏ stream theo throughput đo được, 421
+ *
+ * Thời gian được truyền vào sample() nên test không phải chờ SAMPLE_MILLIS.
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see ConcurrencyController
+ */
+class ConcurrencyControllerTest {
+    private static final long INTERVAL_NANOS = ConcurrencyController.SAMPLE_MILLIS * 1_000_000;
+
+    private long bytes;
+    /** Cùng gốc với System.nanoTime() mà overloaded() dùng cho hạn của server cap */
+    private long now = System.nanoTime();
+
+    @Test
+    void fixedModeNeverChangesLimit() {
+        ConcurrencyController controller = new ConcurrencyController(6, false);
+        assertEquals(6, controller.getLimit());
+        for (int i = 0; i < 5; i++) {
+            assertFalse(step(controller, 1_000_000, true));
+        }
+        assertEquals(6, controller.getLimit());
+        assertEquals(ConcurrencyController.Decision.FIXED, controller.getDecision());
+        assertFalse(controller.overloaded());
+    }
+
+    @Test
+    void keepsStreamThatRaisesThroughputAndRevertsOneThatDoesNot() {
+        ConcurrencyController controller = new ConcurrencyController(8, true);
+        assertEquals(2, controller.getLimit());
+        assertFalse(step(controller, 0, true));
+
+        // Saturated → thêm một stream
+        assertTrue(step(controller, 100_000, true));
+        assertEquals(3, controller.getLimit());
+        assertEquals(ConcurrencyController.Decision.PROBING, controller.getDecision());
+        // Sample ngay sau khi đổi limit bị bỏ
+        assertFalse(step(controller, 150_000, true));
+        // +50% → giữ stream và probe tiếp
+        assertTrue(step(controller, 150_000, true));
+        assertEquals(4, controller.getLimit());
+        assertFalse(step(controller, 150_000, true));
+        // Không tăng đủ 10% → bỏ stream vừa thêm và đứng yên
+        assertTrue(step(controller, 155_000, true));
+        assertEquals(3, controller.getLimit());
+        assertEquals(ConcurrencyController.Decision.REVERTED, controller.getDecision());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(step(controller, 155_000, true));
+        }
+        assertEquals(3, controller.getLimit());
+        assertEquals(155_000, controller.getThroughput(), 1);
+    }
+
+    @Test
+    void doesNotProbeWithoutWaitingJobs() {
+        ConcurrencyController controller = new ConcurrencyController(8, true);
+        step(controller, 0, false);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(step(controller, 100_000, false));
+        }
+        assertEquals(2, controller.getLimit());
+        assertEquals(ConcurrencyController.Decision.STEADY, controller.getDecision());
+    }
+
+    @Test
+    void ignoresSamplesCloserThanInterval() {
+        ConcurrencyController controller = new ConcurrencyController(8, true);
+        step(controller, 0, true);
+        bytes += 1_000_000;
+        now += INTERVAL_NANOS / 2;
+        assertFalse(controller.sample(bytes, true, now));
+        assertEquals(2, controller.getLimit());
+    }
+
+    @Test
+    void overloadHalvesLimitAndCapsProbing() {
+        ConcurrencyController controller = new ConcurrencyController(8, true);
+        controller.configure(8, false);
+        controller.configure(8, true);
+        assertEquals(8, controller.getLimit());
+
+        assertTrue(controller.overloaded());
+        assertEquals(4, controller.getLimit());
+        assertEquals(ConcurrencyController.Decision.OVERLOADED, controller.getDecision());
+
+        // Throughput tăng đều - limit chỉ lên tới mức server đã chịu được (7)
+        step(controller, 0, true);
+        long rate = 100_000;
+        for (int i = 0; i < 30; i++) {
+            rate = rate * 2;
+            step(controller, rate, true);
+        }
+        assertEquals(7, controller.getLimit());
+    }
+
+    @Test
+    void recognisesOverloadReplies() {
+        assertTrue(ConcurrencyController.isOverload(new IOException("421 Too many users")));
+        assertTrue(ConcurrencyController.isOverload(
+            new IOException("Transfer failed", new IOException("Login failed: 421 busy"))));
+        assertTrue(ConcurrencyController.isOverload(
+            new FTPConnectionClosedException("FTP response 421 received.  Server closed connection.")));
+        assertFalse(ConcurrencyController.isOverload(new IOException("550 Not found")));
+    }
+
+    @Test
+    void localErrorsAreNotOverload() {
+        assertFalse(ConcurrencyController.isOverload(new IOException("Too many open files")));
+        assertFalse(ConcurrencyController.isOverload(
+            new IOException("Upload failed", new SocketException("Too many open files"))));
+        assertFalse(ConcurrencyController.isOverload(new IOException("Wrote 4210 bytes")));
+        assertFalse(ConcurrencyController.isOverload(
+            new FTPConnectionClosedException("Connection closed without indication.")));
+    }
+
+    /**
+     * Một chu kỳ đo: bytesPerSecond trong SAMPLE_MILLIS
+     */
+    private boolean step(ConcurrencyController controller, long bytesPerSecond, boolean saturated) {
+        bytes += bytesPerSecond * ConcurrencyController.SAMPLE_MILLIS / 1000;
+        now += INTERVAL_NANOS;
+        return controller.sample(bytes, saturated, now);
+    }
+}
@@ -0,0 +1,114 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🗜️ DataCompression - quyết định nén theo extension/mẫu, và upload/download
+ * MODE Z cho ra đúng bytes với ít bytes trên dây hơn
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see DataCompression
+ * @see EmbeddedFtpServer
+ */
+class DataCompressionTest {
+    private static EmbeddedFtpServer server;
+    private static byte[] text;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = EmbeddedFtpServer.start();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; builder.length() < 1024 * 1024; i++) {
+            builder.append("2026-10-18 12:00:").append(i % 60).append(" INFO transfer ").append(i).append(" done\n");
+        }
+        text = builder.toString().getBytes(StandardCharsets.US_ASCII);
+        Files.write(server.getHome().resolve("server.log"), text);
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void skipsPrecompressedExtensions() {
+        assertTrue(DataCompression.isPrecompressed("/pub/photo.JPG", DataCompression.DEFAULT_SKIP_EXTENSIONS));
+        assertTrue(DataCompression.isPrecompressed("a.tar.gz", "zip, gz"));
+        assertFalse(DataCompression.isPrecompressed("/pub/server.log", DataCompression.DEFAULT_SKIP_EXTENSIONS));
+        assertFalse(DataCompression.isPrecompressed("/pub.zip/README", DataCompression.DEFAULT_SKIP_EXTENSIONS));
+    }
+
+    @Test
+    void sampleRatioSeparatesTextFromRandom() throws Exception {
+        Path random = directory.resolve("random.bin");
+        byte[] noise = new byte[256 * 1024];
+        new Random(3).nextBytes(noise);
+        Files.write(random, noise);
+        Path log = directory.resolve("server.log");
+        Files.write(log, text);
+        try (FileChannel channel = FileChannel.open(random)) {
+            assertTrue(DataCompression.estimateRatio(channel) > 0.9);
+        }
+        try (FileChannel channel = FileChannel.open(log)) {
+            assertTrue(DataCompression.estimateRatio(channel) < 0.3);
+        }
+    }
+
+    @Test
+    void uploadAndDownloadInModeZ() throws Exception {
+        ConnectionSettings settings = server.settings(false);
+        settings.setCompression(true);
+        FtpConnectionPool pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }),
+            message -> { });
+        try (NetworkExecutor executor = new NetworkExecutor("test", 4)) {
+            pool.start();
+            assertTrue(DataCompression.isAvailable(pool));
+
+            File download = directory.resolve("download.log").toFile();
+            execute(pool, executor, new TransferJob(TransferJob.Direction.DOWNLOAD, download, "server.log", pool));
+            assertArrayEquals(text, Files.readAllBytes(download.toPath()));
+
+            execute(pool, executor, new TransferJob(TransferJob.Direction.UPLOAD, download, "upload.log", pool));
+            assertArrayEquals(text, Files.readAllBytes(server.getHome().resolve("upload.log")));
+
+            TransferMetrics metrics = pool.getTransferMetrics();
+            assertEquals(2, metrics.getCompressedTransfers());
+            assertEquals(2L * text.length, metrics.getCompressionRawBytes());
+            assertTrue(metrics.getCompressionWireBytes() < text.length / 2);
+            // Connection đã về MODE S: listing không bị nén
+            String[] names = pool.executeIdempotent(FTPClient::listNames);
+            assertEquals(2, names.length);
+        } finally {
+            pool.close();
+        }
+    }
+
+    private static void execute(FtpConnectionPool pool, NetworkExecutor executor, TransferJob job) throws Exception {
+        FTPClient client = pool.borrow();
+        try {
+            FileTransfer.execute(client, job, null, new BandwidthLimiter().open(job), executor);
+        } finally {
+            pool.release(client);
+        }
+    }
+}
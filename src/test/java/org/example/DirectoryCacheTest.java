@@ -0,0 +1,124 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🗃️ DirectoryCache - TTL, LRU, invalidate cả cây, và patch listing của
+ * thư mục cha sau STOR/DELE/MKD/RNFR+RNTO thành công
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see DirectoryCache
+ * @see EmbeddedFtpServer
+ */
+class DirectoryCacheTest {
+
+    @Test
+    void resolvesAgainstHome() {
+        DirectoryCache cache = new DirectoryCache(60_000, 10);
+        cache.setHome("/home/test/");
+        assertEquals("/home/test", cache.resolve(""));
+        assertEquals("/home/test/docs", cache.resolve("docs"));
+        assertEquals("/etc", cache.resolve("/home/../etc/./"));
+    }
+
+    @Test
+    void expiredListingIsMiss() throws InterruptedException {
+        DirectoryCache cache = new DirectoryCache(50, 10);
+        cache.put("docs", List.of(file("a.txt")));
+        assertNotNull(cache.get("docs"));
+        Thread.sleep(80);
+        assertNull(cache.get("docs"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedListingIsEvicted() {
+        DirectoryCache cache = new DirectoryCache(60_000, 2);
+        cache.put("a", List.of());
+        cache.put("b", List.of());
+        cache.get("a");
+        cache.put("c", List.of());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    void invalidateTreeDropsSubdirectoriesOnly() {
+        DirectoryCache cache = new DirectoryCache(60_000, 10);
+        for (String path : List.of("/a", "/a/b", "/a/b/c", "/ab", "/")) {
+            cache.put(path, List.of());
+        }
+        cache.invalidateTree("/a");
+        assertNull(cache.get("/a"));
+        assertNull(cache.get("/a/b/c"));
+        assertNotNull(cache.get("/ab"));
+        assertNotNull(cache.get("/"));
+    }
+
+    @Test
+    void mutatingCommandsPatchCachedListing() throws Exception {
+        try (EmbeddedFtpServer server = EmbeddedFtpServer.start()) {
+            Files.write(server.getHome().resolve("hello.txt"), "hello".getBytes());
+            Files.write(server.getHome().resolve("old.txt"), "old".getBytes());
+            FtpConnectionPool pool = new FtpConnectionPool(
+                new FtpConnectionFactory(server.settings(false), message -> { }), message -> { });
+            try {
+                pool.start();
+                DirectoryCache cache = pool.getDirectoryCache();
+                List<FTPFile> listed = pool.executeIdempotent(client -> Arrays.asList(client.listFiles()));
+                cache.put("", listed);
+
+                pool.executeIdempotent(client -> {
+                    assertTrue(client.storeFile("new.txt", new ByteArrayInputStream(new byte[10])));
+                    assertTrue(client.deleteFile("hello.txt"));
+                    assertTrue(client.makeDirectory("sub"));
+                    assertTrue(client.rename("old.txt", "renamed.txt"));
+                    // Lỗi không patch gì
+                    client.deleteFile("missing.txt");
+                    return null;
+                });
+
+                List<FTPFile> cached = cache.get("");
+                assertNotNull(cached);
+                assertEquals(List.of("new.txt", "renamed.txt", "sub"), names(cached));
+                assertTrue(cached.stream().anyMatch(file -> file.getName().equals("sub") && file.isDirectory()));
+                assertEquals(names(pool.executeIdempotent(client -> Arrays.asList(client.listFiles()))),
+                    names(cached));
+            } finally {
+                pool.close();
+            }
+        }
+    }
+
+    private static FTPFile file(String name) {
+        FTPFile file = new FTPFile();
+        file.setName(name);
+        file.setType(FTPFile.FILE_TYPE);
+        return file;
+    }
+
+    private static List<String> names(List<FTPFile> files) {
+        List<String> names = new ArrayList<>();
+        for (FTPFile file : files) {
+            names.add(file.getName());
+        }
+        names.sort(null);
+        return names;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🧪 EmbeddedFtpServer - fixture mà các test khác dựa vào: login, home trên
+ * đĩa, FTPS với certificate export ra, shaping RTT
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see EmbeddedFtpServer
+ */
+class EmbeddedFtpServerTest {
+
+    @Test
+    void uploadsLandInHomeDirectory() throws Exception {
+        try (EmbeddedFtpServer server = EmbeddedFtpServer.start()) {
+            FTPClient client = login(server);
+            try {
+                assertTrue(client.storeFile("hello.txt",
+                    new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8))));
+            } finally {
+                client.logout();
+                client.disconnect();
+            }
+            assertEquals("hello", Files.readString(server.getHome().resolve("hello.txt")));
+        }
+    }
+
+    @Test
+    void homeDirectoryIsRemovedOnClose() throws Exception {
+        Path home;
+        try (EmbeddedFtpServer server = EmbeddedFtpServer.start()) {
+            home = server.getHome();
+            assertTrue(Files.isDirectory(home));
+        }
+        assertFalse(Files.exists(home));
+    }
+
+    @Test
+    void tlsSettingsTrustExportedCertificate() throws Exception {
+        try (EmbeddedFtpServer server = EmbeddedFtpServer.start()) {
+            ConnectionSettings settings = server.settings(true);
+            assertEquals(server.getCertificate().toString(), settings.getCertificatePath());
+            FtpConnectionPool pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }),
+                message -> { });
+            try {
+                pool.start();
+                assertTrue(pool.executeIdempotent(FTPClient::sendNoOp));
+            } finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    void shapedServerAddsRoundTripTime() throws Exception {
+        EmbeddedFtpServer.Options options = new EmbeddedFtpServer.Options();
+        options.setRttMillis(100);
+        try (EmbeddedFtpServer server = EmbeddedFtpServer.start(options)) {
+            FTPClient client = login(server);
+            try {
+                long start = System.nanoTime();
+                assertTrue(client.sendNoOp());
+                assertTrue((System.nanoTime() - start) / 1_000_000 >= 90);
+            } finally {
+                client.disconnect();
+            }
+        }
+    }
+
+    @Test
+    void parsesSizes() {
+        assertEquals(512 * 1024, EmbeddedFtpServer.parseBytes("512k"));
+        assertEquals(10L * 1024 * 1024, EmbeddedFtpServer.parseBytes("10M"));
+        assertEquals(1234, EmbeddedFtpServer.parseBytes("1234"));
+        assertThrows(IllegalArgumentException.class, () -> EmbeddedFtpServer.parseBytes("fast"));
+    }
+
+    private static FTPClient login(EmbeddedFtpServer server) throws Exception {
+        FTPClient client = new FTPClient();
+        client.connect(EmbeddedFtpServer.HOST, server.getPort(false));
+        assertTrue(FTPReply.isPositiveCompletion(client.getReplyCode()));
+        assertTrue(client.login(EmbeddedFtpServer.USER, EmbeddedFtpServer.PASSWORD));
+        client.enterLocalPassiveMode();
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        return client;
+    }
+}
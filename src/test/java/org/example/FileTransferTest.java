@@ -0,0 +1,235 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🚚 FileTransfer - resume từ journal checkpoint và segmented download có verify
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FileTransfer
+ * @see SegmentedDownloader
+ * @see EmbeddedFtpServer
+ */
+class FileTransferTest {
+    /** 4 segment với SegmentedDownloader.MIN_SEGMENT_SIZE */
+    private static final int LARGE_SIZE = (int) (4 * SegmentedDownloader.MIN_SEGMENT_SIZE + 12345);
+    private static final int SMALL_SIZE = 2 * 1024 * 1024 + 777;
+
+    private static EmbeddedFtpServer server;
+    private static byte[] large;
+    private static byte[] small;
+
+    @TempDir
+    Path directory;
+
+    private FtpConnectionPool pool;
+    private NetworkExecutor executor;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        EmbeddedFtpServer.Options options = new EmbeddedFtpServer.Options();
+        options.setXcrc(true);
+        server = EmbeddedFtpServer.start(options);
+        Random random = new Random(7);
+        large = new byte[LARGE_SIZE];
+        random.nextBytes(large);
+        small = new byte[SMALL_SIZE];
+        random.nextBytes(small);
+        Files.write(server.getHome().resolve("large.bin"), large);
+        Files.write(server.getHome().resolve("small.bin"), small);
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @BeforeEach
+    void connect() throws Exception {
+        ConnectionSettings settings = server.settings(false);
+        settings.setMaxConnections(4);
+        pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }), message -> { });
+        pool.start();
+        executor = new NetworkExecutor("test", 8);
+    }
+
+    @AfterEach
+    void disconnect() {
+        executor.close();
+        pool.close();
+    }
+
+    @Test
+    void resumesDownloadFromCheckpoint() throws Exception {
+        File target = directory.resolve("small.bin").toFile();
+        int offset = 1024 * 1024;
+        // Byte đầu khác server: nếu transfer chạy lại từ đầu, byte này bị ghi đè.
+        // Nằm ngoài TAIL_WINDOW nên tail CRC vẫn khớp.
+        byte[] partial = Arrays.copyOf(small, offset + 4096);
+        partial[0] ^= 0x5A;
+        Arrays.fill(partial, offset, partial.length, (byte) 0x11);
+        Files.write(target.toPath(), partial);
+
+        TransferJob job = new TransferJob(TransferJob.Direction.DOWNLOAD, target, "small.bin", pool);
+        try (TransferJournal journal = new TransferJournal(directory.resolve("transfers.journal"))) {
+            String key = TransferJournal.keyOf(job);
+            journal.begin(job, SMALL_SIZE, -1);
+            journal.checkpoint(key, offset, TransferJournal.tailCrc(target, offset));
+
+            execute(job, journal);
+            assertNull(journal.find(key));
+        }
+
+        byte[] result = Files.readAllBytes(target.toPath());
+        assertEquals(SMALL_SIZE, result.length);
+        assertEquals((byte) (small[0] ^ 0x5A), result[0]);
+        assertArrayEquals(Arrays.copyOfRange(small, 1, SMALL_SIZE), Arrays.copyOfRange(result, 1, SMALL_SIZE));
+        assertEquals(SMALL_SIZE, job.getBytesTransferred());
+    }
+
+    @Test
+    void restartsDownloadWhenCheckpointDoesNotMatch() throws Exception {
+        File target = directory.resolve("small.bin").toFile();
+        int offset = 1024 * 1024;
+        byte[] partial = Arrays.copyOf(small, offset);
+        Files.write(target.toPath(), partial);
+
+        TransferJob job = new TransferJob(TransferJob.Direction.DOWNLOAD, target, "small.bin", pool);
+        try (TransferJournal journal = new TransferJournal(directory.resolve("transfers.journal"))) {
+            journal.begin(job, SMALL_SIZE, -1);
+            // Tail CRC sai - local file không còn giống lúc checkpoint
+            journal.checkpoint(TransferJournal.keyOf(job), offset, TransferJournal.tailCrc(target, offset) ^ 1);
+            partial[0] ^= 0x5A;
+            Files.write(target.toPath(), partial);
+
+            execute(job, journal);
+        }
+        assertArrayEquals(small, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    void segmentedDownloadIsVerifiedByChecksum() throws Exception {
+        File target = directory.resolve("large.bin").toFile();
+        TransferJob job = new TransferJob(TransferJob.Direction.DOWNLOAD, target, "large.bin", pool);
+        job.setSegments(4);
+
+        // Server có XCRC - CRC32 ghép từ các range, không đọc lại file
+        assertEquals(RemoteChecksum.Algorithm.CRC32, TransferVerifier.segmented(pool).getAlgorithm());
+
+        execute(job, null);
+
+        assertArrayEquals(large, Files.readAllBytes(target.toPath()));
+        assertEquals(LARGE_SIZE, job.getBytesTransferred());
+        assertEquals(1, pool.getTransferMetrics().getVerifiedTransfers());
+        assertEquals(0, pool.getTransferMetrics().getIntegrityFailures());
+    }
+
+    @Test
+    void segmentedChecksumMismatchIsReported() throws Exception {
+        TransferJob job = new TransferJob(TransferJob.Direction.DOWNLOAD, directory.resolve("x.bin").toFile(),
+            "large.bin", pool);
+        // CRC ghép của bytes khác một bit so với file trên server
+        byte[] corrupted = large.clone();
+        corrupted[LARGE_SIZE / 2] ^= 1;
+        SegmentChecksum checksum = new SegmentChecksum(RemoteChecksum.Algorithm.CRC32);
+        StreamingChecksum first = checksum.newPart();
+        first.update(corrupted, 0, LARGE_SIZE / 3);
+        StreamingChecksum rest = checksum.newPart();
+        rest.update(corrupted, LARGE_SIZE / 3, LARGE_SIZE - LARGE_SIZE / 3);
+        checksum.add(LARGE_SIZE / 3, rest);
+        checksum.add(0, first);
+
+        FTPClient client = pool.borrow();
+        try {
+            assertThrows(TransferVerifier.IntegrityException.class,
+                () -> TransferVerifier.verify(client, job, checksum.finish(LARGE_SIZE), LARGE_SIZE));
+        } finally {
+            pool.release(client);
+        }
+        assertEquals(1, pool.getTransferMetrics().getIntegrityFailures());
+    }
+
+    @Test
+    void segmentedDownloadWithoutSpareConnections() throws Exception {
+        File target = directory.resolve("large-single.bin").toFile();
+        TransferJob job = new TransferJob(TransferJob.Direction.DOWNLOAD, target, "large.bin", pool);
+        job.setSegments(4);
+        // Giữ hết connection phụ - mọi range chạy trên connection của worker
+        FTPClient[] held = {pool.borrow(), pool.borrow(), pool.borrow()};
+        try {
+            execute(job, null);
+        } finally {
+            for (FTPClient client : held) {
+                pool.release(client);
+            }
+        }
+
+        assertArrayEquals(large, Files.readAllBytes(target.toPath()));
+        assertEquals(LARGE_SIZE, job.getBytesTransferred());
+    }
+
+    @Test
+    void segmentedDownloadRetriesRangeOfFailedHelper() throws Exception {
+        Files.createDirectories(server.getHome().resolve("empty"));
+        File target = directory.resolve("large-retry.bin").toFile();
+        TransferJob job = new TransferJob(TransferJob.Direction.DOWNLOAD, target, "large.bin", pool);
+        job.setSegments(4);
+        // Một connection phụ đứng ở thư mục khác: RETR large.bin của nó bị 550
+        FTPClient broken = pool.borrow();
+        FTPClient spare = pool.borrow();
+        FTPClient primary = pool.borrow();
+        assertTrue(broken.changeWorkingDirectory("empty"));
+        pool.release(broken);
+        pool.release(spare);
+        try {
+            FileTransfer.execute(primary, job, null, new BandwidthLimiter().open(job), executor);
+        } finally {
+            pool.release(primary);
+        }
+
+        assertArrayEquals(large, Files.readAllBytes(target.toPath()));
+        assertEquals(LARGE_SIZE, job.getBytesTransferred());
+    }
+
+    @Test
+    void segmentedDownloadThroughSession() throws Exception {
+        Path home = directory.resolve("home");
+        File target = directory.resolve("session-large.bin").toFile();
+        try (FtpSession session = new FtpSession(new AppConfig(home.resolve("settings.properties")), 2,
+                message -> { })) {
+            FtpConnectionPool connected = session.connect(server.settings(true));
+            assertTrue(session.awaitCompletion(session.download(Map.of("large.bin", target), 4)));
+            assertEquals(1, connected.getTransferMetrics().getVerifiedTransfers());
+        }
+        assertArrayEquals(large, Files.readAllBytes(target.toPath()));
+    }
+
+    private void execute(TransferJob job, TransferJournal journal) throws Exception {
+        FTPClient client = pool.borrow();
+        try {
+            FileTransfer.execute(client, job, journal, new BandwidthLimiter().open(job), executor);
+        } finally {
+            pool.release(client);
+        }
+    }
+}
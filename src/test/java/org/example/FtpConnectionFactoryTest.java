@@ -0,0 +1,146 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🔌 FtpConnectionFactory - login plain/FTPS, TLS session reuse giữa các
+ * connection và NOOP/QUIT có thời hạn trên server không trả lời
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see FtpConnectionFactory
+ * @see EmbeddedFtpServer
+ */
+class FtpConnectionFactoryTest {
+    private static EmbeddedFtpServer server;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = EmbeddedFtpServer.start();
+        Files.write(server.getHome().resolve("hello.txt"), "hello".getBytes());
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void connectsOverPlainFtp() throws Exception {
+        assertEquals(List.of("hello.txt"), listNames(server.settings(false)));
+    }
+
+    @Test
+    void connectsOverTlsWithoutCertificate() throws Exception {
+        ConnectionSettings settings = server.settings(true);
+        // Không có certificate - accept-all trust manager (chỉ mã hóa, không xác thực)
+        settings.setCertificatePath("");
+        assertEquals(List.of("hello.txt"), listNames(settings));
+    }
+
+    @Test
+    void laterConnectionsResumeTlsSession() throws Exception {
+        FtpConnectionFactory factory = new FtpConnectionFactory(server.settings(true), message -> { });
+        FTPClient first = factory.create(false);
+        FTPClient second = factory.create(false);
+        try {
+            for (FTPClient client : List.of(first, second)) {
+                assertEquals(1, client.listNames().length);
+                assertEquals(1, client.listNames().length);
+            }
+        } finally {
+            factory.destroy(first);
+            factory.destroy(second);
+        }
+        TlsMetrics metrics = factory.getTlsMetrics();
+        assertEquals(1, metrics.getControlFullHandshakes());
+        assertEquals(1, metrics.getControlResumedHandshakes());
+        assertEquals(0, metrics.getDataFullHandshakes());
+        assertEquals(4, metrics.getDataResumedHandshakes());
+    }
+
+    @Test
+    void pingRestoresSoTimeout() throws Exception {
+        FtpConnectionFactory factory = new FtpConnectionFactory(server.settings(false), message -> { });
+        FTPClient client = factory.create(false);
+        try {
+            assertEquals(0, client.getSoTimeout());
+            assertTrue(factory.ping(client));
+            assertEquals(0, client.getSoTimeout());
+        } finally {
+            factory.destroy(client);
+        }
+    }
+
+    @Test
+    void pingAndQuitGiveUpOnSilentServer() throws Exception {
+        // Server gửi greeting rồi không bao giờ trả lời command nào
+        try (ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> {
+                try (Socket socket = silent.accept()) {
+                    OutputStream out = socket.getOutputStream();
+                    out.write("220 ready\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    socket.getInputStream().transferTo(OutputStream.nullOutputStream());
+                } catch (Exception ignored) {
+                    // Client đóng connection
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            ConnectionSettings settings = server.settings(false);
+            settings.setConnectTimeoutMillis(300);
+            FtpConnectionFactory factory = new FtpConnectionFactory(settings, message -> { });
+            FTPClient client = new FTPClient();
+            client.connect(silent.getInetAddress(), silent.getLocalPort());
+            client.setSoTimeout(0);
+
+            long start = System.nanoTime();
+            assertFalse(factory.ping(client));
+            factory.destroy(client);
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 5_000);
+            assertFalse(client.isConnected());
+        }
+    }
+
+    private static List<String> listNames(ConnectionSettings settings) throws Exception {
+        FtpConnectionPool pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }),
+            message -> { });
+        try {
+            pool.start();
+            return pool.executeIdempotent(client -> {
+                if (settings.isSecure()) {
+                    assertInstanceOf(FTPSClient.class, client);
+                }
+                List<String> names = new ArrayList<>();
+                for (FTPFile file : DirectoryLister.list(client, pool.getServerFeatures(), "", chunk -> { },
+                        message -> { })) {
+                    names.add(file.getName());
+                }
+                return names;
+            });
+        } finally {
+            pool.close();
+        }
+    }
+}
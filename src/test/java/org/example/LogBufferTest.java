@@ -0,0 +1,70 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 📜 LogBuffer - capacity lũy thừa của 2, drain theo cursor, consumer chậm
+ * bị nhảy qua phần đã bị ghi đè
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see LogBuffer
+ */
+class LogBufferTest {
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(16, new LogBuffer(1).getCapacity());
+        assertEquals(1024, new LogBuffer(1000).getCapacity());
+        assertEquals(1024, new LogBuffer(1024).getCapacity());
+        assertEquals(2048, new LogBuffer(1025).getCapacity());
+    }
+
+    @Test
+    void drainContinuesFromCursor() {
+        LogBuffer buffer = new LogBuffer(16);
+        for (int i = 0; i < 10; i++) {
+            buffer.log(LogBuffer.Level.INFO, "line " + i);
+        }
+        List<LogBuffer.Entry> first = new ArrayList<>();
+        long cursor = buffer.drain(0, 4, first::add);
+        assertEquals(4, cursor);
+        assertEquals("line 3", first.get(3).getMessage());
+
+        List<LogBuffer.Entry> rest = new ArrayList<>();
+        assertEquals(10, buffer.drain(cursor, 100, rest::add));
+        assertEquals(6, rest.size());
+        assertEquals(4, rest.get(0).getSequence());
+        assertEquals(10, buffer.drain(10, 100, entry -> { }));
+    }
+
+    @Test
+    void slowConsumerSkipsOverwrittenEntries() {
+        LogBuffer buffer = new LogBuffer(16);
+        for (int i = 0; i < 40; i++) {
+            buffer.log(LogBuffer.Level.INFO, "line " + i);
+        }
+        List<LogBuffer.Entry> entries = new ArrayList<>();
+        assertEquals(40, buffer.drain(3, 100, entries::add));
+        assertEquals(16, entries.size());
+        assertEquals(24, entries.get(0).getSequence());
+        assertEquals("line 39", entries.get(15).getMessage());
+    }
+
+    @Test
+    void snapshotHoldsNewestEntriesOldestFirst() {
+        LogBuffer buffer = new LogBuffer(16);
+        for (int i = 0; i < 20; i++) {
+            buffer.accept("line " + i);
+        }
+        List<LogBuffer.Entry> snapshot = buffer.snapshot();
+        assertEquals(16, snapshot.size());
+        assertEquals("line 4", snapshot.get(0).getMessage());
+        assertEquals("line 19", snapshot.get(15).getMessage());
+    }
+}
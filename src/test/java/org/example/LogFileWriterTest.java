@@ -0,0 +1,63 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 📝 LogFileWriter - close() ghi nốt entry cuối, rotation theo bytes UTF-8
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see LogFileWriter
+ */
+class LogFileWriterTest {
+    private static final long MAX_BYTES = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void closeWritesEntriesLoggedJustBefore() throws IOException {
+        LogBuffer buffer = new LogBuffer(8192);
+        Path file = directory.resolve("ftps.log");
+        for (int round = 0; round < 20; round++) {
+            LogFileWriter writer = new LogFileWriter(buffer, file, MAX_BYTES * 100, 2);
+            for (int i = 0; i < 200; i++) {
+                buffer.log(LogBuffer.Level.INFO, "round " + round + " line " + i);
+            }
+            writer.close();
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(20 * 200, lines.size());
+        assertTrue(lines.get(lines.size() - 1).endsWith("round 19 line 199"));
+    }
+
+    @Test
+    void rotatesOnEncodedBytesNotCharacters() throws IOException {
+        LogBuffer buffer = new LogBuffer(1024);
+        Path file = directory.resolve("ftps.log");
+        LogFileWriter writer = new LogFileWriter(buffer, file, MAX_BYTES, 2);
+        // 300 dòng × 100 ký tự 3 bytes: ~40K ký tự nhưng ~100 KB
+        String message = "ệ".repeat(100);
+        for (int i = 0; i < 300; i++) {
+            buffer.log(LogBuffer.Level.INFO, message);
+        }
+        writer.close();
+
+        Path rotated = directory.resolve("ftps.log.1");
+        assertTrue(Files.exists(rotated));
+        long line = Files.readAllLines(rotated, StandardCharsets.UTF_8).get(0).getBytes(StandardCharsets.UTF_8).length
+            + System.lineSeparator().length();
+        assertTrue(Files.size(rotated) < MAX_BYTES + line);
+        assertEquals(300, Files.readAllLines(rotated).size() + Files.readAllLines(file).size());
+    }
+}
@@ -0,0 +1,150 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🗃️ RemoteIndex - ghi/đọc file, rebuild thay file cũ, children theo binary search, search prefix và glob
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see RemoteIndex
+ */
+class RemoteIndexTest {
+    @TempDir
+    Path directory;
+
+    private RemoteIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        RemoteIndex.Builder builder = new RemoteIndex.Builder();
+        // Thứ tự add không quan trọng - write() sắp xếp theo (parent, name)
+        builder.add("docs/sub/deep.pdf", file("deep.pdf", 30));
+        builder.add("docs", directory("docs"));
+        builder.add("README.md", file("README.md", 10));
+        builder.add("docs/report.pdf", file("report.pdf", 2048));
+        builder.add("docs/sub", directory("sub"));
+        builder.add("docs/notes.txt", file("notes.txt", 5));
+        builder.add("Report-2024.xlsx", file("Report-2024.xlsx", 99));
+        index = builder.write(directory.resolve("server.idx"));
+    }
+
+    @Test
+    void reopensIndexFile() throws IOException {
+        RemoteIndex reopened = RemoteIndex.open(directory.resolve("server.idx"));
+        assertEquals(7, reopened.size());
+        assertEquals(index.getCreatedMillis(), reopened.getCreatedMillis());
+        assertEquals(List.of("README.md", "Report-2024.xlsx", "docs"), names(reopened.children("")));
+    }
+
+    @Test
+    void rebuildReplacesFileWhileOldIndexIsInUse() throws IOException {
+        Path file = directory.resolve("server.idx");
+        RemoteIndex.Builder builder = new RemoteIndex.Builder();
+        builder.add("only.txt", file("only.txt", 1));
+        RemoteIndex rebuilt = builder.write(file);
+
+        // Index cũ nằm trong heap - vẫn đọc được, file không bị giữ mở
+        assertEquals(List.of("README.md", "Report-2024.xlsx", "docs"), names(index.children("")));
+        assertEquals(List.of("only.txt"), names(rebuilt.children("")));
+        assertEquals(1, RemoteIndex.open(file).size());
+        Files.delete(file);
+        assertFalse(Files.exists(file.resolveSibling("server.idx.tmp")));
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path file = directory.resolve("server.idx");
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = directory.resolve("truncated.idx");
+        // Header còn nguyên, records bị cắt giữa chừng
+        Files.write(truncated, Arrays.copyOf(bytes, 48));
+        assertThrows(IOException.class, () -> RemoteIndex.open(truncated));
+    }
+
+    @Test
+    void missingFileIsEmpty() throws IOException {
+        assertSame(RemoteIndex.EMPTY, RemoteIndex.open(directory.resolve("missing.idx")));
+        assertTrue(RemoteIndex.EMPTY.isEmpty());
+    }
+
+    @Test
+    void childrenAreDirectEntriesOfDirectory() {
+        List<RemoteIndex.Entry> docs = index.children("docs");
+        assertEquals(List.of("notes.txt", "report.pdf", "sub"), names(docs));
+        assertEquals("docs/report.pdf", docs.get(1).getPath());
+        assertEquals(2048, docs.get(1).getSize());
+        assertFalse(docs.get(1).isDirectory());
+        assertTrue(docs.get(2).isDirectory());
+
+        assertEquals(List.of("deep.pdf"), names(index.children("docs/sub")));
+        assertTrue(index.children("missing").isEmpty());
+        assertTrue(index.children("docs/notes.txt").isEmpty());
+    }
+
+    @Test
+    void prefixSearchMatchesNamesCaseInsensitively() {
+        assertEquals(Set.of("docs/report.pdf", "Report-2024.xlsx"), paths(index.search("rep", 100)));
+        assertEquals(1, index.search("rep", 1).size());
+        assertTrue(index.search("", 100).isEmpty());
+    }
+
+    @Test
+    void globSearchMatchesNamesOrFullPaths() {
+        assertEquals(Set.of("docs/report.pdf", "docs/sub/deep.pdf"), paths(index.search("*.PDF", 100)));
+        assertEquals(Set.of("docs/report.pdf"), paths(index.search("docs/*.pdf", 100)));
+        assertEquals(Set.of("docs/report.pdf", "docs/sub/deep.pdf"), paths(index.search("docs/**.pdf", 100)));
+        assertEquals(Set.of("README.md"), paths(index.search("[!d]*.md", 100)));
+        assertEquals(Set.of("Report-2024.xlsx"), paths(index.search("report-20[0-9]?.*", 100)));
+    }
+
+    private static FTPFile file(String name, long size) {
+        FTPFile file = new FTPFile();
+        file.setName(name);
+        file.setType(FTPFile.FILE_TYPE);
+        file.setSize(size);
+        file.setTimestamp(Calendar.getInstance());
+        return file;
+    }
+
+    private static FTPFile directory(String name) {
+        FTPFile file = file(name, 0);
+        file.setType(FTPFile.DIRECTORY_TYPE);
+        return file;
+    }
+
+    private static List<String> names(List<RemoteIndex.Entry> entries) {
+        List<String> names = new ArrayList<>();
+        for (RemoteIndex.Entry entry : entries) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    private static Set<String> paths(List<RemoteIndex.Entry> entries) {
+        Set<String> paths = new HashSet<>();
+        for (RemoteIndex.Entry entry : entries) {
+            paths.add(entry.getPath());
+        }
+        return paths;
+    }
+}
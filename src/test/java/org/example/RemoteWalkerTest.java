@@ -0,0 +1,107 @@
+package org.example;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🌲 RemoteWalker - walk đủ cây, và thư mục chờ listing slot không chiếm
+ * thread của NetworkExecutor
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see RemoteWalker
+ */
+class RemoteWalkerTest {
+    private static final int DIRECTORIES = 6;
+    private static final int FILES = 3;
+
+    private static EmbeddedFtpServer server;
+
+    private FtpConnectionPool pool;
+    private NetworkExecutor executor;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = EmbeddedFtpServer.start();
+        for (int d = 0; d < DIRECTORIES; d++) {
+            Path directory = Files.createDirectories(server.getHome().resolve("tree/d" + d + "/inner"));
+            for (int f = 0; f < FILES; f++) {
+                Files.write(directory.resolve("f" + f + ".txt"), new byte[d + f]);
+            }
+        }
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @BeforeEach
+    void connect() throws Exception {
+        ConnectionSettings settings = server.settings(false);
+        settings.setMaxConnections(2);
+        pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }), message -> { });
+        pool.start();
+    }
+
+    @AfterEach
+    void disconnect() {
+        if (executor != null) {
+            executor.close();
+        }
+        pool.close();
+    }
+
+    @Test
+    void walksWholeTree() throws Exception {
+        executor = new NetworkExecutor("walk-test", 4);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        long directories = new RemoteWalker(pool, executor, message -> { })
+            .walk("tree", (path, file, depth) -> seen.add(path));
+
+        // tree + d* + d*/inner
+        assertEquals(1 + 2 * DIRECTORIES, directories);
+        assertEquals(DIRECTORIES * (2 + FILES), seen.size());
+        assertTrue(seen.contains("d0/inner/f2.txt"));
+    }
+
+    @Test
+    void queuedDirectoriesDoNotHoldExecutorThreads() throws Exception {
+        // Hai platform thread, một listing: thread còn lại phải luôn rảnh cho task khác
+        System.setProperty("ftps.virtualThreads", "false");
+        try {
+            executor = new NetworkExecutor("walk-test", 2);
+        } finally {
+            System.clearProperty("ftps.virtualThreads");
+        }
+        RemoteWalker walker = new RemoteWalker(pool, executor, message -> { });
+        walker.setParallelism(1);
+        walker.setTimeout(30_000);
+
+        long directories = walker.walk("tree", new RemoteWalker.Visitor() {
+            @Override
+            public void visit(String relativePath, FTPFile file, int depth) {
+                try {
+                    executor.submit("probe", () -> null).get(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Executor starved by queued walk tasks", e);
+                }
+            }
+        });
+        assertEquals(1 + 2 * DIRECTORIES, directories);
+    }
+}
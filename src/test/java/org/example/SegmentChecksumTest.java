@@ -0,0 +1,109 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 🧩 SegmentChecksum - CRC ghép từ các range đến không theo thứ tự phải
+ * bằng CRC tính một lượt trên cả file
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see SegmentChecksum
+ */
+class SegmentChecksumTest {
+    private static final byte[] DATA = new byte[3 * 1024 * 1024 + 4321];
+
+    static {
+        new Random(11).nextBytes(DATA);
+    }
+
+    @Test
+    void combinesCrc32RangesInOffsetOrder() {
+        assertEquals(whole(new CRC32()), combined(RemoteChecksum.Algorithm.CRC32));
+    }
+
+    @Test
+    void combinesCrc32cRangesInOffsetOrder() {
+        assertEquals(whole(new CRC32C()), combined(RemoteChecksum.Algorithm.CRC32C));
+    }
+
+    @Test
+    void combineMatchesZlibForSmallInputs() {
+        byte[] a = "123456789".getBytes();
+        byte[] b = "abc".getBytes();
+        CRC32 crcA = new CRC32();
+        crcA.update(a);
+        CRC32 crcB = new CRC32();
+        crcB.update(b);
+        CRC32 both = new CRC32();
+        both.update(a);
+        both.update(b);
+        assertEquals(0xCBF43926L, crcA.getValue());
+        assertEquals(both.getValue(), SegmentChecksum.combine(crcA.getValue(), crcB.getValue(), b.length, 0xEDB88320));
+        assertEquals(crcA.getValue(), SegmentChecksum.combine(crcA.getValue(), 0, 0, 0xEDB88320));
+    }
+
+    @Test
+    void missingRangeGivesNoChecksum() {
+        SegmentChecksum checksum = new SegmentChecksum(RemoteChecksum.Algorithm.CRC32);
+        checksum.add(0, part(checksum, 0, 1000));
+        checksum.add(2000, part(checksum, 2000, 1000));
+        assertNull(checksum.finish(3000));
+
+        checksum.add(1000, part(checksum, 1000, 1000));
+        assertNull(checksum.finish(4000));
+    }
+
+    @Test
+    void onlyCrcAlgorithmsCombine() {
+        assertThrows(IllegalArgumentException.class, () -> new SegmentChecksum(RemoteChecksum.Algorithm.SHA256));
+        assertThrows(IllegalArgumentException.class, () -> new SegmentChecksum(RemoteChecksum.Algorithm.XXH64));
+    }
+
+    @Test
+    void negotiatesCombinableAlgorithm() {
+        ServerFeatures hash = ServerFeatures.parse(new String[] {
+            "211-Features:", " HASH SHA-256*;CRC32;CRC32C", "211 End"});
+        assertEquals(RemoteChecksum.Algorithm.CRC32C,
+            RemoteChecksum.negotiateCombinable(hash, RemoteChecksum.Algorithm.SHA256));
+        assertEquals(RemoteChecksum.Algorithm.CRC32,
+            RemoteChecksum.negotiateCombinable(hash, RemoteChecksum.Algorithm.CRC32));
+
+        ServerFeatures xcrc = ServerFeatures.parse(new String[] {"211-Features:", " XCRC", " MD5", "211 End"});
+        assertEquals(RemoteChecksum.Algorithm.CRC32,
+            RemoteChecksum.negotiateCombinable(xcrc, RemoteChecksum.Algorithm.SHA256));
+
+        ServerFeatures md5 = ServerFeatures.parse(new String[] {"211-Features:", " MD5", "211 End"});
+        assertNull(RemoteChecksum.negotiateCombinable(md5, RemoteChecksum.Algorithm.MD5));
+    }
+
+    /** Range không đều, thêm theo thứ tự ngược như khi helper xong trước */
+    private static String combined(RemoteChecksum.Algorithm algorithm) {
+        SegmentChecksum checksum = new SegmentChecksum(algorithm);
+        int[] starts = {0, 1, 700_000, 1_048_576, 2_500_000, DATA.length};
+        for (int i = starts.length - 2; i >= 0; i--) {
+            checksum.add(starts[i], part(checksum, starts[i], starts[i + 1] - starts[i]));
+        }
+        return checksum.finish(DATA.length).getHex();
+    }
+
+    private static StreamingChecksum part(SegmentChecksum checksum, int start, int length) {
+        StreamingChecksum part = checksum.newPart();
+        part.update(DATA, start, length);
+        return part;
+    }
+
+    private static String whole(Checksum checksum) {
+        checksum.update(DATA, 0, DATA.length);
+        return String.format("%08x", checksum.getValue());
+    }
+}
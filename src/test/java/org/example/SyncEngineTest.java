@@ -0,0 +1,161 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🔁 SyncEngine - plan (size/mtime/extraneous) và mirror vào thư mục remote chưa tồn tại
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see SyncEngine
+ * @see EmbeddedFtpServer
+ */
+class SyncEngineTest {
+    /** mtime cũ hơn mọi file vừa ghi trên server */
+    private static final FileTime OLD = FileTime.fromMillis(1_600_000_000_000L);
+
+    private static EmbeddedFtpServer server;
+
+    @TempDir
+    Path directory;
+
+    private FtpSession session;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = EmbeddedFtpServer.start();
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @BeforeEach
+    void connect() throws IOException {
+        session = new FtpSession(new AppConfig(directory.resolve("settings.properties")), 2, message -> { });
+        session.connect(server.settings(false));
+    }
+
+    @AfterEach
+    void disconnect() {
+        session.close();
+    }
+
+    @Test
+    void planComparesSizeMtimeAndExtraneousFiles() throws IOException {
+        Path remote = server.getHome().resolve("plan");
+        write(remote.resolve("same.txt"), "same");
+        write(remote.resolve("changed.txt"), "old");
+        write(remote.resolve("extra.txt"), "extra");
+        write(remote.resolve("nested/kept.txt"), "kept");
+
+        Path local = directory.resolve("local");
+        write(local.resolve("same.txt"), "same");
+        write(local.resolve("changed.txt"), "changed");
+        write(local.resolve("new.txt"), "new");
+        write(local.resolve("nested/kept.txt"), "kept");
+        Files.setLastModifiedTime(local.resolve("same.txt"), OLD);
+        Files.setLastModifiedTime(local.resolve("nested/kept.txt"), OLD);
+
+        SyncEngine engine = session.newSync(local.toFile(), "plan");
+        engine.setDeleteExtraneous(true);
+        SyncPlan plan = engine.plan();
+
+        Map<String, SyncPlan.Action> actions = byPath(plan.getActions());
+        assertEquals(3, actions.size(), plan.describe(10));
+        assertAction(actions.get("new.txt"), SyncPlan.ActionType.UPLOAD, SyncPlan.Reason.NEW);
+        assertAction(actions.get("changed.txt"), SyncPlan.ActionType.UPLOAD, SyncPlan.Reason.SIZE);
+        assertAction(actions.get("extra.txt"), SyncPlan.ActionType.DELETE_REMOTE, SyncPlan.Reason.EXTRANEOUS);
+        assertTrue(actions.get("extra.txt").isDestructive());
+    }
+
+    @Test
+    void planWithoutDeleteKeepsExtraneousFiles() throws IOException {
+        write(server.getHome().resolve("keep/extra.txt"), "extra");
+        Path local = directory.resolve("empty");
+        Files.createDirectories(local);
+
+        SyncPlan plan = session.newSync(local.toFile(), "keep").plan();
+        assertTrue(plan.isEmpty(), plan.describe(10));
+    }
+
+    @Test
+    void mirrorsIntoMissingRemoteDirectory() throws Exception {
+        Path local = directory.resolve("source");
+        write(local.resolve("a.txt"), "alpha");
+        write(local.resolve("sub/b.txt"), "beta");
+        write(local.resolve("sub/deeper/c.txt"), "gamma");
+        assertFalse(Files.exists(server.getHome().resolve("mirror")));
+
+        SyncEngine engine = session.newSync(local.toFile(), "mirror/new/target");
+        SyncPlan plan = engine.plan();
+        assertEquals(3, plan.count(SyncPlan.ActionType.UPLOAD), plan.describe(10));
+        List<TransferJob> jobs = engine.execute(plan, session.getTransferQueue());
+        assertTrue(session.awaitCompletion(jobs));
+
+        Path target = server.getHome().resolve("mirror/new/target");
+        assertEquals("alpha", read(target.resolve("a.txt")));
+        assertEquals("beta", read(target.resolve("sub/b.txt")));
+        assertEquals("gamma", read(target.resolve("sub/deeper/c.txt")));
+
+        // Lần sync sau không còn gì để làm (mtime đích đã được đặt bằng nguồn hoặc mới hơn)
+        assertTrue(session.newSync(local.toFile(), "mirror/new/target").plan().isEmpty());
+    }
+
+    @Test
+    void downloadModeCreatesLocalTree() throws Exception {
+        write(server.getHome().resolve("remote-tree/x.txt"), "x");
+        write(server.getHome().resolve("remote-tree/d/y.txt"), "yy");
+        Path local = directory.resolve("download");
+
+        SyncEngine engine = session.newSync(local.toFile(), "remote-tree");
+        engine.setMode(SyncEngine.Mode.DOWNLOAD);
+        SyncPlan plan = engine.plan();
+        assertEquals(2, plan.count(SyncPlan.ActionType.DOWNLOAD), plan.describe(10));
+        assertTrue(session.awaitCompletion(engine.execute(plan, session.getTransferQueue())));
+
+        assertEquals("x", read(local.resolve("x.txt")));
+        assertEquals("yy", read(local.resolve("d/y.txt")));
+    }
+
+    private static void assertAction(SyncPlan.Action action, SyncPlan.ActionType type, SyncPlan.Reason reason) {
+        assertEquals(type, action.getType(), action.toString());
+        assertEquals(reason, action.getReason(), action.toString());
+    }
+
+    private static Map<String, SyncPlan.Action> byPath(List<SyncPlan.Action> actions) {
+        Map<String, SyncPlan.Action> result = new HashMap<>();
+        for (SyncPlan.Action action : actions) {
+            result.put(action.getRelativePath(), action);
+        }
+        return result;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,148 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🛡️ TlsPolicy - thứ tự cipher chỉ đổi trong nhóm key exchange, suite
+ * không forward secrecy không bao giờ được đẩy lên trước
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TlsPolicy
+ */
+class TlsPolicyTest {
+
+    @Test
+    void keepsSameSuites() throws Exception {
+        SSLContext context = context();
+        String[] defaults = context.getDefaultSSLParameters().getCipherSuites();
+        for (TlsPolicy.CipherPreference preference : TlsPolicy.CipherPreference.values()) {
+            String[] ordered = TlsPolicy.orderedCipherSuites(context, preference);
+            assertEquals(new HashSet<>(Arrays.asList(defaults)), new HashSet<>(Arrays.asList(ordered)));
+            assertEquals(defaults.length, ordered.length);
+        }
+    }
+
+    @Test
+    void keyExchangeGroupsStayInOrder() throws Exception {
+        for (TlsPolicy.CipherPreference preference : TlsPolicy.CipherPreference.values()) {
+            List<String> ordered = Arrays.asList(TlsPolicy.orderedCipherSuites(context(), preference));
+            int lastTls13 = lastIndex(ordered, "TLS_AES_", "TLS_CHACHA20_");
+            int firstEcdhe = firstIndex(ordered, "TLS_ECDHE_");
+            int lastEcdheAead = lastAead(ordered, "TLS_ECDHE_");
+            int firstDhe = firstIndex(ordered, "TLS_DHE_");
+            int firstNonFs = firstIndex(ordered, "TLS_RSA_", "TLS_ECDH_ECDSA_", "TLS_ECDH_RSA_");
+
+            assertTrue(lastTls13 < firstEcdhe, preference.name());
+            assertTrue(lastEcdheAead < firstDhe, preference.name());
+            // Suite không forward secrecy không bao giờ lên trước suite AEAD có forward secrecy
+            assertTrue(firstNonFs > lastAead(ordered, "TLS_DHE_"), preference.name());
+            assertTrue(firstNonFs > lastEcdheAead, preference.name());
+        }
+    }
+
+    @Test
+    void preferenceOrdersAeadWithinGroup() throws Exception {
+        List<String> aes = Arrays.asList(TlsPolicy.orderedCipherSuites(context(), TlsPolicy.CipherPreference.AES_GCM));
+        assertTrue(aes.indexOf("TLS_AES_128_GCM_SHA256") < aes.indexOf("TLS_AES_256_GCM_SHA384"));
+        assertTrue(aes.indexOf("TLS_AES_256_GCM_SHA384") < aes.indexOf("TLS_CHACHA20_POLY1305_SHA256"));
+        assertTrue(aes.indexOf("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256")
+            < aes.indexOf("TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256"));
+
+        List<String> chacha = Arrays.asList(TlsPolicy.orderedCipherSuites(context(),
+            TlsPolicy.CipherPreference.CHACHA20));
+        assertTrue(chacha.indexOf("TLS_CHACHA20_POLY1305_SHA256") < chacha.indexOf("TLS_AES_128_GCM_SHA256"));
+        assertTrue(chacha.indexOf("TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256")
+            < chacha.indexOf("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"));
+        // ChaCha20 của DHE vẫn sau mọi suite ECDHE AEAD
+        assertTrue(chacha.indexOf("TLS_DHE_RSA_WITH_CHACHA20_POLY1305_SHA256")
+            > chacha.indexOf("TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384"));
+    }
+
+    @Test
+    void unrankedSuitesKeepJsseOrder() throws Exception {
+        SSLContext context = context();
+        List<String> defaults = unranked(Arrays.asList(context.getDefaultSSLParameters().getCipherSuites()));
+        List<String> ordered = unranked(Arrays.asList(TlsPolicy.orderedCipherSuites(context,
+            TlsPolicy.CipherPreference.CHACHA20)));
+        assertFalse(defaults.isEmpty());
+        assertEquals(defaults, ordered);
+    }
+
+    @Test
+    void enabledProtocolsFollowSelection() throws Exception {
+        SSLContext context = context();
+        assertArrayEquals(new String[] {"TLSv1.3", "TLSv1.2"},
+            TlsPolicy.enabledProtocols(context, TlsPolicy.Protocol.AUTO));
+        assertArrayEquals(new String[] {"TLSv1.2"}, TlsPolicy.enabledProtocols(context, TlsPolicy.Protocol.TLS12));
+    }
+
+    private static SSLContext context() throws Exception {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+        return context;
+    }
+
+    /** Suite không AEAD hoặc không forward secrecy */
+    private static List<String> unranked(List<String> suites) {
+        List<String> result = new ArrayList<>();
+        for (String suite : suites) {
+            boolean forwardSecret = startsWith(suite, "TLS_AES_", "TLS_CHACHA20_", "TLS_ECDHE_", "TLS_DHE_");
+            boolean aead = suite.contains("_GCM_") || suite.contains("CHACHA20");
+            if (!forwardSecret || !aead) {
+                result.add(suite);
+            }
+        }
+        return result;
+    }
+
+    private static int lastAead(List<String> suites, String prefix) {
+        int last = -1;
+        for (int i = 0; i < suites.size(); i++) {
+            String suite = suites.get(i);
+            if (suite.startsWith(prefix) && (suite.contains("_GCM_") || suite.contains("CHACHA20"))) {
+                last = i;
+            }
+        }
+        return last;
+    }
+
+    private static int firstIndex(List<String> suites, String... prefixes) {
+        for (int i = 0; i < suites.size(); i++) {
+            if (startsWith(suites.get(i), prefixes)) {
+                return i;
+            }
+        }
+        return suites.size();
+    }
+
+    private static int lastIndex(List<String> suites, String... prefixes) {
+        int last = -1;
+        for (int i = 0; i < suites.size(); i++) {
+            if (startsWith(suites.get(i), prefixes)) {
+                last = i;
+            }
+        }
+        return last;
+    }
+
+    private static boolean startsWith(String suite, String... prefixes) {
+        for (String prefix : prefixes) {
+            if (suite.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,152 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 📓 TransferJournal - replay, record cắt dở và compact khi mở lại
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see TransferJournal
+ */
+class TransferJournalTest {
+    @TempDir
+    Path directory;
+
+    private FtpConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ConnectionSettings settings = new ConnectionSettings();
+        settings.setHost("ftp.example.org");
+        settings.setPort(21);
+        pool = new FtpConnectionPool(new FtpConnectionFactory(settings, message -> { }), message -> { });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void replaysCheckpointsAndDropsCompletedEntries() throws IOException {
+        Path file = directory.resolve("transfers.journal");
+        TransferJob resumable = job("a.bin");
+        TransferJob finished = job("b.bin");
+        try (TransferJournal journal = new TransferJournal(file)) {
+            journal.begin(resumable, 10_000, 123);
+            journal.begin(finished, 20_000, 456);
+            journal.checkpoint(TransferJournal.keyOf(resumable), 4096, 0xCAFEL);
+            journal.checkpoint(TransferJournal.keyOf(resumable), 8192, 0xBEEFL);
+            journal.complete(TransferJournal.keyOf(finished));
+        }
+
+        try (TransferJournal reopened = new TransferJournal(file)) {
+            List<TransferJournal.Entry> pending = reopened.pending(resumable.getHostKey());
+            assertEquals(1, pending.size());
+            TransferJournal.Entry entry = pending.get(0);
+            assertEquals(TransferJournal.keyOf(resumable), entry.getKey());
+            assertEquals(TransferJob.Direction.DOWNLOAD, entry.getDirection());
+            assertEquals("a.bin", entry.getRemotePath());
+            assertEquals(10_000, entry.getSourceSize());
+            assertEquals(123, entry.getSourceMtime());
+            assertEquals(8192, entry.getOffset());
+            assertEquals(0xBEEFL, entry.getTailCrc());
+            assertNull(reopened.find(TransferJournal.keyOf(finished)));
+            assertTrue(reopened.pending("other:21").isEmpty());
+        }
+    }
+
+    @Test
+    void ignoresRecordTruncatedByCrash() throws IOException {
+        Path file = directory.resolve("transfers.journal");
+        TransferJob job = job("c.bin");
+        try (TransferJournal journal = new TransferJournal(file)) {
+            journal.begin(job, 5_000, -1);
+            journal.checkpoint(TransferJournal.keyOf(job), 1024, 7);
+        }
+        // Checkpoint bị cắt giữa chừng, không có newline
+        Files.write(file, "P\tDOWNLOAD".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (TransferJournal reopened = new TransferJournal(file)) {
+            TransferJournal.Entry entry = reopened.find(TransferJournal.keyOf(job));
+            assertEquals(1024, entry.getOffset());
+            assertEquals(7, entry.getTailCrc());
+        }
+    }
+
+    @Test
+    void compactsToLiveEntriesOnOpen() throws IOException {
+        Path file = directory.resolve("transfers.journal");
+        TransferJob live = job("live.bin");
+        try (TransferJournal journal = new TransferJournal(file)) {
+            journal.begin(live, 1_000_000, -1);
+            for (int i = 1; i <= 50; i++) {
+                journal.checkpoint(TransferJournal.keyOf(live), i * 1024L, i);
+            }
+            for (int i = 0; i < 20; i++) {
+                TransferJob done = job("done-" + i + ".bin");
+                journal.begin(done, 100, -1);
+                journal.complete(TransferJournal.keyOf(done));
+            }
+        }
+        assertTrue(Files.readAllLines(file).size() > 50);
+
+        try (TransferJournal reopened = new TransferJournal(file)) {
+            // Một B + một P cho entry còn sống
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).startsWith("B\t"));
+            assertTrue(lines.get(1).startsWith("P\t"));
+            assertEquals(50 * 1024L, reopened.find(TransferJournal.keyOf(live)).getOffset());
+        }
+    }
+
+    @Test
+    void tailCrcCoversWindowEndingAtOffset() throws IOException {
+        byte[] data = new byte[TransferJournal.TAIL_WINDOW + 1000];
+        new Random(3).nextBytes(data);
+        File source = directory.resolve("tail.bin").toFile();
+        Files.write(source.toPath(), data);
+
+        assertEquals(crc(data, 0, 100), TransferJournal.tailCrc(source, 100));
+        assertEquals(crc(data, 1000, TransferJournal.TAIL_WINDOW), TransferJournal.tailCrc(source, data.length));
+        assertEquals(crc(data, 500, TransferJournal.TAIL_WINDOW),
+            TransferJournal.tailCrc(source, data.length - 500));
+    }
+
+    @Test
+    void tailCrcRejectsFileShorterThanOffset() throws IOException {
+        File source = directory.resolve("short.bin").toFile();
+        Files.write(source.toPath(), new byte[100]);
+        assertEquals(-1, TransferJournal.tailCrc(source, 101));
+    }
+
+    private static long crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+
+    private TransferJob job(String remotePath) {
+        return new TransferJob(TransferJob.Direction.DOWNLOAD, directory.resolve(remotePath).toFile(),
+            remotePath, pool);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 🔢 Xxh64 - vector chuẩn của xxHash (seed 0) và kết quả không phụ thuộc chunk size
+ *
+ * @author Demo Application
+ * @version 1.0
+ * @see Xxh64
+ */
+class Xxh64Test {
+
+    @Test
+    void matchesReferenceVectors() {
+        assertEquals(0xEF46DB3751D8E999L, hash(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, hash("a"));
+        assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+        // > 32 bytes: đi qua vòng 4 lane
+        assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    void chunkSizeDoesNotChangeValue() {
+        byte[] data = new byte[100_003];
+        new Random(5).nextBytes(data);
+        Xxh64 whole = new Xxh64();
+        whole.update(data, 0, data.length);
+
+        Xxh64 chunked = new Xxh64();
+        int[] sizes = {1, 7, 31, 32, 33, 4096};
+        int offset = 0;
+        for (int i = 0; offset < data.length; i++) {
+            int n = Math.min(sizes[i % sizes.length], data.length - offset);
+            if (i % 2 == 0) {
+                chunked.update(data, offset, n);
+            } else {
+                chunked.update(ByteBuffer.allocateDirect(n).put(data, offset, n).flip());
+            }
+            offset += n;
+        }
+        assertEquals(whole.getValue(), chunked.getValue());
+    }
+
+    @Test
+    void resetStartsOver() {
+        Xxh64 xxh = new Xxh64();
+        xxh.update("garbage".getBytes(StandardCharsets.US_ASCII), 0, 7);
+        xxh.reset();
+        byte[] abc = "abc".getBytes(StandardCharsets.US_ASCII);
+        xxh.update(abc, 0, abc.length);
+        assertEquals(0x44BC2CF5AD770999L, xxh.getValue());
+    }
+
+    private static long hash(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        Xxh64 xxh = new Xxh64();
+        xxh.update(bytes, 0, bytes.length);
+        return xxh.getValue();
+    }
+}